@@ -49,6 +49,7 @@ matchCase : 'case' matchPattern block ;
 matchPattern : identifier 'as' type
                | identifier 'as' type 'with' identifier
                | identifier
+               | literal
                | 'range' expression 'to' expression
                | 'guard' expression 'where' expression
                ;
@@ -0,0 +1,381 @@
+package com.ylang.backend;
+
+import com.ylang.backend.cache.CompileArtifacts;
+import com.ylang.backend.cache.DiskArtifactCache;
+import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.model.CompileOptions;
+import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.CompileArtifactCache;
+import com.ylang.backend.service.YLanguageParserService;
+import com.ylang.backend.translator.RustTranslator;
+import com.ylang.backend.translator.TypeScriptTranslator;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * ylangc: command-line compiler that runs the parser, analyzers and translators without starting
+ * Spring or a web server.
+ *
+ * Inputs are .y files or directory trees; every file is compiled in parallel and written next to
+ * its source, or under the output directory with the same relative layout. In watch mode the JVM
+ * stays warm and only files whose content changed are compiled again.
+ */
+public class YLangCompilerCli {
+
+    static final String SOURCE_EXTENSION = ".y";
+
+    private static final String USAGE = String.join("\n",
+        "Usage: ylangc [options] <file or directory>...",
+        "  -t, --target <rust|typescript>  Target language (default: typescript)",
+        "  -o, --out <directory>           Output directory (default: next to each source)",
+        "  -j, --jobs <n>                  Files compiled in parallel (default: available processors)",
+        "      --shape-stable              Emit V8 shape-stable TypeScript",
+        "      --cache <directory>         Persistent artifact cache shared with the backend",
+        "  -w, --watch                     Recompile changed files until interrupted",
+        "  -v, --verbose                   Log compiler progress",
+        "  -h, --help                      Show this help");
+
+    private final CompilationService compilationService;
+    private final String targetLanguage;
+    private final CompileOptions options;
+    private final Path outputDirectory;
+    private final ForkJoinPool pool;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Content key of every file at its last compilation, so touched but unchanged files are skipped
+    private final Map<Path, byte[]> compiledHashes = new ConcurrentHashMap<>();
+
+    YLangCompilerCli(CompilationService compilationService, String targetLanguage, CompileOptions options,
+                     Path outputDirectory, int jobs, PrintStream out, PrintStream err) {
+        this.compilationService = compilationService;
+        this.targetLanguage = targetLanguage;
+        this.options = options;
+        this.outputDirectory = outputDirectory;
+        this.pool = new ForkJoinPool(jobs);
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the compiler with command-line arguments
+     * @return Exit code: 0 on success, 1 when a file failed to compile, 2 on invalid usage
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        String target = "typescript";
+        Path outputDirectory = null;
+        Path cacheDirectory = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean shapeStable = false;
+        boolean watch = false;
+        boolean verbose = false;
+        List<Path> inputs = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-t", "--target" -> target = args[++i].toLowerCase();
+                    case "-o", "--out" -> outputDirectory = Path.of(args[++i]);
+                    case "-j", "--jobs" -> jobs = Integer.parseInt(args[++i]);
+                    case "--shape-stable" -> shapeStable = true;
+                    case "--cache" -> cacheDirectory = Path.of(args[++i]);
+                    case "-w", "--watch" -> watch = true;
+                    case "-v", "--verbose" -> verbose = true;
+                    case "-h", "--help" -> {
+                        out.println(USAGE);
+                        return 0;
+                    }
+                    default -> {
+                        if (args[i].startsWith("-")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        inputs.add(Path.of(args[i]));
+                    }
+                }
+            }
+            if (!target.equals("rust") && !target.equals("typescript")) {
+                throw new IllegalArgumentException("Target language must be 'rust' or 'typescript'");
+            }
+            if (jobs < 1) {
+                throw new IllegalArgumentException("--jobs must be at least 1");
+            }
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input files");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            err.println("ylangc: " + (e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage()));
+            err.println(USAGE);
+            return 2;
+        }
+
+        if (!verbose) {
+            quietLogging();
+        }
+
+        DiskArtifactCache diskCache = null;
+        try {
+            if (cacheDirectory != null) {
+                // Without a translator version the cache could serve output of another build
+                CompileArtifacts.translatorVersion();
+                diskCache = new DiskArtifactCache(cacheDirectory, 64L << 20, 1L << 30);
+            }
+            CompilationService service = new CompilationService(new YLanguageParserService(),
+                new TypeScriptTranslator(), new RustTranslator(), new CompileArtifactCache(diskCache));
+            YLangCompilerCli cli = new YLangCompilerCli(service, target, new CompileOptions(shapeStable),
+                outputDirectory, jobs, out, err);
+
+            int failures = cli.compileAll(inputs);
+            if (!watch) {
+                return failures == 0 ? 0 : 1;
+            }
+            cli.watch(inputs);
+            return 0;
+        } catch (IOException e) {
+            err.println("ylangc: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            if (diskCache != null) {
+                try {
+                    diskCache.close();
+                } catch (IOException e) {
+                    // Nothing left to flush: every record is written before put returns
+                }
+            }
+        }
+    }
+
+    /**
+     * The services log every parse, and every failed one at ERROR; the CLI reports diagnostics itself
+     */
+    private static void quietLogging() {
+        if (LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME) instanceof ch.qos.logback.classic.Logger root) {
+            root.setLevel(ch.qos.logback.classic.Level.OFF);
+        }
+    }
+
+    /**
+     * Compile every source file under the inputs in parallel
+     * @return Number of files that failed
+     */
+    int compileAll(List<Path> inputs) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Path input : inputs) {
+            sources.addAll(collect(input));
+        }
+        return compile(sources);
+    }
+
+    private int compile(List<Source> sources) {
+        AtomicInteger failures = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+        try {
+            pool.submit(() -> sources.parallelStream().forEach(source -> {
+                if (!compile(source)) {
+                    failures.incrementAndGet();
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            err.println("ylangc: " + e.getCause().getMessage());
+            failures.incrementAndGet();
+        }
+        out.printf("Compiled %d file(s) to %s in %d ms, %d failed%n", sources.size(), targetLanguage,
+                   System.currentTimeMillis() - startTime, failures.get());
+        return failures.get();
+    }
+
+    /**
+     * A source file, the root its output path is relative to, and its text when already read
+     */
+    record Source(Path file, Path root, String code) {
+        Source(Path file, Path root) {
+            this(file, root, null);
+        }
+    }
+
+    private static List<Source> collect(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            Path parent = input.toAbsolutePath().getParent();
+            return List.of(new Source(input, parent));
+        }
+        try (Stream<Path> files = Files.walk(input)) {
+            return files.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(SOURCE_EXTENSION))
+                .map(path -> new Source(path, input))
+                .toList();
+        }
+    }
+
+    private boolean compile(Source source) {
+        try {
+            String code = source.code() != null ? source.code() : read(source.file());
+            CompileResponse response = compilationService.compile(code, targetLanguage, null, options);
+            for (String warning : response.getWarnings()) {
+                err.println(source.file() + ": warning: " + warning);
+            }
+            if (!response.isSuccess()) {
+                for (String error : response.getErrors()) {
+                    err.println(source.file() + ": error: " + error);
+                }
+                compiledHashes.remove(source.file().toAbsolutePath().normalize());
+                return false;
+            }
+
+            Path output = outputPath(source);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.writeString(output, response.getCompiledCode(), StandardCharsets.UTF_8);
+            compiledHashes.put(source.file().toAbsolutePath().normalize(), contentHash(code));
+            return true;
+        } catch (IOException e) {
+            err.println(source.file() + ": error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * SHA-256 of a source together with the target and options
+     */
+    private byte[] contentHash(String code) {
+        return CompileArtifacts.contentKey(code, targetLanguage, options);
+    }
+
+    /**
+     * Read a source file through a read-only memory mapping
+     */
+    static String read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    }
+
+    Path outputPath(Source source) {
+        String extension = targetLanguage.equals("rust") ? ".rs" : ".ts";
+        String name = source.file().getFileName().toString();
+        if (name.endsWith(SOURCE_EXTENSION)) {
+            name = name.substring(0, name.length() - SOURCE_EXTENSION.length());
+        }
+        if (outputDirectory == null) {
+            return source.file().resolveSibling(name + extension);
+        }
+        Path relative = source.root().toAbsolutePath().relativize(source.file().toAbsolutePath());
+        Path parent = relative.getParent();
+        return parent == null ? outputDirectory.resolve(name + extension)
+                              : outputDirectory.resolve(parent).resolve(name + extension);
+    }
+
+    /**
+     * Recompile changed sources until the thread is interrupted
+     */
+    void watch(List<Path> inputs) throws IOException, InterruptedException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            // WatchService is not recursive, so every directory of a tree is registered;
+            // each watched directory maps to the root its outputs are relative to
+            Map<WatchKey, Path> directories = new HashMap<>();
+            Map<Path, Path> treeRoots = new HashMap<>();
+            Set<Path> files = new LinkedHashSet<>();
+            for (Path input : inputs) {
+                Path absolute = input.toAbsolutePath().normalize();
+                if (Files.isDirectory(absolute)) {
+                    register(watcher, absolute, absolute, directories, treeRoots);
+                } else {
+                    directories.put(absolute.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), absolute.getParent());
+                    files.add(absolute);
+                }
+            }
+            out.println("Watching for changes, press Ctrl+C to stop");
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watcher.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                // Editors write a file in several steps: collect events until they settle
+                while (key != null) {
+                    Path directory = directories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                            continue;
+                        }
+                        Path path = directory.resolve((Path) event.context());
+                        Path root = treeRoots.get(directory);
+                        if (root != null && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                            register(watcher, path, root, directories, treeRoots);
+                            try (Stream<Path> created = Files.walk(path)) {
+                                created.filter(file -> file.toString().endsWith(SOURCE_EXTENSION)).forEach(changed::add);
+                            }
+                        } else if (root != null ? path.toString().endsWith(SOURCE_EXTENSION) : files.contains(path)) {
+                            changed.add(path);
+                        }
+                    }
+                    if (!key.reset()) {
+                        directories.remove(key);
+                    }
+                    key = watcher.poll(100, TimeUnit.MILLISECONDS);
+                }
+
+                List<Source> sources = new ArrayList<>();
+                for (Path path : changed) {
+                    if (!Files.isRegularFile(path)) {
+                        continue;
+                    }
+                    String code = read(path);
+                    byte[] previous = compiledHashes.get(path);
+                    if (previous != null && Arrays.equals(previous, contentHash(code))) {
+                        continue;
+                    }
+                    Path root = treeRoots.get(path.getParent());
+                    sources.add(new Source(path, root != null ? root : path.getParent(), code));
+                }
+                if (!sources.isEmpty()) {
+                    compile(sources);
+                }
+            }
+        }
+    }
+
+    private static void register(WatchService watcher, Path tree, Path root, Map<WatchKey, Path> directories,
+                                 Map<Path, Path> treeRoots) throws IOException {
+        try (Stream<Path> paths = Files.walk(tree)) {
+            for (Path directory : paths.filter(Files::isDirectory).toList()) {
+                directories.put(directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY), directory);
+                treeRoots.put(directory, root);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,438 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content of a function declaration as the type checker sees it, without source locations.
+ *
+ * Two functions with equal keys are checked alike as long as the functions they call and the
+ * structures they access are declared alike. Every node of the function is listed in walk order,
+ * so a result recorded against the nodes of one function can be replayed onto another with the
+ * same key by position.
+ */
+final class FunctionFingerprint implements ASTVisitor<Void> {
+
+    private final StringBuilder key = new StringBuilder();
+    private final List<ASTNode> nodes = new ArrayList<>();
+
+    private FunctionFingerprint() {}
+
+    static FunctionFingerprint of(FunctionDeclarationNode function) {
+        FunctionFingerprint fingerprint = new FunctionFingerprint();
+        function.accept(fingerprint);
+        return fingerprint;
+    }
+
+    String key() {
+        return key.toString();
+    }
+
+    /**
+     * Nodes of the function in walk order, the function itself first
+     */
+    List<ASTNode> nodes() {
+        return nodes;
+    }
+
+    // Encoding
+
+    private void open(ASTNode node, String tag) {
+        nodes.add(node);
+        key.append('(').append(tag);
+    }
+
+    private void close() {
+        key.append(')');
+    }
+
+    private void text(String value) {
+        if (value == null) {
+            key.append(" ~");
+        } else {
+            key.append(' ').append(value.length()).append(':').append(value);
+        }
+    }
+
+    private void type(TypeNode type) {
+        key.append(' ');
+        appendType(key, type);
+    }
+
+    /**
+     * Append an unambiguous encoding of a type, distinguishing an absent type from any
+     */
+    static void appendType(StringBuilder into, TypeNode type) {
+        if (type == null) {
+            into.append('~');
+            return;
+        }
+        into.append('[').append(type.getKind().name());
+        if (type.getName() != null) {
+            into.append(' ').append(type.getName());
+        }
+        for (TypeNode part : new TypeNode[] {type.getElementType(), type.getKeyType(), type.getValueType(),
+                type.getLeftType(), type.getRightType(), type.getParamType(), type.getReturnType()}) {
+            into.append(' ');
+            appendType(into, part);
+        }
+        into.append(']');
+    }
+
+    private void node(ASTNode node) {
+        if (node == null) {
+            key.append(" ~");
+        } else {
+            key.append(' ');
+            node.accept(this);
+        }
+    }
+
+    private void nodes(List<? extends ASTNode> list) {
+        key.append(" {");
+        for (ASTNode node : list) {
+            node(node);
+        }
+        key.append('}');
+    }
+
+    // Statements
+
+    @Override
+    public Void visitProgram(ProgramNode node) {
+        open(node, "program");
+        nodes(node.getStatements());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionDeclaration(FunctionDeclarationNode node) {
+        open(node, "function");
+        text(node.getName());
+        key.append(" {");
+        for (ParameterNode param : node.getParameters()) {
+            text(param.getName());
+            type(param.getType());
+        }
+        key.append('}');
+        type(node.getReturnType());
+        node(node.getBody());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDeclaration(VariableDeclarationNode node) {
+        open(node, "var");
+        text(node.getName());
+        type(node.getType());
+        node(node.getInitializer());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentNode node) {
+        open(node, "assign");
+        text(node.getVariableName());
+        node(node.getValue());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(IfStatementNode node) {
+        open(node, "if");
+        node(node.getCondition());
+        node(node.getThenBlock());
+        node(node.hasElseBlock() ? node.getElseBlock() : null);
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitLoopStatement(LoopStatementNode node) {
+        open(node, "loop");
+        text(node.getLoopType().name());
+        text(node.getVariableName());
+        node(node.getIterable());
+        node(node.getInitializer());
+        node(node.getCondition());
+        text(node.getIncrementVar());
+        node(node.getBody());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStatement(ReturnStatementNode node) {
+        open(node, "return");
+        node(node.hasValue() ? node.getValue() : null);
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockNode node) {
+        open(node, "block");
+        nodes(node.getStatements());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitTryStatement(TryStatementNode node) {
+        open(node, "try");
+        node(node.getTryBlock());
+        for (TryStatementNode.CatchClause catchClause : node.getCatchClauses()) {
+            text(catchClause.getVariableName());
+            type(catchClause.getExceptionType());
+            node(catchClause.getCatchBlock());
+        }
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitMatchStatement(MatchStatementNode node) {
+        open(node, "match");
+        node(node.getExpression());
+        for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
+            text(matchCase.getKind().name());
+            text(matchCase.getPattern());
+            text(matchCase.getVariableName());
+            type(matchCase.getType());
+            node(matchCase.getValue());
+            node(matchCase.getRangeEnd());
+            node(matchCase.getGuard());
+            node(matchCase.getBlock());
+        }
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitModuleDeclaration(ModuleDeclarationNode node) {
+        open(node, "module");
+        text(node.getName());
+        nodes(node.getStatements());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitTraitDeclaration(TraitDeclarationNode node) {
+        open(node, "trait");
+        text(node.getName());
+        for (TraitDeclarationNode.FunctionSignatureNode signature : node.getFunctionSignatures()) {
+            text(signature.getName());
+            for (ParameterNode param : signature.getParameters()) {
+                text(param.getName());
+                type(param.getType());
+            }
+            type(signature.getReturnType());
+        }
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitStructureDeclaration(StructureDeclarationNode node) {
+        open(node, "structure");
+        text(node.getName());
+        text(node.getGenericType());
+        text(node.getImplementsTrait());
+        nodes(node.getMembers());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitImportStatement(ImportStatementNode node) {
+        open(node, "import");
+        text(node.getModuleName());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatementNode node) {
+        open(node, "expression");
+        node(node.getExpression());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitEnumDeclaration(EnumDeclarationNode node) {
+        open(node, "enum");
+        text(node.getName());
+        text(node.getGenericType());
+        for (EnumDeclarationNode.EnumVariant variant : node.getVariants()) {
+            text(variant.getName());
+            for (TypeNode fieldType : variant.getFieldTypes()) {
+                type(fieldType);
+            }
+        }
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitImplementation(ImplementationNode node) {
+        open(node, "impl");
+        text(node.getTargetType());
+        text(node.getTraitName());
+        nodes(node.getMethods());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitLifetime(LifetimeNode node) {
+        open(node, "lifetime");
+        text(node.getName());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitInterfaceDeclaration(InterfaceDeclarationNode node) {
+        open(node, "interface");
+        text(node.getName());
+        text(node.getGenericType());
+        for (InterfaceDeclarationNode.InterfaceMember member : node.getMembers()) {
+            text(member.getName());
+            type(member.getType());
+            key.append(member.isOptional() ? " ?" : " !").append(member.isReadonly() ? 'r' : 'w');
+        }
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitTypeAliasDeclaration(TypeAliasDeclarationNode node) {
+        open(node, "alias");
+        text(node.getName());
+        text(node.getGenericType());
+        type(node.getAliasedType());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitDecorator(DecoratorNode node) {
+        open(node, "decorator");
+        text(node.getName());
+        nodes(node.getArguments());
+        node(node.getTarget());
+        close();
+        return null;
+    }
+
+    // Expressions
+
+    @Override
+    public Void visitLiteral(LiteralNode node) {
+        open(node, "literal");
+        text(node.getLiteralType().name());
+        text(node.getValue() != null ? node.getValue().getClass().getSimpleName() + " " + node.getValue() : null);
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierNode node) {
+        open(node, "identifier");
+        text(node.getName());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionCall(FunctionCallNode node) {
+        open(node, "call");
+        text(node.getFunctionName());
+        nodes(node.getArguments());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(BinaryExpressionNode node) {
+        open(node, "binary");
+        text(node.getOperator().name());
+        node(node.getLeft());
+        node(node.getRight());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(UnaryExpressionNode node) {
+        open(node, "unary");
+        text(node.getOperator().name());
+        node(node.getOperand());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitConditionalExpression(ConditionalExpressionNode node) {
+        open(node, "conditional");
+        node(node.getCondition());
+        node(node.getThenExpression());
+        node(node.getElseExpression());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitMemberAccess(MemberAccessNode node) {
+        open(node, "member");
+        text(node.getAccessType().name());
+        node(node.getObject());
+        node(node.getMember());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitListExpression(ListExpressionNode node) {
+        open(node, "list");
+        nodes(node.getElements());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitMapExpression(MapExpressionNode node) {
+        open(node, "map");
+        for (MapExpressionNode.KeyValuePair pair : node.getPairs()) {
+            node(pair.getKey());
+            node(pair.getValue());
+        }
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitTypeCast(TypeCastNode node) {
+        open(node, "cast");
+        text(node.getCastType().name());
+        node(node.getExpression());
+        close();
+        return null;
+    }
+
+    @Override
+    public Void visitParenthesizedExpression(ParenthesizedExpressionNode node) {
+        open(node, "parenthesized");
+        node(node.getExpression());
+        close();
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Functions a bare call can refer to while walking a program.
+ *
+ * A call resolves to a function of the innermost enclosing module (or the program itself) that
+ * declares the name, methods of its implementation blocks included, and otherwise to the one
+ * function of that name anywhere in the program. A name declared twice at one level, or in several
+ * modules that do not enclose the call, resolves to nothing: the call is left unchecked rather than
+ * checked against a declaration it may not refer to.
+ */
+final class FunctionScopes {
+
+    private final Map<String, FunctionDeclarationNode> all = new HashMap<>();
+    private final Deque<Map<String, FunctionDeclarationNode>> levels = new ArrayDeque<>();
+
+    /**
+     * Start walking a program, with its top-level functions in scope
+     */
+    void reset(ProgramNode program) {
+        all.clear();
+        levels.clear();
+        collect(program.getStatements(), all, true);
+        enter(program.getStatements());
+    }
+
+    /**
+     * Enter a module, given its statements
+     */
+    void enter(List<ASTNode> statements) {
+        Map<String, FunctionDeclarationNode> level = new HashMap<>();
+        collect(statements, level, false);
+        levels.push(level);
+    }
+
+    void exit() {
+        levels.pop();
+    }
+
+    /**
+     * Declaration a call by this name refers to, or null when it is a builtin, unknown or ambiguous
+     */
+    FunctionDeclarationNode resolve(String name) {
+        for (Map<String, FunctionDeclarationNode> level : levels) {
+            if (level.containsKey(name)) {
+                return level.get(name);
+            }
+        }
+        return all.get(name);
+    }
+
+    private static void collect(List<ASTNode> statements, Map<String, FunctionDeclarationNode> into, boolean nested) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof FunctionDeclarationNode fn) {
+                // A second declaration leaves the name mapped to null, which stops the lookup there
+                into.put(fn.getName(), into.containsKey(fn.getName()) ? null : fn);
+            } else if (statement instanceof ImplementationNode impl) {
+                collect(impl.getMethods(), into, nested);
+            } else if (nested && statement instanceof ModuleDeclarationNode module) {
+                collect(module.getStatements(), into, true);
+            }
+        }
+    }
+}
\ No newline at end of file
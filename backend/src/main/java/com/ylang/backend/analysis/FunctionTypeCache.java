@@ -0,0 +1,67 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.TypeNode;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type checking results of function bodies, shared between {@link TypeChecker} runs.
+ *
+ * Entries are keyed by the content of a function, so a function that is unchanged between two
+ * compilations (an edited document in the language server, a module compiled again in another
+ * project) is not checked again: its resolved types and errors are replayed onto the new nodes.
+ * An entry only applies while the functions and structures the body referred to are declared
+ * as they were when it was recorded. Safe for use from several threads.
+ */
+public class FunctionTypeCache {
+
+    /**
+     * Resolved type of the node at a position of the function's walk order
+     */
+    record ResolvedType(int node, TypeNode type) {}
+
+    /**
+     * Error reported at the node at a position of the function's walk order, without its location
+     */
+    record Error(int node, String message) {}
+
+    /**
+     * Result of checking one function body, with the signatures of the declarations it depended on
+     */
+    record Entry(Map<String, String> functions, Map<String, String> structures,
+                 List<ResolvedType> types, List<Error> errors) {}
+
+    private final int capacity;
+
+    // Least recently used entries keyed by function content
+    private final Map<String, Entry> entries;
+
+    public FunctionTypeCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > FunctionTypeCache.this.capacity;
+            }
+        });
+    }
+
+    Entry get(String key) {
+        return entries.get(key);
+    }
+
+    void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
\ No newline at end of file
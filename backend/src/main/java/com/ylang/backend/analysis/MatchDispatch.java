@@ -0,0 +1,255 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatch plan for a match statement whose leading cases are integer literals and ranges.
+ *
+ * Those cases are turned into sorted, disjoint intervals (a later case only keeps the values
+ * no earlier case already took, so first-match semantics survive the reordering), adjacent
+ * intervals of the same case are merged, and the plan decides whether a dense jump table or a
+ * binary search over the intervals is the cheaper dispatch. Everything from the first guard,
+ * binding or non-constant case onwards is left to sequential checks, since those can depend on
+ * the order in which cases are written.
+ */
+public class MatchDispatch {
+
+    /** Largest number of values a dense jump table may list */
+    public static final int MAX_TABLE_SIZE = 512;
+
+    /** Below this many intervals a plain chain of comparisons is as cheap as any dispatch */
+    public static final int MIN_DISPATCH_INTERVALS = 4;
+
+    /**
+     * Values start..end (inclusive) select the case at caseIndex
+     */
+    public static final class Interval {
+        private final long start;
+        private final long end;
+        private final int caseIndex;
+
+        Interval(long start, long end, int caseIndex) {
+            this.start = start;
+            this.end = end;
+            this.caseIndex = caseIndex;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public int getCaseIndex() {
+            return caseIndex;
+        }
+
+        public long size() {
+            return end - start + 1;
+        }
+    }
+
+    private final List<Interval> intervals;
+    private final int fallbackStart;
+
+    private MatchDispatch(List<Interval> intervals, int fallbackStart) {
+        this.intervals = intervals;
+        this.fallbackStart = fallbackStart;
+    }
+
+    /**
+     * Build the dispatch plan for a match statement
+     */
+    public static MatchDispatch plan(MatchStatementNode node) {
+        return plan(node.getCases());
+    }
+
+    public static MatchDispatch plan(List<MatchStatementNode.MatchCase> cases) {
+        List<Interval> covered = new ArrayList<>();
+        int index = 0;
+
+        for (; index < cases.size(); index++) {
+            long[] bounds = constantBounds(cases.get(index));
+            if (bounds == null) {
+                break;
+            }
+            if (bounds[0] > bounds[1]) {
+                continue; // Empty range never matches
+            }
+            for (long[] piece : subtract(bounds[0], bounds[1], covered)) {
+                covered.add(new Interval(piece[0], piece[1], index));
+            }
+        }
+
+        covered.sort(Comparator.comparingLong(Interval::getStart));
+        return new MatchDispatch(merge(covered), index);
+    }
+
+    /**
+     * The [start, end] bounds of a literal or range case with integer constant bounds, or null
+     */
+    private static long[] constantBounds(MatchStatementNode.MatchCase matchCase) {
+        switch (matchCase.getKind()) {
+            case LITERAL: {
+                Long value = integerConstant(matchCase.getValue());
+                return value != null ? new long[] {value, value} : null;
+            }
+            case RANGE: {
+                Long start = integerConstant(matchCase.getRangeStart());
+                Long end = integerConstant(matchCase.getRangeEnd());
+                return start != null && end != null ? new long[] {start, end} : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Value of an integer constant expression (a number literal, possibly negated or parenthesized)
+     */
+    public static Long integerConstant(ExpressionNode expression) {
+        if (expression instanceof LiteralNode literal && literal.getLiteralType() == LiteralNode.LiteralType.NUMBER) {
+            Object value = literal.getValue();
+            if (value instanceof Long || value instanceof Integer) {
+                return ((Number) value).longValue();
+            }
+        } else if (expression instanceof UnaryExpressionNode unary && unary.getOperator() == UnaryExpressionNode.Operator.MINUS) {
+            Long value = integerConstant(unary.getOperand());
+            return value != null ? -value : null;
+        } else if (expression instanceof ParenthesizedExpressionNode paren) {
+            return integerConstant(paren.getExpression());
+        }
+        return null;
+    }
+
+    /**
+     * Parts of [start, end] not covered by any interval taken by an earlier case
+     */
+    private static List<long[]> subtract(long start, long end, List<Interval> covered) {
+        List<long[]> pieces = new ArrayList<>();
+        pieces.add(new long[] {start, end});
+        for (Interval taken : covered) {
+            List<long[]> remaining = new ArrayList<>();
+            for (long[] piece : pieces) {
+                if (taken.end < piece[0] || taken.start > piece[1]) {
+                    remaining.add(piece);
+                    continue;
+                }
+                if (piece[0] < taken.start) {
+                    remaining.add(new long[] {piece[0], taken.start - 1});
+                }
+                if (piece[1] > taken.end) {
+                    remaining.add(new long[] {taken.end + 1, piece[1]});
+                }
+            }
+            pieces = remaining;
+        }
+        return pieces;
+    }
+
+    private static List<Interval> merge(List<Interval> sorted) {
+        List<Interval> merged = new ArrayList<>();
+        for (Interval interval : sorted) {
+            if (!merged.isEmpty()) {
+                Interval last = merged.get(merged.size() - 1);
+                if (last.caseIndex == interval.caseIndex && last.end + 1 == interval.start) {
+                    merged.set(merged.size() - 1, new Interval(last.start, interval.end, last.caseIndex));
+                    continue;
+                }
+            }
+            merged.add(interval);
+        }
+        return merged;
+    }
+
+    /**
+     * Sorted, disjoint intervals for the constant cases
+     */
+    public List<Interval> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Intervals grouped by the case they select, in source order of the cases
+     */
+    public Map<Integer, List<Interval>> getIntervalsByCase() {
+        Map<Integer, List<Interval>> byCase = new LinkedHashMap<>();
+        for (int i = 0; i < fallbackStart; i++) {
+            byCase.put(i, new ArrayList<>());
+        }
+        for (Interval interval : intervals) {
+            byCase.get(interval.caseIndex).add(interval);
+        }
+        byCase.values().removeIf(List::isEmpty);
+        return byCase;
+    }
+
+    /**
+     * Index of the first case that must be checked sequentially
+     */
+    public int getFallbackStart() {
+        return fallbackStart;
+    }
+
+    public boolean hasConstantCases() {
+        return !intervals.isEmpty();
+    }
+
+    /**
+     * Whether enough constant cases exist for table or binary-search dispatch to pay off
+     */
+    public boolean isWorthDispatching() {
+        return intervals.size() >= MIN_DISPATCH_INTERVALS;
+    }
+
+    /**
+     * Number of distinct values selected by the constant cases
+     */
+    public long getCoveredValues() {
+        long count = 0;
+        for (Interval interval : intervals) {
+            count += interval.size();
+        }
+        return count;
+    }
+
+    /**
+     * A jump table pays off when it is small and at least half of its slots select a case
+     */
+    public boolean isDense() {
+        if (intervals.isEmpty()) {
+            return false;
+        }
+        long span = intervals.get(intervals.size() - 1).end - intervals.get(0).start + 1;
+        long covered = getCoveredValues();
+        return span > 0 && span <= MAX_TABLE_SIZE && covered * 2 >= span;
+    }
+
+    /**
+     * Case index selected by a value through binary search, or -1 when no constant case matches
+     */
+    public int lookup(long value) {
+        int low = 0;
+        int high = intervals.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Interval interval = intervals.get(mid);
+            if (value < interval.start) {
+                high = mid - 1;
+            } else if (value > interval.end) {
+                low = mid + 1;
+            } else {
+                return interval.caseIndex;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,268 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph between the files of a project, built from their import statements.
+ *
+ * Every file is a module named after the file, and the modules it declares at top level can be
+ * imported by their own name as well. Imports that name a module of the project become edges;
+ * anything else is treated as an external import. Modules are grouped into build levels where
+ * every module only depends on modules of earlier levels, so the modules of one level can be
+ * compiled in parallel. Modules on an import cycle, or depending on one, get no level.
+ */
+public class ModuleGraph {
+
+    private final Map<String, Set<String>> dependencies;
+    private final Map<String, Set<String>> externalImports;
+    private final List<String> conflicts;
+    private final List<List<String>> levels;
+    private final List<List<String>> cycles;
+    private final Set<String> blocked;
+
+    private ModuleGraph(Map<String, Set<String>> dependencies, Map<String, Set<String>> externalImports,
+                        List<String> conflicts, List<List<String>> levels, List<List<String>> cycles,
+                        Set<String> blocked) {
+        this.dependencies = dependencies;
+        this.externalImports = externalImports;
+        this.conflicts = conflicts;
+        this.levels = levels;
+        this.cycles = cycles;
+        this.blocked = blocked;
+    }
+
+    /**
+     * Build the graph for a project
+     * @param modules Parsed program of every file, keyed by module name, in a stable order
+     */
+    public static ModuleGraph build(Map<String, ProgramNode> modules) {
+        // Which file provides each importable name
+        Map<String, String> providers = new HashMap<>();
+        List<String> conflicts = new ArrayList<>();
+        for (String module : modules.keySet()) {
+            providers.put(module, module);
+        }
+        for (Map.Entry<String, ProgramNode> entry : modules.entrySet()) {
+            for (ASTNode statement : entry.getValue().getStatements()) {
+                if (statement instanceof ModuleDeclarationNode declaration) {
+                    String previous = providers.putIfAbsent(declaration.getName(), entry.getKey());
+                    if (previous != null && !previous.equals(entry.getKey())) {
+                        conflicts.add("Module '" + declaration.getName() + "' is provided by both '"
+                                + previous + "' and '" + entry.getKey() + "'");
+                    }
+                }
+            }
+        }
+
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        Map<String, Set<String>> externalImports = new LinkedHashMap<>();
+        for (Map.Entry<String, ProgramNode> entry : modules.entrySet()) {
+            Set<String> internal = new LinkedHashSet<>();
+            Set<String> external = new LinkedHashSet<>();
+            List<String> imported = new ArrayList<>();
+            collectImports(entry.getValue().getStatements(), imported);
+            for (String name : imported) {
+                String provider = providers.get(name);
+                if (provider != null) {
+                    internal.add(provider);
+                } else {
+                    external.add(name);
+                }
+            }
+            dependencies.put(entry.getKey(), internal);
+            externalImports.put(entry.getKey(), external);
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        Set<String> placed = buildLevels(dependencies, levels);
+        Set<String> blocked = new LinkedHashSet<>(dependencies.keySet());
+        blocked.removeAll(placed);
+        List<List<String>> cycles = findCycles(dependencies, blocked);
+
+        return new ModuleGraph(dependencies, externalImports, conflicts, levels, cycles, blocked);
+    }
+
+    private static void collectImports(List<ASTNode> statements, List<String> imported) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof ImportStatementNode importStatement) {
+                imported.add(importStatement.getModuleName());
+            } else if (statement instanceof ModuleDeclarationNode declaration) {
+                collectImports(declaration.getStatements(), imported);
+            }
+        }
+    }
+
+    /**
+     * Kahn's algorithm, one level per round; returns the modules that were placed
+     */
+    private static Set<String> buildLevels(Map<String, Set<String>> dependencies, List<List<String>> levels) {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            pending.put(entry.getKey(), entry.getValue().size());
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        Set<String> placed = new LinkedHashSet<>();
+        List<String> level = new ArrayList<>();
+        for (String module : dependencies.keySet()) {
+            if (pending.get(module) == 0) {
+                level.add(module);
+            }
+        }
+        while (!level.isEmpty()) {
+            levels.add(level);
+            placed.addAll(level);
+            List<String> next = new ArrayList<>();
+            for (String module : level) {
+                for (String dependent : dependents.getOrDefault(module, Collections.emptyList())) {
+                    if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            level = next;
+        }
+        return placed;
+    }
+
+    /**
+     * Strongly connected components among the unplaced modules that form a cycle (Tarjan)
+     */
+    private static List<List<String>> findCycles(Map<String, Set<String>> dependencies, Set<String> blocked) {
+        List<List<String>> cycles = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> lowLink = new HashMap<>();
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> onStack = new HashSet<>();
+        for (String module : blocked) {
+            if (!index.containsKey(module)) {
+                strongConnect(module, dependencies, blocked, index, lowLink, stack, onStack, cycles);
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Tarjan's visit of one module and everything it reaches, with an explicit stack of the modules
+     * being visited so a long import chain cannot overflow the thread's stack
+     */
+    private static void strongConnect(String root, Map<String, Set<String>> dependencies, Set<String> blocked,
+                                      Map<String, Integer> index, Map<String, Integer> lowLink,
+                                      Deque<String> stack, Set<String> onStack, List<List<String>> cycles) {
+        Deque<Visit> visits = new ArrayDeque<>();
+        visits.push(enter(root, dependencies, index, lowLink, stack, onStack));
+
+        while (!visits.isEmpty()) {
+            Visit visit = visits.peek();
+            if (visit.remaining().hasNext()) {
+                String dependency = visit.remaining().next();
+                if (!blocked.contains(dependency)) {
+                    continue;
+                }
+                if (!index.containsKey(dependency)) {
+                    visits.push(enter(dependency, dependencies, index, lowLink, stack, onStack));
+                } else if (onStack.contains(dependency)) {
+                    lowLink.put(visit.module(), Math.min(lowLink.get(visit.module()), index.get(dependency)));
+                }
+                continue;
+            }
+
+            visits.pop();
+            String module = visit.module();
+            if (lowLink.get(module).equals(index.get(module))) {
+                List<String> component = new ArrayList<>();
+                String member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (!member.equals(module));
+                if (component.size() > 1 || dependencies.get(module).contains(module)) {
+                    Collections.reverse(component);
+                    cycles.add(component);
+                }
+            }
+            Visit caller = visits.peek();
+            if (caller != null) {
+                lowLink.put(caller.module(), Math.min(lowLink.get(caller.module()), lowLink.get(module)));
+            }
+        }
+    }
+
+    private static Visit enter(String module, Map<String, Set<String>> dependencies,
+                               Map<String, Integer> index, Map<String, Integer> lowLink,
+                               Deque<String> stack, Set<String> onStack) {
+        index.put(module, index.size());
+        lowLink.put(module, index.get(module));
+        stack.push(module);
+        onStack.add(module);
+        return new Visit(module, dependencies.get(module).iterator());
+    }
+
+    /**
+     * A module being visited and the dependencies it has left to look at
+     */
+    private record Visit(String module, Iterator<String> remaining) {}
+
+    /**
+     * Project modules a module imports directly
+     */
+    public Set<String> getDependencies(String module) {
+        return dependencies.getOrDefault(module, Collections.emptySet());
+    }
+
+    /**
+     * Imports of a module that name nothing in the project
+     */
+    public Set<String> getExternalImports(String module) {
+        return externalImports.getOrDefault(module, Collections.emptySet());
+    }
+
+    /**
+     * Names declared by more than one file
+     */
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Build levels in order; modules within a level do not depend on each other
+     */
+    public List<List<String>> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Import cycles, each listed as the modules on it
+     */
+    public List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    public boolean hasCycles() {
+        return !cycles.isEmpty();
+    }
+
+    /**
+     * Modules that cannot be built because they are on or depend on an import cycle
+     */
+    public Set<String> getBlocked() {
+        return blocked;
+    }
+}
\ No newline at end of file
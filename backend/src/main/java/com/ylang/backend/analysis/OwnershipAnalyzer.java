@@ -0,0 +1,549 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ownership and borrow inference for the Rust target.
+ *
+ * Every use of a variable is classified as a read, a borrow (argument to a parameter that is
+ * itself only read) or an owning use (returned, stored, assigned or passed to a parameter that
+ * keeps its value). From that the analysis decides which parameters can be taken by reference,
+ * which literal-bound locals can stay &str or &[T], which boxes can live on the stack, and
+ * where a move needs a clone because the value is used again afterwards.
+ *
+ * Parameter modes depend on the callees' modes. A parameter is demoted from borrowed to owned as
+ * soon as an owning use is seen, and the program is walked again only when a call site read its
+ * mode before that; modes only ever move in that direction, so this terminates.
+ * Uses resolved types from {@link TypeChecker} when present to type loop variables.
+ */
+public class OwnershipAnalyzer {
+
+    private enum Position {
+        READ, BORROW, OWN
+    }
+
+    private static final class Use {
+        final ExpressionNode node;
+        final Position position;
+        final int sequence;
+        final int loopDepth;
+
+        Use(ExpressionNode node, Position position, int sequence, int loopDepth) {
+            this.node = node;
+            this.position = position;
+            this.sequence = sequence;
+            this.loopDepth = loopDepth;
+        }
+    }
+
+    private static final class Variable {
+        final TypeNode type;
+        final ASTNode declaration;
+        final int loopDepth;
+        final List<Use> uses = new ArrayList<>();
+        boolean reference;
+        boolean assigned;
+
+        Variable(TypeNode type, ASTNode declaration, int loopDepth, boolean reference) {
+            this.type = type;
+            this.declaration = declaration;
+            this.loopDepth = loopDepth;
+            this.reference = reference;
+        }
+
+        boolean isOwned() {
+            for (Use use : uses) {
+                if (use.position == Position.OWN) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final FunctionScopes functions = new FunctionScopes();
+    private final Set<ParameterNode> ownedParameters = OwnershipInfo.identitySet();
+
+    // Per-walk state
+    private final Deque<Map<String, Variable>> scopes = new ArrayDeque<>();
+    private final List<Variable> variables = new ArrayList<>();
+    private Set<ExpressionNode> borrowedLiterals = OwnershipInfo.identitySet();
+    private Map<LoopStatementNode, OwnershipInfo.Iteration> iterations = new IdentityHashMap<>();
+    private Set<LoopStatementNode> copiedElements = OwnershipInfo.identitySet();
+    private Set<LoopStatementNode> mutableElements = OwnershipInfo.identitySet();
+    private Set<AssignmentNode> assignments = OwnershipInfo.identitySet();
+    private Map<LoopStatementNode, Variable> iterationSources = new IdentityHashMap<>();
+    private Set<ParameterNode> consultedParameters = OwnershipInfo.identitySet();
+    private boolean stale;
+    private int sequence;
+    private int loopDepth;
+
+    /**
+     * Analyze a program
+     * @param program The Y language AST, ideally already type checked
+     * @return Ownership decisions for the Rust translator
+     */
+    public OwnershipInfo analyze(ProgramNode program) {
+        ownedParameters.clear();
+
+        // Parameters start out borrowed and are demoted to owned until a fixpoint is reached
+        do {
+            walk(program);
+        } while (stale);
+
+        return buildInfo();
+    }
+
+    private void walk(ProgramNode program) {
+        scopes.clear();
+        variables.clear();
+        borrowedLiterals = OwnershipInfo.identitySet();
+        iterations = new IdentityHashMap<>();
+        copiedElements = OwnershipInfo.identitySet();
+        mutableElements = OwnershipInfo.identitySet();
+        assignments = OwnershipInfo.identitySet();
+        iterationSources = new IdentityHashMap<>();
+        functions.reset(program);
+        consultedParameters = OwnershipInfo.identitySet();
+        stale = false;
+        sequence = 0;
+        loopDepth = 0;
+
+        scopes.push(new HashMap<>());
+        walkStatements(program.getStatements());
+        scopes.pop();
+    }
+
+    private OwnershipInfo buildInfo() {
+        Map<ExpressionNode, OwnershipInfo.Access> accesses = new IdentityHashMap<>();
+        Set<ParameterNode> borrowedParameters = OwnershipInfo.identitySet();
+        Set<ParameterNode> mutableParameters = OwnershipInfo.identitySet();
+        Set<VariableDeclarationNode> borrowedLocals = OwnershipInfo.identitySet();
+        Set<VariableDeclarationNode> mutableLocals = OwnershipInfo.identitySet();
+        Set<VariableDeclarationNode> stackBoxes = OwnershipInfo.identitySet();
+        Set<ASTNode> boxedValues = OwnershipInfo.identitySet();
+
+        for (Map.Entry<LoopStatementNode, Variable> entry : iterationSources.entrySet()) {
+            if (entry.getValue().reference) {
+                iterations.put(entry.getKey(), OwnershipInfo.Iteration.SLICE);
+            }
+        }
+
+        for (Variable variable : variables) {
+            if (variable.declaration instanceof ParameterNode param) {
+                if (!ownedParameters.contains(param)) {
+                    borrowedParameters.add(param);
+                }
+                if (variable.assigned) {
+                    mutableParameters.add(param);
+                }
+            } else if (variable.declaration instanceof VariableDeclarationNode decl) {
+                if (variable.assigned) {
+                    mutableLocals.add(decl);
+                }
+                if (variable.reference) {
+                    borrowedLocals.add(decl);
+                    borrowedLiterals.add(decl.getInitializer());
+                }
+                if (kindOf(variable.type) == TypeNode.TypeKind.BOX) {
+                    if (!variable.isOwned()) {
+                        stackBoxes.add(decl);
+                    } else {
+                        if (!isBoxValue(decl.getInitializer())) {
+                            boxedValues.add(decl);
+                        }
+                        for (AssignmentNode assignment : assignments) {
+                            if (assignment.getVariableName().equals(decl.getName()) && !isBoxValue(assignment.getValue())) {
+                                boxedValues.add(assignment);
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (isCopy(variable.type)) {
+                continue;
+            }
+            for (Use use : variable.uses) {
+                OwnershipInfo.Access access = accessFor(variable, use);
+                if (access != OwnershipInfo.Access.PLAIN) {
+                    accesses.put(use.node, access);
+                }
+            }
+        }
+
+        return new OwnershipInfo(accesses, borrowedParameters, mutableParameters, borrowedLiterals,
+                borrowedLocals, mutableLocals, stackBoxes, boxedValues, iterations, copiedElements, mutableElements);
+    }
+
+    private OwnershipInfo.Access accessFor(Variable variable, Use use) {
+        switch (use.position) {
+            case BORROW:
+                return variable.reference ? OwnershipInfo.Access.PLAIN : OwnershipInfo.Access.BORROW;
+            case OWN:
+                if (variable.reference) {
+                    return OwnershipInfo.Access.TO_OWNED;
+                }
+                return isUsedAfter(variable, use) ? OwnershipInfo.Access.CLONE : OwnershipInfo.Access.PLAIN;
+            default:
+                return OwnershipInfo.Access.PLAIN;
+        }
+    }
+
+    /**
+     * A move needs a clone when the variable is used again later, or when it happens inside a
+     * loop the variable was declared outside of (the next iteration would use a moved value)
+     */
+    private boolean isUsedAfter(Variable variable, Use move) {
+        if (move.loopDepth > variable.loopDepth) {
+            return true;
+        }
+        for (Use use : variable.uses) {
+            if (use.sequence > move.sequence) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Scopes
+
+    private Variable declare(String name, TypeNode type, ASTNode declaration, boolean reference) {
+        Variable variable = new Variable(type, declaration, loopDepth, reference);
+        variables.add(variable);
+        if (name != null) {
+            scopes.peek().put(name, variable);
+        }
+        return variable;
+    }
+
+    private Variable lookup(String name) {
+        for (Map<String, Variable> scope : scopes) {
+            Variable variable = scope.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    // Statements
+
+    private void walkStatements(List<ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            walkStatement(statement);
+        }
+    }
+
+    private void walkBlock(BlockNode block) {
+        if (block == null) {
+            return;
+        }
+        scopes.push(new HashMap<>());
+        walkStatements(block.getStatements());
+        scopes.pop();
+    }
+
+    private void walkStatement(ASTNode node) {
+        if (node instanceof BlockNode block) {
+            walkBlock(block);
+        } else if (node instanceof FunctionDeclarationNode fn) {
+            walkFunction(fn);
+        } else if (node instanceof VariableDeclarationNode decl) {
+            walkExpression(decl.getInitializer(), Position.OWN);
+            Variable variable = declare(decl.getName(), decl.getType(), decl, false);
+            // Literal-bound strings and lists start as borrows; demoted below if ever owned
+            variable.reference = isBorrowableLiteral(decl.getInitializer(), decl.getType());
+        } else if (node instanceof AssignmentNode assignment) {
+            walkExpression(assignment.getValue(), Position.OWN);
+            Variable variable = lookup(assignment.getVariableName());
+            if (variable != null) {
+                variable.assigned = true;
+                demote(variable);
+            }
+            assignments.add(assignment);
+        } else if (node instanceof IfStatementNode ifStmt) {
+            walkExpression(ifStmt.getCondition(), Position.READ);
+            walkBlock(ifStmt.getThenBlock());
+            walkBlock(ifStmt.getElseBlock());
+        } else if (node instanceof LoopStatementNode loop) {
+            walkLoop(loop);
+        } else if (node instanceof ReturnStatementNode ret) {
+            walkExpression(ret.getValue(), Position.OWN);
+        } else if (node instanceof ExpressionStatementNode exprStmt) {
+            walkExpression(exprStmt.getExpression(), Position.READ);
+        } else if (node instanceof TryStatementNode tryStmt) {
+            walkBlock(tryStmt.getTryBlock());
+            for (TryStatementNode.CatchClause catchClause : tryStmt.getCatchClauses()) {
+                scopes.push(new HashMap<>());
+                declare(catchClause.getVariableName(), catchClause.getExceptionType(), null, false);
+                walkBlock(catchClause.getCatchBlock());
+                scopes.pop();
+            }
+        } else if (node instanceof MatchStatementNode match) {
+            walkExpression(match.getExpression(), Position.READ);
+            for (MatchStatementNode.MatchCase matchCase : match.getCases()) {
+                scopes.push(new HashMap<>());
+                if (matchCase.getVariableName() != null) {
+                    declare(matchCase.getVariableName(), matchCase.getType(), null, false);
+                }
+                walkExpression(matchCase.getValue(), Position.READ);
+                walkExpression(matchCase.getRangeEnd(), Position.READ);
+                walkExpression(matchCase.getGuard(), Position.READ);
+                walkBlock(matchCase.getBlock());
+                scopes.pop();
+            }
+        } else if (node instanceof ModuleDeclarationNode module) {
+            scopes.push(new HashMap<>());
+            functions.enter(module.getStatements());
+            walkStatements(module.getStatements());
+            functions.exit();
+            scopes.pop();
+        } else if (node instanceof ImplementationNode impl) {
+            walkStatements(impl.getMethods());
+        } else if (node instanceof DecoratorNode decorator) {
+            walkStatement(decorator.getTarget());
+        }
+    }
+
+    /**
+     * Called when a variable is stored, returned or reassigned: a borrowed local or parameter
+     * has to become owned. A call site that already read the parameter's mode in this walk
+     * saw it borrowed, so the walk is repeated.
+     */
+    private void demote(Variable variable) {
+        if (variable.declaration instanceof VariableDeclarationNode) {
+            variable.reference = false;
+        } else if (variable.declaration instanceof ParameterNode param && ownedParameters.add(param)) {
+            variable.reference = false;
+            if (consultedParameters.contains(param)) {
+                stale = true;
+            }
+        }
+    }
+
+    private void walkFunction(FunctionDeclarationNode fn) {
+        // Function bodies only see their own parameters and locals
+        Deque<Map<String, Variable>> outer = new ArrayDeque<>(scopes);
+        int outerLoopDepth = loopDepth;
+        scopes.clear();
+        loopDepth = 0;
+
+        scopes.push(new HashMap<>());
+        for (ParameterNode param : fn.getParameters()) {
+            if (!isBorrowable(param.getType())) {
+                ownedParameters.add(param);
+            }
+            boolean borrowed = !ownedParameters.contains(param);
+            declare(param.getName(), param.getType(), param, borrowed);
+        }
+        walkBlock(fn.getBody());
+        scopes.pop();
+
+        scopes.clear();
+        scopes.addAll(outer);
+        loopDepth = outerLoopDepth;
+    }
+
+    private void walkLoop(LoopStatementNode loop) {
+        scopes.push(new HashMap<>());
+        Variable element = null;
+        if (loop.getLoopType() == LoopStatementNode.LoopType.FOR_EACH) {
+            walkExpression(loop.getIterable(), Position.READ);
+
+            TypeNode iterableType = loop.getIterable() != null ? loop.getIterable().getResolvedType() : null;
+            TypeNode elementType = elementTypeOf(iterableType);
+            OwnershipInfo.Iteration iteration = OwnershipInfo.Iteration.VALUE;
+
+            if (loop.getIterable() instanceof IdentifierNode id && lookup(id.getName()) != null) {
+                Variable source = lookup(id.getName());
+                TypeNode.TypeKind kind = kindOf(source.type);
+                if (kind == TypeNode.TypeKind.LIST) {
+                    // Whether the list is itself a borrow is only known once the walk is complete
+                    iteration = OwnershipInfo.Iteration.BORROW;
+                    iterationSources.put(loop, source);
+                } else if (kind == TypeNode.TypeKind.MAP) {
+                    iteration = OwnershipInfo.Iteration.KEYS;
+                }
+            }
+            iterations.put(loop, iteration);
+
+            boolean byReference = iteration != OwnershipInfo.Iteration.VALUE;
+            if (byReference && isCopy(elementType)) {
+                copiedElements.add(loop);
+            }
+            element = declare(loop.getVariableName(), elementType, loop, byReference && !isCopy(elementType));
+        } else {
+            if (loop.hasInitializer()) {
+                walkExpression(loop.getInitializer(), Position.READ);
+                declare(loop.getVariableName(), TypeNode.numberType(), loop, false);
+            }
+            walkExpression(loop.getCondition(), Position.READ);
+            Variable counter = loop.getIncrementVar() != null ? lookup(loop.getIncrementVar()) : null;
+            if (counter != null) {
+                counter.assigned = true;
+                demote(counter);
+            }
+        }
+
+        loopDepth++;
+        walkBlock(loop.getBody());
+        loopDepth--;
+
+        // An element that is reassigned in the body needs its own owned copy
+        if (element != null && element.assigned) {
+            element.reference = false;
+            copiedElements.remove(loop);
+            mutableElements.add(loop);
+        }
+        scopes.pop();
+    }
+
+    // Expressions
+
+    private void walkExpression(ExpressionNode node, Position position) {
+        if (node == null) {
+            return;
+        }
+
+        if (node instanceof IdentifierNode id) {
+            Variable variable = lookup(id.getName());
+            if (variable != null) {
+                variable.uses.add(new Use(id, position, sequence++, loopDepth));
+                if (position == Position.OWN) {
+                    demote(variable);
+                }
+            }
+        } else if (node instanceof LiteralNode literal) {
+            if (literal.getLiteralType() == LiteralNode.LiteralType.STRING && position != Position.OWN) {
+                borrowedLiterals.add(literal);
+            }
+        } else if (node instanceof FunctionCallNode call) {
+            FunctionDeclarationNode callee = functions.resolve(call.getFunctionName());
+            List<ExpressionNode> arguments = call.getArguments();
+            List<ParameterNode> parameters = callee != null ? callee.getParameters() : List.of();
+            for (int i = 0; i < arguments.size(); i++) {
+                Position argumentPosition = Position.OWN;
+                if (i < parameters.size()) {
+                    ParameterNode param = parameters.get(i);
+                    consultedParameters.add(param);
+                    if (isCopy(param.getType())) {
+                        argumentPosition = Position.READ;
+                    } else if (!ownedParameters.contains(param) && isBorrowable(param.getType())) {
+                        argumentPosition = Position.BORROW;
+                    }
+                }
+                ExpressionNode argument = arguments.get(i);
+                walkExpression(argument, argumentPosition);
+                if (argumentPosition == Position.BORROW && argument instanceof ListExpressionNode) {
+                    borrowedLiterals.add(argument);
+                }
+            }
+        } else if (node instanceof BinaryExpressionNode bin) {
+            walkExpression(bin.getLeft(), Position.READ);
+            walkExpression(bin.getRight(), Position.READ);
+        } else if (node instanceof UnaryExpressionNode un) {
+            walkExpression(un.getOperand(), Position.READ);
+        } else if (node instanceof ConditionalExpressionNode cond) {
+            walkExpression(cond.getCondition(), Position.READ);
+            walkExpression(cond.getThenExpression(), position);
+            walkExpression(cond.getElseExpression(), position);
+        } else if (node instanceof MemberAccessNode member) {
+            walkExpression(member.getObject(), Position.READ);
+            if (member.isArrayAccess()) {
+                walkExpression(member.getMember(), Position.READ);
+            }
+        } else if (node instanceof ListExpressionNode list) {
+            for (ExpressionNode element : list.getElements()) {
+                walkExpression(element, Position.OWN);
+            }
+        } else if (node instanceof MapExpressionNode map) {
+            for (MapExpressionNode.KeyValuePair pair : map.getPairs()) {
+                walkExpression(pair.getKey(), Position.OWN);
+                walkExpression(pair.getValue(), Position.OWN);
+            }
+        } else if (node instanceof TypeCastNode cast) {
+            walkExpression(cast.getExpression(), Position.READ);
+        } else if (node instanceof ParenthesizedExpressionNode paren) {
+            walkExpression(paren.getExpression(), position);
+        }
+    }
+
+    // Type helpers
+
+    private static TypeNode.TypeKind kindOf(TypeNode type) {
+        return type != null ? type.getKind() : TypeNode.TypeKind.ANY;
+    }
+
+    private static TypeNode elementTypeOf(TypeNode iterableType) {
+        if (iterableType == null) {
+            return null;
+        }
+        switch (iterableType.getKind()) {
+            case LIST:
+                return iterableType.getElementType();
+            case MAP:
+                return iterableType.getKeyType();
+            case REFERENCE:
+            case BOX:
+                return elementTypeOf(iterableType.getElementType());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Types whose Rust representation is Copy and never needs borrowing or cloning
+     */
+    static boolean isCopy(TypeNode type) {
+        switch (kindOf(type)) {
+            case NUMBER:
+            case BOOLEAN:
+            case NOTHING:
+            case REFERENCE:
+            case FUNCTION:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Types that have a cheaper borrowed form: &str, &[T], &HashMap, &T
+     */
+    static boolean isBorrowable(TypeNode type) {
+        switch (kindOf(type)) {
+            case STRING:
+            case LIST:
+            case MAP:
+            case BOX:
+            case IDENTIFIER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBorrowableLiteral(ExpressionNode initializer, TypeNode type) {
+        if (kindOf(type) == TypeNode.TypeKind.STRING) {
+            return initializer instanceof LiteralNode literal && literal.getLiteralType() == LiteralNode.LiteralType.STRING;
+        }
+        if (kindOf(type) == TypeNode.TypeKind.LIST && isCopy(type.getElementType())) {
+            return initializer instanceof ListExpressionNode;
+        }
+        return false;
+    }
+
+    private static boolean isBoxValue(ExpressionNode value) {
+        return value == null || (value.hasResolvedType() && value.getResolvedType().getKind() == TypeNode.TypeKind.BOX);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of ownership analysis: how each value should be passed, bound and stored
+ * in generated Rust code. Lookups default to the plain owned form, so an empty
+ * instance reproduces purely syntactic translation.
+ */
+public class OwnershipInfo {
+
+    /**
+     * How an expression is emitted where it is used
+     */
+    public enum Access {
+        PLAIN,      // Emit as-is (read, copy or last-use move)
+        BORROW,     // Emit &expr
+        CLONE,      // Emit expr.clone(); the value is used again after this move
+        TO_OWNED    // Emit an owned copy of a borrowed value (to_string / to_vec / clone)
+    }
+
+    /**
+     * How a for-each loop walks its iterable
+     */
+    public enum Iteration {
+        VALUE,      // for x in expr (consumes a temporary)
+        BORROW,     // for x in &v (v is owned)
+        SLICE,      // for x in v (v is already a borrowed slice)
+        KEYS        // for x in m.keys()
+    }
+
+    private final Map<ExpressionNode, Access> accesses;
+    private final Set<ParameterNode> borrowedParameters;
+    private final Set<ParameterNode> mutableParameters;
+    private final Set<ExpressionNode> borrowedLiterals;
+    private final Set<VariableDeclarationNode> borrowedLocals;
+    private final Set<VariableDeclarationNode> mutableLocals;
+    private final Set<VariableDeclarationNode> stackBoxes;
+    private final Set<ASTNode> boxedValues;
+    private final Map<LoopStatementNode, Iteration> iterations;
+    private final Set<LoopStatementNode> copiedElements;
+    private final Set<LoopStatementNode> mutableElements;
+
+    OwnershipInfo(Map<ExpressionNode, Access> accesses, Set<ParameterNode> borrowedParameters,
+                  Set<ParameterNode> mutableParameters, Set<ExpressionNode> borrowedLiterals,
+                  Set<VariableDeclarationNode> borrowedLocals, Set<VariableDeclarationNode> mutableLocals,
+                  Set<VariableDeclarationNode> stackBoxes, Set<ASTNode> boxedValues,
+                  Map<LoopStatementNode, Iteration> iterations, Set<LoopStatementNode> copiedElements,
+                  Set<LoopStatementNode> mutableElements) {
+        this.accesses = accesses;
+        this.borrowedParameters = borrowedParameters;
+        this.mutableParameters = mutableParameters;
+        this.borrowedLiterals = borrowedLiterals;
+        this.borrowedLocals = borrowedLocals;
+        this.mutableLocals = mutableLocals;
+        this.stackBoxes = stackBoxes;
+        this.boxedValues = boxedValues;
+        this.iterations = iterations;
+        this.copiedElements = copiedElements;
+        this.mutableElements = mutableElements;
+    }
+
+    /**
+     * Ownership information that keeps every value in its owned form
+     */
+    public static OwnershipInfo empty() {
+        return new OwnershipInfo(new IdentityHashMap<>(), identitySet(), identitySet(), identitySet(),
+                identitySet(), identitySet(), identitySet(), identitySet(), new IdentityHashMap<>(), identitySet(), identitySet());
+    }
+
+    static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    public Access getAccess(ExpressionNode expression) {
+        return accesses.getOrDefault(expression, Access.PLAIN);
+    }
+
+    /**
+     * Parameters that are only read and can be taken as &str, &[T] or &T
+     */
+    public boolean isBorrowedParameter(ParameterNode parameter) {
+        return borrowedParameters.contains(parameter);
+    }
+
+    public boolean isMutableParameter(ParameterNode parameter) {
+        return mutableParameters.contains(parameter);
+    }
+
+    /**
+     * String and list literals emitted as &'static str or a borrowed array instead of an allocation
+     */
+    public boolean isBorrowedLiteral(ExpressionNode literal) {
+        return borrowedLiterals.contains(literal);
+    }
+
+    /**
+     * Locals bound to a literal and only read, declared as &str or &[T]
+     */
+    public boolean isBorrowedLocal(VariableDeclarationNode declaration) {
+        return borrowedLocals.contains(declaration);
+    }
+
+    public boolean isMutableLocal(VariableDeclarationNode declaration) {
+        return mutableLocals.contains(declaration);
+    }
+
+    /**
+     * Box locals that never escape and can live on the stack
+     */
+    public boolean isStackBox(VariableDeclarationNode declaration) {
+        return stackBoxes.contains(declaration);
+    }
+
+    /**
+     * Declarations and assignments whose value must be wrapped in Box::new
+     */
+    public boolean needsBoxing(ASTNode node) {
+        return boxedValues.contains(node);
+    }
+
+    public Iteration getIteration(LoopStatementNode loop) {
+        return iterations.getOrDefault(loop, Iteration.VALUE);
+    }
+
+    /**
+     * Whether a borrowing for-each loop should destructure its Copy elements (for &x in ...)
+     */
+    public boolean copiesElements(LoopStatementNode loop) {
+        return copiedElements.contains(loop);
+    }
+
+    /**
+     * Whether a for-each loop reassigns its element and must bind an owned, mutable copy
+     */
+    public boolean hasMutableElements(LoopStatementNode loop) {
+        return mutableElements.contains(loop);
+    }
+}
\ No newline at end of file
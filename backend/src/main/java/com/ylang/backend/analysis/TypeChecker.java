@@ -0,0 +1,920 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.model.TypeCheckResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type checker that infers a type for every expression in the AST.
+ *
+ * Declared types on variables, parameters and function returns seed the inference; every
+ * expression node visited gets its resolved type attached so translators can use it.
+ * Each node is visited once, and function bodies are checked in isolation (parameters only), so
+ * with a {@link FunctionTypeCache} a body that was checked before, against the same signatures, is
+ * not checked again and its recorded types and errors are replayed instead.
+ *
+ * Unknown names (builtins such as print, generic type parameters) resolve to any, which is
+ * compatible with every type, so only definite mismatches are reported. Calls resolve through
+ * {@link FunctionScopes}, so a function name declared in several modules resolves per module.
+ * A checker instance holds per-run state and must not be shared between threads.
+ */
+public class TypeChecker implements ASTVisitor<TypeNode> {
+
+    private static final TypeNode STRING = TypeNode.stringType();
+    private static final TypeNode NUMBER = TypeNode.numberType();
+    private static final TypeNode BOOLEAN = TypeNode.booleanType();
+    private static final TypeNode NOTHING = TypeNode.nothingType();
+    private static final TypeNode ANY = TypeNode.anyType();
+
+    private final FunctionTypeCache cache;
+    private final FunctionScopes functions = new FunctionScopes();
+    private final Map<String, StructureDeclarationNode> structures = new HashMap<>();
+    private final Deque<Map<String, TypeNode>> scopes = new ArrayDeque<>();
+
+    private List<String> errors = new ArrayList<>();
+    private TypeNode currentReturnType;
+    private int typedExpressions;
+    private int cachedFunctions;
+    private Recording recording; // Function body being recorded for the cache, null otherwise
+
+    public TypeChecker() {
+        this(null);
+    }
+
+    /**
+     * Checker that reuses and fills the given function cache, or checks every body when it is null
+     */
+    public TypeChecker(FunctionTypeCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Type check a program, attaching resolved types to its expressions
+     * @param program The Y language AST
+     * @return The type errors found and checking statistics
+     */
+    public TypeCheckResult check(ProgramNode program) {
+        errors = new ArrayList<>();
+        typedExpressions = 0;
+        cachedFunctions = 0;
+        currentReturnType = null;
+        recording = null;
+        structures.clear();
+        scopes.clear();
+
+        functions.reset(program);
+        collectStructures(program.getStatements());
+
+        scopes.push(new HashMap<>());
+        program.accept(this);
+        scopes.clear();
+
+        return new TypeCheckResult(errors, typedExpressions, cachedFunctions);
+    }
+
+    /**
+     * Register structure declarations so field accesses can be resolved regardless of declaration
+     * order; a name declared by more than one structure is left unresolved
+     */
+    private void collectStructures(List<ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof StructureDeclarationNode struct) {
+                structures.put(struct.getName(), structures.containsKey(struct.getName()) ? null : struct);
+            } else if (statement instanceof ModuleDeclarationNode module) {
+                collectStructures(module.getStatements());
+            }
+        }
+    }
+
+    // Scope handling
+
+    private void pushScope() {
+        scopes.push(new HashMap<>());
+    }
+
+    private void popScope() {
+        scopes.pop();
+    }
+
+    private void declare(String name, TypeNode type) {
+        if (name != null && !scopes.isEmpty()) {
+            scopes.peek().put(name, type != null ? type : ANY);
+        }
+    }
+
+    private TypeNode lookup(String name) {
+        for (Map<String, TypeNode> scope : scopes) {
+            TypeNode type = scope.get(name);
+            if (type != null) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // Statements
+
+    private void checkStatement(ASTNode statement) {
+        if (statement == null) {
+            return;
+        }
+        if (statement instanceof BlockNode block) {
+            checkBlock(block);
+        } else {
+            statement.accept(this);
+        }
+    }
+
+    private void checkBlock(BlockNode block) {
+        if (block == null) {
+            return;
+        }
+        pushScope();
+        for (ASTNode statement : block.getStatements()) {
+            checkStatement(statement);
+        }
+        popScope();
+    }
+
+    @Override
+    public TypeNode visitBlock(BlockNode node) {
+        checkBlock(node);
+        return null;
+    }
+
+    @Override
+    public TypeNode visitProgram(ProgramNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            checkStatement(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitFunctionDeclaration(FunctionDeclarationNode node) {
+        if (cache == null || recording != null) {
+            // A nested function is part of the result of the function around it
+            checkFunction(node);
+            return null;
+        }
+
+        FunctionFingerprint fingerprint = FunctionFingerprint.of(node);
+        FunctionTypeCache.Entry entry = cache.get(fingerprint.key());
+        if (entry != null && replay(fingerprint, entry)) {
+            return null;
+        }
+
+        recording = new Recording(fingerprint.nodes());
+        Recording recorded = recording;
+        try {
+            checkFunction(node);
+        } finally {
+            recording = null;
+        }
+        if (recorded.complete) {
+            cache.put(fingerprint.key(), recorded.toEntry());
+        }
+        return null;
+    }
+
+    private void checkFunction(FunctionDeclarationNode node) {
+        // Check the body against its own scope chain so it only sees its parameters
+        Deque<Map<String, TypeNode>> outerScopes = new ArrayDeque<>(scopes);
+        TypeNode outerReturnType = currentReturnType;
+
+        scopes.clear();
+        pushScope();
+        for (ParameterNode param : node.getParameters()) {
+            declare(param.getName(), param.getType());
+        }
+        currentReturnType = node.getReturnType() != null ? node.getReturnType() : NOTHING;
+
+        checkBlock(node.getBody());
+
+        scopes.clear();
+        scopes.addAll(outerScopes);
+        currentReturnType = outerReturnType;
+    }
+
+    /**
+     * Apply a cached result to a function with the same content, unless a declaration it depends on changed
+     */
+    private boolean replay(FunctionFingerprint fingerprint, FunctionTypeCache.Entry entry) {
+        for (Map.Entry<String, String> dependency : entry.functions().entrySet()) {
+            if (!dependency.getValue().equals(signature(functions.resolve(dependency.getKey())))) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, String> dependency : entry.structures().entrySet()) {
+            if (!dependency.getValue().equals(signature(structures.get(dependency.getKey())))) {
+                return false;
+            }
+        }
+
+        List<ASTNode> nodes = fingerprint.nodes();
+        for (FunctionTypeCache.ResolvedType resolved : entry.types()) {
+            ((ExpressionNode) nodes.get(resolved.node())).setResolvedType(resolved.type());
+        }
+        for (FunctionTypeCache.Error error : entry.errors()) {
+            errors.add(error.message() + formatLocation(nodes.get(error.node())));
+        }
+        typedExpressions += entry.types().size();
+        cachedFunctions++;
+        return true;
+    }
+
+    @Override
+    public TypeNode visitVariableDeclaration(VariableDeclarationNode node) {
+        TypeNode declared = node.getType();
+        TypeNode actual = typeOf(node.getInitializer());
+
+        if (node.getInitializer() != null && !isAssignable(declared, actual)) {
+            error(node, "Cannot initialize variable '" + node.getName() + "' of type "
+                    + describe(declared) + " with a value of type " + describe(actual));
+        }
+
+        declare(node.getName(), declared != null ? declared : actual);
+        return null;
+    }
+
+    @Override
+    public TypeNode visitAssignment(AssignmentNode node) {
+        TypeNode target = lookup(node.getVariableName());
+        TypeNode actual = typeOf(node.getValue());
+
+        if (target != null && !isAssignable(target, actual)) {
+            error(node, "Cannot assign a value of type " + describe(actual) + " to variable '"
+                    + node.getVariableName() + "' of type " + describe(target));
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitIfStatement(IfStatementNode node) {
+        expectBoolean(node.getCondition(), "If condition");
+        checkBlock(node.getThenBlock());
+        if (node.hasElseBlock()) {
+            checkBlock(node.getElseBlock());
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitLoopStatement(LoopStatementNode node) {
+        pushScope();
+        if (node.getLoopType() == LoopStatementNode.LoopType.FOR_EACH) {
+            TypeNode iterable = typeOf(node.getIterable());
+            declare(node.getVariableName(), elementTypeOf(node.getIterable(), iterable));
+        } else {
+            if (node.hasInitializer()) {
+                TypeNode start = typeOf(node.getInitializer());
+                if (!isNumeric(start)) {
+                    error(node, "Loop variable '" + node.getVariableName() + "' must start from a number but is " + describe(start));
+                }
+                declare(node.getVariableName(), NUMBER);
+            }
+            expectBoolean(node.getCondition(), "Loop condition");
+            if (node.getIncrementVar() != null) {
+                TypeNode counter = lookup(node.getIncrementVar());
+                if (counter != null && !isNumeric(counter)) {
+                    error(node, "Loop increment variable '" + node.getIncrementVar()
+                            + "' must be a number but is " + describe(counter));
+                }
+            }
+        }
+        checkBlock(node.getBody());
+        popScope();
+        return null;
+    }
+
+    private TypeNode elementTypeOf(ExpressionNode iterable, TypeNode type) {
+        switch (type.getKind()) {
+            case LIST:
+                return orAny(type.getElementType());
+            case MAP:
+                return orAny(type.getKeyType());
+            case STRING:
+                return STRING;
+            case REFERENCE:
+            case BOX:
+                return elementTypeOf(iterable, orAny(type.getElementType()));
+            case ANY:
+            case IDENTIFIER:
+            case GENERIC:
+                return ANY;
+            default:
+                error(iterable, "Cannot iterate over a value of type " + describe(type));
+                return ANY;
+        }
+    }
+
+    @Override
+    public TypeNode visitReturnStatement(ReturnStatementNode node) {
+        TypeNode actual = node.hasValue() ? typeOf(node.getValue()) : NOTHING;
+
+        if (currentReturnType != null && !isAssignable(currentReturnType, actual)) {
+            error(node, "Cannot return a value of type " + describe(actual)
+                    + " from a function returning " + describe(currentReturnType));
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitTryStatement(TryStatementNode node) {
+        checkBlock(node.getTryBlock());
+        for (TryStatementNode.CatchClause catchClause : node.getCatchClauses()) {
+            pushScope();
+            declare(catchClause.getVariableName(), catchClause.getExceptionType());
+            checkBlock(catchClause.getCatchBlock());
+            popScope();
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitMatchStatement(MatchStatementNode node) {
+        TypeNode subject = typeOf(node.getExpression());
+        for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
+            pushScope();
+            if (matchCase.getVariableName() != null) {
+                declare(matchCase.getVariableName(), matchCase.getType() != null ? matchCase.getType() : subject);
+            }
+            switch (matchCase.getKind()) {
+                case LITERAL:
+                    typeOf(matchCase.getValue());
+                    break;
+                case RANGE:
+                    for (ExpressionNode bound : List.of(matchCase.getRangeStart(), matchCase.getRangeEnd())) {
+                        TypeNode boundType = typeOf(bound);
+                        if (!isNumeric(boundType)) {
+                            error(bound, "Range bound must be a number but is " + describe(boundType));
+                        }
+                    }
+                    break;
+                case GUARD:
+                    expectBoolean(matchCase.getGuard(), "Match guard");
+                    break;
+                default:
+                    break;
+            }
+            checkBlock(matchCase.getBlock());
+            popScope();
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitModuleDeclaration(ModuleDeclarationNode node) {
+        if (recording != null) {
+            // Calls inside the module resolve against other declarations than the function's own
+            recording.complete = false;
+        }
+        pushScope();
+        functions.enter(node.getStatements());
+        for (ASTNode statement : node.getStatements()) {
+            checkStatement(statement);
+        }
+        functions.exit();
+        popScope();
+        return null;
+    }
+
+    @Override
+    public TypeNode visitTraitDeclaration(TraitDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitStructureDeclaration(StructureDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitImportStatement(ImportStatementNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitExpressionStatement(ExpressionStatementNode node) {
+        typeOf(node.getExpression());
+        return null;
+    }
+
+    @Override
+    public TypeNode visitEnumDeclaration(EnumDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitImplementation(ImplementationNode node) {
+        for (ASTNode method : node.getMethods()) {
+            checkStatement(method);
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitLifetime(LifetimeNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitInterfaceDeclaration(InterfaceDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitTypeAliasDeclaration(TypeAliasDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public TypeNode visitDecorator(DecoratorNode node) {
+        for (ExpressionNode argument : node.getArguments()) {
+            typeOf(argument);
+        }
+        checkStatement(node.getTarget());
+        return null;
+    }
+
+    // Expressions
+
+    private TypeNode typeOf(ExpressionNode expression) {
+        if (expression == null) {
+            return ANY;
+        }
+        TypeNode type = expression.accept(this);
+        return type != null ? type : ANY;
+    }
+
+    private TypeNode resolve(ExpressionNode node, TypeNode type) {
+        TypeNode resolved = type != null ? type : ANY;
+        node.setResolvedType(resolved);
+        typedExpressions++;
+        if (recording != null) {
+            recording.types.add(new FunctionTypeCache.ResolvedType(recording.position(node), resolved));
+        }
+        return resolved;
+    }
+
+    @Override
+    public TypeNode visitLiteral(LiteralNode node) {
+        switch (node.getLiteralType()) {
+            case STRING:
+                return resolve(node, STRING);
+            case NUMBER:
+                return resolve(node, NUMBER);
+            case BOOLEAN:
+                return resolve(node, BOOLEAN);
+            case EMPTY_LIST:
+                return resolve(node, TypeNode.listType(ANY));
+            case EMPTY_MAP:
+                return resolve(node, TypeNode.mapType(ANY, ANY));
+            default:
+                return resolve(node, ANY);
+        }
+    }
+
+    @Override
+    public TypeNode visitIdentifier(IdentifierNode node) {
+        TypeNode type = lookup(node.getName());
+        return resolve(node, type != null ? type : ANY);
+    }
+
+    @Override
+    public TypeNode visitFunctionCall(FunctionCallNode node) {
+        List<ExpressionNode> arguments = node.getArguments();
+        List<TypeNode> argumentTypes = new ArrayList<>(arguments.size());
+        for (ExpressionNode argument : arguments) {
+            argumentTypes.add(typeOf(argument));
+        }
+
+        FunctionDeclarationNode function = function(node.getFunctionName());
+        if (function == null) {
+            // Builtins, and names declared more than once, are not checked
+            return resolve(node, ANY);
+        }
+
+        List<ParameterNode> parameters = function.getParameters();
+        if (parameters.size() != arguments.size()) {
+            error(node, "Function '" + node.getFunctionName() + "' expects " + parameters.size()
+                    + " argument(s) but was called with " + arguments.size());
+        } else {
+            for (int i = 0; i < parameters.size(); i++) {
+                TypeNode expected = parameters.get(i).getType();
+                if (!isAssignable(expected, argumentTypes.get(i))) {
+                    error(arguments.get(i) != null ? arguments.get(i) : node,
+                            "Argument '" + parameters.get(i).getName() + "' of function '"
+                            + node.getFunctionName() + "' expects " + describe(expected)
+                            + " but was given " + describe(argumentTypes.get(i)));
+                }
+            }
+        }
+
+        return resolve(node, function.getReturnType() != null ? function.getReturnType() : NOTHING);
+    }
+
+    @Override
+    public TypeNode visitBinaryExpression(BinaryExpressionNode node) {
+        TypeNode left = typeOf(node.getLeft());
+        TypeNode right = typeOf(node.getRight());
+        String operator = node.getOperator().name().toLowerCase().replace('_', ' ');
+
+        switch (node.getOperator()) {
+            case PLUS:
+                if (left.getKind() == TypeNode.TypeKind.STRING || right.getKind() == TypeNode.TypeKind.STRING) {
+                    return resolve(node, STRING);
+                }
+                if (isNumeric(left) && isNumeric(right)) {
+                    return resolve(node, left.isAnyType() && right.isAnyType() ? ANY : NUMBER);
+                }
+                if (left.getKind() == TypeNode.TypeKind.LIST && right.getKind() == TypeNode.TypeKind.LIST) {
+                    return resolve(node, TypeNode.listType(unify(left.getElementType(), right.getElementType())));
+                }
+                if (left.isAnyType() || right.isAnyType()) {
+                    return resolve(node, ANY);
+                }
+                error(node, "Operator " + operator + " cannot be applied to " + describe(left) + " and " + describe(right));
+                return resolve(node, ANY);
+            case MINUS:
+            case TIMES:
+            case DIVIDED_BY:
+            case MODULO:
+                if (!isNumeric(left) || !isNumeric(right)) {
+                    error(node, "Operator " + operator + " requires numbers but was applied to "
+                            + describe(left) + " and " + describe(right));
+                }
+                return resolve(node, NUMBER);
+            case GREATER_THAN:
+            case LESS_THAN:
+                boolean numbers = isNumeric(left) && isNumeric(right);
+                boolean strings = isStringLike(left) && isStringLike(right);
+                if (!numbers && !strings) {
+                    error(node, "Operator " + operator + " cannot compare " + describe(left) + " with " + describe(right));
+                }
+                return resolve(node, BOOLEAN);
+            case EQUALS:
+                if (left.isPrimitive() && right.isPrimitive() && left.getKind() != right.getKind()) {
+                    error(node, "Comparing " + describe(left) + " with " + describe(right) + " is always false");
+                }
+                return resolve(node, BOOLEAN);
+            case AND:
+            case OR:
+                if (!isBooleanLike(left) || !isBooleanLike(right)) {
+                    error(node, "Operator " + operator + " requires booleans but was applied to "
+                            + describe(left) + " and " + describe(right));
+                }
+                return resolve(node, BOOLEAN);
+            default:
+                return resolve(node, ANY);
+        }
+    }
+
+    @Override
+    public TypeNode visitUnaryExpression(UnaryExpressionNode node) {
+        TypeNode operand = typeOf(node.getOperand());
+        if (node.getOperator() == UnaryExpressionNode.Operator.NOT) {
+            if (!isBooleanLike(operand)) {
+                error(node, "Operator not requires a boolean but was applied to " + describe(operand));
+            }
+            return resolve(node, BOOLEAN);
+        }
+        if (!isNumeric(operand)) {
+            error(node, "Operator minus requires a number but was applied to " + describe(operand));
+        }
+        return resolve(node, NUMBER);
+    }
+
+    @Override
+    public TypeNode visitConditionalExpression(ConditionalExpressionNode node) {
+        expectBoolean(node.getCondition(), "Conditional expression condition");
+        TypeNode thenType = typeOf(node.getThenExpression());
+        TypeNode elseType = typeOf(node.getElseExpression());
+
+        if (isAssignable(thenType, elseType) && isAssignable(elseType, thenType)) {
+            return resolve(node, thenType.isAnyType() ? elseType : thenType);
+        }
+        return resolve(node, TypeNode.eitherType(thenType, elseType));
+    }
+
+    @Override
+    public TypeNode visitMemberAccess(MemberAccessNode node) {
+        TypeNode object = dereference(typeOf(node.getObject()));
+
+        if (node.isArrayAccess()) {
+            TypeNode index = typeOf(node.getMember());
+            switch (object.getKind()) {
+                case LIST:
+                case STRING:
+                    if (!isNumeric(index)) {
+                        error(node, "List index must be a number but is " + describe(index));
+                    }
+                    return resolve(node, object.getKind() == TypeNode.TypeKind.STRING ? STRING : orAny(object.getElementType()));
+                case MAP:
+                    if (!isAssignable(object.getKeyType(), index)) {
+                        error(node, "Map key must be " + describe(object.getKeyType()) + " but is " + describe(index));
+                    }
+                    return resolve(node, orAny(object.getValueType()));
+                case ANY:
+                case IDENTIFIER:
+                case GENERIC:
+                    return resolve(node, ANY);
+                default:
+                    error(node, "Cannot index into a value of type " + describe(object));
+                    return resolve(node, ANY);
+            }
+        }
+
+        TypeNode fieldType = ANY;
+        if (node.getMember() instanceof IdentifierNode member) {
+            StructureDeclarationNode structure = object.getKind() == TypeNode.TypeKind.IDENTIFIER
+                    ? structure(object.getName()) : null;
+            if (structure != null) {
+                TypeNode declared = fieldType(structure, member.getName());
+                if (declared == null) {
+                    error(node, "Structure '" + structure.getName() + "' has no field '" + member.getName() + "'");
+                } else {
+                    fieldType = declared;
+                }
+            }
+            resolve(member, fieldType);
+        } else {
+            typeOf(node.getMember());
+        }
+        return resolve(node, fieldType);
+    }
+
+    private TypeNode fieldType(StructureDeclarationNode structure, String fieldName) {
+        for (ASTNode member : structure.getMembers()) {
+            if (member instanceof VariableDeclarationNode field && field.getName().equals(fieldName)) {
+                return orAny(field.getType());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public TypeNode visitListExpression(ListExpressionNode node) {
+        TypeNode elementType = null;
+        for (ExpressionNode element : node.getElements()) {
+            TypeNode type = typeOf(element);
+            elementType = elementType == null ? type : unify(elementType, type);
+        }
+        return resolve(node, TypeNode.listType(elementType != null ? elementType : ANY));
+    }
+
+    @Override
+    public TypeNode visitMapExpression(MapExpressionNode node) {
+        TypeNode keyType = null;
+        TypeNode valueType = null;
+        for (MapExpressionNode.KeyValuePair pair : node.getPairs()) {
+            TypeNode key = typeOf(pair.getKey());
+            TypeNode value = typeOf(pair.getValue());
+            keyType = keyType == null ? key : unify(keyType, key);
+            valueType = valueType == null ? value : unify(valueType, value);
+        }
+        return resolve(node, TypeNode.mapType(keyType != null ? keyType : ANY, valueType != null ? valueType : ANY));
+    }
+
+    @Override
+    public TypeNode visitTypeCast(TypeCastNode node) {
+        typeOf(node.getExpression());
+        switch (node.getCastType()) {
+            case TO_STRING:
+                return resolve(node, STRING);
+            case TO_NUMBER:
+                return resolve(node, NUMBER);
+            case TO_BOOLEAN:
+                return resolve(node, BOOLEAN);
+            default:
+                return resolve(node, ANY);
+        }
+    }
+
+    @Override
+    public TypeNode visitParenthesizedExpression(ParenthesizedExpressionNode node) {
+        return resolve(node, typeOf(node.getExpression()));
+    }
+
+    // Declarations a function body depends on
+
+    private FunctionDeclarationNode function(String name) {
+        FunctionDeclarationNode function = functions.resolve(name);
+        if (recording != null) {
+            recording.functions.putIfAbsent(name, signature(function));
+        }
+        return function;
+    }
+
+    private StructureDeclarationNode structure(String name) {
+        StructureDeclarationNode structure = structures.get(name);
+        if (recording != null) {
+            recording.structures.putIfAbsent(name, signature(structure));
+        }
+        return structure;
+    }
+
+    private static String signature(FunctionDeclarationNode function) {
+        if (function == null) {
+            return "~";
+        }
+        StringBuilder signature = new StringBuilder("(");
+        for (ParameterNode param : function.getParameters()) {
+            signature.append(param.getName()).append(' ');
+            FunctionFingerprint.appendType(signature, param.getType());
+            signature.append(", ");
+        }
+        signature.append(") ");
+        FunctionFingerprint.appendType(signature, function.getReturnType());
+        return signature.toString();
+    }
+
+    private static String signature(StructureDeclarationNode structure) {
+        if (structure == null) {
+            return "~";
+        }
+        StringBuilder signature = new StringBuilder(structure.getName()).append(" {");
+        for (ASTNode member : structure.getMembers()) {
+            if (member instanceof VariableDeclarationNode field) {
+                signature.append(field.getName()).append(' ');
+                FunctionFingerprint.appendType(signature, field.getType());
+                signature.append(", ");
+            }
+        }
+        return signature.append('}').toString();
+    }
+
+    // Type relations
+
+    /**
+     * Check whether a value of the source type can be stored where the target type is expected
+     */
+    public static boolean isAssignable(TypeNode target, TypeNode source) {
+        if (target == null || source == null || target.isAnyType() || source.isAnyType()) {
+            return true;
+        }
+        if (isOpaque(target) || isOpaque(source)) {
+            return true;
+        }
+
+        switch (target.getKind()) {
+            case EITHER:
+                if (source.getKind() == TypeNode.TypeKind.EITHER) {
+                    return isAssignable(target.getLeftType(), source.getLeftType())
+                            && isAssignable(target.getRightType(), source.getRightType());
+                }
+                return isAssignable(target.getLeftType(), source) || isAssignable(target.getRightType(), source);
+            case REFERENCE:
+            case BOX:
+                if (source.getKind() == target.getKind()) {
+                    return isAssignable(target.getElementType(), source.getElementType());
+                }
+                return isAssignable(target.getElementType(), source);
+            default:
+                break;
+        }
+
+        if (source.getKind() == TypeNode.TypeKind.REFERENCE || source.getKind() == TypeNode.TypeKind.BOX) {
+            return isAssignable(target, source.getElementType());
+        }
+        if (target.getKind() != source.getKind()) {
+            // A named type may be an alias or generic parameter standing for any other kind
+            return target.getKind() == TypeNode.TypeKind.IDENTIFIER || source.getKind() == TypeNode.TypeKind.IDENTIFIER;
+        }
+
+        switch (target.getKind()) {
+            case LIST:
+                return isAssignable(target.getElementType(), source.getElementType());
+            case MAP:
+                return isAssignable(target.getKeyType(), source.getKeyType())
+                        && isAssignable(target.getValueType(), source.getValueType());
+            case FUNCTION:
+                return isAssignable(source.getParamType(), target.getParamType())
+                        && isAssignable(target.getReturnType(), source.getReturnType());
+            case IDENTIFIER:
+                return target.getName() == null || target.getName().equals(source.getName());
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Generic type parameters cannot be checked and are treated like any
+     */
+    private static boolean isOpaque(TypeNode type) {
+        return type.getKind() == TypeNode.TypeKind.GENERIC;
+    }
+
+    private TypeNode unify(TypeNode a, TypeNode b) {
+        if (a == null || a.isAnyType()) return b != null ? b : ANY;
+        if (b == null || b.isAnyType()) return a;
+        if (isAssignable(a, b) && isAssignable(b, a)) {
+            return a;
+        }
+        return ANY;
+    }
+
+    private static TypeNode dereference(TypeNode type) {
+        while (type != null && (type.getKind() == TypeNode.TypeKind.REFERENCE || type.getKind() == TypeNode.TypeKind.BOX)) {
+            type = type.getElementType();
+        }
+        return orAny(type);
+    }
+
+    private static TypeNode orAny(TypeNode type) {
+        return type != null ? type : ANY;
+    }
+
+    private static boolean isNumeric(TypeNode type) {
+        TypeNode t = dereference(type);
+        return t.getKind() == TypeNode.TypeKind.NUMBER || t.isAnyType() || isOpaque(t);
+    }
+
+    private static boolean isStringLike(TypeNode type) {
+        TypeNode t = dereference(type);
+        return t.getKind() == TypeNode.TypeKind.STRING || t.isAnyType() || isOpaque(t);
+    }
+
+    private static boolean isBooleanLike(TypeNode type) {
+        TypeNode t = dereference(type);
+        return t.getKind() == TypeNode.TypeKind.BOOLEAN || t.isAnyType() || isOpaque(t);
+    }
+
+    private void expectBoolean(ExpressionNode condition, String context) {
+        TypeNode type = typeOf(condition);
+        if (!isBooleanLike(type)) {
+            error(condition, context + " must be a boolean but is " + describe(type));
+        }
+    }
+
+    // Error reporting
+
+    private void error(ASTNode node, String message) {
+        String error = "Type error: " + message;
+        if (recording != null) {
+            recording.errors.add(new FunctionTypeCache.Error(recording.position(node), error));
+        }
+        errors.add(error + formatLocation(node));
+    }
+
+    private static String describe(TypeNode type) {
+        return type != null ? type.toString() : "any";
+    }
+
+    private String formatLocation(ASTNode node) {
+        if (node == null) {
+            return "";
+        }
+        int line = node.getLine();
+        int col = node.getColumn();
+        if (line >= 0 && col >= 0) {
+            return " (Line " + line + ":" + col + ")";
+        }
+        if (line >= 0) {
+            return " (Line " + line + ")";
+        }
+        return "";
+    }
+
+    /**
+     * Types, errors and dependencies of a function body as it is checked, by position of its nodes
+     */
+    private static final class Recording {
+        private final Map<ASTNode, Integer> positions = new IdentityHashMap<>();
+        private final Map<String, String> functions = new HashMap<>();
+        private final Map<String, String> structures = new HashMap<>();
+        private final List<FunctionTypeCache.ResolvedType> types = new ArrayList<>();
+        private final List<FunctionTypeCache.Error> errors = new ArrayList<>();
+        private boolean complete = true;
+
+        Recording(List<ASTNode> nodes) {
+            for (int i = 0; i < nodes.size(); i++) {
+                if (positions.putIfAbsent(nodes.get(i), i) != null) {
+                    // A node shared between two places cannot be told apart when replaying
+                    complete = false;
+                }
+            }
+        }
+
+        int position(ASTNode node) {
+            Integer position = node != null ? positions.get(node) : null;
+            if (position == null) {
+                complete = false;
+                return -1;
+            }
+            return position;
+        }
+
+        FunctionTypeCache.Entry toEntry() {
+            return new FunctionTypeCache.Entry(Map.copyOf(functions), Map.copyOf(structures),
+                                               List.copyOf(types), List.copyOf(errors));
+        }
+    }
+}
\ No newline at end of file
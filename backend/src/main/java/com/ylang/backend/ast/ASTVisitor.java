@@ -12,6 +12,7 @@ public interface ASTVisitor<T> {
     T visitIfStatement(IfStatementNode node);
     T visitLoopStatement(LoopStatementNode node);
     T visitReturnStatement(ReturnStatementNode node);
+    T visitBlock(BlockNode node);
     T visitTryStatement(TryStatementNode node);
     T visitMatchStatement(MatchStatementNode node);
     T visitModuleDeclaration(ModuleDeclarationNode node);
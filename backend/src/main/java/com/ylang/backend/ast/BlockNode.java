@@ -23,8 +23,7 @@ public class BlockNode extends BaseASTNode {
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
-        // Block nodes are typically visited as part of other nodes
-        return null;
+        return visitor.visitBlock(this);
     }
     
     @Override
@@ -4,5 +4,21 @@ package com.ylang.backend.ast;
  * Base class for all expression nodes in the AST
  */
 public abstract class ExpressionNode extends BaseASTNode {
-    // Common functionality for all expressions can be added here
+    private TypeNode resolvedType; // Set by the type checker, null until checked
+    
+    /**
+     * Get the type inferred for this expression by the type checker
+     * @return The resolved type, or null if the expression has not been checked
+     */
+    public TypeNode getResolvedType() {
+        return resolvedType;
+    }
+    
+    public void setResolvedType(TypeNode resolvedType) {
+        this.resolvedType = resolvedType;
+    }
+    
+    public boolean hasResolvedType() {
+        return resolvedType != null;
+    }
 }
\ No newline at end of file
@@ -9,8 +9,9 @@ public class LoopStatementNode extends BaseASTNode {
     }
     
     private final LoopType loopType;
-    private final String variableName; // For for-each loops
+    private final String variableName; // For for-each loops, and the counter of counted while loops
     private final ExpressionNode iterable; // For for-each loops
+    private final ExpressionNode initializer; // Initial counter value for counted while loops
     private final ExpressionNode condition; // For while loops
     private final String incrementVar; // For while loops
     private final BlockNode body;
@@ -20,6 +21,7 @@ public class LoopStatementNode extends BaseASTNode {
         this.loopType = LoopType.FOR_EACH;
         this.variableName = variableName;
         this.iterable = iterable;
+        this.initializer = null;
         this.condition = null;
         this.incrementVar = null;
         this.body = body;
@@ -27,9 +29,16 @@ public class LoopStatementNode extends BaseASTNode {
     
     // While loop constructor
     public LoopStatementNode(ExpressionNode condition, String incrementVar, BlockNode body) {
+        this(null, null, condition, incrementVar, body);
+    }
+    
+    // Counted while loop constructor (loop with variable i equals a while cond increment i)
+    public LoopStatementNode(String variableName, ExpressionNode initializer, ExpressionNode condition,
+                             String incrementVar, BlockNode body) {
         this.loopType = LoopType.WHILE;
-        this.variableName = null;
+        this.variableName = variableName;
         this.iterable = null;
+        this.initializer = initializer;
         this.condition = condition;
         this.incrementVar = incrementVar;
         this.body = body;
@@ -47,6 +56,14 @@ public class LoopStatementNode extends BaseASTNode {
         return iterable;
     }
     
+    public ExpressionNode getInitializer() {
+        return initializer;
+    }
+    
+    public boolean hasInitializer() {
+        return initializer != null;
+    }
+    
     public ExpressionNode getCondition() {
         return condition;
     }
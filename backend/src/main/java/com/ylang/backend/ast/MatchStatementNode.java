@@ -11,18 +11,54 @@ public class MatchStatementNode extends BaseASTNode {
     private final List<MatchCase> cases;
     
     public static class MatchCase {
+        public enum PatternKind {
+            IDENTIFIER, // Variant name, type pattern or catch-all binding
+            LITERAL,    // case 42
+            RANGE,      // case range a to b (inclusive)
+            GUARD       // case guard n where condition
+        }
+        
+        private final PatternKind kind;
         private final String pattern;
         private final String variableName;
         private final TypeNode type;
+        private final ExpressionNode value; // Literal value, or range start
+        private final ExpressionNode rangeEnd;
+        private final ExpressionNode guard;
         private final BlockNode block;
         
         public MatchCase(String pattern, String variableName, TypeNode type, BlockNode block) {
+            this(PatternKind.IDENTIFIER, pattern, variableName, type, null, null, null, block);
+        }
+        
+        private MatchCase(PatternKind kind, String pattern, String variableName, TypeNode type,
+                          ExpressionNode value, ExpressionNode rangeEnd, ExpressionNode guard, BlockNode block) {
+            this.kind = kind;
             this.pattern = pattern;
             this.variableName = variableName;
             this.type = type;
+            this.value = value;
+            this.rangeEnd = rangeEnd;
+            this.guard = guard;
             this.block = block;
         }
         
+        public static MatchCase literal(ExpressionNode value, BlockNode block) {
+            return new MatchCase(PatternKind.LITERAL, null, null, null, value, null, null, block);
+        }
+        
+        public static MatchCase range(ExpressionNode start, ExpressionNode end, BlockNode block) {
+            return new MatchCase(PatternKind.RANGE, null, null, null, start, end, null, block);
+        }
+        
+        public static MatchCase guard(String variableName, ExpressionNode condition, BlockNode block) {
+            return new MatchCase(PatternKind.GUARD, null, variableName, null, null, null, condition, block);
+        }
+        
+        public PatternKind getKind() {
+            return kind;
+        }
+        
         public String getPattern() {
             return pattern;
         }
@@ -35,6 +71,22 @@ public class MatchStatementNode extends BaseASTNode {
             return type;
         }
         
+        public ExpressionNode getValue() {
+            return value;
+        }
+        
+        public ExpressionNode getRangeStart() {
+            return value;
+        }
+        
+        public ExpressionNode getRangeEnd() {
+            return rangeEnd;
+        }
+        
+        public ExpressionNode getGuard() {
+            return guard;
+        }
+        
         public BlockNode getBlock() {
             return block;
         }
@@ -30,6 +30,10 @@ public class MemberAccessNode extends ExpressionNode {
         return member;
     }
     
+    public boolean isArrayAccess() {
+        return accessType == AccessType.AT;
+    }
+    
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visitMemberAccess(this);
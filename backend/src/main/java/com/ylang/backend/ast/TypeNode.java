@@ -99,6 +99,18 @@ public class TypeNode extends BaseASTNode {
         return returnType;
     }
     
+    public boolean isNothingType() {
+        return kind == TypeKind.NOTHING;
+    }
+    
+    public boolean isAnyType() {
+        return kind == TypeKind.ANY;
+    }
+    
+    public boolean isPrimitive() {
+        return kind == TypeKind.STRING || kind == TypeKind.NUMBER || kind == TypeKind.BOOLEAN;
+    }
+    
     // Factory methods for common types
     public static TypeNode stringType() {
         return new TypeNode(TypeKind.STRING);
@@ -0,0 +1,212 @@
+package com.ylang.backend.cache;
+
+import com.ylang.backend.model.CompileOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Keys and encoding of compiled outputs stored in a {@link DiskArtifactCache}.
+ *
+ * A key covers the source, the target, the options and the translator version. The version is
+ * a hash of every class file in the backend's classes directory or jar, so a rebuilt backend or
+ * CLI never serves output of an older translator, while identical builds on several machines
+ * share results. When the classes cannot be read there is no version and no persistent key.
+ */
+public final class CompileArtifacts {
+
+    private static final int FORMAT_VERSION = 1;
+    private static volatile byte[] translatorVersion;
+
+    /**
+     * A compiled output as stored in the cache
+     */
+    public record Artifact(String compiledCode, List<String> warnings) {
+    }
+
+    private CompileArtifacts() {
+    }
+
+    /**
+     * Cache key of a compilation, for results that outlive this process
+     * @throws IOException When the translator classes cannot be read
+     */
+    public static byte[] key(String code, String targetLanguage, CompileOptions options) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(translatorVersion());
+        return digest(digest, code, targetLanguage, options);
+    }
+
+    /**
+     * Key of a compilation within this process, where the translator cannot change
+     */
+    public static byte[] contentKey(String code, String targetLanguage, CompileOptions options) {
+        return digest(sha256(), code, targetLanguage, options);
+    }
+
+    private static byte[] digest(MessageDigest digest, String code, String targetLanguage, CompileOptions options) {
+        digest.update((targetLanguage.toLowerCase() + "\n" + options + "\n").getBytes(StandardCharsets.UTF_8));
+        digest.update(code.getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    /**
+     * Hash of the classes this backend runs, computed on first use
+     * @throws IOException When the classes cannot be located or read
+     */
+    public static byte[] translatorVersion() throws IOException {
+        byte[] version = translatorVersion;
+        if (version == null) {
+            synchronized (CompileArtifacts.class) {
+                version = translatorVersion;
+                if (version == null) {
+                    version = hashClasses();
+                    translatorVersion = version;
+                }
+            }
+        }
+        return version;
+    }
+
+    public static byte[] encode(Artifact artifact) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, artifact.compiledCode());
+            out.writeInt(artifact.warnings().size());
+            for (String warning : artifact.warnings()) {
+                writeString(out, warning);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode artifact", e);
+        }
+    }
+
+    /**
+     * Decode a stored artifact, or null if it was written in another format
+     */
+    public static Artifact decode(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            String compiledCode = readString(in);
+            int count = in.readInt();
+            List<String> warnings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                warnings.add(readString(in));
+            }
+            return new Artifact(compiledCode, warnings);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] hashClasses() throws IOException {
+        CodeSource source = CompileArtifacts.class.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null) {
+            throw new IOException("Cannot locate the translator classes");
+        }
+        URL location = source.getLocation();
+        MessageDigest digest = sha256();
+        int count;
+        if (location.getProtocol().equals("file")) {
+            Path path;
+            try {
+                path = Path.of(location.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Cannot locate the translator classes at " + location, e);
+            }
+            if (Files.isDirectory(path)) {
+                count = hashDirectory(path, digest);
+            } else {
+                try (JarFile jar = new JarFile(path.toFile())) {
+                    count = hashJar(jar, "", digest);
+                }
+            }
+        } else {
+            // Classes nested in an application archive
+            URLConnection connection = location.openConnection();
+            if (!(connection instanceof JarURLConnection jarConnection)) {
+                throw new IOException("Cannot read the translator classes at " + location);
+            }
+            String prefix = jarConnection.getEntryName();
+            count = hashJar(jarConnection.getJarFile(), prefix != null ? prefix : "", digest);
+        }
+        if (count == 0) {
+            throw new IOException("No translator classes found at " + location);
+        }
+        return digest.digest();
+    }
+
+    private static int hashDirectory(Path directory, MessageDigest digest) throws IOException {
+        List<Path> classes;
+        try (Stream<Path> files = Files.walk(directory)) {
+            classes = files.filter(file -> file.toString().endsWith(".class"))
+                .sorted(Comparator.comparing(file -> directory.relativize(file).toString().replace('\\', '/')))
+                .toList();
+        }
+        for (Path file : classes) {
+            digest.update(directory.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file));
+        }
+        return classes.size();
+    }
+
+    private static int hashJar(JarFile jar, String prefix, MessageDigest digest) throws IOException {
+        List<JarEntry> classes = jar.stream()
+            .filter(entry -> entry.getName().startsWith(prefix) && entry.getName().endsWith(".class"))
+            .sorted(Comparator.comparing(JarEntry::getName))
+            .toList();
+        for (JarEntry entry : classes) {
+            digest.update(entry.getName().substring(prefix.length()).getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = jar.getInputStream(entry)) {
+                digest.update(in.readAllBytes());
+            }
+        }
+        return classes.size();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
\ No newline at end of file
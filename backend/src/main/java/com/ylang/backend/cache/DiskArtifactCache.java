@@ -0,0 +1,417 @@
+package com.ylang.backend.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Content-addressed artifact cache stored on disk, shared by every process that opens the same
+ * directory (backend replicas on a shared volume, the CLI).
+ *
+ * Artifacts live in append-only segment files that are memory-mapped for reading. Each record is
+ * a 32-byte key, the value and a CRC; a torn record left by a crashed writer ends the scan of its
+ * segment and is cut off by the next writer. Writers serialize on a lock file; readers pick up
+ * records written by other processes when a lookup misses and the newest segment has changed
+ * since it was last scanned. Compaction rewrites the live records into a fresh segment once the
+ * segments hold too many duplicates or grow past the size limit, dropping the oldest records first.
+ */
+public class DiskArtifactCache implements Closeable {
+
+    /** Size of a key: a SHA-256 digest */
+    public static final int KEY_SIZE = 32;
+
+    private static final int SEGMENT_MAGIC = 0x594C4331; // "YLC1"
+    private static final int RECORD_MAGIC = 0x59524543;  // "YREC"
+    private static final int RECORD_OVERHEAD = 4 + 4 + KEY_SIZE + 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".ylc";
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long segmentSize;
+    private final long maxSize;
+    private final FileChannel lockChannel;
+    private final ReentrantLock processLock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Key, Location> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private long liveBytes;
+    private long totalBytes;
+
+    /**
+     * Position of a record's value inside a segment
+     */
+    private record Location(int segment, int offset, int length) {
+    }
+
+    /**
+     * A mapped segment and how far it has been scanned
+     */
+    private static final class Segment {
+        final Path path;
+        MappedByteBuffer buffer;
+        long validEnd = 4;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Byte array key with value equality
+     */
+    private record Key(byte[] bytes) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Arrays.equals(bytes, other.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bytes);
+        }
+    }
+
+    /**
+     * Open or create a cache directory
+     * @param directory Directory holding the segments, created if missing
+     * @param segmentSize Size after which writers start a new segment
+     * @param maxSize Total size of all segments after which compaction drops the oldest records
+     */
+    public DiskArtifactCache(Path directory, long segmentSize, long maxSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory);
+        // File locks belong to the whole JVM, so caches of one process share a lock per directory
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(directory.toAbsolutePath().normalize(),
+            path -> new ReentrantLock());
+        this.lockChannel = FileChannel.open(directory.resolve("cache.lock"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock.writeLock().lock();
+        try {
+            refresh();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Value stored under a key, or null; looks for records of other processes on a miss
+     */
+    public byte[] get(byte[] key) throws IOException {
+        checkKey(key);
+        Key lookup = new Key(key);
+        lock.readLock().lock();
+        try {
+            byte[] value = read(index.get(lookup));
+            if (value != null || !changedOnDisk()) {
+                return value;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            refresh();
+            return read(index.get(lookup));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append a value under a key; a later value for the same key replaces the earlier one
+     */
+    public void put(byte[] key, byte[] value) throws IOException {
+        checkKey(key);
+        lock.writeLock().lock();
+        processLock.lock();
+        try {
+            FileLock fileLock = lockChannel.lock();
+            try {
+                refresh();
+                if (segments.isEmpty()
+                        || segments.lastEntry().getValue().validEnd + RECORD_OVERHEAD + value.length > segmentSize) {
+                    createSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+                }
+                int id = segments.lastKey();
+                Segment segment = segments.get(id);
+
+                try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+                    // Cut off a torn record left behind by a crashed writer
+                    if (channel.size() > segment.validEnd) {
+                        channel.truncate(segment.validEnd);
+                    }
+                    ByteBuffer record = encode(key, value);
+                    channel.position(segment.validEnd);
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+                scan(id, segment);
+
+                if (totalBytes > maxSize || (segments.size() > 1 && totalBytes - liveBytes > totalBytes / 2)) {
+                    compactLocked();
+                }
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            processLock.unlock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct keys currently stored
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the live records into one fresh segment, keeping the newest within the size limit
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        processLock.lock();
+        try {
+            FileLock fileLock = lockChannel.lock();
+            try {
+                compactLocked();
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            processLock.unlock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        refresh();
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        // Newest records first so the oldest are the ones dropped over the size limit
+        List<Map.Entry<Key, Location>> live = new ArrayList<>(index.entrySet());
+        live.sort((a, b) -> a.getValue().segment() != b.getValue().segment()
+            ? Integer.compare(b.getValue().segment(), a.getValue().segment())
+            : Integer.compare(b.getValue().offset(), a.getValue().offset()));
+
+        long budget = maxSize / 2;
+        List<ByteBuffer> kept = new ArrayList<>();
+        long size = 4;
+        for (Map.Entry<Key, Location> entry : live) {
+            byte[] value = read(entry.getValue());
+            if (size + RECORD_OVERHEAD + value.length > budget && !kept.isEmpty()) {
+                break;
+            }
+            kept.add(encode(entry.getKey().bytes(), value));
+            size += RECORD_OVERHEAD + value.length;
+        }
+
+        int id = segments.lastKey() + 1;
+        Path temporary = directory.resolve(SEGMENT_PREFIX + id + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, SEGMENT_MAGIC));
+            // Oldest first, so replaying the segment ends with the newest value of every key
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                ByteBuffer record = kept.get(i);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, segmentPath(id), StandardCopyOption.ATOMIC_MOVE);
+
+        for (Segment segment : segments.values()) {
+            Files.deleteIfExists(segment.path);
+        }
+        clear();
+        refresh();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            clear();
+            lockChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void checkKey(byte[] key) {
+        if (key.length != KEY_SIZE) {
+            throw new IllegalArgumentException("Cache keys must be " + KEY_SIZE + " bytes");
+        }
+    }
+
+    private static ByteBuffer encode(byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(value);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + value.length);
+        record.putInt(RECORD_MAGIC).putInt(value.length).put(key).put(value).putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    private byte[] read(Location location) {
+        if (location == null) {
+            return null;
+        }
+        Segment segment = segments.get(location.segment());
+        if (segment == null) {
+            return null;
+        }
+        byte[] value = new byte[location.length()];
+        segment.buffer.get(location.offset(), value);
+        return value;
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+    }
+
+    private void createSegment(int id) throws IOException {
+        Path path = segmentPath(id);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, SEGMENT_MAGIC));
+        }
+        segments.put(id, new Segment(path));
+        scan(id, segments.get(id));
+    }
+
+    private void clear() {
+        index.clear();
+        segments.clear();
+        liveBytes = 0;
+        totalBytes = 0;
+    }
+
+    /**
+     * Whether other processes may have written since the last refresh. Writers only append to
+     * the newest segment or start the one after it, and a compaction writes the one after it and
+     * deletes the newest, so two file checks stand in for listing the directory.
+     */
+    private boolean changedOnDisk() throws IOException {
+        if (segments.isEmpty()) {
+            return Files.exists(segmentPath(0));
+        }
+        Map.Entry<Integer, Segment> newest = segments.lastEntry();
+        Segment segment = newest.getValue();
+        try {
+            if (segment.buffer == null || Files.size(segment.path) != segment.buffer.capacity()) {
+                return true;
+            }
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+        return Files.exists(segmentPath(newest.getKey() + 1));
+    }
+
+    /**
+     * Bring the index up to date with the segments on disk
+     */
+    private void refresh() throws IOException {
+        TreeMap<Integer, Path> onDisk = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    onDisk.put(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())), path);
+                } catch (NumberFormatException e) {
+                    // Not a segment of this cache
+                }
+            }
+        }
+
+        // A compaction elsewhere removed segments this index points into: start over
+        if (!onDisk.keySet().containsAll(segments.keySet())) {
+            clear();
+        }
+        for (Map.Entry<Integer, Path> entry : onDisk.entrySet()) {
+            Segment segment = segments.computeIfAbsent(entry.getKey(), id -> new Segment(entry.getValue()));
+            scan(entry.getKey(), segment);
+        }
+    }
+
+    /**
+     * Index the records appended to a segment since it was last scanned
+     */
+    private void scan(int id, Segment segment) throws IOException {
+        long size = Files.size(segment.path);
+        if (segment.buffer != null && size == segment.buffer.capacity()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        if (size < 4 || buffer.getInt(0) != SEGMENT_MAGIC) {
+            return;
+        }
+
+        long position = segment.validEnd;
+        while (position + RECORD_OVERHEAD <= size) {
+            int offset = (int) position;
+            if (buffer.getInt(offset) != RECORD_MAGIC) {
+                break;
+            }
+            int length = buffer.getInt(offset + 4);
+            if (length < 0 || position + RECORD_OVERHEAD + length > size) {
+                break;
+            }
+            byte[] key = new byte[KEY_SIZE];
+            buffer.get(offset + 8, key);
+            CRC32 crc = new CRC32();
+            crc.update(key);
+            crc.update(buffer.slice(offset + 8 + KEY_SIZE, length));
+            if ((int) crc.getValue() != buffer.getInt(offset + 8 + KEY_SIZE + length)) {
+                break;
+            }
+
+            Location previous = index.put(new Key(key), new Location(id, offset + 8 + KEY_SIZE, length));
+            if (previous != null) {
+                liveBytes -= RECORD_OVERHEAD + previous.length();
+            }
+            liveBytes += RECORD_OVERHEAD + length;
+            totalBytes += RECORD_OVERHEAD + length;
+            position += RECORD_OVERHEAD + length;
+        }
+        segment.validEnd = position;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.ylang.backend.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller computes the value and callers
+ * arriving while it runs wait for that value instead of computing it again. Nothing is kept once
+ * the computation finishes, so this complements a result cache rather than replacing it.
+ * @param <K> Key type
+ * @param <V> Value type; callers share the same instance
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final AtomicLong sharedCalls = new AtomicLong();
+
+    /**
+     * Compute the value for a key, or wait for the computation already running for it
+     * @throws RuntimeException Whatever the computation threw, in every caller that waited for it
+     */
+    public V run(K key, Supplier<V> computation) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, call);
+        if (running != null) {
+            sharedCalls.incrementAndGet();
+            return await(running);
+        }
+
+        try {
+            V value = computation.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * Number of calls served by a computation started by another caller
+     */
+    public long getSharedCalls() {
+        return sharedCalls.get();
+    }
+
+    /**
+     * Number of computations running
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
\ No newline at end of file
@@ -1,11 +1,18 @@
 package com.ylang.backend.controller;
 
 import com.ylang.backend.dto.*;
+import com.ylang.backend.model.ValidationLevel;
+import com.ylang.backend.service.AdmissionControl;
 import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.ConcurrencyLimiter;
+import com.ylang.backend.service.ProjectCompilationService;
+import com.ylang.backend.service.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,29 +26,50 @@ public class CompilationController {
     
     private static final Logger logger = LoggerFactory.getLogger(CompilationController.class);
     
+    private static final String BUSY = "Server is busy, retry later";
+    
     @Autowired
     private CompilationService compilationService;
     
+    @Autowired
+    private ProjectCompilationService projectCompilationService;
+    
+    @Autowired
+    private TokenService tokenService;
+    
+    @Autowired
+    private AdmissionControl admissionControl;
+    
     /**
      * Compile Y language code to target language
      * @param request The compilation request
      * @return Compilation response with generated code or errors
      */
     @PostMapping("/compile")
-    public ResponseEntity<CompileResponse> compile(@Valid @RequestBody CompileRequest request) {
+    public ResponseEntity<CompileResponse> compile(@Valid @RequestBody CompileRequest request,
+                                                   HttpServletRequest httpRequest) {
         logger.info("Received compilation request for target language: {}", request.getTargetLanguage());
         
+        ConcurrencyLimiter.Permit permit = admit(admissionControl.compile(), request.getProjectId(), httpRequest);
+        if (permit == null) {
+            return rejected(admissionControl.compile(), CompileResponse.failure(java.util.List.of(BUSY)));
+        }
+        
         try {
             CompileResponse response = compilationService.compile(
                 request.getCode(),
                 request.getTargetLanguage(),
-                request.getProjectId()
+                request.getProjectId(),
+                request.getOptions()
             );
             
             if (response.isSuccess()) {
                 logger.info("Compilation successful, returning {} characters of generated code", 
                            response.getCompiledCode().length());
                 return ResponseEntity.ok(response);
+            } else if (response.isSuperseded()) {
+                logger.info("Compilation superseded by a newer request for project {}", request.getProjectId());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
             } else {
                 logger.warn("Compilation failed with {} errors", response.getErrors().size());
                 return ResponseEntity.badRequest().body(response);
@@ -53,6 +81,51 @@ public class CompilationController {
                 java.util.List.of("Internal server error: " + e.getMessage())
             );
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } finally {
+            permit.release();
+        }
+    }
+    
+    /**
+     * Compile a project of several Y language files, resolving imports between them
+     * @param request The project compilation request
+     * @return Project compilation response with one result per module
+     */
+    @PostMapping("/compile/project")
+    public ResponseEntity<ProjectCompileResponse> compileProject(@Valid @RequestBody ProjectCompileRequest request,
+                                                                 HttpServletRequest httpRequest) {
+        logger.info("Received project compilation request with {} files for target language: {}",
+                   request.getFiles().size(), request.getTargetLanguage());
+        
+        ConcurrencyLimiter.Permit permit = admit(admissionControl.compile(), request.getProjectId(), httpRequest);
+        if (permit == null) {
+            ProjectCompileResponse busy = new ProjectCompileResponse();
+            busy.setErrors(java.util.List.of(BUSY));
+            return rejected(admissionControl.compile(), busy);
+        }
+        
+        try {
+            ProjectCompileResponse response = projectCompilationService.compile(
+                request.getFiles(),
+                request.getTargetLanguage(),
+                request.getProjectId(),
+                request.getOptions()
+            );
+            
+            if (response.isSuccess()) {
+                return ResponseEntity.ok(response);
+            } else {
+                logger.warn("Project compilation failed with {} project errors", response.getErrors().size());
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+        } catch (Exception e) {
+            logger.error("Unexpected error during project compilation", e);
+            ProjectCompileResponse errorResponse = new ProjectCompileResponse();
+            errorResponse.setErrors(java.util.List.of("Internal server error: " + e.getMessage()));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } finally {
+            permit.release();
         }
     }
     
@@ -62,11 +135,21 @@ public class CompilationController {
      * @return Validation response with errors and warnings
      */
     @PostMapping("/validate")
-    public ResponseEntity<ValidateResponse> validate(@Valid @RequestBody ValidateRequest request) {
+    public ResponseEntity<ValidateResponse> validate(@Valid @RequestBody ValidateRequest request,
+                                                     HttpServletRequest httpRequest) {
         logger.info("Received validation request");
         
+        ConcurrencyLimiter.Permit permit = admit(admissionControl.validate(), null, httpRequest);
+        if (permit == null) {
+            return rejected(admissionControl.validate(), ValidateResponse.failure(java.util.List.of(BUSY)));
+        }
+        
         try {
-            ValidateResponse response = compilationService.validate(request.getCode());
+            ValidateResponse response = compilationService.validate(
+                request.getCode(),
+                request.isFailFast(),
+                ValidationLevel.fromString(request.getLevel())
+            );
             
             if (response.isValid()) {
                 logger.info("Validation successful");
@@ -82,9 +165,95 @@ public class CompilationController {
                 java.util.List.of("Internal server error: " + e.getMessage())
             );
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } finally {
+            permit.release();
+        }
+    }
+    
+    /**
+     * Run Y language code in the server's sandboxed interpreter
+     * @param request The program to run
+     * @return Run response with the program's output, or the errors that kept it from running
+     */
+    @PostMapping("/run")
+    public ResponseEntity<RunResponse> run(@Valid @RequestBody RunRequest request,
+                                           HttpServletRequest httpRequest) {
+        logger.info("Received run request");
+        
+        // Running costs at least as much as compiling, so both share a limit
+        ConcurrencyLimiter.Permit permit = admit(admissionControl.compile(), request.getProjectId(), httpRequest);
+        if (permit == null) {
+            return rejected(admissionControl.compile(), RunResponse.failure(java.util.List.of(BUSY)));
+        }
+        
+        try {
+            RunResponse response = compilationService.run(request.getCode());
+            
+            if (response.isExecuted()) {
+                // A program that fails at runtime is still a valid request
+                logger.info("Program ran in {} steps{}", response.getSteps(),
+                           response.getLimitExceeded() != null ? ", stopped by the " + response.getLimitExceeded() + " limit" : "");
+                return ResponseEntity.ok(response);
+            } else {
+                logger.warn("Program did not run, {} errors", response.getErrors().size());
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+        } catch (Exception e) {
+            logger.error("Unexpected error while running program", e);
+            RunResponse errorResponse = RunResponse.failure(
+                java.util.List.of("Internal server error: " + e.getMessage())
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } finally {
+            permit.release();
+        }
+    }
+    
+    /**
+     * Tokenize a whole document for syntax highlighting
+     * @param request The document, with an optional ID to keep it for incremental edits
+     * @return Token response with all tokens packed as [type, start, length] triples
+     */
+    @PostMapping("/tokens")
+    public ResponseEntity<TokenResponse> tokenize(@Valid @RequestBody TokenRequest request) {
+        TokenResponse response = tokenService.tokenize(request.getDocumentId(), request.getText());
+        return response.isSuccess() ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+    
+    /**
+     * Re-lex a kept document after an edit
+     * @param request The edit and the document version it applies to
+     * @return Token response with the replaced token range, or 409 when the full text must be sent again
+     */
+    @PostMapping("/tokens/edit")
+    public ResponseEntity<TokenResponse> editTokens(@Valid @RequestBody TokenEditRequest request) {
+        TokenResponse response = tokenService.applyEdit(
+            request.getDocumentId(),
+            request.getVersion(),
+            request.getOffset(),
+            request.getDeleteLength(),
+            request.getText()
+        );
+        
+        if (response.isSuccess()) {
+            return ResponseEntity.ok(response);
+        } else if (response.isResyncRequired()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } else {
+            return ResponseEntity.badRequest().body(response);
         }
     }
     
+    /**
+     * Names of the token types used in token responses
+     * @return Token type names indexed by type
+     */
+    @GetMapping("/tokens/types")
+    public ResponseEntity<java.util.List<String>> tokenTypes() {
+        return ResponseEntity.ok(tokenService.getTokenTypes());
+    }
+    
     /**
      * Translate Y language code to TypeScript
      * Convenience endpoint for TypeScript translation
@@ -92,9 +261,10 @@ public class CompilationController {
      * @return Compilation response with TypeScript code
      */
     @PostMapping("/translate/typescript")
-    public ResponseEntity<CompileResponse> translateToTypeScript(@Valid @RequestBody CompileRequest request) {
+    public ResponseEntity<CompileResponse> translateToTypeScript(@Valid @RequestBody CompileRequest request,
+                                                                 HttpServletRequest httpRequest) {
         request.setTargetLanguage("typescript");
-        return compile(request);
+        return compile(request, httpRequest);
     }
     
     /**
@@ -104,9 +274,49 @@ public class CompilationController {
      * @return Compilation response with Rust code
      */
     @PostMapping("/translate/rust")
-    public ResponseEntity<CompileResponse> translateToRust(@Valid @RequestBody CompileRequest request) {
+    public ResponseEntity<CompileResponse> translateToRust(@Valid @RequestBody CompileRequest request,
+                                                           HttpServletRequest httpRequest) {
         request.setTargetLanguage("rust");
-        return compile(request);
+        return compile(request, httpRequest);
+    }
+
+    /**
+     * Translate Y language code to WebAssembly
+     * Convenience endpoint for WebAssembly translation
+     * @param request The compilation request with targetLanguage = "wasm"
+     * @return Compilation response with the module binary, base64-encoded
+     */
+    @PostMapping("/translate/wasm")
+    public ResponseEntity<CompileResponse> translateToWasm(@Valid @RequestBody CompileRequest request,
+                                                           HttpServletRequest httpRequest) {
+        request.setTargetLanguage("wasm");
+        return compile(request, httpRequest);
+    }
+    
+    /**
+     * Wait briefly for room to run a request; clients are told apart by project ID, else by address
+     * @return The permit, or null when the request is rejected
+     */
+    private ConcurrencyLimiter.Permit admit(ConcurrencyLimiter limiter, String projectId, HttpServletRequest httpRequest) {
+        String client = projectId != null && !projectId.isBlank() ? "project:" + projectId
+                                                                  : "address:" + httpRequest.getRemoteAddr();
+        try {
+            ConcurrencyLimiter.Permit permit = limiter.tryAcquire(client);
+            if (permit == null) {
+                logger.warn("Rejecting {} request from {}: {} in flight, limit {}",
+                           limiter.getName(), client, limiter.getInFlight(), limiter.getLimit());
+            }
+            return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    private static <T> ResponseEntity<T> rejected(ConcurrencyLimiter limiter, T body) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(limiter.retryAfterSeconds()))
+            .body(body);
     }
     
     /**
@@ -128,7 +338,7 @@ public class CompilationController {
             "Y Language Backend API",
             "1.0.0",
             "Backend service for Y language compiler and translator",
-            java.util.List.of("compile", "validate", "translate")
+            java.util.List.of("compile", "compile/project", "validate", "translate", "tokens", "run")
         );
         return ResponseEntity.ok(info);
     }
@@ -1,5 +1,6 @@
 package com.ylang.backend.dto;
 
+import com.ylang.backend.model.CompileOptions;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -13,11 +14,13 @@ public class CompileRequest {
     private String code;
     
     @NotNull(message = "Target language is required")
-    @Pattern(regexp = "^(rust|typescript)$", message = "Target language must be 'rust' or 'typescript'")
+    @Pattern(regexp = "^(rust|typescript|wasm|wat)$", message = "Target language must be 'rust', 'typescript', 'wasm' or 'wat'")
     private String targetLanguage;
     
     private String projectId;
     
+    private CompileOptions options;
+    
     public CompileRequest() {}
     
     public CompileRequest(String code, String targetLanguage, String projectId) {
@@ -49,4 +52,12 @@ public class CompileRequest {
     public void setProjectId(String projectId) {
         this.projectId = projectId;
     }
+    
+    public CompileOptions getOptions() {
+        return options;
+    }
+    
+    public void setOptions(CompileOptions options) {
+        this.options = options;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.ylang.backend.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.ylang.backend.ast.ProgramNode;
+import com.ylang.backend.model.Diagnostic;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -10,15 +13,20 @@ import java.util.ArrayList;
 public class CompileResponse {
     
     private boolean success;
+    @JsonSerialize(using = Utf8Block.Serializer.class)
+    @JsonDeserialize(using = Utf8Block.Deserializer.class)
     private String compiledCode;
     private List<String> errors;
     private List<String> warnings;
+    private List<Diagnostic> diagnostics;
     private ProgramNode ast;
+    private boolean superseded;
     private long executionTimeMs;
     
     public CompileResponse() {
         this.errors = new ArrayList<>();
         this.warnings = new ArrayList<>();
+        this.diagnostics = new ArrayList<>();
     }
     
     public CompileResponse(boolean success, String compiledCode, List<String> errors, List<String> warnings, ProgramNode ast) {
@@ -26,6 +34,7 @@ public class CompileResponse {
         this.compiledCode = compiledCode;
         this.errors = errors != null ? new ArrayList<>(errors) : new ArrayList<>();
         this.warnings = warnings != null ? new ArrayList<>(warnings) : new ArrayList<>();
+        this.diagnostics = new ArrayList<>();
         this.ast = ast;
     }
     
@@ -33,6 +42,17 @@ public class CompileResponse {
         return new CompileResponse(true, compiledCode, new ArrayList<>(), new ArrayList<>(), ast);
     }
     
+    /**
+     * Copy of a response that can be changed without affecting the original
+     */
+    public static CompileResponse copyOf(CompileResponse other) {
+        CompileResponse copy = new CompileResponse(other.success, other.compiledCode, other.errors, other.warnings, other.ast);
+        copy.diagnostics = new ArrayList<>(other.diagnostics);
+        copy.superseded = other.superseded;
+        copy.executionTimeMs = other.executionTimeMs;
+        return copy;
+    }
+    
     public static CompileResponse failure(List<String> errors) {
         return new CompileResponse(false, null, errors, new ArrayList<>(), null);
     }
@@ -69,6 +89,17 @@ public class CompileResponse {
         this.warnings = warnings != null ? new ArrayList<>(warnings) : new ArrayList<>();
     }
     
+    /**
+     * Syntax errors with code, position and span; the errors list holds the same problems as text
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return new ArrayList<>(diagnostics);
+    }
+    
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        this.diagnostics = diagnostics != null ? new ArrayList<>(diagnostics) : new ArrayList<>();
+    }
+    
     public ProgramNode getAst() {
         return ast;
     }
@@ -77,6 +108,17 @@ public class CompileResponse {
         this.ast = ast;
     }
     
+    /**
+     * A newer request for the same project arrived, so this one was abandoned
+     */
+    public boolean isSuperseded() {
+        return superseded;
+    }
+    
+    public void setSuperseded(boolean superseded) {
+        this.superseded = superseded;
+    }
+    
     public long getExecutionTimeMs() {
         return executionTimeMs;
     }
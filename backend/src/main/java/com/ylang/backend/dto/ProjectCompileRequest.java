@@ -0,0 +1,68 @@
+package com.ylang.backend.dto;
+
+import com.ylang.backend.model.CompileOptions;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.Map;
+
+/**
+ * Request DTO for compiling a project of several Y language files
+ */
+public class ProjectCompileRequest {
+    
+    /**
+     * Source of every file keyed by its path; the file name without extension is the module name
+     */
+    @NotEmpty(message = "At least one file is required")
+    private Map<String, String> files;
+    
+    @NotNull(message = "Target language is required")
+    @Pattern(regexp = "^(rust|typescript)$", message = "Target language must be 'rust' or 'typescript'")
+    private String targetLanguage;
+    
+    private String projectId;
+    
+    private CompileOptions options;
+    
+    public ProjectCompileRequest() {}
+    
+    public ProjectCompileRequest(Map<String, String> files, String targetLanguage, String projectId) {
+        this.files = files;
+        this.targetLanguage = targetLanguage;
+        this.projectId = projectId;
+    }
+    
+    public Map<String, String> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(Map<String, String> files) {
+        this.files = files;
+    }
+    
+    public String getTargetLanguage() {
+        return targetLanguage;
+    }
+    
+    public void setTargetLanguage(String targetLanguage) {
+        this.targetLanguage = targetLanguage;
+    }
+    
+    public String getProjectId() {
+        return projectId;
+    }
+    
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+    
+    public CompileOptions getOptions() {
+        return options;
+    }
+    
+    public void setOptions(CompileOptions options) {
+        this.options = options;
+    }
+}
\ No newline at end of file
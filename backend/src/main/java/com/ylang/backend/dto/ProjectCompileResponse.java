@@ -0,0 +1,96 @@
+package com.ylang.backend.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response DTO for project compilation: one result per module plus the build order used
+ */
+public class ProjectCompileResponse {
+    
+    private boolean success;
+    private Map<String, CompileResponse> modules;
+    private List<List<String>> buildLevels;
+    private List<String> cachedModules;
+    private List<String> errors;
+    private List<String> warnings;
+    private long executionTimeMs;
+    
+    public ProjectCompileResponse() {
+        this.modules = new LinkedHashMap<>();
+        this.buildLevels = new ArrayList<>();
+        this.cachedModules = new ArrayList<>();
+        this.errors = new ArrayList<>();
+        this.warnings = new ArrayList<>();
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    /**
+     * Compilation result of every module, keyed by module name
+     */
+    public Map<String, CompileResponse> getModules() {
+        return modules;
+    }
+    
+    public void setModules(Map<String, CompileResponse> modules) {
+        this.modules = modules != null ? new LinkedHashMap<>(modules) : new LinkedHashMap<>();
+    }
+    
+    /**
+     * Modules grouped by build level; a level only depends on earlier levels
+     */
+    public List<List<String>> getBuildLevels() {
+        return buildLevels;
+    }
+    
+    public void setBuildLevels(List<List<String>> buildLevels) {
+        this.buildLevels = buildLevels != null ? new ArrayList<>(buildLevels) : new ArrayList<>();
+    }
+    
+    /**
+     * Modules whose result was reused because neither they nor their dependencies changed
+     */
+    public List<String> getCachedModules() {
+        return cachedModules;
+    }
+    
+    public void setCachedModules(List<String> cachedModules) {
+        this.cachedModules = cachedModules != null ? new ArrayList<>(cachedModules) : new ArrayList<>();
+    }
+    
+    /**
+     * Project-level errors such as import cycles and duplicate module names
+     */
+    public List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+    
+    public void setErrors(List<String> errors) {
+        this.errors = errors != null ? new ArrayList<>(errors) : new ArrayList<>();
+    }
+    
+    public List<String> getWarnings() {
+        return new ArrayList<>(warnings);
+    }
+    
+    public void setWarnings(List<String> warnings) {
+        this.warnings = warnings != null ? new ArrayList<>(warnings) : new ArrayList<>();
+    }
+    
+    public long getExecutionTimeMs() {
+        return executionTimeMs;
+    }
+    
+    public void setExecutionTimeMs(long executionTimeMs) {
+        this.executionTimeMs = executionTimeMs;
+    }
+}
\ No newline at end of file
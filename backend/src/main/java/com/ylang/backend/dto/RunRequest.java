@@ -0,0 +1,39 @@
+package com.ylang.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Request DTO for running a program in the interpreter
+ */
+public class RunRequest {
+    
+    @NotBlank(message = "Y language code is required")
+    private String code;
+    
+    private String projectId;
+    
+    public RunRequest() {}
+    
+    public RunRequest(String code) {
+        this.code = code;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public void setCode(String code) {
+        this.code = code;
+    }
+    
+    /**
+     * Optional project ID, used to share the server fairly between clients
+     */
+    public String getProjectId() {
+        return projectId;
+    }
+    
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.ylang.backend.dto;
+
+import com.ylang.backend.model.Diagnostic;
+import com.ylang.backend.model.RunResult;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Response DTO for running a program in the interpreter
+ */
+public class RunResponse {
+    
+    private boolean success;
+    private boolean executed;
+    private String output;
+    private List<String> errors;
+    private List<Diagnostic> diagnostics;
+    private String limitExceeded;
+    private long steps;
+    private long memoryBytes;
+    private long executionTimeMs;
+    
+    public RunResponse() {
+        this.output = "";
+        this.errors = new ArrayList<>();
+        this.diagnostics = new ArrayList<>();
+    }
+    
+    /**
+     * Response for a program that ran, to completion or not
+     */
+    public static RunResponse of(RunResult result) {
+        RunResponse response = new RunResponse();
+        response.success = result.isSuccess();
+        response.executed = true;
+        response.output = result.getOutput();
+        if (result.getError() != null) {
+            response.errors.add(result.getError());
+        }
+        response.limitExceeded = result.getLimitExceeded();
+        response.steps = result.getSteps();
+        response.memoryBytes = result.getMemoryBytes();
+        return response;
+    }
+    
+    /**
+     * Response for a program that did not run because it has syntax or type errors
+     */
+    public static RunResponse failure(List<String> errors) {
+        RunResponse response = new RunResponse();
+        response.errors = errors != null ? new ArrayList<>(errors) : new ArrayList<>();
+        return response;
+    }
+    
+    /**
+     * Whether the program ran to completion without an uncaught error
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    /**
+     * Whether the program got as far as running; false when it has syntax or type errors
+     */
+    public boolean isExecuted() {
+        return executed;
+    }
+    
+    public void setExecuted(boolean executed) {
+        this.executed = executed;
+    }
+    
+    public String getOutput() {
+        return output;
+    }
+    
+    public void setOutput(String output) {
+        this.output = output;
+    }
+    
+    public List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+    
+    public void setErrors(List<String> errors) {
+        this.errors = errors != null ? new ArrayList<>(errors) : new ArrayList<>();
+    }
+    
+    /**
+     * Syntax errors with code, position and span; the errors list holds the same problems as text
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return new ArrayList<>(diagnostics);
+    }
+    
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        this.diagnostics = diagnostics != null ? new ArrayList<>(diagnostics) : new ArrayList<>();
+    }
+    
+    /**
+     * The sandbox limit that stopped the program ("steps", "memory", "time", "call-depth" or
+     * "output"), or null
+     */
+    public String getLimitExceeded() {
+        return limitExceeded;
+    }
+    
+    public void setLimitExceeded(String limitExceeded) {
+        this.limitExceeded = limitExceeded;
+    }
+    
+    public long getSteps() {
+        return steps;
+    }
+    
+    public void setSteps(long steps) {
+        this.steps = steps;
+    }
+    
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+    
+    public void setMemoryBytes(long memoryBytes) {
+        this.memoryBytes = memoryBytes;
+    }
+    
+    public long getExecutionTimeMs() {
+        return executionTimeMs;
+    }
+    
+    public void setExecutionTimeMs(long executionTimeMs) {
+        this.executionTimeMs = executionTimeMs;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.ylang.backend.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request DTO for re-lexing a document after an edit
+ */
+public class TokenEditRequest {
+    
+    @NotBlank(message = "Document ID is required")
+    private String documentId;
+    
+    /**
+     * Version of the document the edit applies to, as returned by the previous token response
+     */
+    private long version;
+    
+    /**
+     * Offset of the edit in UTF-16 code units
+     */
+    @Min(value = 0, message = "Offset must not be negative")
+    private int offset;
+    
+    @Min(value = 0, message = "Delete length must not be negative")
+    private int deleteLength;
+    
+    /**
+     * Text inserted at the offset, empty for a pure deletion
+     */
+    @NotNull(message = "Text is required")
+    private String text;
+    
+    public TokenEditRequest() {}
+    
+    public String getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+    
+    public int getDeleteLength() {
+        return deleteLength;
+    }
+    
+    public void setDeleteLength(int deleteLength) {
+        this.deleteLength = deleteLength;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public void setText(String text) {
+        this.text = text;
+    }
+}
\ No newline at end of file
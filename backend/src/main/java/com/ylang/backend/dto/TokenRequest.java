@@ -0,0 +1,40 @@
+package com.ylang.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request DTO for tokenizing a whole document
+ */
+public class TokenRequest {
+    
+    /**
+     * Optional document ID; when set the tokens are kept so later edits can be re-lexed incrementally
+     */
+    private String documentId;
+    
+    @NotNull(message = "Text is required")
+    private String text;
+    
+    public TokenRequest() {}
+    
+    public TokenRequest(String documentId, String text) {
+        this.documentId = documentId;
+        this.text = text;
+    }
+    
+    public String getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public void setText(String text) {
+        this.text = text;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.ylang.backend.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for token operations.
+ *
+ * Tokens are packed as [type, start, length] integer triples. A response replaces the client's
+ * tokens firstToken..firstToken+removedTokens with the ones it carries; a full tokenization has
+ * firstToken 0 and replaces everything.
+ */
+public class TokenResponse {
+    
+    private boolean success;
+    private String documentId;
+    private long version;
+    private boolean full;
+    private boolean resyncRequired;
+    private int firstToken;
+    private int removedTokens;
+    private int tokenCount;
+    private int[] tokens;
+    private List<String> errors;
+    private long executionTimeMs;
+    
+    public TokenResponse() {
+        this.tokens = new int[0];
+        this.errors = new ArrayList<>();
+    }
+    
+    public static TokenResponse failure(String documentId, String error) {
+        TokenResponse response = new TokenResponse();
+        response.documentId = documentId;
+        response.errors = new ArrayList<>(List.of(error));
+        return response;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    public String getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public boolean isFull() {
+        return full;
+    }
+    
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+    
+    /**
+     * The server no longer has the document at the requested version; send the full text again
+     */
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+    
+    public void setResyncRequired(boolean resyncRequired) {
+        this.resyncRequired = resyncRequired;
+    }
+    
+    public int getFirstToken() {
+        return firstToken;
+    }
+    
+    public void setFirstToken(int firstToken) {
+        this.firstToken = firstToken;
+    }
+    
+    public int getRemovedTokens() {
+        return removedTokens;
+    }
+    
+    public void setRemovedTokens(int removedTokens) {
+        this.removedTokens = removedTokens;
+    }
+    
+    /**
+     * Number of tokens in the whole document after this response is applied
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+    
+    public void setTokenCount(int tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+    
+    public int[] getTokens() {
+        return tokens;
+    }
+    
+    public void setTokens(int[] tokens) {
+        this.tokens = tokens != null ? tokens : new int[0];
+    }
+    
+    public List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+    
+    public void setErrors(List<String> errors) {
+        this.errors = errors != null ? new ArrayList<>(errors) : new ArrayList<>();
+    }
+    
+    public long getExecutionTimeMs() {
+        return executionTimeMs;
+    }
+    
+    public void setExecutionTimeMs(long executionTimeMs) {
+        this.executionTimeMs = executionTimeMs;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.ylang.backend.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding of generated code as a raw UTF-8 byte block in binary formats (Smile, CBOR), which
+ * store bytes as they are instead of escaping every quote and newline of a string. Text formats
+ * (JSON) keep an ordinary string, so JSON clients see no difference.
+ */
+public final class Utf8Block {
+
+    private Utf8Block() {
+    }
+
+    public static class Serializer extends StdSerializer<String> {
+
+        public Serializer() {
+            super(String.class);
+        }
+
+        @Override
+        public void serialize(String value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (generator.canWriteBinaryNatively()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                generator.writeBinary(bytes, 0, bytes.length);
+            } else {
+                generator.writeString(value);
+            }
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<String> {
+
+        public Deserializer() {
+            super(String.class);
+        }
+
+        @Override
+        public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                return new String(parser.getBinaryValue(), StandardCharsets.UTF_8);
+            }
+            return parser.getValueAsString();
+        }
+    }
+}
\ No newline at end of file
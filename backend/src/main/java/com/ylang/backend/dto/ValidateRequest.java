@@ -1,6 +1,7 @@
 package com.ylang.backend.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 
 /**
  * Request DTO for validation operations
@@ -10,6 +11,17 @@ public class ValidateRequest {
     @NotBlank(message = "Y language code is required")
     private String code;
     
+    /**
+     * Stop at the first error, for callers that only need to know whether the code is valid
+     */
+    private boolean failFast;
+    
+    /**
+     * How far to validate: "lexical", "syntax" or "full" (the default)
+     */
+    @Pattern(regexp = "^(lexical|syntax|full)$", message = "Level must be 'lexical', 'syntax' or 'full'")
+    private String level;
+    
     public ValidateRequest() {}
     
     public ValidateRequest(String code) {
@@ -23,4 +35,20 @@ public class ValidateRequest {
     public void setCode(String code) {
         this.code = code;
     }
+    
+    public boolean isFailFast() {
+        return failFast;
+    }
+    
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+    
+    public String getLevel() {
+        return level;
+    }
+    
+    public void setLevel(String level) {
+        this.level = level;
+    }
 }
\ No newline at end of file
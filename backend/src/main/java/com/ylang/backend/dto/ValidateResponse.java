@@ -1,5 +1,6 @@
 package com.ylang.backend.dto;
 
+import com.ylang.backend.model.Diagnostic;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -11,17 +12,20 @@ public class ValidateResponse {
     private boolean valid;
     private List<String> errors;
     private List<String> warnings;
+    private List<Diagnostic> diagnostics;
     private long validationTimeMs;
     
     public ValidateResponse() {
         this.errors = new ArrayList<>();
         this.warnings = new ArrayList<>();
+        this.diagnostics = new ArrayList<>();
     }
     
     public ValidateResponse(boolean valid, List<String> errors, List<String> warnings) {
         this.valid = valid;
         this.errors = errors != null ? new ArrayList<>(errors) : new ArrayList<>();
         this.warnings = warnings != null ? new ArrayList<>(warnings) : new ArrayList<>();
+        this.diagnostics = new ArrayList<>();
     }
     
     public static ValidateResponse success(List<String> warnings) {
@@ -56,6 +60,17 @@ public class ValidateResponse {
         this.warnings = warnings != null ? new ArrayList<>(warnings) : new ArrayList<>();
     }
     
+    /**
+     * Syntax errors with code, position and span; the errors list holds the same problems as text
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return new ArrayList<>(diagnostics);
+    }
+    
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        this.diagnostics = diagnostics != null ? new ArrayList<>(diagnostics) : new ArrayList<>();
+    }
+    
     public long getValidationTimeMs() {
         return validationTimeMs;
     }
@@ -0,0 +1,25 @@
+package com.ylang.backend.exception;
+
+/**
+ * Exception thrown when a running Y program fails; Y try statements catch it
+ */
+public class YLanguageRuntimeException extends RuntimeException {
+
+    private final int line;
+
+    public YLanguageRuntimeException(String message) {
+        this(message, -1);
+    }
+
+    public YLanguageRuntimeException(String message, int line) {
+        super(message);
+        this.line = line;
+    }
+
+    /**
+     * Line of the statement or expression that failed, or -1 if not known
+     */
+    public int getLine() {
+        return line;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.ylang.backend.exception;
+
+/**
+ * Exception thrown when a program uses a construct the chosen target cannot express
+ */
+public class YLanguageUnsupportedException extends RuntimeException {
+
+    private final int line;
+
+    public YLanguageUnsupportedException(String message) {
+        this(message, -1);
+    }
+
+    /**
+     * @param message What is not supported
+     * @param line Line of the construct, prefixed to the message when known
+     */
+    public YLanguageUnsupportedException(String message, int line) {
+        super(line > 0 ? "Line " + line + ": " + message : message);
+        this.line = line;
+    }
+
+    /**
+     * Line of the unsupported construct, or -1 if not known
+     */
+    public int getLine() {
+        return line;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,1028 @@
+package com.ylang.backend.interpreter;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.exception.YLanguageRuntimeException;
+import com.ylang.backend.model.RunResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree-walking interpreter that runs a Y language AST in-process.
+ *
+ * Numbers are doubles, as in the TypeScript translation; lists are ordered and mutable, maps keep
+ * insertion order, structures are built by calling the structure name with the field values in
+ * declaration order, and enum variants by naming them (with values: "Some with 5").
+ * Builtins cover output (print), collections (length, append, put, contains, keys, range),
+ * arithmetic (abs, floor, round, sqrt) and raising an error for try to catch (fail); a function
+ * the program declares with the same name takes precedence.
+ *
+ * Each run is sandboxed: it stops with the exceeded limit reported once it executes too many
+ * steps (statements, loop iterations and calls), creates too many bytes of strings, lists, maps
+ * and structures, runs past its wall-clock time, nests calls too deeply or prints too much.
+ * The bean is shared, so each run gets its own interpreter state.
+ */
+@Component
+public class Interpreter implements ASTVisitor<Object> {
+
+    /**
+     * Bounds on one run
+     * @param maxSteps Statements, loop iterations and calls
+     * @param maxMemoryBytes Estimated bytes of values created
+     * @param timeoutMs Wall-clock time
+     * @param maxCallDepth Nested function calls
+     * @param maxOutput Characters printed
+     */
+    public record Limits(long maxSteps, long maxMemoryBytes, long timeoutMs, int maxCallDepth, int maxOutput) {
+    }
+
+    @Value("${ylang.run.max-steps:1000000}")
+    private long maxSteps = 1_000_000;
+
+    @Value("${ylang.run.max-memory-bytes:67108864}")
+    private long maxMemoryBytes = 64L << 20;
+
+    @Value("${ylang.run.timeout-ms:2000}")
+    private long timeoutMs = 2000;
+
+    @Value("${ylang.run.max-call-depth:256}")
+    private int maxCallDepth = 256;
+
+    @Value("${ylang.run.max-output:65536}")
+    private int maxOutput = 65536;
+
+    // Rough sizes charged against the memory limit
+    private static final long OBJECT_BYTES = 16;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long MAP_ENTRY_BYTES = 40;
+
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /** A structure value: its type name and fields in declaration order */
+    record Instance(String type, Map<String, Object> fields) {
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder(type).append(" { ");
+            boolean first = true;
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                if (!first) result.append(", ");
+                result.append(field.getKey()).append(": ").append(format(field.getValue()));
+                first = false;
+            }
+            return result.append(" }").toString();
+        }
+    }
+
+    /** An enum value: its type, variant and the variant's values */
+    record Variant(String type, String name, List<Object> values) {
+        @Override
+        public String toString() {
+            if (values.isEmpty()) {
+                return name;
+            }
+            StringBuilder result = new StringBuilder(name).append("(");
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) result.append(", ");
+                result.append(format(values.get(i)));
+            }
+            return result.append(")").toString();
+        }
+    }
+
+    /** Variables of one block, function call or loop iteration */
+    private static final class Scope {
+        final Map<String, Object> variables = new HashMap<>();
+        final Scope parent;
+
+        Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        Scope find(String name) {
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                if (scope.variables.containsKey(name)) {
+                    return scope;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Unwinds to the enclosing call; carries no stack trace */
+    private static final class Return extends RuntimeException {
+        final Object value;
+
+        Return(Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    /** Stops the run; unlike runtime errors, try statements do not catch it */
+    private static final class LimitExceeded extends RuntimeException {
+        final String limit;
+
+        LimitExceeded(String limit, String message) {
+            super(message, null, false, false);
+            this.limit = limit;
+        }
+    }
+
+    private Limits limits;
+    private long deadline;
+    private long steps;
+    private long memory;
+    private int callDepth;
+    private final StringBuilder output = new StringBuilder();
+    private final Map<String, FunctionDeclarationNode> functions = new HashMap<>();
+    private final Map<String, StructureDeclarationNode> structures = new HashMap<>();
+    private final Map<String, String> variants = new HashMap<>();
+    private final Scope globals = new Scope(null);
+    private Scope scope = globals;
+
+    /**
+     * The limits runs get by default, from the ylang.run.* properties
+     */
+    public Limits getLimits() {
+        return new Limits(maxSteps, maxMemoryBytes, timeoutMs, maxCallDepth, maxOutput);
+    }
+
+    /**
+     * Run a program with the default limits
+     * @param program The Y language AST
+     * @return The program's output and how it ended
+     */
+    public RunResult run(ProgramNode program) {
+        return run(program, getLimits());
+    }
+
+    /**
+     * Run a program
+     * @param program The Y language AST
+     * @param limits Bounds on the run
+     * @return The program's output and how it ended
+     */
+    public RunResult run(ProgramNode program, Limits limits) {
+        Interpreter session = new Interpreter();
+        session.limits = limits;
+        return session.execute(program);
+    }
+
+    private RunResult execute(ProgramNode program) {
+        deadline = System.nanoTime() + limits.timeoutMs() * 1_000_000;
+        try {
+            declare(program.getStatements());
+            for (ASTNode statement : program.getStatements()) {
+                statement.accept(this);
+            }
+        } catch (Return e) {
+            // A return outside any function ends the program
+        } catch (YLanguageRuntimeException e) {
+            String location = e.getLine() > 0 ? "Line " + e.getLine() + ": " : "";
+            return RunResult.failed(output.toString(), location + e.getMessage(), steps, memory);
+        } catch (LimitExceeded e) {
+            return RunResult.stopped(output.toString(), e.limit, e.getMessage(), steps, memory);
+        } catch (StackOverflowError e) {
+            return RunResult.stopped(output.toString(), "call-depth", "Calls nested too deeply", steps, memory);
+        }
+        return RunResult.completed(output.toString(), steps, memory);
+    }
+
+    /**
+     * Register the functions, structures and enum variants declared anywhere at the top level,
+     * so they can be used before their declaration
+     */
+    private void declare(List<ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof FunctionDeclarationNode function) {
+                functions.put(function.getName(), function);
+            } else if (statement instanceof StructureDeclarationNode structure) {
+                structures.put(structure.getName(), structure);
+            } else if (statement instanceof EnumDeclarationNode enumeration) {
+                for (EnumDeclarationNode.EnumVariant variant : enumeration.getVariants()) {
+                    variants.put(variant.getName(), enumeration.getName());
+                }
+            } else if (statement instanceof ModuleDeclarationNode module) {
+                declare(module.getStatements());
+            } else if (statement instanceof ImplementationNode implementation) {
+                declare(implementation.getMethods());
+            } else if (statement instanceof DecoratorNode decorator && decorator.getTarget() != null) {
+                declare(List.of(decorator.getTarget()));
+            }
+        }
+    }
+
+    // Sandbox accounting
+
+    private void step() {
+        if (++steps > limits.maxSteps()) {
+            throw new LimitExceeded("steps", "Step limit of " + limits.maxSteps() + " exceeded");
+        }
+        if (steps % TIME_CHECK_INTERVAL == 0) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new LimitExceeded("time", "Time limit of " + limits.timeoutMs() + " ms exceeded");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new LimitExceeded("time", "Run cancelled");
+            }
+        }
+    }
+
+    private void charge(long bytes) {
+        memory += bytes;
+        if (memory > limits.maxMemoryBytes()) {
+            throw new LimitExceeded("memory", "Memory limit of " + limits.maxMemoryBytes() + " bytes exceeded");
+        }
+    }
+
+    private String newString(String value) {
+        charge(OBJECT_BYTES + 2L * value.length());
+        return value;
+    }
+
+    private void print(String line) {
+        if (output.length() + line.length() + 1 > limits.maxOutput()) {
+            output.append(line, 0, Math.max(0, limits.maxOutput() - output.length()));
+            throw new LimitExceeded("output", "Output limit of " + limits.maxOutput() + " characters exceeded");
+        }
+        output.append(line).append('\n');
+    }
+
+    // Statements
+
+    @Override
+    public Object visitProgram(ProgramNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitFunctionDeclaration(FunctionDeclarationNode node) {
+        step();
+        functions.put(node.getName(), node);
+        return null;
+    }
+
+    @Override
+    public Object visitVariableDeclaration(VariableDeclarationNode node) {
+        step();
+        Object value = node.getInitializer() != null ? evaluate(node.getInitializer()) : null;
+        scope.variables.put(node.getName(), value);
+        return null;
+    }
+
+    @Override
+    public Object visitAssignment(AssignmentNode node) {
+        step();
+        Object value = evaluate(node.getValue());
+        assign(node.getVariableName(), value, node);
+        return null;
+    }
+
+    @Override
+    public Object visitIfStatement(IfStatementNode node) {
+        step();
+        if (truth(evaluate(node.getCondition()), node.getCondition())) {
+            node.getThenBlock().accept(this);
+        } else if (node.hasElseBlock()) {
+            node.getElseBlock().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitLoopStatement(LoopStatementNode node) {
+        step();
+        Scope saved = scope;
+        try {
+            if (node.getLoopType() == LoopStatementNode.LoopType.FOR_EACH) {
+                for (Object element : elements(evaluate(node.getIterable()), node)) {
+                    step();
+                    scope = new Scope(saved);
+                    scope.variables.put(node.getVariableName(), element);
+                    node.getBody().accept(this);
+                }
+            } else {
+                scope = new Scope(saved);
+                if (node.hasInitializer()) {
+                    scope.variables.put(node.getVariableName(), evaluate(node.getInitializer()));
+                }
+                while (truth(evaluate(node.getCondition()), node.getCondition())) {
+                    step();
+                    node.getBody().accept(this);
+                    if (node.getIncrementVar() != null) {
+                        assign(node.getIncrementVar(), number(lookup(node.getIncrementVar(), node), node) + 1, node);
+                    }
+                }
+            }
+        } finally {
+            scope = saved;
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitReturnStatement(ReturnStatementNode node) {
+        step();
+        throw new Return(node.hasValue() ? evaluate(node.getValue()) : null);
+    }
+
+    @Override
+    public Object visitBlock(BlockNode node) {
+        Scope saved = scope;
+        scope = new Scope(saved);
+        try {
+            for (ASTNode statement : node.getStatements()) {
+                statement.accept(this);
+            }
+        } finally {
+            scope = saved;
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitTryStatement(TryStatementNode node) {
+        step();
+        Scope saved = scope;
+        try {
+            node.getTryBlock().accept(this);
+        } catch (YLanguageRuntimeException e) {
+            // Y has no error hierarchy, so the first catch clause handles every error
+            List<TryStatementNode.CatchClause> clauses = node.getCatchClauses();
+            if (!clauses.isEmpty()) {
+                TryStatementNode.CatchClause clause = clauses.get(0);
+                scope = new Scope(saved);
+                try {
+                    scope.variables.put(clause.getVariableName(), e.getMessage());
+                    clause.getCatchBlock().accept(this);
+                } finally {
+                    scope = saved;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitMatchStatement(MatchStatementNode node) {
+        step();
+        Object value = evaluate(node.getExpression());
+        Scope saved = scope;
+        try {
+            for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
+                scope = new Scope(saved);
+                if (matches(matchCase, value, node)) {
+                    matchCase.getBlock().accept(this);
+                    return null;
+                }
+            }
+        } finally {
+            scope = saved;
+        }
+        return null;
+    }
+
+    /**
+     * Test one case against the matched value, binding its variables in the current scope
+     */
+    private boolean matches(MatchStatementNode.MatchCase matchCase, Object value, ASTNode node) {
+        switch (matchCase.getKind()) {
+            case LITERAL:
+                return valuesEqual(value, evaluate(matchCase.getValue()));
+            case RANGE:
+                if (!(value instanceof Double number)) {
+                    return false;
+                }
+                return number >= number(evaluate(matchCase.getRangeStart()), matchCase.getRangeStart())
+                    && number <= number(evaluate(matchCase.getRangeEnd()), matchCase.getRangeEnd());
+            case GUARD:
+                scope.variables.put(matchCase.getVariableName(), value);
+                return truth(evaluate(matchCase.getGuard()), matchCase.getGuard());
+            default:
+                String pattern = matchCase.getPattern();
+                if (variants.containsKey(pattern)) {
+                    if (!(value instanceof Variant variant) || !variant.name().equals(pattern)) {
+                        return false;
+                    }
+                    if (matchCase.getVariableName() != null) {
+                        Object bound = variant.values().size() == 1 ? variant.values().get(0)
+                                                                   : new ArrayList<>(variant.values());
+                        scope.variables.put(matchCase.getVariableName(), bound);
+                    }
+                    return true;
+                }
+                if (structures.containsKey(pattern)) {
+                    if (!(value instanceof Instance instance) || !instance.type().equals(pattern)) {
+                        return false;
+                    }
+                    if (matchCase.getVariableName() != null) {
+                        scope.variables.put(matchCase.getVariableName(), value);
+                    }
+                    return true;
+                }
+                if (matchCase.getType() != null) {
+                    // "n as number": binds n when the value has the type
+                    if (!hasType(value, matchCase.getType())) {
+                        return false;
+                    }
+                    scope.variables.put(pattern, value);
+                    return true;
+                }
+                if (Character.isLowerCase(pattern.charAt(0))) {
+                    // Catch-all binding
+                    scope.variables.put(pattern, value);
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    @Override
+    public Object visitModuleDeclaration(ModuleDeclarationNode node) {
+        step();
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitTraitDeclaration(TraitDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Object visitStructureDeclaration(StructureDeclarationNode node) {
+        structures.put(node.getName(), node);
+        return null;
+    }
+
+    @Override
+    public Object visitImportStatement(ImportStatementNode node) {
+        return null;
+    }
+
+    @Override
+    public Object visitExpressionStatement(ExpressionStatementNode node) {
+        step();
+        evaluate(node.getExpression());
+        return null;
+    }
+
+    @Override
+    public Object visitEnumDeclaration(EnumDeclarationNode node) {
+        for (EnumDeclarationNode.EnumVariant variant : node.getVariants()) {
+            variants.put(variant.getName(), node.getName());
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitImplementation(ImplementationNode node) {
+        for (ASTNode method : node.getMethods()) {
+            method.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitLifetime(LifetimeNode node) {
+        return null;
+    }
+
+    @Override
+    public Object visitInterfaceDeclaration(InterfaceDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Object visitTypeAliasDeclaration(TypeAliasDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Object visitDecorator(DecoratorNode node) {
+        return node.getTarget() != null ? node.getTarget().accept(this) : null;
+    }
+
+    // Expressions
+
+    private Object evaluate(ExpressionNode expression) {
+        return expression.accept(this);
+    }
+
+    @Override
+    public Object visitLiteral(LiteralNode node) {
+        switch (node.getLiteralType()) {
+            case STRING:
+                return node.getValue();
+            case NUMBER:
+                return ((Number) node.getValue()).doubleValue();
+            case BOOLEAN:
+                return node.getValue() instanceof Boolean b ? b : Boolean.parseBoolean(String.valueOf(node.getValue()));
+            case EMPTY_LIST:
+                charge(OBJECT_BYTES);
+                return new ArrayList<>();
+            case EMPTY_MAP:
+                charge(OBJECT_BYTES);
+                return new LinkedHashMap<>();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Object visitIdentifier(IdentifierNode node) {
+        return lookup(node.getName(), node);
+    }
+
+    @Override
+    public Object visitFunctionCall(FunctionCallNode node) {
+        String name = node.getFunctionName();
+        List<Object> arguments = new ArrayList<>();
+        for (ExpressionNode argument : node.getArguments()) {
+            arguments.add(evaluate(argument));
+        }
+
+        FunctionDeclarationNode function = functions.get(name);
+        if (function != null) {
+            return invoke(function, arguments, node);
+        }
+        StructureDeclarationNode structure = structures.get(name);
+        if (structure != null) {
+            return construct(structure, arguments, node);
+        }
+        String enumeration = variants.get(name);
+        if (enumeration != null) {
+            charge(OBJECT_BYTES + REFERENCE_BYTES * arguments.size());
+            return new Variant(enumeration, name, List.copyOf(arguments));
+        }
+        return builtin(name, arguments, node);
+    }
+
+    private Object invoke(FunctionDeclarationNode function, List<Object> arguments, ASTNode call) {
+        step();
+        List<ParameterNode> parameters = function.getParameters();
+        if (arguments.size() != parameters.size()) {
+            throw error("Function '" + function.getName() + "' expects " + parameters.size()
+                        + " arguments, got " + arguments.size(), call);
+        }
+        if (callDepth >= limits.maxCallDepth()) {
+            throw new LimitExceeded("call-depth", "Call depth limit of " + limits.maxCallDepth() + " exceeded");
+        }
+        Scope saved = scope;
+        scope = new Scope(globals);
+        for (int i = 0; i < parameters.size(); i++) {
+            scope.variables.put(parameters.get(i).getName(), arguments.get(i));
+        }
+        callDepth++;
+        try {
+            for (ASTNode statement : function.getBody().getStatements()) {
+                statement.accept(this);
+            }
+            return null;
+        } catch (Return e) {
+            return e.value;
+        } finally {
+            callDepth--;
+            scope = saved;
+        }
+    }
+
+    private Object construct(StructureDeclarationNode structure, List<Object> arguments, ASTNode call) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        int index = 0;
+        for (ASTNode member : structure.getMembers()) {
+            if (!(member instanceof VariableDeclarationNode field)) {
+                continue;
+            }
+            if (index < arguments.size()) {
+                fields.put(field.getName(), arguments.get(index));
+            } else if (field.getInitializer() != null) {
+                fields.put(field.getName(), evaluate(field.getInitializer()));
+            } else {
+                throw error("Structure '" + structure.getName() + "' needs a value for field '" + field.getName() + "'", call);
+            }
+            index++;
+        }
+        if (arguments.size() > index) {
+            throw error("Structure '" + structure.getName() + "' has " + index + " fields, got "
+                        + arguments.size() + " values", call);
+        }
+        charge(OBJECT_BYTES + MAP_ENTRY_BYTES * fields.size());
+        return new Instance(structure.getName(), fields);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object builtin(String name, List<Object> arguments, ASTNode call) {
+        switch (name) {
+            case "print":
+            case "display": {
+                StringBuilder line = new StringBuilder();
+                for (Object argument : arguments) {
+                    if (line.length() > 0) line.append(' ');
+                    line.append(format(argument));
+                }
+                print(line.toString());
+                return null;
+            }
+            case "length":
+                expectArguments(name, arguments, 1, call);
+                Object value = arguments.get(0);
+                if (value instanceof String string) return (double) string.length();
+                if (value instanceof List<?> list) return (double) list.size();
+                if (value instanceof Map<?, ?> map) return (double) map.size();
+                throw error("length needs a string, list or map, got " + typeName(value), call);
+            case "append":
+                expectArguments(name, arguments, 2, call);
+                charge(REFERENCE_BYTES);
+                list(arguments.get(0), call).add(arguments.get(1));
+                return arguments.get(0);
+            case "put":
+                expectArguments(name, arguments, 3, call);
+                charge(MAP_ENTRY_BYTES);
+                map(arguments.get(0), call).put(arguments.get(1), arguments.get(2));
+                return arguments.get(0);
+            case "contains": {
+                expectArguments(name, arguments, 2, call);
+                Object container = arguments.get(0);
+                Object item = arguments.get(1);
+                if (container instanceof String string) return string.contains(format(item));
+                if (container instanceof Map<?, ?> map) return map.containsKey(item);
+                return list(container, call).stream().anyMatch(element -> valuesEqual(element, item));
+            }
+            case "keys": {
+                expectArguments(name, arguments, 1, call);
+                Map<Object, Object> map = map(arguments.get(0), call);
+                charge(OBJECT_BYTES + REFERENCE_BYTES * map.size());
+                return new ArrayList<>(map.keySet());
+            }
+            case "range": {
+                expectArguments(name, arguments, 2, call);
+                long from = (long) Math.ceil(number(arguments.get(0), call));
+                long to = (long) Math.ceil(number(arguments.get(1), call));
+                long size = Math.max(0, to - from);
+                charge(OBJECT_BYTES + (REFERENCE_BYTES + OBJECT_BYTES) * size);
+                List<Object> numbers = new ArrayList<>((int) size);
+                for (long i = from; i < to; i++) {
+                    numbers.add((double) i);
+                }
+                return numbers;
+            }
+            case "abs":
+                expectArguments(name, arguments, 1, call);
+                return Math.abs(number(arguments.get(0), call));
+            case "floor":
+                expectArguments(name, arguments, 1, call);
+                return Math.floor(number(arguments.get(0), call));
+            case "round":
+                expectArguments(name, arguments, 1, call);
+                return (double) Math.round(number(arguments.get(0), call));
+            case "sqrt":
+                expectArguments(name, arguments, 1, call);
+                return Math.sqrt(number(arguments.get(0), call));
+            case "fail":
+                expectArguments(name, arguments, 1, call);
+                throw error(format(arguments.get(0)), call);
+            default:
+                throw error("Unknown function '" + name + "'", call);
+        }
+    }
+
+    private void expectArguments(String name, List<Object> arguments, int count, ASTNode call) {
+        if (arguments.size() != count) {
+            throw error(name + " expects " + count + " arguments, got " + arguments.size(), call);
+        }
+    }
+
+    @Override
+    public Object visitBinaryExpression(BinaryExpressionNode node) {
+        BinaryExpressionNode.Operator operator = node.getOperator();
+        Object left = evaluate(node.getLeft());
+        // Logical operators short-circuit
+        if (operator == BinaryExpressionNode.Operator.AND) {
+            return truth(left, node.getLeft()) && truth(evaluate(node.getRight()), node.getRight());
+        }
+        if (operator == BinaryExpressionNode.Operator.OR) {
+            return truth(left, node.getLeft()) || truth(evaluate(node.getRight()), node.getRight());
+        }
+        Object right = evaluate(node.getRight());
+
+        switch (operator) {
+            case PLUS:
+                if (left instanceof Double a && right instanceof Double b) {
+                    return a + b;
+                }
+                if (left instanceof String || right instanceof String) {
+                    return newString(format(left) + format(right));
+                }
+                if (left instanceof List<?> a && right instanceof List<?> b) {
+                    charge(OBJECT_BYTES + REFERENCE_BYTES * (a.size() + b.size()));
+                    List<Object> joined = new ArrayList<>(a);
+                    joined.addAll(b);
+                    return joined;
+                }
+                throw error("Cannot add " + typeName(left) + " and " + typeName(right), node);
+            case MINUS:
+                return number(left, node.getLeft()) - number(right, node.getRight());
+            case TIMES:
+                return number(left, node.getLeft()) * number(right, node.getRight());
+            case DIVIDED_BY: {
+                double divisor = number(right, node.getRight());
+                if (divisor == 0) {
+                    throw error("Division by zero", node);
+                }
+                return number(left, node.getLeft()) / divisor;
+            }
+            case MODULO: {
+                double divisor = number(right, node.getRight());
+                if (divisor == 0) {
+                    throw error("Division by zero", node);
+                }
+                return number(left, node.getLeft()) % divisor;
+            }
+            case EQUALS:
+                return valuesEqual(left, right);
+            case GREATER_THAN:
+                return compare(left, right, node) > 0;
+            case LESS_THAN:
+                return compare(left, right, node) < 0;
+            default:
+                throw error("Unsupported operator " + operator, node);
+        }
+    }
+
+    @Override
+    public Object visitUnaryExpression(UnaryExpressionNode node) {
+        Object operand = evaluate(node.getOperand());
+        if (node.getOperator() == UnaryExpressionNode.Operator.NOT) {
+            return !truth(operand, node.getOperand());
+        }
+        return -number(operand, node.getOperand());
+    }
+
+    @Override
+    public Object visitConditionalExpression(ConditionalExpressionNode node) {
+        return truth(evaluate(node.getCondition()), node.getCondition())
+            ? evaluate(node.getThenExpression())
+            : evaluate(node.getElseExpression());
+    }
+
+    @Override
+    public Object visitMemberAccess(MemberAccessNode node) {
+        Object object = evaluate(node.getObject());
+        if (node.isArrayAccess()) {
+            Object key = evaluate(node.getMember());
+            if (object instanceof List<?> list) {
+                int index = index(key, list.size(), node);
+                return list.get(index);
+            }
+            if (object instanceof String string) {
+                return newString(String.valueOf(string.charAt(index(key, string.length(), node))));
+            }
+            Map<Object, Object> map = map(object, node);
+            if (!map.containsKey(key)) {
+                throw error("Key " + format(key) + " not found", node);
+            }
+            return map.get(key);
+        }
+
+        if (!(node.getMember() instanceof IdentifierNode member)) {
+            throw error("Expected a field name after dot", node);
+        }
+        String name = member.getName();
+        if (object instanceof Instance instance) {
+            if (!instance.fields().containsKey(name)) {
+                throw error(instance.type() + " has no field '" + name + "'", node);
+            }
+            return instance.fields().get(name);
+        }
+        if (object instanceof Map<?, ?> map && map.containsKey(name)) {
+            return map.get(name);
+        }
+        if (name.equals("length") || name.equals("size")) {
+            return builtin("length", List.of(object), node);
+        }
+        throw error(typeName(object) + " has no field '" + name + "'", node);
+    }
+
+    @Override
+    public Object visitListExpression(ListExpressionNode node) {
+        List<Object> list = new ArrayList<>();
+        for (ExpressionNode element : node.getElements()) {
+            list.add(evaluate(element));
+        }
+        charge(OBJECT_BYTES + REFERENCE_BYTES * list.size());
+        return list;
+    }
+
+    @Override
+    public Object visitMapExpression(MapExpressionNode node) {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        for (MapExpressionNode.KeyValuePair pair : node.getPairs()) {
+            map.put(evaluate(pair.getKey()), evaluate(pair.getValue()));
+        }
+        charge(OBJECT_BYTES + MAP_ENTRY_BYTES * map.size());
+        return map;
+    }
+
+    @Override
+    public Object visitTypeCast(TypeCastNode node) {
+        Object value = evaluate(node.getExpression());
+        switch (node.getCastType()) {
+            case TO_STRING:
+                return value instanceof String ? value : newString(format(value));
+            case TO_NUMBER:
+                if (value instanceof Double) return value;
+                if (value instanceof Boolean b) return b ? 1.0 : 0.0;
+                if (value instanceof String string) {
+                    try {
+                        return Double.parseDouble(string.trim());
+                    } catch (NumberFormatException e) {
+                        throw error("Cannot convert \"" + string + "\" to a number", node);
+                    }
+                }
+                throw error("Cannot convert " + typeName(value) + " to a number", node);
+            case TO_BOOLEAN:
+                if (value instanceof Boolean) return value;
+                if (value instanceof Double number) return number != 0;
+                if (value instanceof String string) return !string.isEmpty() && !string.equals("false");
+                return value != null;
+            default:
+                return value;
+        }
+    }
+
+    @Override
+    public Object visitParenthesizedExpression(ParenthesizedExpressionNode node) {
+        return evaluate(node.getExpression());
+    }
+
+    // Values
+
+    private Object lookup(String name, ASTNode node) {
+        Scope owner = scope.find(name);
+        if (owner != null) {
+            return owner.variables.get(name);
+        }
+        String enumeration = variants.get(name);
+        if (enumeration != null) {
+            return new Variant(enumeration, name, List.of());
+        }
+        throw error("Undefined variable '" + name + "'", node);
+    }
+
+    private void assign(String name, Object value, ASTNode node) {
+        Scope owner = scope.find(name);
+        if (owner == null) {
+            throw error("Undefined variable '" + name + "'", node);
+        }
+        owner.variables.put(name, value);
+    }
+
+    private Iterable<?> elements(Object iterable, ASTNode node) {
+        if (iterable instanceof List<?> list) {
+            // The body may change the list; the loop sees it as it was
+            return new ArrayList<>(list);
+        }
+        if (iterable instanceof Map<?, ?> map) {
+            return new ArrayList<>(map.keySet());
+        }
+        if (iterable instanceof String string) {
+            List<Object> characters = new ArrayList<>();
+            string.codePoints().forEach(c -> characters.add(Character.toString(c)));
+            return characters;
+        }
+        throw error("Cannot loop through " + typeName(iterable), node);
+    }
+
+    private boolean truth(Object value, ASTNode node) {
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw error("Expected a boolean, got " + typeName(value), node);
+    }
+
+    private double number(Object value, ASTNode node) {
+        if (value instanceof Double number) {
+            return number;
+        }
+        throw error("Expected a number, got " + typeName(value), node);
+    }
+
+    private int index(Object key, int size, ASTNode node) {
+        double number = number(key, node);
+        if (number != Math.rint(number) || number < 0 || number >= size) {
+            throw error("Index " + format(key) + " out of bounds for length " + size, node);
+        }
+        return (int) number;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> list(Object value, ASTNode node) {
+        if (value instanceof List<?> list) {
+            return (List<Object>) list;
+        }
+        throw error("Expected a list, got " + typeName(value), node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> map(Object value, ASTNode node) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<Object, Object>) map;
+        }
+        throw error("Expected a map, got " + typeName(value), node);
+    }
+
+    private int compare(Object left, Object right, ASTNode node) {
+        if (left instanceof Double a && right instanceof Double b) {
+            return Double.compare(a, b);
+        }
+        if (left instanceof String a && right instanceof String b) {
+            return a.compareTo(b);
+        }
+        throw error("Cannot compare " + typeName(left) + " and " + typeName(right), node);
+    }
+
+    private static boolean valuesEqual(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) {
+            // 0.0 equals -0.0, as in both target languages
+            return a.doubleValue() == b.doubleValue();
+        }
+        return java.util.Objects.equals(left, right);
+    }
+
+    private boolean hasType(Object value, TypeNode type) {
+        switch (type.getKind()) {
+            case STRING: return value instanceof String;
+            case NUMBER: return value instanceof Double;
+            case BOOLEAN: return value instanceof Boolean;
+            case LIST: return value instanceof List;
+            case MAP: return value instanceof Map;
+            case NOTHING: return value == null;
+            case IDENTIFIER:
+                return value instanceof Instance instance && instance.type().equals(type.getName())
+                    || value instanceof Variant variant && variant.type().equals(type.getName());
+            default: return true;
+        }
+    }
+
+    private static String typeName(Object value) {
+        if (value == null) return "nothing";
+        if (value instanceof String) return "string";
+        if (value instanceof Double) return "number";
+        if (value instanceof Boolean) return "boolean";
+        if (value instanceof List) return "list";
+        if (value instanceof Map) return "map";
+        if (value instanceof Instance instance) return instance.type();
+        if (value instanceof Variant variant) return variant.type();
+        return value.getClass().getSimpleName();
+    }
+
+    /**
+     * Text of a value as print shows it; whole numbers have no decimal point
+     */
+    public static String format(Object value) {
+        if (value == null) {
+            return "nothing";
+        }
+        if (value instanceof Double number) {
+            double d = number;
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 1e15) {
+                return Long.toString((long) d);
+            }
+            return Double.toString(d);
+        }
+        if (value instanceof List<?> list) {
+            StringBuilder result = new StringBuilder("[");
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) result.append(", ");
+                result.append(format(list.get(i)));
+            }
+            return result.append("]").toString();
+        }
+        if (value instanceof Map<?, ?> map) {
+            StringBuilder result = new StringBuilder("{");
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) result.append(", ");
+                result.append(format(entry.getKey())).append(": ").append(format(entry.getValue()));
+                first = false;
+            }
+            return result.append("}").toString();
+        }
+        return value.toString();
+    }
+
+    private static YLanguageRuntimeException error(String message, ASTNode node) {
+        return new YLanguageRuntimeException(message, node != null ? node.getLine() : -1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+package com.ylang.backend.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Java Flight Recorder events for the phases of a compilation.
+ *
+ * Every event carries the ID of the request it belongs to and its project ID, taken from the
+ * {@link Request} entered on the current thread, so a recording can be sliced by request and
+ * by phase. Events are created and committed by the phases themselves; while a recording does
+ * not enable them, committing is a no-op and the counts they carry are not computed.
+ */
+public final class CompilerEvents {
+
+    private static final AtomicLong REQUEST_IDS = new AtomicLong();
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    private CompilerEvents() {
+    }
+
+    /**
+     * A request the events of a thread are attributed to
+     * @param id Unique ID of the request within this process
+     * @param projectId Project ID of the request, or null
+     */
+    public record Request(long id, String projectId) {
+    }
+
+    /**
+     * Attribution of a thread's events to a request, undone on close
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Request previous;
+
+        private Scope(Request previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Start a new request
+     * @param projectId Project ID of the request, or null
+     */
+    public static Request newRequest(String projectId) {
+        return new Request(REQUEST_IDS.incrementAndGet(), projectId);
+    }
+
+    /**
+     * Attribute the events of the current thread to a request until the scope is closed.
+     * Work handed to other threads enters the same request there.
+     */
+    public static Scope enter(Request request) {
+        Request previous = CURRENT.get();
+        CURRENT.set(request);
+        return new Scope(previous);
+    }
+
+    /**
+     * Run a task on the current thread with its events attributed to a request
+     */
+    public static <T> T call(Request request, Supplier<T> task) {
+        Scope scope = enter(request);
+        try {
+            return task.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Request the current thread works for, or null
+     */
+    public static Request current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Fields shared by all compiler events
+     */
+    @Category({"YLang", "Compiler"})
+    @StackTrace(false)
+    abstract static class CompilerEvent extends Event {
+        @Label("Request ID")
+        long requestId;
+
+        @Label("Project ID")
+        String projectId;
+
+        CompilerEvent() {
+            Request request = CURRENT.get();
+            if (request != null) {
+                requestId = request.id();
+                projectId = request.projectId();
+            }
+        }
+    }
+
+    @Name("ylang.Compile")
+    @Label("Compile")
+    @Description("A compile request, from the artifact cache lookup to the response")
+    public static final class Compile extends CompilerEvent {
+        @Label("Source Size")
+        @Description("Length of the source in characters")
+        public long sourceSize;
+
+        @Label("Target Language")
+        public String targetLanguage;
+
+        @Label("From Cache")
+        public boolean cached;
+
+        @Label("Success")
+        public boolean success;
+
+        @Label("Superseded")
+        public boolean superseded;
+    }
+
+    @Name("ylang.Lex")
+    @Label("Lex")
+    @Description("Splitting the source into tokens")
+    public static final class Lex extends CompilerEvent {
+        @Label("Source Size")
+        @Description("Length of the source in characters")
+        public long sourceSize;
+
+        @Label("Token Count")
+        public int tokenCount;
+    }
+
+    @Name("ylang.Parse")
+    @Label("Parse")
+    @Description("One parser pass over the tokens")
+    public static final class Parse extends CompilerEvent {
+        @Label("Source Size")
+        @Description("Length of the source in characters")
+        public long sourceSize;
+
+        @Label("Token Count")
+        public int tokenCount;
+
+        @Label("Prediction Mode")
+        public String predictionMode;
+
+        @Label("Error Count")
+        public int errorCount;
+
+        @Label("Accepted")
+        public boolean accepted;
+    }
+
+    @Name("ylang.AstBuild")
+    @Label("AST Build")
+    @Description("Building the AST from the parse tree")
+    public static final class AstBuild extends CompilerEvent {
+        @Label("Source Size")
+        @Description("Length of the source in characters")
+        public long sourceSize;
+
+        @Label("Parse Tree Nodes")
+        public int parseTreeNodeCount;
+
+        @Label("Statement Count")
+        public int statementCount;
+    }
+
+    @Name("ylang.TypeCheck")
+    @Label("Type Check")
+    @Description("Type checking the AST")
+    public static final class TypeCheck extends CompilerEvent {
+        @Label("Statement Count")
+        public int statementCount;
+
+        @Label("Error Count")
+        public int errorCount;
+
+        @Label("Cached Functions")
+        @Description("Function bodies replayed from the function cache instead of checked")
+        public int cachedFunctions;
+    }
+
+    @Name("ylang.WarningPass")
+    @Label("Warning Pass")
+    @Description("One analysis pass looking for warnings")
+    public static final class WarningPass extends CompilerEvent {
+        @Label("Pass")
+        public String pass;
+
+        @Label("Statement Count")
+        public int statementCount;
+
+        @Label("Warning Count")
+        public int warningCount;
+    }
+
+    @Name("ylang.Translate")
+    @Label("Translate")
+    @Description("Translating the AST to a target language")
+    public static final class Translate extends CompilerEvent {
+        @Label("Target Language")
+        public String targetLanguage;
+
+        @Label("Statement Count")
+        public int statementCount;
+
+        @Label("Output Size")
+        @Description("Length of the generated code in characters")
+        public long outputSize;
+    }
+}
\ No newline at end of file
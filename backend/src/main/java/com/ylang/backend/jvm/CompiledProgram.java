@@ -0,0 +1,73 @@
+package com.ylang.backend.jvm;
+
+import com.ylang.backend.exception.YLanguageRuntimeException;
+import com.ylang.backend.interpreter.Interpreter;
+import com.ylang.backend.model.RunResult;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A program compiled by {@link JvmCompiler}, loaded and ready to run any number of times.
+ * Top-level variables are static fields, so runs of one program take turns; compile the program
+ * again to run copies side by side.
+ */
+public class CompiledProgram {
+
+    private final Map<String, byte[]> classFiles;
+    private final Class<?> programClass;
+    private final MethodHandle main;
+
+    CompiledProgram(Map<String, byte[]> classFiles) {
+        this.classFiles = Collections.unmodifiableMap(classFiles);
+        try {
+            programClass = new ProgramClassLoader(classFiles).loadClass(JvmCompiler.PROGRAM.replace('/', '.'));
+            main = MethodHandles.publicLookup().findStatic(programClass, JvmCompiler.MAIN,
+                                                           MethodType.methodType(void.class, YRuntime.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Compiled program could not be loaded", e);
+        }
+    }
+
+    /**
+     * The generated class files by binary class name
+     */
+    public Map<String, byte[]> getClassFiles() {
+        return classFiles;
+    }
+
+    /**
+     * The class holding the program's functions as static methods
+     */
+    public Class<?> getProgramClass() {
+        return programClass;
+    }
+
+    /**
+     * Run the program
+     * @param limits Bounds on the run
+     * @return The program's output and how it ended
+     */
+    public synchronized RunResult run(Interpreter.Limits limits) {
+        YRuntime runtime = new YRuntime(limits);
+        try {
+            main.invokeExact(runtime);
+        } catch (YLanguageRuntimeException e) {
+            String location = e.getLine() > 0 ? "Line " + e.getLine() + ": " : "";
+            return RunResult.failed(runtime.output(), location + e.getMessage(), runtime.steps(), runtime.memory());
+        } catch (YRuntime.LimitExceeded e) {
+            return RunResult.stopped(runtime.output(), e.limit, e.getMessage(), runtime.steps(), runtime.memory());
+        } catch (StackOverflowError e) {
+            return RunResult.stopped(runtime.output(), "call-depth", "Calls nested too deeply",
+                                     runtime.steps(), runtime.memory());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return RunResult.completed(runtime.output(), runtime.steps(), runtime.memory());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,1447 @@
+package com.ylang.backend.jvm;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.exception.YLanguageRuntimeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Compiles a Y language AST into JVM classes, the third backend beside the Rust and TypeScript
+ * translators. Where the interpreter walks the tree, a compiled program runs as bytecode the JIT
+ * can optimize.
+ *
+ * Functions become static methods of one program class and structures become classes with a
+ * field per member. Numbers and booleans are primitive doubles and booleans wherever the declared
+ * types allow: in parameters, results, structure fields, and variables declared with those types
+ * or initialized from such expressions. Other values are objects with the interpreter's
+ * representation, operated on through {@link YRuntime}. Top-level variables are static fields,
+ * so functions see them as they do in the interpreter.
+ *
+ * Programs print and fail as they do in the interpreter and run under the same sandbox limits,
+ * except that only loop iterations and calls count as steps. Classes are loaded by a class loader
+ * of their own that sees nothing of the application but the runtime support, and are unloaded
+ * with the {@link CompiledProgram}. The bean is shared, so each compilation gets its own state.
+ */
+@Component
+public class JvmCompiler implements ASTVisitor<JvmCompiler.Kind> {
+
+    /** How a value is held on the operand stack and in variables and fields */
+    enum Kind {
+        NUMBER("D"), BOOLEAN("Z"), VALUE("Ljava/lang/Object;");
+
+        final String descriptor;
+
+        Kind(String descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        static Kind of(TypeNode type) {
+            if (type == null) {
+                return VALUE;
+            }
+            switch (type.getKind()) {
+                case NUMBER: return NUMBER;
+                case BOOLEAN: return BOOLEAN;
+                default: return VALUE;
+            }
+        }
+    }
+
+    static final String PACKAGE = "ylang/";
+    static final String PROGRAM = PACKAGE + "$Program";
+    static final String MAIN = "$main";
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String RUNTIME = Type.getInternalName(YRuntime.class);
+    private static final String RUNTIME_DESCRIPTOR = Type.getDescriptor(YRuntime.class);
+    private static final String STRUCTURE = Type.getInternalName(YRuntime.Structure.class);
+    private static final String ERROR = Type.getInternalName(YLanguageRuntimeException.class);
+
+    /** A function's method */
+    private record Function(FunctionDeclarationNode node, List<Kind> parameters, Kind result, String descriptor) {
+    }
+
+    /** A structure's class and its fields in declaration order */
+    private record Structure(StructureDeclarationNode node, String className, List<Field> fields) {
+        Field field(String name) {
+            for (Field field : fields) {
+                if (field.name().equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+
+        String constructor() {
+            StringBuilder descriptor = new StringBuilder("(");
+            for (Field field : fields) {
+                descriptor.append(field.kind().descriptor);
+            }
+            return descriptor.append(")V").toString();
+        }
+    }
+
+    private record Field(String name, Kind kind, ExpressionNode initializer) {
+    }
+
+    /**
+     * A variable in a local slot, or a top-level variable in a static field; structure names the
+     * structure the variable is declared to hold, if any
+     */
+    private record Variable(Kind kind, int slot, String field, String structure) {
+        boolean isGlobal() {
+            return field != null;
+        }
+    }
+
+    private final Map<String, Function> functions = new LinkedHashMap<>();
+    private final Map<String, Structure> structures = new LinkedHashMap<>();
+    private final Map<String, String> variants = new HashMap<>();
+    private final Map<String, Variable> globals = new HashMap<>();
+    private final List<Variable> globalFields = new ArrayList<>();
+
+    private ClassWriter program;
+    private MethodVisitor mv;
+    private Function function;
+    private final Deque<Map<String, Variable>> scopes = new ArrayDeque<>();
+    private int nextLocal;
+
+    /**
+     * Compile a program and load its classes
+     * @param ast The Y language AST
+     * @return The loaded program, ready to run
+     */
+    public CompiledProgram compile(ProgramNode ast) {
+        JvmCompiler session = new JvmCompiler();
+        return new CompiledProgram(session.generate(ast));
+    }
+
+    private Map<String, byte[]> generate(ProgramNode ast) {
+        declare(ast.getStatements());
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (Structure structure : structures.values()) {
+            classes.put(structure.className().replace('/', '.'), generateStructure(structure));
+        }
+
+        program = new Writer();
+        program.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, PROGRAM, null, OBJECT, null);
+        program.visitField(ACC_PUBLIC | ACC_STATIC, "$rt", RUNTIME_DESCRIPTOR, null, null).visitEnd();
+
+        // The top-level statements come first, so functions see every top-level variable
+        begin(ACC_PUBLIC | ACC_STATIC, MAIN, "(" + RUNTIME_DESCRIPTOR + ")V", null);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(PUTSTATIC, PROGRAM, "$rt", RUNTIME_DESCRIPTOR);
+        mv.visitMethodInsn(INVOKESTATIC, PROGRAM, "$reset", "()V", false);
+        nextLocal = 1;
+        for (ASTNode statement : ast.getStatements()) {
+            statement.accept(this);
+        }
+        mv.visitInsn(RETURN);
+        end();
+
+        for (Function declared : functions.values()) {
+            generateFunction(declared);
+        }
+        generateReset();
+
+        program.visitEnd();
+        classes.put(PROGRAM.replace('/', '.'), toBytes(program, "the program"));
+        return classes;
+    }
+
+    /**
+     * Register every function, structure and enum variant the program declares, so they can be
+     * used before their declaration
+     */
+    private void declare(List<? extends ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof FunctionDeclarationNode declaration) {
+                List<Kind> parameters = new ArrayList<>();
+                StringBuilder descriptor = new StringBuilder("(");
+                for (ParameterNode parameter : declaration.getParameters()) {
+                    Kind kind = Kind.of(parameter.getType());
+                    parameters.add(kind);
+                    descriptor.append(kind.descriptor);
+                }
+                Kind result = Kind.of(declaration.getReturnType());
+                descriptor.append(")").append(result.descriptor);
+                functions.put(declaration.getName(),
+                              new Function(declaration, parameters, result, descriptor.toString()));
+                declare(declaration.getBody().getStatements());
+            } else if (statement instanceof StructureDeclarationNode declaration) {
+                List<Field> fields = new ArrayList<>();
+                for (ASTNode member : declaration.getMembers()) {
+                    if (member instanceof VariableDeclarationNode field) {
+                        fields.add(new Field(field.getName(), Kind.of(field.getType()), field.getInitializer()));
+                    }
+                }
+                structures.put(declaration.getName(),
+                               new Structure(declaration, PACKAGE + declaration.getName(), fields));
+            } else if (statement instanceof EnumDeclarationNode enumeration) {
+                for (EnumDeclarationNode.EnumVariant variant : enumeration.getVariants()) {
+                    variants.put(variant.getName(), enumeration.getName());
+                }
+            } else if (statement instanceof ModuleDeclarationNode module) {
+                declare(module.getStatements());
+            } else if (statement instanceof ImplementationNode implementation) {
+                declare(implementation.getMethods());
+            } else if (statement instanceof DecoratorNode decorator && decorator.getTarget() != null) {
+                declare(List.of(decorator.getTarget()));
+            } else if (statement instanceof BlockNode block) {
+                declare(block.getStatements());
+            } else if (statement instanceof IfStatementNode ifStatement) {
+                declare(List.of(ifStatement.getThenBlock()));
+                if (ifStatement.hasElseBlock()) {
+                    declare(List.of(ifStatement.getElseBlock()));
+                }
+            } else if (statement instanceof LoopStatementNode loop) {
+                declare(loop.getBody().getStatements());
+            }
+        }
+    }
+
+    // Classes and methods
+
+    private void begin(int access, String name, String descriptor, Function declared) {
+        mv = program.visitMethod(access, name, descriptor, null, null);
+        mv.visitCode();
+        function = declared;
+        scopes.clear();
+        nextLocal = 0;
+    }
+
+    private void end() {
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        mv = null;
+    }
+
+    private void generateFunction(Function declared) {
+        FunctionDeclarationNode node = declared.node();
+        begin(ACC_PUBLIC | ACC_STATIC, node.getName(), declared.descriptor(), declared);
+        Map<String, Variable> parameters = new HashMap<>();
+        scopes.push(parameters);
+        for (int i = 0; i < node.getParameters().size(); i++) {
+            ParameterNode parameter = node.getParameters().get(i);
+            Kind kind = declared.parameters().get(i);
+            parameters.put(parameter.getName(), new Variable(kind, allocate(kind), null, structureOf(parameter.getType())));
+        }
+        runtime();
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "enter", "()V", false);
+        for (ASTNode statement : node.getBody().getStatements()) {
+            statement.accept(this);
+        }
+        // Falling off the end returns nothing, which a number or boolean result cannot hold
+        if (declared.result() == Kind.VALUE) {
+            leave();
+            mv.visitInsn(ACONST_NULL);
+            mv.visitInsn(ARETURN);
+        } else {
+            raise("Function '" + node.getName() + "' ended without returning a value", node);
+        }
+        end();
+    }
+
+    /**
+     * Sets every top-level variable back to its default, so a run never sees the previous one's values
+     */
+    private void generateReset() {
+        begin(ACC_PRIVATE | ACC_STATIC, "$reset", "()V", null);
+        for (Variable global : globalFields) {
+            pushDefault(global.kind());
+            mv.visitFieldInsn(PUTSTATIC, PROGRAM, global.field(), global.kind().descriptor);
+        }
+        mv.visitInsn(RETURN);
+        end();
+    }
+
+    /**
+     * A structure's class: public fields, a constructor taking them in declaration order, and the
+     * text and equality of the interpreter's structure values
+     */
+    private byte[] generateStructure(Structure structure) {
+        String name = structure.node().getName();
+        String className = structure.className();
+        ClassWriter writer = new Writer();
+        writer.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, OBJECT, new String[] {STRUCTURE});
+        for (Field field : structure.fields()) {
+            writer.visitField(ACC_PUBLIC, field.name(), field.kind().descriptor, null, null).visitEnd();
+        }
+
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "<init>", structure.constructor(), null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 0);
+        method.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        int slot = 1;
+        for (Field field : structure.fields()) {
+            method.visitVarInsn(ALOAD, 0);
+            method.visitVarInsn(loadOpcode(field.kind()), slot);
+            method.visitFieldInsn(PUTFIELD, className, field.name(), field.kind().descriptor);
+            slot += field.kind() == Kind.NUMBER ? 2 : 1;
+        }
+        method.visitInsn(RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC, "typeName", "()Ljava/lang/String;", null, null);
+        method.visitCode();
+        method.visitLdcInsn(name);
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC, "field", "(Ljava/lang/String;)Ljava/lang/Object;", null, null);
+        method.visitCode();
+        for (Field field : structure.fields()) {
+            Label next = new Label();
+            method.visitLdcInsn(field.name());
+            method.visitVarInsn(ALOAD, 1);
+            method.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+            method.visitJumpInsn(IFEQ, next);
+            getField(method, className, field);
+            method.visitInsn(ARETURN);
+            method.visitLabel(next);
+        }
+        method.visitFieldInsn(GETSTATIC, RUNTIME, "MISSING", "Ljava/lang/Object;");
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        // Point { x: 3, y: 0 }
+        method = writer.visitMethod(ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+        method.visitCode();
+        method.visitTypeInsn(NEW, "java/lang/StringBuilder");
+        method.visitInsn(DUP);
+        method.visitLdcInsn(name + " { ");
+        method.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
+        boolean first = true;
+        for (Field field : structure.fields()) {
+            method.visitLdcInsn((first ? "" : ", ") + field.name() + ": ");
+            append(method);
+            getField(method, className, field);
+            method.visitMethodInsn(INVOKESTATIC, RUNTIME, "format", "(Ljava/lang/Object;)Ljava/lang/String;", false);
+            append(method);
+            first = false;
+        }
+        method.visitLdcInsn(" }");
+        append(method);
+        method.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        // Structures are values: equal when of the same type with equal fields
+        method = writer.visitMethod(ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z", null, null);
+        method.visitCode();
+        Label unequal = new Label();
+        method.visitVarInsn(ALOAD, 1);
+        method.visitTypeInsn(INSTANCEOF, className);
+        method.visitJumpInsn(IFEQ, unequal);
+        for (Field field : structure.fields()) {
+            getField(method, className, field);
+            method.visitVarInsn(ALOAD, 1);
+            method.visitTypeInsn(CHECKCAST, className);
+            method.visitFieldInsn(GETFIELD, className, field.name(), field.kind().descriptor);
+            box(method, field.kind());
+            method.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+            method.visitJumpInsn(IFEQ, unequal);
+        }
+        method.visitInsn(ICONST_1);
+        method.visitInsn(IRETURN);
+        method.visitLabel(unequal);
+        method.visitInsn(ICONST_0);
+        method.visitInsn(IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(ACC_PUBLIC, "hashCode", "()I", null, null);
+        method.visitCode();
+        method.visitLdcInsn(name.hashCode());
+        method.visitInsn(IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return toBytes(writer, "structure '" + name + "'");
+    }
+
+    private static void getField(MethodVisitor method, String className, Field field) {
+        method.visitVarInsn(ALOAD, 0);
+        method.visitFieldInsn(GETFIELD, className, field.name(), field.kind().descriptor);
+        box(method, field.kind());
+    }
+
+    private static void append(MethodVisitor method) {
+        method.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                               "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+    }
+
+    private static byte[] toBytes(ClassWriter writer, String what) {
+        try {
+            return writer.toByteArray();
+        } catch (MethodTooLargeException e) {
+            throw new IllegalArgumentException("Code of " + what + " is too large for a JVM method: "
+                                               + e.getMethodName(), e);
+        }
+    }
+
+    /**
+     * Frames are computed without loading classes: the generated classes are not loadable here,
+     * and compiled code casts any object before using it as something more specific
+     */
+    private static final class Writer extends ClassWriter {
+        Writer() {
+            super(COMPUTE_FRAMES);
+        }
+
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            return OBJECT;
+        }
+    }
+
+    // Variables
+
+    private int allocate(Kind kind) {
+        int slot = nextLocal;
+        nextLocal += kind == Kind.NUMBER ? 2 : 1;
+        return slot;
+    }
+
+    private Variable lookup(String name) {
+        for (Map<String, Variable> scope : scopes) {
+            Variable variable = scope.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+        return globals.get(name);
+    }
+
+    /**
+     * Declare a variable in the innermost scope; outside any block of the top-level code it is
+     * a static field
+     */
+    private Variable define(String name, Kind kind, String structure) {
+        Variable variable;
+        if (scopes.isEmpty()) {
+            Variable existing = globals.get(name);
+            if (existing != null && existing.kind() == kind) {
+                variable = new Variable(kind, -1, existing.field(), structure);
+            } else {
+                String field = existing == null ? name : name + "$" + globalFields.size();
+                variable = new Variable(kind, -1, field, structure);
+                globalFields.add(variable);
+                program.visitField(ACC_PUBLIC | ACC_STATIC, field, kind.descriptor, null, null).visitEnd();
+            }
+            globals.put(name, variable);
+        } else {
+            variable = new Variable(kind, allocate(kind), null, structure);
+            scopes.peek().put(name, variable);
+        }
+        return variable;
+    }
+
+    private void load(Variable variable) {
+        if (variable.isGlobal()) {
+            mv.visitFieldInsn(GETSTATIC, PROGRAM, variable.field(), variable.kind().descriptor);
+        } else {
+            mv.visitVarInsn(loadOpcode(variable.kind()), variable.slot());
+        }
+    }
+
+    private void store(Variable variable) {
+        if (variable.isGlobal()) {
+            mv.visitFieldInsn(PUTSTATIC, PROGRAM, variable.field(), variable.kind().descriptor);
+        } else {
+            mv.visitVarInsn(storeOpcode(variable.kind()), variable.slot());
+        }
+    }
+
+    private static int loadOpcode(Kind kind) {
+        switch (kind) {
+            case NUMBER: return DLOAD;
+            case BOOLEAN: return ILOAD;
+            default: return ALOAD;
+        }
+    }
+
+    private static int storeOpcode(Kind kind) {
+        switch (kind) {
+            case NUMBER: return DSTORE;
+            case BOOLEAN: return ISTORE;
+            default: return ASTORE;
+        }
+    }
+
+    private String structureOf(TypeNode type) {
+        return type != null && type.getKind() == TypeNode.TypeKind.IDENTIFIER && structures.containsKey(type.getName())
+            ? type.getName() : null;
+    }
+
+    private void pushScope() {
+        scopes.push(new HashMap<>());
+    }
+
+    private void popScope() {
+        scopes.pop();
+    }
+
+    // Code helpers
+
+    private void runtime() {
+        mv.visitFieldInsn(GETSTATIC, PROGRAM, "$rt", RUNTIME_DESCRIPTOR);
+    }
+
+    private void leave() {
+        runtime();
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "leave", "()V", false);
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private void pushLine(ASTNode node) {
+        pushInt(node != null ? node.getLine() : -1);
+    }
+
+    private void pushDefault(Kind kind) {
+        switch (kind) {
+            case NUMBER: mv.visitInsn(DCONST_0); break;
+            case BOOLEAN: mv.visitInsn(ICONST_0); break;
+            default: mv.visitInsn(ACONST_NULL);
+        }
+    }
+
+    private void pop(Kind kind) {
+        mv.visitInsn(kind == Kind.NUMBER ? POP2 : POP);
+    }
+
+    private static void box(MethodVisitor method, Kind kind) {
+        if (kind == Kind.NUMBER) {
+            method.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+        } else if (kind == Kind.BOOLEAN) {
+            method.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+        }
+    }
+
+    private void box(Kind kind) {
+        box(mv, kind);
+    }
+
+    /**
+     * Convert the value on top of the stack; objects are checked as the interpreter checks them
+     */
+    private void coerce(Kind from, Kind to, ASTNode node) {
+        if (from == to) {
+            return;
+        }
+        box(from);
+        if (to == Kind.NUMBER) {
+            pushLine(node);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "number", "(Ljava/lang/Object;I)D", false);
+        } else if (to == Kind.BOOLEAN) {
+            pushLine(node);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "truth", "(Ljava/lang/Object;I)Z", false);
+        }
+    }
+
+    private void evaluate(ExpressionNode expression, Kind kind) {
+        coerce(expression.accept(this), kind, expression);
+    }
+
+    private void evaluateBoxed(ExpressionNode expression) {
+        box(expression.accept(this));
+    }
+
+    /**
+     * Box the two values on top of the stack, the right one on top
+     */
+    private void boxBoth(Kind left, Kind right) {
+        if (left == Kind.VALUE) {
+            box(right);
+            return;
+        }
+        int slot = allocate(right);
+        mv.visitVarInsn(storeOpcode(right), slot);
+        box(left);
+        mv.visitVarInsn(loadOpcode(right), slot);
+        box(right);
+    }
+
+    /**
+     * Push an array of the expressions' boxed values
+     */
+    private void array(List<? extends ExpressionNode> expressions) {
+        pushInt(expressions.size());
+        mv.visitTypeInsn(ANEWARRAY, OBJECT);
+        for (int i = 0; i < expressions.size(); i++) {
+            mv.visitInsn(DUP);
+            pushInt(i);
+            evaluateBoxed(expressions.get(i));
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    /**
+     * Turn a jump taken when the condition holds into a boolean on the stack
+     */
+    private Kind condition(int opcode) {
+        Label yes = new Label();
+        Label done = new Label();
+        mv.visitJumpInsn(opcode, yes);
+        mv.visitInsn(ICONST_0);
+        mv.visitJumpInsn(GOTO, done);
+        mv.visitLabel(yes);
+        mv.visitInsn(ICONST_1);
+        mv.visitLabel(done);
+        return Kind.BOOLEAN;
+    }
+
+    /**
+     * Throw a runtime error, as the interpreter does when it reaches the node
+     */
+    private void raise(String message, ASTNode node) {
+        mv.visitLdcInsn(message);
+        pushLine(node);
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "error", "(Ljava/lang/String;I)L" + ERROR + ";", false);
+        mv.visitInsn(ATHROW);
+    }
+
+    /**
+     * Throw a runtime error where an expression's value is expected; the value pushed after it is
+     * never reached, but keeps the stack as the caller expects
+     */
+    private Kind raise(String message, ASTNode node, Kind kind) {
+        raise(message, node);
+        pushDefault(kind);
+        return kind;
+    }
+
+    /**
+     * The kind of value an expression leaves on the stack, found by compiling it to nowhere
+     */
+    private Kind kindOf(ExpressionNode expression) {
+        MethodVisitor saved = mv;
+        int savedLocals = nextLocal;
+        mv = new MethodVisitor(ASM9) {
+        };
+        try {
+            return expression.accept(this);
+        } finally {
+            mv = saved;
+            nextLocal = savedLocals;
+        }
+    }
+
+    // Statements
+
+    @Override
+    public Kind visitProgram(ProgramNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Kind visitFunctionDeclaration(FunctionDeclarationNode node) {
+        // Declared before compiling and compiled as methods of their own
+        return null;
+    }
+
+    @Override
+    public Kind visitVariableDeclaration(VariableDeclarationNode node) {
+        Kind kind;
+        if (node.getInitializer() != null) {
+            Kind value = node.getInitializer().accept(this);
+            kind = node.getType() != null ? Kind.of(node.getType()) : value;
+            coerce(value, kind, node.getInitializer());
+        } else {
+            // Without a value the variable holds nothing, which only an object can
+            mv.visitInsn(ACONST_NULL);
+            kind = Kind.VALUE;
+        }
+        String structure = structureOf(node.getType());
+        if (structure == null && node.getInitializer() instanceof FunctionCallNode call
+                && structures.containsKey(call.getFunctionName()) && !functions.containsKey(call.getFunctionName())) {
+            structure = call.getFunctionName();
+        }
+        store(define(node.getName(), kind, structure));
+        return null;
+    }
+
+    @Override
+    public Kind visitAssignment(AssignmentNode node) {
+        Variable variable = lookup(node.getVariableName());
+        if (variable == null) {
+            pop(node.getValue().accept(this));
+            raise("Undefined variable '" + node.getVariableName() + "'", node);
+            return null;
+        }
+        evaluate(node.getValue(), variable.kind());
+        store(variable);
+        return null;
+    }
+
+    @Override
+    public Kind visitIfStatement(IfStatementNode node) {
+        Label otherwise = new Label();
+        Label done = new Label();
+        evaluate(node.getCondition(), Kind.BOOLEAN);
+        mv.visitJumpInsn(IFEQ, otherwise);
+        node.getThenBlock().accept(this);
+        mv.visitJumpInsn(GOTO, done);
+        mv.visitLabel(otherwise);
+        if (node.hasElseBlock()) {
+            node.getElseBlock().accept(this);
+        }
+        mv.visitLabel(done);
+        return null;
+    }
+
+    @Override
+    public Kind visitLoopStatement(LoopStatementNode node) {
+        Label top = new Label();
+        Label done = new Label();
+        pushScope();
+        if (node.getLoopType() == LoopStatementNode.LoopType.FOR_EACH) {
+            evaluateBoxed(node.getIterable());
+            pushLine(node);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "elements", "(Ljava/lang/Object;I)[Ljava/lang/Object;", false);
+            int elements = allocate(Kind.VALUE);
+            mv.visitVarInsn(ASTORE, elements);
+            int index = allocate(Kind.BOOLEAN);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, index);
+            Variable element = define(node.getVariableName(), Kind.VALUE, null);
+
+            mv.visitLabel(top);
+            mv.visitVarInsn(ILOAD, index);
+            mv.visitVarInsn(ALOAD, elements);
+            mv.visitInsn(ARRAYLENGTH);
+            mv.visitJumpInsn(IF_ICMPGE, done);
+            runtime();
+            mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "step", "()V", false);
+            mv.visitVarInsn(ALOAD, elements);
+            mv.visitVarInsn(ILOAD, index);
+            mv.visitInsn(AALOAD);
+            store(element);
+            node.getBody().accept(this);
+            mv.visitIincInsn(index, 1);
+            mv.visitJumpInsn(GOTO, top);
+        } else {
+            if (node.hasInitializer()) {
+                Kind kind = node.getInitializer().accept(this);
+                store(define(node.getVariableName(), kind, null));
+            }
+            mv.visitLabel(top);
+            evaluate(node.getCondition(), Kind.BOOLEAN);
+            mv.visitJumpInsn(IFEQ, done);
+            runtime();
+            mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "step", "()V", false);
+            node.getBody().accept(this);
+            if (node.getIncrementVar() != null) {
+                increment(node.getIncrementVar(), node);
+            }
+            mv.visitJumpInsn(GOTO, top);
+        }
+        mv.visitLabel(done);
+        popScope();
+        return null;
+    }
+
+    private void increment(String name, ASTNode node) {
+        Variable variable = lookup(name);
+        if (variable == null) {
+            raise("Undefined variable '" + name + "'", node);
+            return;
+        }
+        load(variable);
+        coerce(variable.kind(), Kind.NUMBER, node);
+        mv.visitInsn(DCONST_1);
+        mv.visitInsn(DADD);
+        if (variable.kind() == Kind.BOOLEAN) {
+            // Not reached: a boolean fails the number check above
+            mv.visitInsn(POP2);
+            return;
+        }
+        coerce(Kind.NUMBER, variable.kind(), node);
+        store(variable);
+    }
+
+    @Override
+    public Kind visitReturnStatement(ReturnStatementNode node) {
+        if (function == null) {
+            // A return outside any function ends the program
+            if (node.hasValue()) {
+                pop(node.getValue().accept(this));
+            }
+            mv.visitInsn(RETURN);
+            return null;
+        }
+        Kind result = function.result();
+        if (node.hasValue()) {
+            evaluate(node.getValue(), result);
+        } else if (result == Kind.VALUE) {
+            mv.visitInsn(ACONST_NULL);
+        } else {
+            raise("Function '" + function.node().getName() + "' returned no value", node);
+            return null;
+        }
+        leave();
+        switch (result) {
+            case NUMBER: mv.visitInsn(DRETURN); break;
+            case BOOLEAN: mv.visitInsn(IRETURN); break;
+            default: mv.visitInsn(ARETURN);
+        }
+        return null;
+    }
+
+    @Override
+    public Kind visitBlock(BlockNode node) {
+        pushScope();
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        popScope();
+        return null;
+    }
+
+    @Override
+    public Kind visitTryStatement(TryStatementNode node) {
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        Label done = new Label();
+        int depth = allocate(Kind.BOOLEAN);
+        runtime();
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "depth", "()I", false);
+        mv.visitVarInsn(ISTORE, depth);
+        mv.visitTryCatchBlock(start, end, handler, ERROR);
+        mv.visitLabel(start);
+        mv.visitInsn(NOP);
+        node.getTryBlock().accept(this);
+        mv.visitLabel(end);
+        mv.visitJumpInsn(GOTO, done);
+
+        mv.visitLabel(handler);
+        // Calls the error unwound never returned to leave
+        runtime();
+        mv.visitVarInsn(ILOAD, depth);
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "restoreDepth", "(I)V", false);
+        List<TryStatementNode.CatchClause> clauses = node.getCatchClauses();
+        if (clauses.isEmpty()) {
+            mv.visitInsn(POP);
+        } else {
+            // Y has no error hierarchy, so the first catch clause handles every error
+            TryStatementNode.CatchClause clause = clauses.get(0);
+            pushScope();
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Throwable", "getMessage", "()Ljava/lang/String;", false);
+            store(define(clause.getVariableName(), Kind.VALUE, null));
+            clause.getCatchBlock().accept(this);
+            popScope();
+        }
+        mv.visitLabel(done);
+        return null;
+    }
+
+    @Override
+    public Kind visitMatchStatement(MatchStatementNode node) {
+        evaluateBoxed(node.getExpression());
+        int value = allocate(Kind.VALUE);
+        mv.visitVarInsn(ASTORE, value);
+        Label done = new Label();
+        for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
+            Label next = new Label();
+            pushScope();
+            match(matchCase, value, next);
+            matchCase.getBlock().accept(this);
+            popScope();
+            mv.visitJumpInsn(GOTO, done);
+            mv.visitLabel(next);
+        }
+        mv.visitLabel(done);
+        return null;
+    }
+
+    /**
+     * Test one case against the matched value in the given slot, binding its variables in the
+     * current scope; jumps to next when the case does not match
+     */
+    private void match(MatchStatementNode.MatchCase matchCase, int value, Label next) {
+        switch (matchCase.getKind()) {
+            case LITERAL:
+                mv.visitVarInsn(ALOAD, value);
+                evaluateBoxed(matchCase.getValue());
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(IFEQ, next);
+                return;
+            case RANGE: {
+                mv.visitVarInsn(ALOAD, value);
+                mv.visitTypeInsn(INSTANCEOF, "java/lang/Double");
+                mv.visitJumpInsn(IFEQ, next);
+                mv.visitVarInsn(ALOAD, value);
+                mv.visitTypeInsn(CHECKCAST, "java/lang/Double");
+                mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Double", "doubleValue", "()D", false);
+                int number = allocate(Kind.NUMBER);
+                mv.visitVarInsn(DSTORE, number);
+                // NaN fails both bounds
+                mv.visitVarInsn(DLOAD, number);
+                evaluate(matchCase.getRangeStart(), Kind.NUMBER);
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(IFLT, next);
+                mv.visitVarInsn(DLOAD, number);
+                evaluate(matchCase.getRangeEnd(), Kind.NUMBER);
+                mv.visitInsn(DCMPG);
+                mv.visitJumpInsn(IFGT, next);
+                return;
+            }
+            case GUARD:
+                mv.visitVarInsn(ALOAD, value);
+                store(define(matchCase.getVariableName(), Kind.VALUE, null));
+                evaluate(matchCase.getGuard(), Kind.BOOLEAN);
+                mv.visitJumpInsn(IFEQ, next);
+                return;
+            default:
+                break;
+        }
+
+        String pattern = matchCase.getPattern();
+        if (variants.containsKey(pattern)) {
+            mv.visitVarInsn(ALOAD, value);
+            mv.visitLdcInsn(pattern);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "isVariant", "(Ljava/lang/Object;Ljava/lang/String;)Z", false);
+            mv.visitJumpInsn(IFEQ, next);
+            if (matchCase.getVariableName() != null) {
+                mv.visitVarInsn(ALOAD, value);
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "variantValue", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+                store(define(matchCase.getVariableName(), Kind.VALUE, null));
+            }
+        } else if (structures.containsKey(pattern)) {
+            mv.visitVarInsn(ALOAD, value);
+            mv.visitTypeInsn(INSTANCEOF, structures.get(pattern).className());
+            mv.visitJumpInsn(IFEQ, next);
+            if (matchCase.getVariableName() != null) {
+                mv.visitVarInsn(ALOAD, value);
+                store(define(matchCase.getVariableName(), Kind.VALUE, pattern));
+            }
+        } else if (matchCase.getType() != null) {
+            // "n as number": binds n when the value has the type
+            TypeNode type = matchCase.getType();
+            mv.visitVarInsn(ALOAD, value);
+            mv.visitLdcInsn(typeName(type));
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "hasType", "(Ljava/lang/Object;Ljava/lang/String;)Z", false);
+            mv.visitJumpInsn(IFEQ, next);
+            Kind kind = Kind.of(type);
+            mv.visitVarInsn(ALOAD, value);
+            coerce(Kind.VALUE, kind, null);
+            store(define(pattern, kind, structureOf(type)));
+        } else if (Character.isLowerCase(pattern.charAt(0))) {
+            // Catch-all binding
+            mv.visitVarInsn(ALOAD, value);
+            store(define(pattern, Kind.VALUE, null));
+        } else {
+            mv.visitJumpInsn(GOTO, next);
+        }
+    }
+
+    /**
+     * A type as {@link YRuntime#hasType} names it
+     */
+    private static String typeName(TypeNode type) {
+        switch (type.getKind()) {
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+            case LIST:
+            case MAP:
+            case NOTHING:
+                return type.getKind().name();
+            case IDENTIFIER:
+                return type.getName();
+            default:
+                return "ANY";
+        }
+    }
+
+    @Override
+    public Kind visitModuleDeclaration(ModuleDeclarationNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Kind visitTraitDeclaration(TraitDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitStructureDeclaration(StructureDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitImportStatement(ImportStatementNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitExpressionStatement(ExpressionStatementNode node) {
+        pop(node.getExpression().accept(this));
+        return null;
+    }
+
+    @Override
+    public Kind visitEnumDeclaration(EnumDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitImplementation(ImplementationNode node) {
+        // Methods are declared as functions
+        return null;
+    }
+
+    @Override
+    public Kind visitLifetime(LifetimeNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitInterfaceDeclaration(InterfaceDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitTypeAliasDeclaration(TypeAliasDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitDecorator(DecoratorNode node) {
+        return node.getTarget() != null ? node.getTarget().accept(this) : null;
+    }
+
+    // Expressions
+
+    @Override
+    public Kind visitLiteral(LiteralNode node) {
+        switch (node.getLiteralType()) {
+            case STRING:
+                if (node.getValue() == null) {
+                    mv.visitInsn(ACONST_NULL);
+                } else {
+                    mv.visitLdcInsn(node.getValue().toString());
+                }
+                return Kind.VALUE;
+            case NUMBER:
+                mv.visitLdcInsn(((Number) node.getValue()).doubleValue());
+                return Kind.NUMBER;
+            case BOOLEAN: {
+                Object value = node.getValue();
+                boolean truth = value instanceof Boolean b ? b : Boolean.parseBoolean(String.valueOf(value));
+                mv.visitInsn(truth ? ICONST_1 : ICONST_0);
+                return Kind.BOOLEAN;
+            }
+            case EMPTY_LIST:
+                runtime();
+                mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "emptyList", "()Ljava/lang/Object;", false);
+                return Kind.VALUE;
+            case EMPTY_MAP:
+                runtime();
+                mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "emptyMap", "()Ljava/lang/Object;", false);
+                return Kind.VALUE;
+            default:
+                mv.visitInsn(ACONST_NULL);
+                return Kind.VALUE;
+        }
+    }
+
+    @Override
+    public Kind visitIdentifier(IdentifierNode node) {
+        Variable variable = lookup(node.getName());
+        if (variable != null) {
+            load(variable);
+            return variable.kind();
+        }
+        String enumeration = variants.get(node.getName());
+        if (enumeration != null) {
+            runtime();
+            mv.visitLdcInsn(enumeration);
+            mv.visitLdcInsn(node.getName());
+            array(List.of());
+            mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "variant",
+                               "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;", false);
+            return Kind.VALUE;
+        }
+        return raise("Undefined variable '" + node.getName() + "'", node, Kind.VALUE);
+    }
+
+    @Override
+    public Kind visitFunctionCall(FunctionCallNode node) {
+        String name = node.getFunctionName();
+        List<ExpressionNode> arguments = node.getArguments();
+
+        Function declared = functions.get(name);
+        if (declared != null) {
+            if (arguments.size() != declared.parameters().size()) {
+                for (ExpressionNode argument : arguments) {
+                    pop(argument.accept(this));
+                }
+                return raise("Function '" + name + "' expects " + declared.parameters().size()
+                             + " arguments, got " + arguments.size(), node, declared.result());
+            }
+            for (int i = 0; i < arguments.size(); i++) {
+                evaluate(arguments.get(i), declared.parameters().get(i));
+            }
+            mv.visitMethodInsn(INVOKESTATIC, PROGRAM, name, declared.descriptor(), false);
+            return declared.result();
+        }
+        Structure structure = structures.get(name);
+        if (structure != null) {
+            return construct(structure, arguments, node);
+        }
+        String enumeration = variants.get(name);
+        if (enumeration != null) {
+            runtime();
+            mv.visitLdcInsn(enumeration);
+            mv.visitLdcInsn(name);
+            array(arguments);
+            mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "variant",
+                               "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;", false);
+            return Kind.VALUE;
+        }
+        return builtin(name, arguments, node);
+    }
+
+    private Kind construct(Structure structure, List<ExpressionNode> arguments, ASTNode call) {
+        String name = structure.node().getName();
+        List<Field> fields = structure.fields();
+        if (arguments.size() > fields.size()) {
+            for (ExpressionNode argument : arguments) {
+                pop(argument.accept(this));
+            }
+            return raise("Structure '" + name + "' has " + fields.size() + " fields, got "
+                         + arguments.size() + " values", call, Kind.VALUE);
+        }
+        runtime();
+        pushInt(fields.size());
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "structure", "(I)V", false);
+        // Arguments go to locals first, as they cannot be evaluated above an uninitialized object
+        int[] slots = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            if (i < arguments.size()) {
+                evaluate(arguments.get(i), field.kind());
+            } else if (field.initializer() != null) {
+                evaluate(field.initializer(), field.kind());
+            } else {
+                raise("Structure '" + name + "' needs a value for field '" + field.name() + "'", call);
+                pushDefault(field.kind());
+            }
+            slots[i] = allocate(field.kind());
+            mv.visitVarInsn(storeOpcode(field.kind()), slots[i]);
+        }
+        mv.visitTypeInsn(NEW, structure.className());
+        mv.visitInsn(DUP);
+        for (int i = 0; i < fields.size(); i++) {
+            mv.visitVarInsn(loadOpcode(fields.get(i).kind()), slots[i]);
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, structure.className(), "<init>", structure.constructor(), false);
+        return Kind.VALUE;
+    }
+
+    private Kind builtin(String name, List<ExpressionNode> arguments, ASTNode call) {
+        switch (name) {
+            case "print":
+            case "display":
+                runtime();
+                array(arguments);
+                mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "print", "([Ljava/lang/Object;)Ljava/lang/Object;", false);
+                return Kind.VALUE;
+            case "abs":
+            case "floor":
+            case "sqrt":
+            case "round":
+                if (arguments.size() != 1) {
+                    break;
+                }
+                evaluate(arguments.get(0), Kind.NUMBER);
+                if (name.equals("round")) {
+                    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "round", "(D)J", false);
+                    mv.visitInsn(L2D);
+                } else {
+                    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", name, "(D)D", false);
+                }
+                return Kind.NUMBER;
+            case "length":
+                if (arguments.size() != 1) {
+                    break;
+                }
+                evaluateBoxed(arguments.get(0));
+                pushLine(call);
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "length", "(Ljava/lang/Object;I)D", false);
+                return Kind.NUMBER;
+            default:
+                break;
+        }
+        runtime();
+        mv.visitLdcInsn(name);
+        array(arguments);
+        pushLine(call);
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "builtin",
+                           "(Ljava/lang/String;[Ljava/lang/Object;I)Ljava/lang/Object;", false);
+        return Kind.VALUE;
+    }
+
+    @Override
+    public Kind visitBinaryExpression(BinaryExpressionNode node) {
+        BinaryExpressionNode.Operator operator = node.getOperator();
+        // Logical operators short-circuit
+        if (operator == BinaryExpressionNode.Operator.AND || operator == BinaryExpressionNode.Operator.OR) {
+            boolean and = operator == BinaryExpressionNode.Operator.AND;
+            Label shortCircuit = new Label();
+            Label done = new Label();
+            evaluate(node.getLeft(), Kind.BOOLEAN);
+            mv.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+            evaluate(node.getRight(), Kind.BOOLEAN);
+            mv.visitJumpInsn(GOTO, done);
+            mv.visitLabel(shortCircuit);
+            mv.visitInsn(and ? ICONST_0 : ICONST_1);
+            mv.visitLabel(done);
+            return Kind.BOOLEAN;
+        }
+
+        switch (operator) {
+            case MINUS:
+            case TIMES:
+            case DIVIDED_BY:
+            case MODULO:
+                evaluate(node.getLeft(), Kind.NUMBER);
+                evaluate(node.getRight(), Kind.NUMBER);
+                if (operator == BinaryExpressionNode.Operator.MINUS) {
+                    mv.visitInsn(DSUB);
+                } else if (operator == BinaryExpressionNode.Operator.TIMES) {
+                    mv.visitInsn(DMUL);
+                } else {
+                    pushLine(node);
+                    mv.visitMethodInsn(INVOKESTATIC, RUNTIME,
+                                       operator == BinaryExpressionNode.Operator.DIVIDED_BY ? "divide" : "remainder",
+                                       "(DDI)D", false);
+                }
+                return Kind.NUMBER;
+            default:
+                break;
+        }
+
+        Kind left = node.getLeft().accept(this);
+        Kind right = node.getRight().accept(this);
+        switch (operator) {
+            case PLUS:
+                if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                    mv.visitInsn(DADD);
+                    return Kind.NUMBER;
+                }
+                // Strings and lists add too; the runtime call needs the runtime beneath its operands
+                boxBoth(left, right);
+                int rightSlot = allocate(Kind.VALUE);
+                mv.visitVarInsn(ASTORE, rightSlot);
+                int leftSlot = allocate(Kind.VALUE);
+                mv.visitVarInsn(ASTORE, leftSlot);
+                runtime();
+                mv.visitVarInsn(ALOAD, leftSlot);
+                mv.visitVarInsn(ALOAD, rightSlot);
+                pushLine(node);
+                mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "add", "(Ljava/lang/Object;Ljava/lang/Object;I)Ljava/lang/Object;", false);
+                return Kind.VALUE;
+            case EQUALS:
+                if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                    // 0.0 equals -0.0, as in the interpreter
+                    mv.visitInsn(DCMPL);
+                    return condition(IFEQ);
+                }
+                if (left == Kind.BOOLEAN && right == Kind.BOOLEAN) {
+                    return condition(IF_ICMPEQ);
+                }
+                boxBoth(left, right);
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                return Kind.BOOLEAN;
+            case GREATER_THAN:
+            case LESS_THAN:
+                if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                    // Double.compare orders NaN as the interpreter does
+                    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+                } else {
+                    boxBoth(left, right);
+                    pushLine(node);
+                    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "compare", "(Ljava/lang/Object;Ljava/lang/Object;I)I", false);
+                }
+                return condition(operator == BinaryExpressionNode.Operator.GREATER_THAN ? IFGT : IFLT);
+            default:
+                pop(right);
+                pop(left);
+                return raise("Unsupported operator " + operator, node, Kind.VALUE);
+        }
+    }
+
+    @Override
+    public Kind visitUnaryExpression(UnaryExpressionNode node) {
+        if (node.getOperator() == UnaryExpressionNode.Operator.NOT) {
+            evaluate(node.getOperand(), Kind.BOOLEAN);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(IXOR);
+            return Kind.BOOLEAN;
+        }
+        evaluate(node.getOperand(), Kind.NUMBER);
+        mv.visitInsn(DNEG);
+        return Kind.NUMBER;
+    }
+
+    @Override
+    public Kind visitConditionalExpression(ConditionalExpressionNode node) {
+        Kind thenKind = kindOf(node.getThenExpression());
+        Kind kind = thenKind == kindOf(node.getElseExpression()) ? thenKind : Kind.VALUE;
+        Label otherwise = new Label();
+        Label done = new Label();
+        evaluate(node.getCondition(), Kind.BOOLEAN);
+        mv.visitJumpInsn(IFEQ, otherwise);
+        evaluate(node.getThenExpression(), kind);
+        mv.visitJumpInsn(GOTO, done);
+        mv.visitLabel(otherwise);
+        evaluate(node.getElseExpression(), kind);
+        mv.visitLabel(done);
+        return kind;
+    }
+
+    @Override
+    public Kind visitMemberAccess(MemberAccessNode node) {
+        if (node.isArrayAccess()) {
+            runtime();
+            evaluateBoxed(node.getObject());
+            evaluateBoxed(node.getMember());
+            pushLine(node);
+            mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "index", "(Ljava/lang/Object;Ljava/lang/Object;I)Ljava/lang/Object;", false);
+            return Kind.VALUE;
+        }
+
+        if (!(node.getMember() instanceof IdentifierNode member)) {
+            return raise("Expected a field name after dot", node, Kind.VALUE);
+        }
+        String name = member.getName();
+        Structure structure = null;
+        if (node.getObject() instanceof IdentifierNode object) {
+            Variable variable = lookup(object.getName());
+            if (variable != null && variable.structure() != null) {
+                structure = structures.get(variable.structure());
+            }
+        }
+        Field field = structure != null ? structure.field(name) : null;
+        evaluateBoxed(node.getObject());
+        if (field == null) {
+            mv.visitLdcInsn(name);
+            pushLine(node);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "field", "(Ljava/lang/Object;Ljava/lang/String;I)Ljava/lang/Object;", false);
+            return Kind.VALUE;
+        }
+
+        // The variable is declared to hold the structure: read the field directly, keeping the
+        // lookup for whatever else it holds at run time
+        Label slow = new Label();
+        Label done = new Label();
+        mv.visitInsn(DUP);
+        mv.visitTypeInsn(INSTANCEOF, structure.className());
+        mv.visitJumpInsn(IFEQ, slow);
+        mv.visitTypeInsn(CHECKCAST, structure.className());
+        mv.visitFieldInsn(GETFIELD, structure.className(), name, field.kind().descriptor);
+        mv.visitJumpInsn(GOTO, done);
+        mv.visitLabel(slow);
+        mv.visitLdcInsn(name);
+        pushLine(node);
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "field", "(Ljava/lang/Object;Ljava/lang/String;I)Ljava/lang/Object;", false);
+        coerce(Kind.VALUE, field.kind(), node);
+        mv.visitLabel(done);
+        return field.kind();
+    }
+
+    @Override
+    public Kind visitListExpression(ListExpressionNode node) {
+        runtime();
+        array(node.getElements());
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "list", "([Ljava/lang/Object;)Ljava/lang/Object;", false);
+        return Kind.VALUE;
+    }
+
+    @Override
+    public Kind visitMapExpression(MapExpressionNode node) {
+        List<ExpressionNode> keysAndValues = new ArrayList<>();
+        for (MapExpressionNode.KeyValuePair pair : node.getPairs()) {
+            keysAndValues.add(pair.getKey());
+            keysAndValues.add(pair.getValue());
+        }
+        runtime();
+        array(keysAndValues);
+        mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "map", "([Ljava/lang/Object;)Ljava/lang/Object;", false);
+        return Kind.VALUE;
+    }
+
+    @Override
+    public Kind visitTypeCast(TypeCastNode node) {
+        switch (node.getCastType()) {
+            case TO_STRING:
+                runtime();
+                evaluateBoxed(node.getExpression());
+                mv.visitMethodInsn(INVOKEVIRTUAL, RUNTIME, "text", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+                return Kind.VALUE;
+            case TO_NUMBER: {
+                Kind kind = node.getExpression().accept(this);
+                if (kind != Kind.NUMBER) {
+                    box(kind);
+                    pushLine(node);
+                    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "toNumber", "(Ljava/lang/Object;I)D", false);
+                }
+                return Kind.NUMBER;
+            }
+            case TO_BOOLEAN: {
+                Kind kind = node.getExpression().accept(this);
+                if (kind != Kind.BOOLEAN) {
+                    box(kind);
+                    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "toBoolean", "(Ljava/lang/Object;)Z", false);
+                }
+                return Kind.BOOLEAN;
+            }
+            default:
+                return node.getExpression().accept(this);
+        }
+    }
+
+    @Override
+    public Kind visitParenthesizedExpression(ParenthesizedExpressionNode node) {
+        return node.getExpression().accept(this);
+    }
+}
\ No newline at end of file
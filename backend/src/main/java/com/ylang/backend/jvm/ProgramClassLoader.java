@@ -0,0 +1,47 @@
+package com.ylang.backend.jvm;
+
+import com.ylang.backend.exception.YLanguageRuntimeException;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the classes of one compiled program. Its parent is the platform class loader, so the
+ * program sees the Java platform and, of the application, only the runtime support its code calls.
+ */
+final class ProgramClassLoader extends ClassLoader {
+
+    private static final Set<String> SHARED = Set.of(
+        YRuntime.class.getName(),
+        YRuntime.Structure.class.getName(),
+        YRuntime.Variant.class.getName(),
+        YLanguageRuntimeException.class.getName());
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+
+    ProgramClassLoader(Map<String, byte[]> classes) {
+        super("ylang-program", ClassLoader.getPlatformClassLoader());
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (SHARED.contains(name)) {
+            return YRuntime.class.getClassLoader().loadClass(name);
+        }
+        return super.loadClass(name, resolve);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,504 @@
+package com.ylang.backend.jvm;
+
+import com.ylang.backend.exception.YLanguageRuntimeException;
+import com.ylang.backend.interpreter.Interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Support code for programs compiled by {@link JvmCompiler}: sandbox accounting, output and the
+ * operations on values whose type is only known at run time.
+ *
+ * Values follow the interpreter: numbers are Double when boxed, lists are ArrayList, maps
+ * LinkedHashMap, enum values {@link Variant}, and structures are the generated classes, which
+ * implement {@link Structure}. One instance serves one run of a compiled program.
+ */
+public final class YRuntime {
+
+    /** Implemented by the classes generated for structures */
+    public interface Structure {
+        String typeName();
+
+        /** The field's value, boxed, or {@link #MISSING} if the structure has no such field */
+        Object field(String name);
+    }
+
+    /** An enum value: its type, variant and the variant's values */
+    public record Variant(String type, String name, List<Object> values) {
+        @Override
+        public String toString() {
+            if (values.isEmpty()) {
+                return name;
+            }
+            StringBuilder result = new StringBuilder(name).append("(");
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) result.append(", ");
+                result.append(format(values.get(i)));
+            }
+            return result.append(")").toString();
+        }
+    }
+
+    /** Stops the run; unlike runtime errors, try statements do not catch it */
+    static final class LimitExceeded extends RuntimeException {
+        final String limit;
+
+        LimitExceeded(String limit, String message) {
+            super(message, null, false, false);
+            this.limit = limit;
+        }
+    }
+
+    public static final Object MISSING = new Object();
+
+    // Rough sizes charged against the memory limit, as in the interpreter
+    private static final long OBJECT_BYTES = 16;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long MAP_ENTRY_BYTES = 40;
+
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final Interpreter.Limits limits;
+    private final long deadline;
+    private final StringBuilder output = new StringBuilder();
+    private long steps;
+    private long memory;
+    private int depth;
+
+    YRuntime(Interpreter.Limits limits) {
+        this.limits = limits;
+        this.deadline = System.nanoTime() + limits.timeoutMs() * 1_000_000;
+    }
+
+    String output() {
+        return output.toString();
+    }
+
+    long steps() {
+        return steps;
+    }
+
+    long memory() {
+        return memory;
+    }
+
+    // Sandbox accounting
+
+    /**
+     * Count a loop iteration or call
+     */
+    public void step() {
+        if (++steps > limits.maxSteps()) {
+            throw new LimitExceeded("steps", "Step limit of " + limits.maxSteps() + " exceeded");
+        }
+        if (steps % TIME_CHECK_INTERVAL == 0) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new LimitExceeded("time", "Time limit of " + limits.timeoutMs() + " ms exceeded");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new LimitExceeded("time", "Run cancelled");
+            }
+        }
+    }
+
+    /**
+     * Called on entry to every compiled function
+     */
+    public void enter() {
+        step();
+        if (depth >= limits.maxCallDepth()) {
+            throw new LimitExceeded("call-depth", "Call depth limit of " + limits.maxCallDepth() + " exceeded");
+        }
+        depth++;
+    }
+
+    /**
+     * Called before every return from a compiled function
+     */
+    public void leave() {
+        depth--;
+    }
+
+    /**
+     * Call depth when a try statement starts, restored when it catches an error thrown from calls
+     * that never returned
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public void restoreDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void charge(long bytes) {
+        memory += bytes;
+        if (memory > limits.maxMemoryBytes()) {
+            throw new LimitExceeded("memory", "Memory limit of " + limits.maxMemoryBytes() + " bytes exceeded");
+        }
+    }
+
+    private String newString(String value) {
+        charge(OBJECT_BYTES + 2L * value.length());
+        return value;
+    }
+
+    public Object print(Object[] values) {
+        StringBuilder line = new StringBuilder();
+        for (Object value : values) {
+            if (line.length() > 0) line.append(' ');
+            line.append(format(value));
+        }
+        if (output.length() + line.length() + 1 > limits.maxOutput()) {
+            output.append(line, 0, Math.max(0, limits.maxOutput() - output.length()));
+            throw new LimitExceeded("output", "Output limit of " + limits.maxOutput() + " characters exceeded");
+        }
+        output.append(line).append('\n');
+        return null;
+    }
+
+    // Values created at run time
+
+    public Object emptyList() {
+        charge(OBJECT_BYTES);
+        return new ArrayList<>();
+    }
+
+    public Object emptyMap() {
+        charge(OBJECT_BYTES);
+        return new LinkedHashMap<>();
+    }
+
+    public Object list(Object[] elements) {
+        charge(OBJECT_BYTES + REFERENCE_BYTES * elements.length);
+        return new ArrayList<>(Arrays.asList(elements));
+    }
+
+    public Object map(Object[] keysAndValues) {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        charge(OBJECT_BYTES + MAP_ENTRY_BYTES * map.size());
+        return map;
+    }
+
+    public Object variant(String type, String name, Object[] values) {
+        charge(OBJECT_BYTES + REFERENCE_BYTES * values.length);
+        // The array is created by the call site, so it can back the list
+        return new Variant(type, name, Collections.unmodifiableList(Arrays.asList(values)));
+    }
+
+    /**
+     * Charge for a structure about to be created
+     */
+    public void structure(int fields) {
+        charge(OBJECT_BYTES + MAP_ENTRY_BYTES * fields);
+    }
+
+    // Operators
+
+    public Object add(Object left, Object right, int line) {
+        if (left instanceof Double a && right instanceof Double b) {
+            return a + b;
+        }
+        if (left instanceof String || right instanceof String) {
+            return newString(format(left) + format(right));
+        }
+        if (left instanceof List<?> a && right instanceof List<?> b) {
+            charge(OBJECT_BYTES + REFERENCE_BYTES * (a.size() + b.size()));
+            List<Object> joined = new ArrayList<>(a);
+            joined.addAll(b);
+            return joined;
+        }
+        throw error("Cannot add " + typeName(left) + " and " + typeName(right), line);
+    }
+
+    public static double divide(double left, double right, int line) {
+        if (right == 0) {
+            throw error("Division by zero", line);
+        }
+        return left / right;
+    }
+
+    public static double remainder(double left, double right, int line) {
+        if (right == 0) {
+            throw error("Division by zero", line);
+        }
+        return left % right;
+    }
+
+    public static boolean equal(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) {
+            // 0.0 equals -0.0, as in both target languages
+            return a.doubleValue() == b.doubleValue();
+        }
+        return Objects.equals(left, right);
+    }
+
+    public static int compare(Object left, Object right, int line) {
+        if (left instanceof Double a && right instanceof Double b) {
+            return Double.compare(a, b);
+        }
+        if (left instanceof String a && right instanceof String b) {
+            return a.compareTo(b);
+        }
+        throw error("Cannot compare " + typeName(left) + " and " + typeName(right), line);
+    }
+
+    public static double number(Object value, int line) {
+        if (value instanceof Double number) {
+            return number;
+        }
+        throw error("Expected a number, got " + typeName(value), line);
+    }
+
+    public static boolean truth(Object value, int line) {
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw error("Expected a boolean, got " + typeName(value), line);
+    }
+
+    // Access
+
+    public Object index(Object object, Object key, int line) {
+        if (object instanceof List<?> list) {
+            return list.get(index(key, list.size(), line));
+        }
+        if (object instanceof String string) {
+            return newString(String.valueOf(string.charAt(index(key, string.length(), line))));
+        }
+        Map<Object, Object> map = map(object, line);
+        if (!map.containsKey(key)) {
+            throw error("Key " + format(key) + " not found", line);
+        }
+        return map.get(key);
+    }
+
+    private static int index(Object key, int size, int line) {
+        double number = number(key, line);
+        if (number != Math.rint(number) || number < 0 || number >= size) {
+            throw error("Index " + format(key) + " out of bounds for length " + size, line);
+        }
+        return (int) number;
+    }
+
+    public static Object field(Object object, String name, int line) {
+        if (object instanceof Structure structure) {
+            Object value = structure.field(name);
+            if (value == MISSING) {
+                throw error(structure.typeName() + " has no field '" + name + "'", line);
+            }
+            return value;
+        }
+        if (object instanceof Map<?, ?> map && map.containsKey(name)) {
+            return map.get(name);
+        }
+        if (name.equals("length") || name.equals("size")) {
+            return length(object, line);
+        }
+        throw error(typeName(object) + " has no field '" + name + "'", line);
+    }
+
+    /**
+     * A snapshot of what a for-each loop walks: list elements, map keys or string characters
+     */
+    public static Object[] elements(Object iterable, int line) {
+        if (iterable instanceof List<?> list) {
+            // The body may change the list; the loop sees it as it was
+            return list.toArray();
+        }
+        if (iterable instanceof Map<?, ?> map) {
+            return map.keySet().toArray();
+        }
+        if (iterable instanceof String string) {
+            return string.codePoints().mapToObj(Character::toString).toArray();
+        }
+        throw error("Cannot loop through " + typeName(iterable), line);
+    }
+
+    // Casts
+
+    public Object text(Object value) {
+        return value instanceof String ? value : newString(format(value));
+    }
+
+    public static double toNumber(Object value, int line) {
+        if (value instanceof Double number) return number;
+        if (value instanceof Boolean b) return b ? 1.0 : 0.0;
+        if (value instanceof String string) {
+            try {
+                return Double.parseDouble(string.trim());
+            } catch (NumberFormatException e) {
+                throw error("Cannot convert \"" + string + "\" to a number", line);
+            }
+        }
+        throw error("Cannot convert " + typeName(value) + " to a number", line);
+    }
+
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean b) return b;
+        if (value instanceof Double number) return number != 0;
+        if (value instanceof String string) return !string.isEmpty() && !string.equals("false");
+        return value != null;
+    }
+
+    // Match patterns
+
+    public static boolean isVariant(Object value, String name) {
+        return value instanceof Variant variant && variant.name().equals(name);
+    }
+
+    /**
+     * What a variant pattern binds: the single value, or a list of the values
+     */
+    public static Object variantValue(Object value) {
+        List<Object> values = ((Variant) value).values();
+        return values.size() == 1 ? values.get(0) : new ArrayList<>(values);
+    }
+
+    /**
+     * Whether a value has a type, named as in the type's {@code TypeKind}, or a structure or enum name
+     */
+    public static boolean hasType(Object value, String type) {
+        switch (type) {
+            case "STRING": return value instanceof String;
+            case "NUMBER": return value instanceof Double;
+            case "BOOLEAN": return value instanceof Boolean;
+            case "LIST": return value instanceof List;
+            case "MAP": return value instanceof Map;
+            case "NOTHING": return value == null;
+            case "ANY": return true;
+            default:
+                return value instanceof Structure structure && structure.typeName().equals(type)
+                    || value instanceof Variant variant && variant.type().equals(type);
+        }
+    }
+
+    // Builtins
+
+    public static double length(Object value, int line) {
+        if (value instanceof String string) return string.length();
+        if (value instanceof List<?> list) return list.size();
+        if (value instanceof Map<?, ?> map) return map.size();
+        throw error("length needs a string, list or map, got " + typeName(value), line);
+    }
+
+    /**
+     * Builtins without a specialized call in the compiled code
+     */
+    public Object builtin(String name, Object[] arguments, int line) {
+        switch (name) {
+            case "print":
+            case "display":
+                return print(arguments);
+            case "length":
+                expectArguments(name, arguments, 1, line);
+                return length(arguments[0], line);
+            case "append":
+                expectArguments(name, arguments, 2, line);
+                charge(REFERENCE_BYTES);
+                list(arguments[0], line).add(arguments[1]);
+                return arguments[0];
+            case "put":
+                expectArguments(name, arguments, 3, line);
+                charge(MAP_ENTRY_BYTES);
+                map(arguments[0], line).put(arguments[1], arguments[2]);
+                return arguments[0];
+            case "contains": {
+                expectArguments(name, arguments, 2, line);
+                Object container = arguments[0];
+                Object item = arguments[1];
+                if (container instanceof String string) return string.contains(format(item));
+                if (container instanceof Map<?, ?> map) return map.containsKey(item);
+                return list(container, line).stream().anyMatch(element -> equal(element, item));
+            }
+            case "keys": {
+                expectArguments(name, arguments, 1, line);
+                Map<Object, Object> map = map(arguments[0], line);
+                charge(OBJECT_BYTES + REFERENCE_BYTES * map.size());
+                return new ArrayList<>(map.keySet());
+            }
+            case "range": {
+                expectArguments(name, arguments, 2, line);
+                long from = (long) Math.ceil(number(arguments[0], line));
+                long to = (long) Math.ceil(number(arguments[1], line));
+                long size = Math.max(0, to - from);
+                charge(OBJECT_BYTES + (REFERENCE_BYTES + OBJECT_BYTES) * size);
+                List<Object> numbers = new ArrayList<>((int) size);
+                for (long i = from; i < to; i++) {
+                    numbers.add((double) i);
+                }
+                return numbers;
+            }
+            case "abs":
+                expectArguments(name, arguments, 1, line);
+                return Math.abs(number(arguments[0], line));
+            case "floor":
+                expectArguments(name, arguments, 1, line);
+                return Math.floor(number(arguments[0], line));
+            case "round":
+                expectArguments(name, arguments, 1, line);
+                return (double) Math.round(number(arguments[0], line));
+            case "sqrt":
+                expectArguments(name, arguments, 1, line);
+                return Math.sqrt(number(arguments[0], line));
+            case "fail":
+                expectArguments(name, arguments, 1, line);
+                throw error(format(arguments[0]), line);
+            default:
+                throw error("Unknown function '" + name + "'", line);
+        }
+    }
+
+    private static void expectArguments(String name, Object[] arguments, int count, int line) {
+        if (arguments.length != count) {
+            throw error(name + " expects " + count + " arguments, got " + arguments.length, line);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Object value, int line) {
+        if (value instanceof List<?> list) {
+            return (List<Object>) list;
+        }
+        throw error("Expected a list, got " + typeName(value), line);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> map(Object value, int line) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<Object, Object>) map;
+        }
+        throw error("Expected a map, got " + typeName(value), line);
+    }
+
+    // Errors and text
+
+    public static YLanguageRuntimeException error(String message, int line) {
+        return new YLanguageRuntimeException(message, line > 0 ? line : -1);
+    }
+
+    static String typeName(Object value) {
+        if (value == null) return "nothing";
+        if (value instanceof String) return "string";
+        if (value instanceof Double) return "number";
+        if (value instanceof Boolean) return "boolean";
+        if (value instanceof List) return "list";
+        if (value instanceof Map) return "map";
+        if (value instanceof Structure structure) return structure.typeName();
+        if (value instanceof Variant variant) return variant.type();
+        return value.getClass().getSimpleName();
+    }
+
+    public static String format(Object value) {
+        return Interpreter.format(value);
+    }
+}
\ No newline at end of file
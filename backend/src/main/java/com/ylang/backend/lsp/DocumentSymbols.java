@@ -0,0 +1,146 @@
+package com.ylang.backend.lsp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ylang.backend.ast.ASTNode;
+import com.ylang.backend.ast.EnumDeclarationNode;
+import com.ylang.backend.ast.FunctionDeclarationNode;
+import com.ylang.backend.ast.ImplementationNode;
+import com.ylang.backend.ast.InterfaceDeclarationNode;
+import com.ylang.backend.ast.ModuleDeclarationNode;
+import com.ylang.backend.ast.StructureDeclarationNode;
+import com.ylang.backend.ast.TraitDeclarationNode;
+import com.ylang.backend.ast.TypeAliasDeclarationNode;
+import com.ylang.backend.ast.VariableDeclarationNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outline of a program as protocol DocumentSymbol objects.
+ *
+ * AST nodes only record where they start, so each symbol's range runs to the start of the next
+ * declaration at the same level, or to the end of its parent.
+ */
+final class DocumentSymbols {
+
+    // Protocol SymbolKind values
+    private static final int MODULE = 2;
+    private static final int CLASS = 5;
+    private static final int ENUM = 10;
+    private static final int INTERFACE = 11;
+    private static final int FUNCTION = 12;
+    private static final int VARIABLE = 13;
+    private static final int STRUCT = 23;
+    private static final int TYPE_PARAMETER = 26;
+
+    private DocumentSymbols() {
+    }
+
+    static ArrayNode of(ObjectMapper mapper, List<ASTNode> statements, TextDocument document) {
+        return collect(mapper, statements, document, document.getText().length());
+    }
+
+    private static ArrayNode collect(ObjectMapper mapper, List<ASTNode> statements, TextDocument document, int end) {
+        List<ASTNode> declarations = new ArrayList<>();
+        for (ASTNode statement : statements) {
+            if (name(statement) != null && statement.getLine() > 0) {
+                declarations.add(statement);
+            }
+        }
+
+        ArrayNode symbols = mapper.createArrayNode();
+        for (int i = 0; i < declarations.size(); i++) {
+            ASTNode node = declarations.get(i);
+            int start = start(node, document);
+            int next = i + 1 < declarations.size() ? start(declarations.get(i + 1), document) : end;
+
+            ObjectNode symbol = symbols.addObject();
+            symbol.put("name", name(node));
+            symbol.put("kind", kind(node));
+            symbol.set("range", range(mapper, document, start, Math.max(start, next)));
+            symbol.set("selectionRange", range(mapper, document, start, start));
+
+            List<ASTNode> children = children(node);
+            if (!children.isEmpty()) {
+                symbol.set("children", collect(mapper, children, document, Math.max(start, next)));
+            }
+        }
+        return symbols;
+    }
+
+    private static int start(ASTNode node, TextDocument document) {
+        return document.offset(node.getLine() - 1, Math.max(node.getColumn(), 0));
+    }
+
+    private static ObjectNode range(ObjectMapper mapper, TextDocument document, int start, int end) {
+        ObjectNode range = mapper.createObjectNode();
+        range.set("start", position(mapper, document, start));
+        range.set("end", position(mapper, document, end));
+        return range;
+    }
+
+    static ObjectNode position(ObjectMapper mapper, TextDocument document, int offset) {
+        int line = document.line(offset);
+        ObjectNode position = mapper.createObjectNode();
+        position.put("line", line);
+        position.put("character", offset - document.offset(line, 0));
+        return position;
+    }
+
+    private static String name(ASTNode node) {
+        if (node instanceof FunctionDeclarationNode function) {
+            return function.getName();
+        } else if (node instanceof VariableDeclarationNode variable) {
+            return variable.getName();
+        } else if (node instanceof StructureDeclarationNode structure) {
+            return structure.getName();
+        } else if (node instanceof TraitDeclarationNode trait) {
+            return trait.getName();
+        } else if (node instanceof InterfaceDeclarationNode anInterface) {
+            return anInterface.getName();
+        } else if (node instanceof EnumDeclarationNode anEnum) {
+            return anEnum.getName();
+        } else if (node instanceof TypeAliasDeclarationNode alias) {
+            return alias.getName();
+        } else if (node instanceof ModuleDeclarationNode module) {
+            return module.getName();
+        } else if (node instanceof ImplementationNode implementation) {
+            return implementation.getTraitName() != null
+                ? implementation.getTraitName() + " for " + implementation.getTargetType()
+                : implementation.getTargetType();
+        }
+        return null;
+    }
+
+    private static int kind(ASTNode node) {
+        if (node instanceof FunctionDeclarationNode) {
+            return FUNCTION;
+        } else if (node instanceof StructureDeclarationNode) {
+            return STRUCT;
+        } else if (node instanceof TraitDeclarationNode || node instanceof InterfaceDeclarationNode) {
+            return INTERFACE;
+        } else if (node instanceof EnumDeclarationNode) {
+            return ENUM;
+        } else if (node instanceof TypeAliasDeclarationNode) {
+            return TYPE_PARAMETER;
+        } else if (node instanceof ModuleDeclarationNode) {
+            return MODULE;
+        } else if (node instanceof ImplementationNode) {
+            return CLASS;
+        }
+        return VARIABLE;
+    }
+
+    private static List<ASTNode> children(ASTNode node) {
+        if (node instanceof ModuleDeclarationNode module) {
+            return module.getStatements();
+        } else if (node instanceof StructureDeclarationNode structure) {
+            return structure.getMembers();
+        } else if (node instanceof ImplementationNode implementation) {
+            return implementation.getMethods();
+        }
+        return List.of();
+    }
+}
\ No newline at end of file
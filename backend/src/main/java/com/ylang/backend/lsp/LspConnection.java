@@ -0,0 +1,79 @@
+package com.ylang.backend.lsp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON-RPC messages framed with Content-Length headers, as the Language Server Protocol sends
+ * them over stdio. Reads happen on one thread; writes may come from any thread.
+ */
+class LspConnection {
+
+    private final ObjectMapper mapper;
+    private final InputStream in;
+    private final OutputStream out;
+
+    LspConnection(ObjectMapper mapper, InputStream in, OutputStream out) {
+        this.mapper = mapper;
+        this.in = new BufferedInputStream(in);
+        this.out = out;
+    }
+
+    /**
+     * Next message, or null when the client closed the stream
+     */
+    JsonNode read() throws IOException {
+        int contentLength = -1;
+        while (true) {
+            String header = readHeaderLine();
+            if (header == null) {
+                return null;
+            }
+            if (header.isEmpty()) {
+                if (contentLength >= 0) {
+                    break;
+                }
+                continue;
+            }
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(header.substring(colon + 1).trim());
+            }
+        }
+
+        byte[] content = in.readNBytes(contentLength);
+        if (content.length < contentLength) {
+            throw new EOFException("Stream ended inside a message");
+        }
+        return mapper.readTree(content);
+    }
+
+    synchronized void write(ObjectNode message) throws IOException {
+        message.put("jsonrpc", "2.0");
+        byte[] content = mapper.writeValueAsBytes(message);
+        out.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.flush();
+    }
+
+    private String readHeaderLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+}
\ No newline at end of file
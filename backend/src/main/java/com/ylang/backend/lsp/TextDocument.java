@@ -0,0 +1,107 @@
+package com.ylang.backend.lsp;
+
+import java.util.Arrays;
+
+/**
+ * Text of an open document with an index of line starts, updated in place by incremental
+ * changes. Positions are 0-based lines and UTF-16 characters, as in the protocol.
+ */
+class TextDocument {
+
+    private final String uri;
+    private String text;
+    private int version;
+    private int[] lineStarts;
+    private int lineCount;
+
+    TextDocument(String uri, String text, int version) {
+        this.uri = uri;
+        this.version = version;
+        setText(text);
+    }
+
+    String getUri() {
+        return uri;
+    }
+
+    synchronized String getText() {
+        return text;
+    }
+
+    synchronized int getVersion() {
+        return version;
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Replace the whole text
+     */
+    synchronized void setText(String text, int version) {
+        setText(text);
+        this.version = version;
+    }
+
+    /**
+     * Replace the text between two positions
+     */
+    synchronized void replace(int startLine, int startCharacter, int endLine, int endCharacter, String newText, int version) {
+        int start = offset(startLine, startCharacter);
+        int end = Math.max(start, offset(endLine, endCharacter));
+        text = text.substring(0, start) + newText + text.substring(end);
+        this.version = version;
+
+        // Lines before the edit keep their starts; the rest are re-indexed from the edited line
+        int line = Math.min(startLine, lineCount - 1);
+        reindex(Math.max(line, 0));
+    }
+
+    /**
+     * Offset of a position, clamped to the document
+     */
+    synchronized int offset(int line, int character) {
+        if (line < 0) {
+            return 0;
+        }
+        if (line >= lineCount) {
+            return text.length();
+        }
+        int lineEnd = line + 1 < lineCount ? lineStarts[line + 1] : text.length();
+        return Math.min(lineStarts[line] + Math.max(character, 0), lineEnd);
+    }
+
+    /**
+     * Line of an offset
+     */
+    synchronized int line(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void setText(String text) {
+        this.text = text;
+        lineStarts = new int[Math.max(16, text.length() / 32)];
+        lineCount = 0;
+        reindex(0);
+    }
+
+    private void reindex(int fromLine) {
+        lineCount = fromLine;
+        int position = fromLine == 0 ? 0 : lineStarts[fromLine];
+        addLine(position);
+        for (int i = position; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                addLine(i + 1);
+            }
+        }
+    }
+
+    private void addLine(int start) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        }
+        lineStarts[lineCount++] = start;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,433 @@
+package com.ylang.backend.lsp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ylang.backend.ast.ProgramNode;
+import com.ylang.backend.dto.ValidateResponse;
+import com.ylang.backend.model.Diagnostic;
+import com.ylang.backend.model.ParseResult;
+import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.YLanguageParserService;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Language Server Protocol server for Y over stdio, built on the same parser, type checker and
+ * warnings as the REST API.
+ *
+ * Documents are synced incrementally. Diagnostics are computed on a worker after edits have
+ * paused for the debounce delay, and are dropped instead of published when the document changed
+ * while they were computed. The JVM stays warm, so the parser's prediction cache is reused across
+ * edits. Requests run on workers and can be cancelled with $/cancelRequest; a request whose
+ * document changed before it finished fails with ContentModified.
+ */
+public class YLangLanguageServer {
+
+    static final long DEFAULT_DEBOUNCE_MS = 30;
+
+    // JSON-RPC and protocol error codes
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INVALID_PARAMS = -32602;
+    private static final int INTERNAL_ERROR = -32603;
+    private static final int REQUEST_CANCELLED = -32800;
+    private static final int CONTENT_MODIFIED = -32801;
+
+    // Protocol DiagnosticSeverity values
+    private static final int ERROR = 1;
+    private static final int WARNING = 2;
+
+    private static final Pattern LOCATION = Pattern.compile("\\(Line (\\d+)(?::(\\d+))?\\)");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LspConnection connection;
+    private final YLanguageParserService parserService;
+    private final CompilationService compilationService;
+    private final long debounceMs;
+
+    private final Map<String, TextDocument> documents = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduledDiagnostics = new ConcurrentHashMap<>();
+    // Last parsed program of each document, reused for requests at the same version
+    private final Map<String, Analysis> analyses = new ConcurrentHashMap<>();
+    private final Map<JsonNode, FutureTask<?>> pendingRequests = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService debouncer;
+    private final ExecutorService workers;
+    private volatile boolean shutdownRequested;
+
+    private record Analysis(int version, ProgramNode program) {
+    }
+
+    /**
+     * A request that cannot be answered with a result
+     */
+    private static final class RequestFailure extends RuntimeException {
+        final int code;
+
+        RequestFailure(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    YLangLanguageServer(YLanguageParserService parserService, CompilationService compilationService,
+                        InputStream in, OutputStream out, long debounceMs) {
+        this.connection = new LspConnection(mapper, in, out);
+        this.parserService = parserService;
+        this.compilationService = compilationService;
+        this.debounceMs = debounceMs;
+        this.debouncer = Executors.newSingleThreadScheduledExecutor(daemon("ylang-lsp-debounce"));
+        this.workers = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2), daemon("ylang-lsp-worker"));
+    }
+
+    public static void main(String[] args) {
+        long debounceMs = DEFAULT_DEBOUNCE_MS;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--debounce") && i + 1 < args.length) {
+                debounceMs = Long.parseLong(args[++i]);
+            }
+        }
+
+        // Stdout carries the protocol, so nothing else may write to it
+        PrintStream protocolOut = System.out;
+        System.setOut(System.err);
+        if (LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME) instanceof ch.qos.logback.classic.Logger root) {
+            root.setLevel(ch.qos.logback.classic.Level.OFF);
+        }
+
+        YLanguageParserService parserService = new YLanguageParserService();
+        CompilationService compilationService = new CompilationService(parserService, null, null, null);
+        YLangLanguageServer server = new YLangLanguageServer(parserService, compilationService,
+            System.in, protocolOut, debounceMs);
+        System.exit(server.run());
+    }
+
+    /**
+     * Serve until the client sends exit or closes the stream
+     * @return Exit code: 0 when exit followed shutdown, 1 otherwise
+     */
+    int run() {
+        try {
+            JsonNode message;
+            while ((message = connection.read()) != null) {
+                String method = message.path("method").asText(null);
+                if (method == null) {
+                    continue; // A response to a request of ours; none are sent
+                }
+                if ("exit".equals(method)) {
+                    break;
+                }
+                if (message.has("id")) {
+                    handleRequest(message.get("id"), method, message.path("params"));
+                } else {
+                    handleNotification(method, message.path("params"));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("ylang-lsp: " + e.getMessage());
+        } finally {
+            debouncer.shutdownNow();
+            workers.shutdownNow();
+        }
+        return shutdownRequested ? 0 : 1;
+    }
+
+    private void handleRequest(JsonNode id, String method, JsonNode params) {
+        switch (method) {
+            case "initialize" -> respond(id, capabilities());
+            case "shutdown" -> {
+                shutdownRequested = true;
+                respond(id, mapper.nullNode());
+            }
+            case "textDocument/documentSymbol" -> submit(id, () -> documentSymbols(params));
+            default -> respondError(id, METHOD_NOT_FOUND, "Unsupported method " + method);
+        }
+    }
+
+    private void handleNotification(String method, JsonNode params) {
+        switch (method) {
+            case "textDocument/didOpen" -> {
+                JsonNode item = params.path("textDocument");
+                String uri = item.path("uri").asText();
+                documents.put(uri, new TextDocument(uri, item.path("text").asText(""), item.path("version").asInt()));
+                scheduleDiagnostics(uri, 0);
+            }
+            case "textDocument/didChange" -> {
+                String uri = params.path("textDocument").path("uri").asText();
+                TextDocument document = documents.get(uri);
+                if (document == null) {
+                    return;
+                }
+                int version = params.path("textDocument").path("version").asInt();
+                for (JsonNode change : params.path("contentChanges")) {
+                    JsonNode range = change.get("range");
+                    String text = change.path("text").asText("");
+                    if (range == null) {
+                        document.setText(text, version);
+                    } else {
+                        document.replace(range.path("start").path("line").asInt(),
+                            range.path("start").path("character").asInt(),
+                            range.path("end").path("line").asInt(),
+                            range.path("end").path("character").asInt(), text, version);
+                    }
+                }
+                scheduleDiagnostics(uri, debounceMs);
+            }
+            case "textDocument/didClose" -> {
+                String uri = params.path("textDocument").path("uri").asText();
+                documents.remove(uri);
+                analyses.remove(uri);
+                ScheduledFuture<?> scheduled = scheduledDiagnostics.remove(uri);
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                publishDiagnostics(uri, null, mapper.createArrayNode());
+            }
+            case "$/cancelRequest" -> {
+                JsonNode id = params.get("id");
+                FutureTask<?> task = id != null ? pendingRequests.remove(id) : null;
+                if (task != null) {
+                    task.cancel(true);
+                    respondError(id, REQUEST_CANCELLED, "Request cancelled");
+                }
+            }
+            default -> {
+                // initialized, didSave and other notifications need no action
+            }
+        }
+    }
+
+    private ObjectNode capabilities() {
+        ObjectNode result = mapper.createObjectNode();
+        ObjectNode capabilities = result.putObject("capabilities");
+        ObjectNode sync = capabilities.putObject("textDocumentSync");
+        sync.put("openClose", true);
+        sync.put("change", 2); // Incremental
+        capabilities.put("documentSymbolProvider", true);
+        ObjectNode serverInfo = result.putObject("serverInfo");
+        serverInfo.put("name", "ylang-lsp");
+        serverInfo.put("version", "1.0.0");
+        return result;
+    }
+
+    /**
+     * Run a request on a worker; whoever removes it from the pending requests answers it
+     */
+    private void submit(JsonNode id, Supplier<JsonNode> handler) {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            JsonNode result;
+            try {
+                result = handler.get();
+            } catch (RequestFailure e) {
+                if (pendingRequests.remove(id) != null) {
+                    respondError(id, e.code, e.getMessage());
+                }
+                return null;
+            } catch (CancellationException e) {
+                return null;
+            } catch (RuntimeException e) {
+                if (pendingRequests.remove(id) != null) {
+                    respondError(id, INTERNAL_ERROR, String.valueOf(e.getMessage()));
+                }
+                return null;
+            }
+            if (pendingRequests.remove(id) != null) {
+                respond(id, result);
+            }
+            return null;
+        });
+        pendingRequests.put(id, task);
+        workers.execute(task);
+    }
+
+    private JsonNode documentSymbols(JsonNode params) {
+        String uri = params.path("textDocument").path("uri").asText();
+        TextDocument document = documents.get(uri);
+        if (document == null) {
+            throw new RequestFailure(INVALID_PARAMS, "Document " + uri + " is not open");
+        }
+
+        int version = document.getVersion();
+        Analysis analysis = analyses.get(uri);
+        ProgramNode program;
+        if (analysis != null && analysis.version() == version) {
+            program = analysis.program();
+        } else {
+            ParseResult parsed = parserService.parse(document.getText());
+            program = parsed.isSuccess() ? parsed.getAst() : null;
+        }
+        checkCurrent(document, version);
+        if (program == null) {
+            return mapper.createArrayNode();
+        }
+
+        ArrayNode symbols = DocumentSymbols.of(mapper, program.getStatements(), document);
+        checkCurrent(document, version);
+        return symbols;
+    }
+
+    private static void checkCurrent(TextDocument document, int version) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+        if (document.getVersion() != version) {
+            throw new RequestFailure(CONTENT_MODIFIED, "Document changed");
+        }
+    }
+
+    /**
+     * Compute diagnostics once the document has not changed for the delay, replacing any
+     * computation scheduled earlier for it
+     */
+    private void scheduleDiagnostics(String uri, long delayMs) {
+        ScheduledFuture<?> scheduled = debouncer.schedule(
+            () -> workers.execute(() -> computeDiagnostics(uri)), delayMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledDiagnostics.put(uri, scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    void computeDiagnostics(String uri) {
+        TextDocument document = documents.get(uri);
+        if (document == null) {
+            return;
+        }
+        String text;
+        int version;
+        synchronized (document) {
+            text = document.getText();
+            version = document.getVersion();
+        }
+
+        ArrayNode diagnostics = mapper.createArrayNode();
+        ParseResult parsed = parserService.parse(text);
+        if (document.getVersion() != version) {
+            return; // A newer edit has its own computation scheduled
+        }
+        if (parsed.isSuccess()) {
+            analyses.put(uri, new Analysis(version, parsed.getAst()));
+            ValidateResponse analysis = compilationService.analyze(parsed.getAst(), false);
+            for (String error : analysis.getErrors()) {
+                diagnostics.add(fromMessage(document, error, ERROR));
+            }
+            for (String warning : analysis.getWarnings()) {
+                diagnostics.add(fromMessage(document, warning, WARNING));
+            }
+        } else {
+            for (Diagnostic diagnostic : parsed.getDiagnostics()) {
+                diagnostics.add(fromDiagnostic(document, diagnostic));
+            }
+        }
+
+        synchronized (document) {
+            if (document.getVersion() == version && documents.get(uri) == document) {
+                publishDiagnostics(uri, version, diagnostics);
+            }
+        }
+    }
+
+    private ObjectNode fromDiagnostic(TextDocument document, Diagnostic diagnostic) {
+        int start = document.offset(diagnostic.getLine() - 1, diagnostic.getColumn());
+        int length = diagnostic.getEndOffset() > diagnostic.getStartOffset()
+            ? diagnostic.getEndOffset() - diagnostic.getStartOffset() : 1;
+        int end = Math.min(start + length, document.offset(diagnostic.getLine(), 0));
+
+        ObjectNode result = diagnosticNode(document, start, Math.max(start, end), ERROR, diagnostic.getMessage());
+        result.put("code", diagnostic.getCode());
+        return result;
+    }
+
+    /**
+     * Diagnostic for an analyzer message, placed at its "(Line l:c)" location and spanning the word there
+     */
+    private ObjectNode fromMessage(TextDocument document, String message, int severity) {
+        Matcher location = LOCATION.matcher(message);
+        int start = 0;
+        if (location.find()) {
+            int line = Integer.parseInt(location.group(1)) - 1;
+            int column = location.group(2) != null ? Integer.parseInt(location.group(2)) : 0;
+            start = document.offset(line, column);
+            message = (message.substring(0, location.start()) + message.substring(location.end())).trim();
+        }
+        String text = document.getText();
+        int end = start;
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+            end++;
+        }
+        return diagnosticNode(document, start, end, severity, message);
+    }
+
+    private ObjectNode diagnosticNode(TextDocument document, int start, int end, int severity, String message) {
+        ObjectNode diagnostic = mapper.createObjectNode();
+        ObjectNode range = diagnostic.putObject("range");
+        range.set("start", DocumentSymbols.position(mapper, document, start));
+        range.set("end", DocumentSymbols.position(mapper, document, end));
+        diagnostic.put("severity", severity);
+        diagnostic.put("source", "ylang");
+        diagnostic.put("message", message);
+        return diagnostic;
+    }
+
+    private void publishDiagnostics(String uri, Integer version, ArrayNode diagnostics) {
+        ObjectNode message = mapper.createObjectNode();
+        message.put("method", "textDocument/publishDiagnostics");
+        ObjectNode params = message.putObject("params");
+        params.put("uri", uri);
+        if (version != null) {
+            params.put("version", version);
+        }
+        params.set("diagnostics", diagnostics);
+        send(message);
+    }
+
+    private void respond(JsonNode id, JsonNode result) {
+        ObjectNode message = mapper.createObjectNode();
+        message.set("id", id);
+        message.set("result", result);
+        send(message);
+    }
+
+    private void respondError(JsonNode id, int code, String text) {
+        ObjectNode message = mapper.createObjectNode();
+        message.set("id", id);
+        ObjectNode error = message.putObject("error");
+        error.put("code", code);
+        error.put("message", text);
+        send(message);
+    }
+
+    private void send(ObjectNode message) {
+        try {
+            connection.write(message);
+        } catch (IOException e) {
+            System.err.println("ylang-lsp: cannot write to the client: " + e.getMessage());
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.ylang.backend.model;
+
+import java.util.Objects;
+
+/**
+ * Options that change how code is generated for a compilation
+ */
+public class CompileOptions {
+    
+    /**
+     * TypeScript only: emit classes with constructor-initialized fields, Map for maps,
+     * const enums and Float64Array for lists of numbers, so V8 keeps stable object shapes
+     */
+    private boolean shapeStable;
+    
+    public CompileOptions() {}
+    
+    public CompileOptions(boolean shapeStable) {
+        this.shapeStable = shapeStable;
+    }
+    
+    public static CompileOptions defaults() {
+        return new CompileOptions();
+    }
+    
+    public boolean isShapeStable() {
+        return shapeStable;
+    }
+    
+    public void setShapeStable(boolean shapeStable) {
+        this.shapeStable = shapeStable;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompileOptions)) return false;
+        CompileOptions that = (CompileOptions) o;
+        return shapeStable == that.shapeStable;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(shapeStable);
+    }
+    
+    @Override
+    public String toString() {
+        return "CompileOptions{shapeStable=" + shapeStable + "}";
+    }
+}
\ No newline at end of file
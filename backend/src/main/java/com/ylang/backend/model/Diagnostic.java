@@ -0,0 +1,76 @@
+package com.ylang.backend.model;
+
+/**
+ * A problem found in Y language source, with its position and the span of text it covers
+ */
+public class Diagnostic {
+    
+    /** Invalid characters that do not form a token */
+    public static final String LEXICAL_ERROR = "Y1001";
+    
+    /** Tokens that do not fit the grammar */
+    public static final String SYNTAX_ERROR = "Y1002";
+    
+    /** Reporting stopped because the maximum number of errors was reached */
+    public static final String TOO_MANY_ERRORS = "Y1003";
+    
+    private final String code;
+    private final int line;
+    private final int column;
+    private final int startOffset;
+    private final int endOffset;
+    private final String message;
+    
+    public Diagnostic(String code, int line, int column, int startOffset, int endOffset, String message) {
+        this.code = code;
+        this.line = line;
+        this.column = column;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.message = message;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    /**
+     * 1-based line of the start of the span
+     */
+    public int getLine() {
+        return line;
+    }
+    
+    /**
+     * 0-based column of the start of the span
+     */
+    public int getColumn() {
+        return column;
+    }
+    
+    /**
+     * Character offset where the span starts, or -1 when unknown
+     */
+    public int getStartOffset() {
+        return startOffset;
+    }
+    
+    /**
+     * Character offset just past the end of the span, or -1 when unknown
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    /**
+     * The diagnostic in the "Line 3:7 - message" form of the errors lists
+     */
+    @Override
+    public String toString() {
+        return "Line " + line + ":" + column + " - " + message;
+    }
+}
\ No newline at end of file
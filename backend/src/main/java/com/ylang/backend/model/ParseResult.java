@@ -11,25 +11,34 @@ public class ParseResult {
     private final boolean success;
     private final ProgramNode ast;
     private final List<String> errors;
+    private final List<Diagnostic> diagnostics;
     
-    private ParseResult(boolean success, ProgramNode ast, List<String> errors) {
+    private ParseResult(boolean success, ProgramNode ast, List<String> errors, List<Diagnostic> diagnostics) {
         this.success = success;
         this.ast = ast;
-        this.errors = new ArrayList<>(errors);
+        this.errors = errors;
+        this.diagnostics = diagnostics;
     }
     
     public static ParseResult success(ProgramNode ast) {
-        return new ParseResult(true, ast, new ArrayList<>());
+        return new ParseResult(true, ast, new ArrayList<>(), new ArrayList<>());
     }
     
     public static ParseResult failure(List<String> errors) {
-        return new ParseResult(false, null, errors);
+        return new ParseResult(false, null, new ArrayList<>(errors), new ArrayList<>());
+    }
+    
+    /**
+     * Failed parse with structured syntax errors; the errors list is derived from them when asked for
+     */
+    public static ParseResult syntaxErrors(List<Diagnostic> diagnostics) {
+        return new ParseResult(false, null, null, new ArrayList<>(diagnostics));
     }
     
     public static ParseResult failure(String error) {
         List<String> errors = new ArrayList<>();
         errors.add(error);
-        return new ParseResult(false, null, errors);
+        return new ParseResult(false, null, errors, new ArrayList<>());
     }
     
     public boolean isSuccess() {
@@ -41,10 +50,24 @@ public class ParseResult {
     }
     
     public List<String> getErrors() {
+        if (errors == null) {
+            List<String> formatted = new ArrayList<>(diagnostics.size());
+            for (Diagnostic diagnostic : diagnostics) {
+                formatted.add(diagnostic.toString());
+            }
+            return formatted;
+        }
         return new ArrayList<>(errors);
     }
     
+    /**
+     * Structured syntax errors; empty when the failure did not come from the grammar
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return new ArrayList<>(diagnostics);
+    }
+    
     public boolean hasErrors() {
-        return !errors.isEmpty();
+        return errors == null ? !diagnostics.isEmpty() : !errors.isEmpty();
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.ylang.backend.model;
+
+/**
+ * Outcome of running a Y program in the interpreter
+ */
+public class RunResult {
+    private final String output;
+    private final String error;
+    private final String limitExceeded;
+    private final long steps;
+    private final long memoryBytes;
+
+    private RunResult(String output, String error, String limitExceeded, long steps, long memoryBytes) {
+        this.output = output;
+        this.error = error;
+        this.limitExceeded = limitExceeded;
+        this.steps = steps;
+        this.memoryBytes = memoryBytes;
+    }
+
+    public static RunResult completed(String output, long steps, long memoryBytes) {
+        return new RunResult(output, null, null, steps, memoryBytes);
+    }
+
+    public static RunResult failed(String output, String error, long steps, long memoryBytes) {
+        return new RunResult(output, error, null, steps, memoryBytes);
+    }
+
+    public static RunResult stopped(String output, String limit, String error, long steps, long memoryBytes) {
+        return new RunResult(output, error, limit, steps, memoryBytes);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * What the program printed, up to the point it stopped
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * The uncaught runtime error or the exceeded limit, null when the program completed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The sandbox limit that stopped the program: "steps", "memory", "time", "call-depth" or
+     * "output"; null otherwise
+     */
+    public String getLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Statements, loop iterations and calls executed
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Estimated bytes of the strings, lists, maps and structures the program created
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.ylang.backend.model;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Result of type checking a Y language AST
+ */
+public class TypeCheckResult {
+    private final List<String> errors;
+    private final int typedExpressions;
+    private final int cachedFunctions;
+    
+    public TypeCheckResult(List<String> errors, int typedExpressions, int cachedFunctions) {
+        this.errors = new ArrayList<>(errors);
+        this.typedExpressions = typedExpressions;
+        this.cachedFunctions = cachedFunctions;
+    }
+    
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+    
+    public List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+    
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+    
+    /**
+     * Number of expression nodes that received a resolved type
+     */
+    public int getTypedExpressions() {
+        return typedExpressions;
+    }
+    
+    /**
+     * Number of function bodies whose result was replayed from the function cache
+     */
+    public int getCachedFunctions() {
+        return cachedFunctions;
+    }
+}
\ No newline at end of file
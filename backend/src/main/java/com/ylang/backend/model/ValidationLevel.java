@@ -0,0 +1,23 @@
+package com.ylang.backend.model;
+
+/**
+ * How far validation goes; each level includes the checks of the ones before it
+ */
+public enum ValidationLevel {
+    
+    /** Only split the source into tokens */
+    LEXICAL,
+    
+    /** Check the tokens against the grammar without building a parse tree */
+    SYNTAX,
+    
+    /** Build the AST, type check it and collect warnings */
+    FULL;
+    
+    /**
+     * Level named in a request ("lexical", "syntax" or "full"); FULL when none is given
+     */
+    public static ValidationLevel fromString(String level) {
+        return level == null || level.isBlank() ? FULL : valueOf(level.trim().toUpperCase());
+    }
+}
\ No newline at end of file
@@ -41,6 +41,8 @@ public class ASTBuilderVisitor extends YLanguageBaseVisitor<ASTNode> {
             return visit(ctx.returnStatement());
         } else if (ctx.expressionStatement() != null) {
             return visit(ctx.expressionStatement());
+        } else if (ctx.matchStatement() != null) {
+            return visit(ctx.matchStatement());
         }
         // Add more statement types as needed
         
@@ -117,6 +119,43 @@ public class ASTBuilderVisitor extends YLanguageBaseVisitor<ASTNode> {
         return node;
     }
     
+    @Override
+    public LoopStatementNode visitLoopStatement(YLanguageParser.LoopStatementContext ctx) {
+        LoopStatementNode node;
+        BlockNode body = visitBlock(ctx.block());
+        
+        if (ctx.WHILE() == null) {
+            // loop through each item in items
+            String variableName = ctx.identifier(0).getText();
+            ExpressionNode iterable = visitExpression(ctx.expression(0));
+            node = new LoopStatementNode(variableName, iterable, body);
+        } else {
+            // loop with variable i equals a while condition increment i
+            String variableName = ctx.identifier(0).getText();
+            ExpressionNode initializer = visitExpression(ctx.expression(0));
+            ExpressionNode condition = visitExpression(ctx.expression(1));
+            String incrementVar = ctx.identifier(1).getText();
+            node = new LoopStatementNode(variableName, initializer, condition, incrementVar, body);
+        }
+        
+        node.setLocation(ctx.getStart().getLine(), ctx.getStart().getCharPositionInLine());
+        return node;
+    }
+    
+    @Override
+    public MatchStatementNode visitMatchStatement(YLanguageParser.MatchStatementContext ctx) {
+        ExpressionNode expression = visitExpression(ctx.expression());
+        List<MatchStatementNode.MatchCase> cases = new ArrayList<>();
+        
+        for (YLanguageParser.MatchCaseContext caseCtx : ctx.matchCase()) {
+            cases.add(buildMatchCase(caseCtx.matchPattern(), visitBlock(caseCtx.block())));
+        }
+        
+        MatchStatementNode node = new MatchStatementNode(expression, cases);
+        node.setLocation(ctx.getStart().getLine(), ctx.getStart().getCharPositionInLine());
+        return node;
+    }
+    
     @Override
     public ReturnStatementNode visitReturnStatement(YLanguageParser.ReturnStatementContext ctx) {
         ExpressionNode value = ctx.expression() != null ? visitExpression(ctx.expression()) : null;
@@ -257,6 +296,25 @@ public class ASTBuilderVisitor extends YLanguageBaseVisitor<ASTNode> {
     
     // Helper methods
     
+    private MatchStatementNode.MatchCase buildMatchCase(YLanguageParser.MatchPatternContext ctx, BlockNode block) {
+        if (ctx.RANGE() != null) {
+            // range a to b
+            return MatchStatementNode.MatchCase.range(visitExpression(ctx.expression(0)), visitExpression(ctx.expression(1)), block);
+        }
+        if (ctx.GUARD() != null) {
+            // guard n where condition
+            return MatchStatementNode.MatchCase.guard(ctx.expression(0).getText(), visitExpression(ctx.expression(1)), block);
+        }
+        if (ctx.literal() != null) {
+            return MatchStatementNode.MatchCase.literal(visitLiteral(ctx.literal()), block);
+        }
+        
+        String pattern = ctx.identifier(0).getText();
+        TypeNode type = ctx.type() != null ? visitType(ctx.type()) : null;
+        String variableName = ctx.identifier().size() > 1 ? ctx.identifier(1).getText() : null;
+        return new MatchStatementNode.MatchCase(pattern, variableName, type, block);
+    }
+    
     private TypeNode visitType(YLanguageParser.TypeContext ctx) {
         if (ctx == null) return TypeNode.nothingType();
         
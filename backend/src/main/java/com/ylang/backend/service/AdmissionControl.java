@@ -0,0 +1,65 @@
+package com.ylang.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission limits in front of the compiler: one adaptive {@link ConcurrencyLimiter} for
+ * compilations and one for validations, which are cheaper and get more room. Requests the
+ * limiters reject are answered with 429 Too Many Requests instead of queuing on server threads.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final int UNLIMITED = Integer.MAX_VALUE / 2;
+
+    @Value("${ylang.admission.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ylang.admission.compile.initial-limit:0}")
+    private int compileInitialLimit;
+
+    @Value("${ylang.admission.compile.max-limit:256}")
+    private int compileMaxLimit = 256;
+
+    @Value("${ylang.admission.validate.initial-limit:0}")
+    private int validateInitialLimit;
+
+    @Value("${ylang.admission.validate.max-limit:512}")
+    private int validateMaxLimit = 512;
+
+    @Value("${ylang.admission.client-share:0.5}")
+    private double clientShare = 0.5;
+
+    @Value("${ylang.admission.queue-timeout-ms:50}")
+    private long queueTimeoutMs = 50;
+
+    private ConcurrencyLimiter compileLimiter;
+    private ConcurrencyLimiter validateLimiter;
+
+    @PostConstruct
+    void init() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (!enabled) {
+            compileLimiter = new ConcurrencyLimiter("compile", UNLIMITED, UNLIMITED, UNLIMITED, 1.0, 0);
+            validateLimiter = new ConcurrencyLimiter("validate", UNLIMITED, UNLIMITED, UNLIMITED, 1.0, 0);
+            return;
+        }
+        // Without a configured starting point, begin at what the CPUs can run without queuing
+        compileLimiter = new ConcurrencyLimiter("compile",
+            compileInitialLimit > 0 ? compileInitialLimit : 2 * processors,
+            1, compileMaxLimit, clientShare, queueTimeoutMs);
+        validateLimiter = new ConcurrencyLimiter("validate",
+            validateInitialLimit > 0 ? validateInitialLimit : 4 * processors,
+            1, validateMaxLimit, clientShare, queueTimeoutMs);
+    }
+
+    public ConcurrencyLimiter compile() {
+        return compileLimiter;
+    }
+
+    public ConcurrencyLimiter validate() {
+        return validateLimiter;
+    }
+}
\ No newline at end of file
@@ -1,18 +1,36 @@
 package com.ylang.backend.service;
 
+import com.ylang.backend.analysis.FunctionTypeCache;
+import com.ylang.backend.analysis.TypeChecker;
 import com.ylang.backend.ast.ProgramNode;
+import com.ylang.backend.cache.CompileArtifacts;
+import com.ylang.backend.cache.SingleFlight;
 import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.dto.RunResponse;
 import com.ylang.backend.exception.YLanguageParseException;
+import com.ylang.backend.exception.YLanguageUnsupportedException;
+import com.ylang.backend.interpreter.Interpreter;
+import com.ylang.backend.jfr.CompilerEvents;
+import com.ylang.backend.model.CompileOptions;
 import com.ylang.backend.model.ParseResult;
+import com.ylang.backend.model.RunResult;
+import com.ylang.backend.model.TypeCheckResult;
+import com.ylang.backend.model.ValidationLevel;
 import com.ylang.backend.translator.RustTranslator;
 import com.ylang.backend.translator.TypeScriptTranslator;
+import com.ylang.backend.translator.WasmTranslator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
 
 /**
  * Main compilation service that orchestrates parsing and translation
@@ -31,52 +49,240 @@ public class CompilationService {
     @Autowired
     private RustTranslator rustTranslator;
     
+    @Autowired
+    private WasmTranslator wasmTranslator;
+    
+    @Autowired
+    private CompileArtifactCache artifactCache;
+    
+    @Autowired
+    private ProjectRequestTracker requestTracker;
+    
+    @Autowired
+    private Interpreter interpreter;
+    
+    @Value("${ylang.compiler.single-flight:true}")
+    private boolean singleFlightEnabled = true;
+    
+    // Compilations running now, keyed like the artifact cache
+    private final SingleFlight<String, CompileResponse> inFlight = new SingleFlight<>();
+    
+    // Type checking results of function bodies, reused while a function and its callees are unchanged
+    private final FunctionTypeCache functionTypes = new FunctionTypeCache(4096);
+    
+    public CompilationService() {}
+    
+    /**
+     * Service wired by hand, for use without a Spring context (the command-line compiler)
+     */
+    public CompilationService(YLanguageParserService parserService, TypeScriptTranslator typeScriptTranslator,
+                              RustTranslator rustTranslator, CompileArtifactCache artifactCache) {
+        this.parserService = parserService;
+        this.typeScriptTranslator = typeScriptTranslator;
+        this.rustTranslator = rustTranslator;
+        this.wasmTranslator = new WasmTranslator();
+        this.artifactCache = artifactCache;
+        this.requestTracker = new ProjectRequestTracker();
+        this.interpreter = new Interpreter();
+    }
+    
     /**
      * Compile Y language code to the specified target language
      * @param code The Y language source code
-     * @param targetLanguage The target language (rust or typescript)
+     * @param targetLanguage The target language (rust, typescript, wasm or wat)
      * @param projectId Optional project ID for tracking
      * @return CompileResponse with the compiled code or error information
      */
     public CompileResponse compile(String code, String targetLanguage, String projectId) {
+        return compile(code, targetLanguage, projectId, CompileOptions.defaults());
+    }
+    
+    /**
+     * Compile Y language code to the specified target language
+     * @param code The Y language source code
+     * @param targetLanguage The target language (rust, typescript, wasm or wat)
+     * @param projectId Optional project ID; a newer request for the same project supersedes this one
+     * @param options Code generation options, or null for the defaults
+     * @return CompileResponse with the compiled code or error information
+     */
+    public CompileResponse compile(String code, String targetLanguage, String projectId, CompileOptions options) {
+        if (options == null) {
+            options = CompileOptions.defaults();
+        }
         long startTime = System.currentTimeMillis();
+        ProjectRequestTracker.Ticket ticket = requestTracker.begin(projectId);
+        CompilerEvents.Scope scope = CompilerEvents.enter(CompilerEvents.newRequest(projectId));
+        CompilerEvents.Compile event = new CompilerEvents.Compile();
+        event.begin();
+        CompileResponse response = null;
         
         try {
             logger.info("Starting compilation of Y language code to {}", targetLanguage);
             
-            // Step 1: Parse the Y language code
-            logger.debug("Parsing Y language code");
-            ParseResult parseResult = parserService.parse(code);
+            // Output persisted by an earlier run or another instance skips parsing and translation
+            CompileResponse cached = artifactCache.lookup(code, targetLanguage, options);
+            if (cached != null) {
+                logger.debug("Serving compiled code from the artifact cache");
+                cached.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                event.cached = true;
+                response = cached;
+                return response;
+            }
             
-            if (!parseResult.isSuccess()) {
-                logger.error("Parsing failed with {} errors", parseResult.getErrors().size());
+            response = singleFlightEnabled
+                ? compileShared(code, targetLanguage, options, ticket)
+                : compileSource(code, targetLanguage, options, ticket);
+            response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+            return response;
+            
+        } catch (CancellationException e) {
+            logger.debug("Dropping compilation for project {}: {}", projectId, e.getMessage());
+            response = CompileResponse.failure(List.of(e.getMessage()));
+            response.setSuperseded(true);
+            response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+            return response;
+            
+        } catch (YLanguageParseException e) {
+            logger.error("Parse exception during compilation", e);
+            List<String> errors = new ArrayList<>();
+            errors.add("Parse error: " + e.getMessage());
+            long executionTime = System.currentTimeMillis() - startTime;
+            response = CompileResponse.failure(errors);
+            response.setExecutionTimeMs(executionTime);
+            return response;
+            
+        } catch (Exception e) {
+            logger.error("Unexpected error during compilation", e);
+            List<String> errors = new ArrayList<>();
+            errors.add("Unexpected error: " + e.getMessage());
+            long executionTime = System.currentTimeMillis() - startTime;
+            response = CompileResponse.failure(errors);
+            response.setExecutionTimeMs(executionTime);
+            return response;
+            
+        } finally {
+            requestTracker.end(ticket);
+            event.end();
+            if (event.shouldCommit()) {
+                event.sourceSize = code.length();
+                event.targetLanguage = targetLanguage;
+                event.success = response != null && response.isSuccess();
+                event.superseded = response != null && response.isSuperseded();
+                event.commit();
+            }
+            scope.close();
+        }
+    }
+    
+    /**
+     * Compile source that identical requests running at the same time compile only once.
+     * A request whose shared compilation was superseded in another project compiles again.
+     */
+    private CompileResponse compileShared(String code, String targetLanguage, CompileOptions options,
+                                          ProjectRequestTracker.Ticket ticket) {
+        String key = HexFormat.of().formatHex(CompileArtifacts.contentKey(code, targetLanguage, options));
+        while (true) {
+            try {
+                return CompileResponse.copyOf(
+                    inFlight.run(key, () -> compileSource(code, targetLanguage, options, ticket)));
+            } catch (CancellationException e) {
+                ticket.checkpoint();
+                logger.debug("Shared compilation was superseded, compiling again");
+            }
+        }
+    }
+    
+    /**
+     * Parse and compile source, storing a successful result in the artifact cache
+     */
+    private CompileResponse compileSource(String code, String targetLanguage, CompileOptions options,
+                                          ProjectRequestTracker.Ticket ticket) {
+        // Step 1: Parse the Y language code
+        logger.debug("Parsing Y language code");
+        ParseResult parseResult = parserService.parse(code, parserService.getMaxErrors(), ticket::isSuperseded);
+        ticket.checkpoint();
+        
+        if (!parseResult.isSuccess()) {
+            logger.error("Parsing failed with {} errors", parseResult.getErrors().size());
+            CompileResponse response = CompileResponse.failure(parseResult.getErrors());
+            response.setDiagnostics(parseResult.getDiagnostics());
+            return response;
+        }
+        
+        ProgramNode ast = parseResult.getAst();
+        logger.debug("Successfully parsed Y language code into AST");
+        
+        CompileResponse response = compile(ast, targetLanguage, options, ticket);
+        artifactCache.store(code, targetLanguage, options, response);
+        return response;
+    }
+    
+    /**
+     * Compile an already parsed program to the specified target language
+     * @param ast The parsed Y language program
+     * @param targetLanguage The target language (rust, typescript, wasm or wat)
+     * @param options Code generation options, or null for the defaults
+     * @return CompileResponse with the compiled code or error information
+     */
+    public CompileResponse compile(ProgramNode ast, String targetLanguage, CompileOptions options) {
+        return compile(ast, targetLanguage, options, ProjectRequestTracker.untracked());
+    }
+    
+    private CompileResponse compile(ProgramNode ast, String targetLanguage, CompileOptions options,
+                                    ProjectRequestTracker.Ticket ticket) {
+        if (options == null) {
+            options = CompileOptions.defaults();
+        }
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            // Step 2: Type check, attaching resolved types for the translators
+            TypeCheckResult typeCheckResult = typeCheck(ast);
+            
+            if (typeCheckResult.hasErrors()) {
+                logger.error("Type checking failed with {} errors", typeCheckResult.getErrors().size());
                 long executionTime = System.currentTimeMillis() - startTime;
-                CompileResponse response = CompileResponse.failure(parseResult.getErrors());
+                CompileResponse response = CompileResponse.failure(typeCheckResult.getErrors());
                 response.setExecutionTimeMs(executionTime);
                 return response;
             }
             
-            ProgramNode ast = parseResult.getAst();
-            logger.debug("Successfully parsed Y language code into AST");
-            
-            // Step 2: Generate warnings (semantic analysis would go here)
+            // Step 3: Generate warnings
             List<String> warnings = generateWarnings(ast);
+            ticket.checkpoint();
             
-            // Step 3: Translate to target language
+            // Step 4: Translate to target language
             logger.debug("Translating AST to {}", targetLanguage);
             String compiledCode;
+            CompilerEvents.Translate event = new CompilerEvents.Translate();
+            event.begin();
             
             switch (targetLanguage.toLowerCase()) {
                 case "typescript":
-                    compiledCode = typeScriptTranslator.translate(ast);
+                    compiledCode = typeScriptTranslator.translate(ast, options);
                     break;
                 case "rust":
                     compiledCode = rustTranslator.translate(ast);
                     break;
+                case "wasm":
+                    // The binary module, as text the JSON response can carry
+                    compiledCode = Base64.getEncoder().encodeToString(wasmTranslator.assemble(ast));
+                    break;
+                case "wat":
+                    compiledCode = wasmTranslator.translate(ast);
+                    break;
                 default:
                     throw new IllegalArgumentException("Unsupported target language: " + targetLanguage);
             }
             
+            event.end();
+            if (event.shouldCommit()) {
+                event.targetLanguage = targetLanguage;
+                event.statementCount = ast.getStatements().size();
+                event.outputSize = compiledCode.length();
+                event.commit();
+            }
+            
             logger.info("Successfully compiled Y language code to {}", targetLanguage);
             
             long executionTime = System.currentTimeMillis() - startTime;
@@ -86,15 +292,14 @@ public class CompilationService {
             
             return response;
             
-        } catch (YLanguageParseException e) {
-            logger.error("Parse exception during compilation", e);
-            List<String> errors = new ArrayList<>();
-            errors.add("Parse error: " + e.getMessage());
-            long executionTime = System.currentTimeMillis() - startTime;
-            CompileResponse response = CompileResponse.failure(errors);
-            response.setExecutionTimeMs(executionTime);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (YLanguageUnsupportedException e) {
+            // The program uses what the target cannot express
+            logger.debug("Program not supported by {}: {}", targetLanguage, e.getMessage());
+            CompileResponse response = CompileResponse.failure(List.of(e.getMessage()));
+            response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
             return response;
-            
         } catch (Exception e) {
             logger.error("Unexpected error during compilation", e);
             List<String> errors = new ArrayList<>();
@@ -112,21 +317,52 @@ public class CompilationService {
      * @return Validation result with errors and warnings
      */
     public ValidateResponse validate(String code) {
+        return validate(code, false);
+    }
+    
+    /**
+     * Validate Y language code without compiling
+     * @param code The Y language source code
+     * @param failFast Stop at the first error and skip warnings, for a plain valid/invalid answer
+     * @return Validation result with errors and warnings
+     */
+    public ValidateResponse validate(String code, boolean failFast) {
+        return validate(code, failFast, ValidationLevel.FULL);
+    }
+    
+    /**
+     * Validate Y language code without compiling, stopping after the requested level
+     * @param code The Y language source code
+     * @param failFast Stop at the first error and skip warnings, for a plain valid/invalid answer
+     * @param level LEXICAL and SYNTAX skip the parse tree, the AST and all semantic checks
+     * @return Validation result with errors and warnings
+     */
+    public ValidateResponse validate(String code, boolean failFast, ValidationLevel level) {
         long startTime = System.currentTimeMillis();
         
         try {
-            logger.debug("Validating Y language code");
-            ParseResult parseResult = parserService.parse(code);
+            logger.debug("Validating Y language code up to the {} level", level);
+            int maxErrors = failFast ? 1 : parserService.getMaxErrors();
+            ParseResult parseResult = switch (level) {
+                case LEXICAL -> parserService.lex(code, maxErrors);
+                case SYNTAX -> parserService.checkSyntax(code, maxErrors);
+                case FULL -> parserService.parse(code, maxErrors);
+            };
             
-            long executionTime = System.currentTimeMillis() - startTime;
+            if (parseResult.isSuccess() && level != ValidationLevel.FULL) {
+                ValidateResponse response = ValidateResponse.success(new ArrayList<>());
+                response.setValidationTimeMs(System.currentTimeMillis() - startTime);
+                return response;
+            }
             
             if (parseResult.isSuccess()) {
-                List<String> warnings = generateWarnings(parseResult.getAst());
-                ValidateResponse response = ValidateResponse.success(warnings);
-                response.setValidationTimeMs(executionTime);
+                ValidateResponse response = analyze(parseResult.getAst(), failFast);
+                response.setValidationTimeMs(System.currentTimeMillis() - startTime);
                 return response;
             } else {
+                long executionTime = System.currentTimeMillis() - startTime;
                 ValidateResponse response = ValidateResponse.failure(parseResult.getErrors());
+                response.setDiagnostics(parseResult.getDiagnostics());
                 response.setValidationTimeMs(executionTime);
                 return response;
             }
@@ -142,6 +378,55 @@ public class CompilationService {
         }
     }
     
+    /**
+     * Parse, type check and run Y language code in the interpreter
+     * @param code The Y language source code
+     * @return The program's output, or the errors that kept it from running
+     */
+    public RunResponse run(String code) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            ParseResult parseResult = parserService.parse(code);
+            RunResponse response;
+            if (!parseResult.isSuccess()) {
+                response = RunResponse.failure(parseResult.getErrors());
+                response.setDiagnostics(parseResult.getDiagnostics());
+            } else {
+                TypeCheckResult typeCheckResult = typeCheck(parseResult.getAst());
+                if (typeCheckResult.hasErrors()) {
+                    response = RunResponse.failure(typeCheckResult.getErrors());
+                } else {
+                    RunResult result = interpreter.run(parseResult.getAst());
+                    response = RunResponse.of(result);
+                }
+            }
+            response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+            return response;
+            
+        } catch (Exception e) {
+            logger.error("Error while running program", e);
+            RunResponse response = RunResponse.failure(List.of("Run error: " + e.getMessage()));
+            response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+            return response;
+        }
+    }
+    
+    /**
+     * Type check a parsed program and, when it has no type errors, generate its warnings
+     * @param ast The parsed AST
+     * @param failFast Report only the first type error and skip warnings
+     * @return Validation result with type errors or warnings
+     */
+    public ValidateResponse analyze(ProgramNode ast, boolean failFast) {
+        TypeCheckResult typeCheckResult = typeCheck(ast);
+        if (typeCheckResult.hasErrors()) {
+            List<String> errors = typeCheckResult.getErrors();
+            return ValidateResponse.failure(failFast ? errors.subList(0, 1) : errors);
+        }
+        return ValidateResponse.success(failFast ? new ArrayList<>() : generateWarnings(ast));
+    }
+    
     /**
      * Generate warnings from the AST (semantic analysis)
      * @param ast The parsed AST
@@ -155,21 +440,46 @@ public class CompilationService {
         }
 
         // Unreachable code detection within blocks
-        for (var statement : ast.getStatements()) {
-            detectUnreachableInNode(statement, warnings);
-        }
+        runWarningPass("unreachable-code", ast, warnings, this::detectUnreachableInNode);
 
         // Unused variables per block and function
-        for (var statement : ast.getStatements()) {
-            detectUnusedVariables(statement, warnings);
-        }
+        runWarningPass("unused-variables", ast, warnings, this::detectUnusedVariables);
 
         // Simple type issues for constant expressions
+        runWarningPass("literal-types", ast, warnings, this::detectLiteralTypeMismatches);
+
+        return warnings;
+    }
+
+    private void runWarningPass(String name, ProgramNode ast, List<String> warnings,
+                                BiConsumer<com.ylang.backend.ast.ASTNode, List<String>> pass) {
+        CompilerEvents.WarningPass event = new CompilerEvents.WarningPass();
+        event.begin();
+        int before = warnings.size();
         for (var statement : ast.getStatements()) {
-            detectLiteralTypeMismatches(statement, warnings);
+            pass.accept(statement, warnings);
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.pass = name;
+            event.statementCount = ast.getStatements().size();
+            event.warningCount = warnings.size() - before;
+            event.commit();
+        }
+    }
 
-        return warnings;
+    private TypeCheckResult typeCheck(ProgramNode ast) {
+        CompilerEvents.TypeCheck event = new CompilerEvents.TypeCheck();
+        event.begin();
+        TypeCheckResult result = new TypeChecker(functionTypes).check(ast);
+        event.end();
+        if (event.shouldCommit()) {
+            event.statementCount = ast != null ? ast.getStatements().size() : 0;
+            event.errorCount = result.getErrors().size();
+            event.cachedFunctions = result.getCachedFunctions();
+            event.commit();
+        }
+        return result;
     }
 
     private void detectUnreachableInNode(com.ylang.backend.ast.ASTNode node, List<String> warnings) {
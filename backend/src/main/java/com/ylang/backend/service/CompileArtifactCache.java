@@ -0,0 +1,110 @@
+package com.ylang.backend.service;
+
+import com.ylang.backend.cache.CompileArtifacts;
+import com.ylang.backend.cache.DiskArtifactCache;
+import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.model.CompileOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Compiled outputs persisted in a {@link DiskArtifactCache}, so restarts and other replicas
+ * pointed at the same directory start warm. Disabled when no directory is configured; disk
+ * errors are logged and treated as cache misses.
+ */
+@Component
+public class CompileArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompileArtifactCache.class);
+
+    @Value("${ylang.cache.directory:}")
+    private String directory;
+
+    @Value("${ylang.cache.segment-size:67108864}")
+    private long segmentSize;
+
+    @Value("${ylang.cache.max-size:1073741824}")
+    private long maxSize;
+
+    private DiskArtifactCache cache;
+
+    public CompileArtifactCache() {}
+
+    /**
+     * Cache over an already opened store, or disabled when it is null
+     */
+    public CompileArtifactCache(DiskArtifactCache cache) {
+        this.cache = cache;
+    }
+
+    @PostConstruct
+    void open() {
+        if (directory == null || directory.isBlank()) {
+            return;
+        }
+        try {
+            // Without a translator version the cache could serve output of another build
+            CompileArtifacts.translatorVersion();
+            cache = new DiskArtifactCache(Path.of(directory), segmentSize, maxSize);
+            logger.info("Opened compile artifact cache at {} with {} entries", directory, cache.size());
+        } catch (IOException e) {
+            logger.warn("Cannot open compile artifact cache at {}, continuing without it", directory, e);
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Previously compiled output for the same source, target, options and translator, or null
+     */
+    public CompileResponse lookup(String code, String targetLanguage, CompileOptions options) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            byte[] value = cache.get(CompileArtifacts.key(code, targetLanguage, options));
+            CompileArtifacts.Artifact artifact = value != null ? CompileArtifacts.decode(value) : null;
+            if (artifact == null) {
+                return null;
+            }
+            CompileResponse response = CompileResponse.success(artifact.compiledCode(), null);
+            response.setWarnings(artifact.warnings());
+            return response;
+        } catch (IOException e) {
+            logger.warn("Compile artifact cache read failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Persist a successful compilation
+     */
+    public void store(String code, String targetLanguage, CompileOptions options, CompileResponse response) {
+        if (cache == null || !response.isSuccess()) {
+            return;
+        }
+        try {
+            byte[] value = CompileArtifacts.encode(
+                new CompileArtifacts.Artifact(response.getCompiledCode(), response.getWarnings()));
+            cache.put(CompileArtifacts.key(code, targetLanguage, options), value);
+        } catch (IOException e) {
+            logger.warn("Compile artifact cache write failed", e);
+        }
+    }
+}
\ No newline at end of file
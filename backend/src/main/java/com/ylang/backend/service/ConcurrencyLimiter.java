@@ -0,0 +1,195 @@
+package com.ylang.backend.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit on the number of requests running at once.
+ *
+ * The limit follows observed latency: a long-term average of request latencies is compared with
+ * each new latency, and while new requests take longer than the average allows (work is queuing
+ * somewhere) the limit shrinks; while they do not, it grows by a small queue allowance. Requests
+ * over the limit wait briefly for a permit and are then rejected. Each client may hold only a
+ * share of the limit, so one client cannot take all capacity.
+ */
+public class ConcurrencyLimiter {
+
+    // Latency may exceed the long-term average by this factor before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    // Weight of a new sample in the long-term latency average
+    private static final double LONG_TERM_WEIGHT = 0.05;
+    // Weight of a new estimate in the limit, to damp oscillation
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double clientShare;
+    private final long queueTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<String, Integer> inFlightByClient = new HashMap<>();
+    private double limit;
+    private double longTermLatencyNanos;
+    private int inFlight;
+    private long rejected;
+
+    /**
+     * A granted slot; release it exactly once when the request finishes
+     */
+    public final class Permit {
+        private final String client;
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private boolean done;
+
+        private Permit(String client, int inFlightAtStart) {
+            this.client = client;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release() {
+            lock.lock();
+            try {
+                if (done) {
+                    return;
+                }
+                done = true;
+                inFlight--;
+                inFlightByClient.computeIfPresent(client, (key, count) -> count > 1 ? count - 1 : null);
+                update(System.nanoTime() - startNanos, inFlightAtStart);
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param name Name used in messages
+     * @param initialLimit Limit until latency has been observed
+     * @param minLimit Lowest the limit may shrink to
+     * @param maxLimit Highest the limit may grow to
+     * @param clientShare Fraction of the limit one client may hold, at least one request
+     * @param queueTimeoutMs How long a request waits for a permit before being rejected
+     */
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double clientShare,
+                              long queueTimeoutMs) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.clientShare = clientShare;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+    }
+
+    /**
+     * Get a permit, waiting up to the queue timeout for one
+     * @param client Key of the client, such as its project ID or address
+     * @return The permit, or null when the request should be rejected
+     */
+    public Permit tryAcquire(String client) throws InterruptedException {
+        long deadline = System.nanoTime() + queueTimeoutNanos;
+        lock.lock();
+        try {
+            while (!admits(client)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected++;
+                    return null;
+                }
+                released.awaitNanos(remaining);
+            }
+            inFlight++;
+            inFlightByClient.merge(client, 1, Integer::sum);
+            return new Permit(client, inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Seconds a rejected client should wait before retrying: about the time to drain the current load
+     */
+    public long retryAfterSeconds() {
+        lock.lock();
+        try {
+            double drainNanos = longTermLatencyNanos * Math.max(1, inFlight) / Math.max(1, limit);
+            return Math.max(1, (long) Math.ceil(drainNanos / TimeUnit.SECONDS.toNanos(1)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adjust the limit for a request that took latencyNanos with inFlightAtStart requests running
+     */
+    void record(long latencyNanos, int inFlightAtStart) {
+        lock.lock();
+        try {
+            update(latencyNanos, inFlightAtStart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admits(String client) {
+        int currentLimit = (int) limit;
+        if (inFlight >= currentLimit) {
+            return false;
+        }
+        int clientLimit = Math.max(1, (int) (currentLimit * clientShare));
+        return inFlightByClient.getOrDefault(client, 0) < clientLimit;
+    }
+
+    private void update(long latencyNanos, int inFlightAtStart) {
+        if (longTermLatencyNanos == 0) {
+            longTermLatencyNanos = latencyNanos;
+            return;
+        }
+        longTermLatencyNanos += (latencyNanos - longTermLatencyNanos) * LONG_TERM_WEIGHT;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longTermLatencyNanos / Math.max(1, latencyNanos)));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        // Only grow while the limit is actually being used; an idle service says nothing about capacity
+        if (estimate > limit && inFlightAtStart < limit / 2) {
+            return;
+        }
+        limit = Math.min(maxLimit, Math.max(minLimit, limit * (1 - SMOOTHING) + estimate * SMOOTHING));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,268 @@
+package com.ylang.backend.service;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.Arrays;
+
+/**
+ * Lexes Y source into packed token arrays and re-lexes only the part an edit can change.
+ *
+ * Tokens are stored as [type, start, length] triples with UTF-16 offsets, as editors count them.
+ * For each token the lexer's lookahead is recorded as well: how far past its start the lexer
+ * looked to produce it (skipped whitespace and comments before it included). After an edit,
+ * lexing restarts at the first token whose lookahead reached the edited text, and stops as soon
+ * as a new token ends where an old token ended after the edit, since the lexer has no modes and
+ * from there on produces the old tokens again, shifted by the edit's change in length.
+ */
+final class IncrementalLexer {
+
+    /** Ints per token in the packed arrays sent to clients: type, start, length */
+    static final int STRIDE = 3;
+
+    /**
+     * Tokens of a text plus the lookahead end of each one
+     */
+    static final class Tokens {
+        final int[] packed;
+        final int[] lookahead;
+        final int count;
+
+        Tokens(int[] packed, int[] lookahead, int count) {
+            this.packed = packed;
+            this.lookahead = lookahead;
+            this.count = count;
+        }
+
+        int end(int index) {
+            return packed[index * STRIDE + 1] + packed[index * STRIDE + 2];
+        }
+
+        /**
+         * Packed [type, start, length] triples of tokens from..to (exclusive)
+         */
+        int[] slice(int from, int to) {
+            return Arrays.copyOfRange(packed, from * STRIDE, to * STRIDE);
+        }
+    }
+
+    /**
+     * Result of re-lexing after an edit: tokens first..first+removed were replaced by the new ones
+     */
+    static final class Relex {
+        final Tokens tokens;
+        final int firstToken;
+        final int removedTokens;
+        final int insertedTokens;
+
+        Relex(Tokens tokens, int firstToken, int removedTokens, int insertedTokens) {
+            this.tokens = tokens;
+            this.firstToken = firstToken;
+            this.removedTokens = removedTokens;
+            this.insertedTokens = insertedTokens;
+        }
+    }
+
+    private IncrementalLexer() {
+    }
+
+    /**
+     * Lex a whole text
+     */
+    static Tokens lex(String text) {
+        Builder builder = new Builder(Math.max(16, text.length() / 4));
+        lexFrom(text, 0, builder, null, 0, 0);
+        return builder.build();
+    }
+
+    /**
+     * Re-lex after replacing deleteLength characters at offset with the inserted text
+     * @param newText The text after the edit
+     */
+    static Relex relex(Tokens old, String newText, int offset, int deleteLength, int insertLength) {
+        int delta = insertLength - deleteLength;
+
+        // First token whose lexing looked at the edited text; earlier tokens are unaffected
+        int first = 0;
+        while (first < old.count && old.lookahead[first] <= offset) {
+            first++;
+        }
+        int restart = first == 0 ? 0 : old.end(first - 1);
+
+        Builder builder = new Builder(old.count + 16);
+        builder.append(old, 0, first, 0);
+        int resume = lexFrom(newText, restart, builder, old, offset + insertLength, delta);
+        int inserted = builder.count - first;
+        builder.append(old, resume, old.count, delta);
+        return new Relex(builder.build(), first, resume - first, inserted);
+    }
+
+    /**
+     * Lex from a position; with old tokens given, stop once the new tokens line up with them again
+     * @return Index of the first old token that is kept after the new ones
+     */
+    private static int lexFrom(String text, int position, Builder builder, Tokens old, int editEnd, int delta) {
+        LookaheadCharStream input = new LookaheadCharStream(text);
+        input.seek(position);
+        YLanguageLexer lexer = new YLanguageLexer(input);
+        lexer.removeErrorListeners();
+
+        while (true) {
+            input.resetLookahead();
+            Token token = lexer.nextToken();
+            if (token.getType() == Token.EOF) {
+                return old == null ? 0 : old.count;
+            }
+            int start = token.getStartIndex();
+            int end = token.getStopIndex() + 1;
+            builder.add(token.getType(), start, end - start, input.lookaheadEnd());
+
+            // The lexer restarts here with no other state, so matching old boundaries means resync
+            if (old != null && end >= editEnd) {
+                int resume = findTokenEnding(old, end - delta);
+                if (resume >= 0) {
+                    return resume + 1;
+                }
+            }
+        }
+    }
+
+    private static int findTokenEnding(Tokens tokens, int end) {
+        int low = 0;
+        int high = tokens.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midEnd = tokens.end(mid);
+            if (midEnd < end) {
+                low = mid + 1;
+            } else if (midEnd > end) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Growable packed arrays
+     */
+    private static final class Builder {
+        int[] packed;
+        int[] lookahead;
+        int count;
+
+        Builder(int capacity) {
+            packed = new int[capacity * STRIDE];
+            lookahead = new int[capacity];
+        }
+
+        void add(int type, int start, int length, int lookaheadEnd) {
+            if (count == lookahead.length) {
+                packed = Arrays.copyOf(packed, packed.length * 2);
+                lookahead = Arrays.copyOf(lookahead, lookahead.length * 2);
+            }
+            packed[count * STRIDE] = type;
+            packed[count * STRIDE + 1] = start;
+            packed[count * STRIDE + 2] = length;
+            lookahead[count] = lookaheadEnd;
+            count++;
+        }
+
+        void append(Tokens tokens, int from, int to, int shift) {
+            for (int i = from; i < to; i++) {
+                add(tokens.packed[i * STRIDE], tokens.packed[i * STRIDE + 1] + shift,
+                    tokens.packed[i * STRIDE + 2], tokens.lookahead[i] + shift);
+            }
+        }
+
+        Tokens build() {
+            return new Tokens(packed, lookahead, count);
+        }
+    }
+
+    /**
+     * Character stream over UTF-16 units that records the furthest position the lexer looked at
+     */
+    private static final class LookaheadCharStream implements CharStream {
+        private final String text;
+        private int index;
+        private int lookaheadEnd;
+
+        LookaheadCharStream(String text) {
+            this.text = text;
+        }
+
+        void resetLookahead() {
+            lookaheadEnd = index;
+        }
+
+        /**
+         * One past the furthest position looked at since the last reset
+         */
+        int lookaheadEnd() {
+            return lookaheadEnd;
+        }
+
+        @Override
+        public int LA(int i) {
+            if (i == 0) {
+                return 0;
+            }
+            int position = i > 0 ? index + i - 1 : index + i;
+            if (i > 0) {
+                lookaheadEnd = Math.max(lookaheadEnd, position + 1);
+            }
+            if (position < 0 || position >= text.length()) {
+                return IntStream.EOF;
+            }
+            return text.charAt(position);
+        }
+
+        @Override
+        public void consume() {
+            if (index >= text.length()) {
+                throw new IllegalStateException("cannot consume EOF");
+            }
+            index++;
+        }
+
+        @Override
+        public int mark() {
+            return -1;
+        }
+
+        @Override
+        public void release(int marker) {
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public void seek(int index) {
+            this.index = Math.min(index, text.length());
+        }
+
+        @Override
+        public int size() {
+            return text.length();
+        }
+
+        @Override
+        public String getSourceName() {
+            return IntStream.UNKNOWN_SOURCE_NAME;
+        }
+
+        @Override
+        public String getText(Interval interval) {
+            int start = Math.min(interval.a, text.length());
+            int stop = Math.min(interval.b + 1, text.length());
+            return start >= stop ? "" : text.substring(start, stop);
+        }
+    }
+}
\ No newline at end of file
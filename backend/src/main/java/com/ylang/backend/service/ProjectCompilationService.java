@@ -0,0 +1,218 @@
+package com.ylang.backend.service;
+
+import com.ylang.backend.analysis.ModuleGraph;
+import com.ylang.backend.ast.ProgramNode;
+import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.dto.ProjectCompileResponse;
+import com.ylang.backend.jfr.CompilerEvents;
+import com.ylang.backend.model.CompileOptions;
+import com.ylang.backend.model.ParseResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles a project of several Y language files.
+ *
+ * Files are parsed in parallel, their imports are resolved into a {@link ModuleGraph}, and the
+ * modules are compiled level by level with every level in parallel. Each module's result is
+ * cached under a fingerprint of its source, the fingerprints of its dependencies, the target and
+ * the options, so an unchanged module whose dependencies are unchanged is not compiled again.
+ */
+@Service
+public class ProjectCompilationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectCompilationService.class);
+
+    @Autowired
+    private YLanguageParserService parserService;
+
+    @Autowired
+    private CompilationService compilationService;
+
+    @Value("${ylang.translator.cache-enabled:true}")
+    private boolean cacheEnabled = true;
+
+    @Value("${ylang.translator.cache-size:1000}")
+    private int cacheSize = 1000;
+
+    // Least recently used module results keyed by fingerprint
+    private final Map<String, CompileResponse> moduleCache = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompileResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+
+    /**
+     * Compile every file of a project to the specified target language
+     * @param files Source of every file keyed by its path
+     * @param targetLanguage The target language (rust or typescript)
+     * @param projectId Optional project ID for tracking
+     * @param options Code generation options, or null for the defaults
+     * @return ProjectCompileResponse with one result per module
+     */
+    public ProjectCompileResponse compile(Map<String, String> files, String targetLanguage, String projectId,
+                                          CompileOptions options) {
+        if (options == null) {
+            options = CompileOptions.defaults();
+        }
+        long startTime = System.currentTimeMillis();
+        CompilerEvents.Request request = CompilerEvents.newRequest(projectId);
+        logger.info("Starting compilation of project {} with {} files to {}", projectId, files.size(), targetLanguage);
+
+        ProjectCompileResponse response = new ProjectCompileResponse();
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+
+        // Step 1: Name every module after its file
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            String module = moduleName(file.getKey());
+            if (sources.putIfAbsent(module, file.getValue()) != null) {
+                errors.add("Module '" + module + "' is defined by more than one file");
+            }
+        }
+
+        // Step 2: Parse all files in parallel
+        Map<String, ParseResult> parsed = new ConcurrentHashMap<>();
+        sources.entrySet().parallelStream()
+            .forEach(entry -> {
+                parsed.put(entry.getKey(), CompilerEvents.call(request, () -> parserService.parse(entry.getValue())));
+            });
+
+        Map<String, ProgramNode> programs = new LinkedHashMap<>();
+        Map<String, CompileResponse> results = new ConcurrentHashMap<>();
+        for (String module : sources.keySet()) {
+            ParseResult parseResult = parsed.get(module);
+            if (parseResult.isSuccess()) {
+                programs.put(module, parseResult.getAst());
+            } else {
+                // Keep the module in the graph so its importers resolve it and fail with it
+                programs.put(module, new ProgramNode(new ArrayList<>()));
+                CompileResponse failure = CompileResponse.failure(parseResult.getErrors());
+                failure.setDiagnostics(parseResult.getDiagnostics());
+                results.put(module, failure);
+            }
+        }
+
+        // Step 3: Resolve imports into the build order
+        ModuleGraph graph = ModuleGraph.build(programs);
+        errors.addAll(graph.getConflicts());
+        for (List<String> cycle : graph.getCycles()) {
+            errors.add("Import cycle: " + String.join(" -> ", cycle) + " -> " + cycle.get(0));
+        }
+        for (String module : graph.getBlocked()) {
+            results.putIfAbsent(module, CompileResponse.failure(
+                List.of("Module '" + module + "' is on or depends on an import cycle")));
+        }
+        for (String module : programs.keySet()) {
+            for (String external : graph.getExternalImports(module)) {
+                warnings.add("Import '" + external + "' in module '" + module + "' is not part of the project");
+            }
+        }
+
+        // Step 4: Compile level by level, the modules of a level in parallel
+        Map<String, String> fingerprints = new ConcurrentHashMap<>();
+        List<String> cached = Collections.synchronizedList(new ArrayList<>());
+        final CompileOptions compileOptions = options;
+        for (List<String> level : graph.getLevels()) {
+            level.parallelStream().forEach(module -> {
+                if (results.containsKey(module)) {
+                    return;
+                }
+                for (String dependency : graph.getDependencies(module)) {
+                    if (!fingerprints.containsKey(dependency)) {
+                        results.put(module, CompileResponse.failure(
+                            List.of("Dependency '" + dependency + "' of module '" + module + "' failed to compile")));
+                        return;
+                    }
+                }
+
+                String fingerprint = fingerprint(sources.get(module), graph, module, fingerprints,
+                                                 targetLanguage, compileOptions);
+                CompileResponse result = cacheEnabled ? moduleCache.get(fingerprint) : null;
+                if (result != null) {
+                    // Every response gets its own copy, which callers are free to change
+                    result = CompileResponse.copyOf(result);
+                    cached.add(module);
+                } else {
+                    result = CompilerEvents.call(request,
+                        () -> compilationService.compile(programs.get(module), targetLanguage, compileOptions));
+                    if (cacheEnabled && result.isSuccess()) {
+                        // Without the AST, which would otherwise stay reachable for as long as the entry
+                        CompileResponse entry = CompileResponse.copyOf(result);
+                        entry.setAst(null);
+                        moduleCache.put(fingerprint, entry);
+                    }
+                }
+                results.put(module, result);
+                if (result.isSuccess()) {
+                    fingerprints.put(module, fingerprint);
+                }
+            });
+        }
+
+        Map<String, CompileResponse> modules = new LinkedHashMap<>();
+        boolean success = errors.isEmpty();
+        for (String module : sources.keySet()) {
+            CompileResponse result = results.get(module);
+            modules.put(module, result);
+            success &= result.isSuccess();
+        }
+
+        response.setSuccess(success);
+        response.setModules(modules);
+        response.setBuildLevels(graph.getLevels());
+        response.setCachedModules(cached);
+        response.setErrors(errors);
+        response.setWarnings(warnings);
+        response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+        logger.info("Compiled project {}: {} modules, {} levels, {} from cache", projectId,
+                    modules.size(), graph.getLevels().size(), cached.size());
+        return response;
+    }
+
+    /**
+     * Module name of a file: its name without directories and extension
+     */
+    static String moduleName(String path) {
+        String name = path.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1);
+        int dot = name.indexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Hash of everything a module's output depends on
+     */
+    private static String fingerprint(String source, ModuleGraph graph, String module, Map<String, String> fingerprints,
+                                      String targetLanguage, CompileOptions options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((targetLanguage.toLowerCase() + "\n" + options + "\n").getBytes(StandardCharsets.UTF_8));
+            for (String dependency : new TreeSet<>(graph.getDependencies(module))) {
+                digest.update((dependency + "=" + fingerprints.get(dependency) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.ylang.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest-wins tracking of in-flight requests per project.
+ *
+ * Beginning a request for a project supersedes the one still running for it; the superseded
+ * request stops at its next checkpoint, since only the newest result is shown to the user.
+ * Requests without a project ID are never superseded.
+ */
+@Component
+public class ProjectRequestTracker {
+
+    private static final Ticket UNTRACKED = new Ticket(null);
+
+    @Value("${ylang.compiler.latest-wins:true}")
+    private boolean enabled = true;
+
+    private final Map<String, Ticket> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Handle of one request, checked by the work done for it
+     */
+    public static final class Ticket {
+        private final String projectId;
+        private volatile boolean superseded;
+
+        private Ticket(String projectId) {
+            this.projectId = projectId;
+        }
+
+        public boolean isSuperseded() {
+            return superseded;
+        }
+
+        /**
+         * Stop the work of a superseded request
+         * @throws CancellationException when a newer request for the project has begun
+         */
+        public void checkpoint() {
+            if (superseded) {
+                throw new CancellationException("Superseded by a newer request for project '" + projectId + "'");
+            }
+        }
+    }
+
+    /**
+     * Ticket of work that is never superseded
+     */
+    public static Ticket untracked() {
+        return UNTRACKED;
+    }
+
+    /**
+     * Begin a request, superseding the one in flight for the same project
+     * @param projectId Project ID, or null for an untracked request
+     */
+    public Ticket begin(String projectId) {
+        if (!enabled || projectId == null || projectId.isEmpty()) {
+            return UNTRACKED;
+        }
+        Ticket ticket = new Ticket(projectId);
+        Ticket previous = inFlight.put(projectId, ticket);
+        if (previous != null) {
+            previous.superseded = true;
+        }
+        return ticket;
+    }
+
+    /**
+     * Finish a request; a newer request for the project stays tracked
+     */
+    public void end(Ticket ticket) {
+        if (ticket.projectId != null) {
+            inFlight.remove(ticket.projectId, ticket);
+        }
+    }
+
+    /**
+     * Number of projects with a request in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
\ No newline at end of file
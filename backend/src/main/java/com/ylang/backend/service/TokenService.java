@@ -0,0 +1,153 @@
+package com.ylang.backend.service;
+
+import com.ylang.backend.dto.TokenResponse;
+import org.antlr.v4.runtime.Vocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token streams for editor highlighting, produced by the real {@link YLanguageLexer}.
+ *
+ * Documents tokenized with an ID are kept (least recently used ones are dropped) so that edits
+ * to them are re-lexed by {@link IncrementalLexer} and only the changed tokens are returned.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    @Value("${ylang.tokens.max-documents:1000}")
+    private int maxDocuments = 1000;
+
+    @Value("${ylang.parser.max-file-size:1048576}")
+    private int maxFileSize = 1048576;
+
+    /**
+     * Text and tokens of a document at a version
+     */
+    private static final class Document {
+        String text;
+        IncrementalLexer.Tokens tokens;
+        long version;
+    }
+
+    // Least recently used documents keyed by ID
+    private final Map<String, Document> documents = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+                return size() > maxDocuments;
+            }
+        });
+
+    /**
+     * Tokenize a whole document, replacing what is kept for its ID
+     * @param documentId Document ID, or null to tokenize without keeping the document
+     * @param text The document text
+     * @return TokenResponse with all tokens
+     */
+    public TokenResponse tokenize(String documentId, String text) {
+        long startTime = System.nanoTime();
+        if (text.length() > maxFileSize) {
+            return TokenResponse.failure(documentId, "Document exceeds the maximum size of " + maxFileSize + " characters");
+        }
+
+        Document document = new Document();
+        document.text = text;
+        document.tokens = IncrementalLexer.lex(text);
+        document.version = 1;
+        if (documentId != null) {
+            Document previous = documents.get(documentId);
+            if (previous != null) {
+                synchronized (previous) {
+                    document.version = previous.version + 1;
+                }
+            }
+            documents.put(documentId, document);
+        }
+
+        TokenResponse response = response(documentId, document, startTime);
+        response.setFull(true);
+        response.setTokens(document.tokens.slice(0, document.tokens.count));
+        return response;
+    }
+
+    /**
+     * Apply an edit to a kept document and re-lex the part of it that can have changed
+     * @param documentId Document ID
+     * @param version Version the edit applies to
+     * @param offset Offset of the edit
+     * @param deleteLength Number of characters replaced
+     * @param insertText Text inserted at the offset
+     * @return TokenResponse with the replaced token range, or one asking for a resync
+     */
+    public TokenResponse applyEdit(String documentId, long version, int offset, int deleteLength, String insertText) {
+        long startTime = System.nanoTime();
+        Document document = documents.get(documentId);
+        if (document == null) {
+            TokenResponse response = TokenResponse.failure(documentId, "Unknown document '" + documentId + "'");
+            response.setResyncRequired(true);
+            return response;
+        }
+
+        synchronized (document) {
+            if (document.version != version) {
+                TokenResponse response = TokenResponse.failure(documentId,
+                    "Document is at version " + document.version + ", not " + version);
+                response.setResyncRequired(true);
+                return response;
+            }
+            if (offset + deleteLength > document.text.length()) {
+                return TokenResponse.failure(documentId, "Edit range ends past the end of the document");
+            }
+            if (document.text.length() - deleteLength + insertText.length() > maxFileSize) {
+                return TokenResponse.failure(documentId, "Document exceeds the maximum size of " + maxFileSize + " characters");
+            }
+
+            String text = document.text.substring(0, offset) + insertText + document.text.substring(offset + deleteLength);
+            IncrementalLexer.Relex relex = IncrementalLexer.relex(document.tokens, text, offset, deleteLength,
+                                                                  insertText.length());
+            document.text = text;
+            document.tokens = relex.tokens;
+            document.version++;
+
+            TokenResponse response = response(documentId, document, startTime);
+            response.setFirstToken(relex.firstToken);
+            response.setRemovedTokens(relex.removedTokens);
+            response.setTokens(relex.tokens.slice(relex.firstToken, relex.firstToken + relex.insertedTokens));
+            logger.debug("Re-lexed {} tokens of document {} for an edit at {}", relex.insertedTokens, documentId, offset);
+            return response;
+        }
+    }
+
+    /**
+     * Name of every token type, indexed by type
+     */
+    public List<String> getTokenTypes() {
+        Vocabulary vocabulary = YLanguageLexer.VOCABULARY;
+        List<String> types = new ArrayList<>();
+        for (int type = 0; type <= vocabulary.getMaxTokenType(); type++) {
+            String name = vocabulary.getSymbolicName(type);
+            types.add(name != null ? name : vocabulary.getDisplayName(type));
+        }
+        return types;
+    }
+
+    private static TokenResponse response(String documentId, Document document, long startTime) {
+        TokenResponse response = new TokenResponse();
+        response.setSuccess(true);
+        response.setDocumentId(documentId);
+        response.setVersion(document.version);
+        response.setTokenCount(document.tokens.count);
+        response.setExecutionTimeMs((System.nanoTime() - startTime) / 1_000_000);
+        return response;
+    }
+}
\ No newline at end of file
@@ -3,17 +3,26 @@ package com.ylang.backend.service;
 import com.ylang.backend.ast.ASTNode;
 import com.ylang.backend.ast.ProgramNode;
 import com.ylang.backend.exception.YLanguageParseException;
+import com.ylang.backend.jfr.CompilerEvents;
+import com.ylang.backend.model.Diagnostic;
 import com.ylang.backend.model.ParseResult;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 /**
  * Service for parsing Y language source code into AST
@@ -23,47 +32,175 @@ public class YLanguageParserService {
     
     private static final Logger logger = LoggerFactory.getLogger(YLanguageParserService.class);
     
+    /** Default number of syntax errors after which parsing stops */
+    public static final int DEFAULT_MAX_ERRORS = 100;
+    
+    @Value("${ylang.parser.max-errors:" + DEFAULT_MAX_ERRORS + "}")
+    private int maxErrors = DEFAULT_MAX_ERRORS;
+    
+    /**
+     * Configured number of syntax errors after which parsing stops
+     */
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+    
     /**
      * Parse Y language source code into an AST
      * @param sourceCode The Y language source code
      * @return ParseResult containing the AST or error information
      */
     public ParseResult parse(String sourceCode) {
+        return parse(sourceCode, maxErrors);
+    }
+    
+    /**
+     * Parse Y language source code into an AST, stopping after a number of syntax errors.
+     * With a limit of 1 the source is first parsed with SLL prediction and no error recovery,
+     * which is the fastest way to accept valid input; only input that fails that pass is parsed
+     * again with full LL prediction to find the first error.
+     * @param sourceCode The Y language source code
+     * @param maxErrors Number of errors after which parsing stops
+     * @return ParseResult containing the AST or error information
+     */
+    public ParseResult parse(String sourceCode, int maxErrors) {
+        return run(sourceCode, maxErrors, true, null);
+    }
+    
+    /**
+     * Parse Y language source code into an AST, abandoning the parse once it is no longer wanted
+     * @param sourceCode The Y language source code
+     * @param maxErrors Number of errors after which parsing stops
+     * @param cancelled Polled while parsing; when it returns true the parse stops
+     * @return ParseResult containing the AST or error information
+     * @throws CancellationException when the parse was cancelled
+     */
+    public ParseResult parse(String sourceCode, int maxErrors, BooleanSupplier cancelled) {
+        return run(sourceCode, maxErrors, true, cancelled);
+    }
+    
+    /**
+     * Check the source against the grammar without building a parse tree or an AST.
+     * A successful result has no AST.
+     * @param sourceCode The Y language source code
+     * @param maxErrors Number of errors after which checking stops
+     * @return ParseResult with the syntax errors, if any
+     */
+    public ParseResult checkSyntax(String sourceCode, int maxErrors) {
+        return run(sourceCode, maxErrors, false, null);
+    }
+    
+    /**
+     * Only split the source into tokens, reporting characters that do not form one.
+     * A successful result has no AST.
+     * @param sourceCode The Y language source code
+     * @param maxErrors Number of errors after which lexing stops
+     * @return ParseResult with the lexical errors, if any
+     */
+    public ParseResult lex(String sourceCode, int maxErrors) {
+        YLanguageErrorListener errorListener = new YLanguageErrorListener(Math.max(1, maxErrors));
+        YLanguageLexer lexer = new YLanguageLexer(CharStreams.fromString(sourceCode));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+        CompilerEvents.Lex event = new CompilerEvents.Lex();
+        event.begin();
+        int tokenCount = 0;
+        try {
+            // Tokens are dropped as they are produced, nothing is buffered
+            while (lexer.nextToken().getType() != Token.EOF) {
+                tokenCount++;
+            }
+        } catch (ParseCancellationException e) {
+            // The error limit was reached, the listener holds what was collected
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sourceSize = sourceCode.length();
+            event.tokenCount = tokenCount;
+            event.commit();
+        }
+        return errorListener.hasErrors() ? ParseResult.syntaxErrors(errorListener.getDiagnostics())
+                                         : ParseResult.success(null);
+    }
+    
+    private ParseResult run(String sourceCode, int maxErrors, boolean buildTree, BooleanSupplier cancelled) {
         try {
             logger.debug("Starting to parse Y language source code");
             
-            // Create ANTLR input stream
-            CharStream input = CharStreams.fromString(sourceCode);
-            
-            // Create lexer
-            YLanguageLexer lexer = new YLanguageLexer(input);
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            
-            // Create parser
-            YLanguageParser parser = new YLanguageParser(tokens);
+            YLanguageParser.ProgramContext programContext = null;
+            YLanguageErrorListener errorListener = new YLanguageErrorListener(Math.max(1, maxErrors));
+            boolean accepted = false;
             
-            // Set up error handling
-            parser.removeErrorListeners();
-            YLanguageErrorListener errorListener = new YLanguageErrorListener();
-            parser.addErrorListener(errorListener);
+            if (maxErrors <= 1) {
+                CompilerEvents.Parse event = new CompilerEvents.Parse();
+                YLanguageParser parser = null;
+                try {
+                    parser = createParser(sourceCode, new BailingLexerListener());
+                    parser.setBuildParseTree(buildTree);
+                    if (cancelled != null) {
+                        parser.addParseListener(new CancellationCheck(cancelled));
+                    }
+                    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+                    parser.setErrorHandler(new BailErrorStrategy());
+                    event.begin();
+                    programContext = parser.program();
+                    accepted = true;
+                } catch (ParseCancellationException e) {
+                    // Invalid, or needs full LL prediction: decided by the second pass
+                } finally {
+                    commit(event, sourceCode, parser, "SLL", accepted ? 0 : 1, accepted);
+                }
+            }
             
-            // Parse the program
-            YLanguageParser.ProgramContext programContext = parser.program();
+            if (!accepted) {
+                CompilerEvents.Parse event = new CompilerEvents.Parse();
+                YLanguageParser parser = null;
+                try {
+                    parser = createParser(sourceCode, errorListener);
+                    parser.setBuildParseTree(buildTree);
+                    if (cancelled != null) {
+                        parser.addParseListener(new CancellationCheck(cancelled));
+                    }
+                    parser.addErrorListener(errorListener);
+                    event.begin();
+                    programContext = parser.program();
+                } catch (ParseCancellationException e) {
+                    // The error limit was reached, the listener holds what was collected
+                } finally {
+                    commit(event, sourceCode, parser, "LL", errorListener.getErrorCount(),
+                           !errorListener.hasErrors());
+                }
+            }
             
             // Check for syntax errors
             if (errorListener.hasErrors()) {
                 logger.error("Syntax errors found during parsing");
-                return ParseResult.failure(errorListener.getErrors());
+                return ParseResult.syntaxErrors(errorListener.getDiagnostics());
+            }
+            if (!buildTree) {
+                return ParseResult.success(null);
             }
             
             // Build AST from parse tree
+            CompilerEvents.AstBuild event = new CompilerEvents.AstBuild();
+            event.begin();
             ASTBuilderVisitor astBuilder = new ASTBuilderVisitor();
             ProgramNode ast = astBuilder.visit(programContext);
+            event.end();
+            if (event.shouldCommit()) {
+                event.sourceSize = sourceCode.length();
+                event.parseTreeNodeCount = countNodes(programContext);
+                event.statementCount = ast.getStatements().size();
+                event.commit();
+            }
             
             logger.info("Successfully parsed Y language source code");
             return ParseResult.success(ast);
             
         } catch (Exception e) {
+            if (e instanceof CancellationException cancellation && !(e instanceof ParseCancellationException)) {
+                throw cancellation;
+            }
             logger.error("Unexpected error during parsing", e);
             List<String> errors = new ArrayList<>();
             errors.add("Unexpected error: " + e.getMessage());
@@ -72,24 +209,172 @@ public class YLanguageParserService {
     }
     
     /**
-     * Custom error listener for ANTLR parsing
+     * Lexer and parser over the source, reporting lexical errors to the listener
+     */
+    private YLanguageParser createParser(String sourceCode, ANTLRErrorListener lexerListener) {
+        // Create ANTLR input stream
+        CharStream input = CharStreams.fromString(sourceCode);
+        
+        // Create lexer, without the default listener that prints to the console
+        YLanguageLexer lexer = new YLanguageLexer(input);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(lexerListener);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        
+        // When lexing is recorded, lex the whole source first so the two phases are told apart in a
+        // profile; otherwise tokens are read as the parser asks for them, so an early lexer error
+        // or cancellation stops before the rest of the source is lexed
+        CompilerEvents.Lex event = new CompilerEvents.Lex();
+        if (event.isEnabled()) {
+            event.begin();
+            try {
+                tokens.fill();
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.sourceSize = sourceCode.length();
+                    event.tokenCount = tokens.size();
+                    event.commit();
+                }
+            }
+        }
+        
+        // Create parser
+        YLanguageParser parser = new YLanguageParser(tokens);
+        parser.removeErrorListeners();
+        return parser;
+    }
+    
+    private static void commit(CompilerEvents.Parse event, String sourceCode, YLanguageParser parser,
+                               String predictionMode, int errorCount, boolean accepted) {
+        if (parser == null) {
+            // Lexing failed, the parser never ran
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sourceSize = sourceCode.length();
+            event.tokenCount = parser.getTokenStream().size();
+            event.predictionMode = predictionMode;
+            event.errorCount = errorCount;
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Number of rule nodes in a parse tree, without recursion so deep trees cannot overflow the stack
+     */
+    private static int countNodes(ParseTree root) {
+        int count = 0;
+        ArrayDeque<ParseTree> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.pop();
+            count++;
+            for (int i = 0; i < node.getChildCount(); i++) {
+                if (node.getChild(i) instanceof ParserRuleContext child) {
+                    pending.push(child);
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Collects syntax errors as diagnostics and cancels the parse once the limit is reached,
+     * so a broken or binary input does not keep ANTLR's error recovery busy
      */
     private static class YLanguageErrorListener extends BaseErrorListener {
-        private final List<String> errors = new ArrayList<>();
+        private final List<Diagnostic> diagnostics = new ArrayList<>();
+        private final int maxErrors;
+        
+        YLanguageErrorListener(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
         
         @Override
         public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
                                int line, int charPositionInLine, String msg, RecognitionException e) {
-            String error = String.format("Line %d:%d - %s", line, charPositionInLine, msg);
-            errors.add(error);
+            int start = -1;
+            int end = -1;
+            String code = Diagnostic.SYNTAX_ERROR;
+            if (offendingSymbol instanceof Token token) {
+                start = token.getStartIndex();
+                end = token.getStopIndex() + 1;
+            } else if (recognizer instanceof Lexer lexer) {
+                code = Diagnostic.LEXICAL_ERROR;
+                start = lexer._tokenStartCharIndex;
+                end = lexer.getCharIndex() + 1;
+            }
+            diagnostics.add(new Diagnostic(code, line, charPositionInLine, start, end, msg));
+            
+            if (diagnostics.size() >= maxErrors) {
+                if (maxErrors > 1) {
+                    diagnostics.add(new Diagnostic(Diagnostic.TOO_MANY_ERRORS, line, charPositionInLine, -1, -1,
+                        "Too many errors, parsing stopped after " + maxErrors));
+                }
+                throw new ParseCancellationException(msg);
+            }
         }
         
         public boolean hasErrors() {
-            return !errors.isEmpty();
+            return !diagnostics.isEmpty();
         }
         
-        public List<String> getErrors() {
-            return new ArrayList<>(errors);
+        public int getErrorCount() {
+            return diagnostics.size();
+        }
+        
+        /**
+         * Diagnostics in source order; lexical errors are found before the parse, syntax errors during it
+         */
+        public List<Diagnostic> getDiagnostics() {
+            diagnostics.sort(Comparator.comparingInt(diagnostic ->
+                Diagnostic.TOO_MANY_ERRORS.equals(diagnostic.getCode()) ? Integer.MAX_VALUE : diagnostic.getStartOffset()));
+            return diagnostics;
+        }
+    }
+    
+    /**
+     * Polls a cancellation flag every few hundred rules, cheap enough to leave on for every parse
+     */
+    private static class CancellationCheck implements ParseTreeListener {
+        private final BooleanSupplier cancelled;
+        private int rules;
+        
+        CancellationCheck(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+        }
+        
+        @Override
+        public void enterEveryRule(ParserRuleContext ctx) {
+            if ((++rules & 0xFF) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException("Parsing cancelled");
+            }
+        }
+        
+        @Override
+        public void visitTerminal(TerminalNode node) {
+        }
+        
+        @Override
+        public void visitErrorNode(ErrorNode node) {
+        }
+        
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+        }
+    }
+    
+    /**
+     * Abandons the fast first pass at the first invalid character
+     */
+    private static class BailingLexerListener extends BaseErrorListener {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+                               int line, int charPositionInLine, String msg, RecognitionException e) {
+            throw new ParseCancellationException(msg);
         }
     }
 }
\ No newline at end of file
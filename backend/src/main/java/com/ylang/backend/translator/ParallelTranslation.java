@@ -0,0 +1,152 @@
+package com.ylang.backend.translator;
+
+import com.ylang.backend.ast.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Translates the top-level statements of a program on the fork-join pool.
+ *
+ * Top-level declarations do not share emitter state: every task gets its own translator from
+ * the supplied factory (with its own indentation level and counters), and the outputs are
+ * stitched back together in source order. Programs whose size, counted in statements, is below
+ * the threshold are translated sequentially on the calling thread.
+ */
+final class ParallelTranslation {
+
+    /** Default number of statements below which a program is translated sequentially */
+    static final int DEFAULT_THRESHOLD = 2000;
+
+    private ParallelTranslation() {
+    }
+
+    /**
+     * Translate each statement followed by a newline, in source order
+     * @param statements Top-level statements of the program
+     * @param translator Translator used when the program stays sequential
+     * @param forks Factory for translators with fresh emitter state sharing the program-wide analysis
+     * @param threshold Minimum program size in statements for parallel translation
+     */
+    static String translate(List<ASTNode> statements, ASTVisitor<String> translator,
+                            Supplier<ASTVisitor<String>> forks, int threshold) {
+        int[] weights = new int[statements.size() + 1];
+        for (int i = 0; i < statements.size(); i++) {
+            weights[i + 1] = weights[i] + weight(statements.get(i));
+        }
+
+        String[] results = new String[statements.size()];
+        int total = weights[statements.size()];
+        if (total < threshold || statements.size() < 2) {
+            for (int i = 0; i < statements.size(); i++) {
+                results[i] = statements.get(i).accept(translator);
+            }
+        } else {
+            // Aim for a few tasks per worker so uneven declarations still balance out
+            int grain = Math.max(1, total / (ForkJoinPool.getCommonPoolParallelism() * 4));
+            new TranslateRange(statements, weights, results, 0, statements.size(), grain, forks).invoke();
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (String translated : results) {
+            result.append(translated);
+            result.append("\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Size of a statement counted as the number of statements it contains, itself included
+     */
+    static int weight(ASTNode node) {
+        if (node == null) {
+            return 0;
+        }
+        int weight = 1;
+        if (node instanceof BlockNode block) {
+            weight = 0;
+            for (ASTNode statement : block.getStatements()) {
+                weight += weight(statement);
+            }
+        } else if (node instanceof FunctionDeclarationNode function) {
+            weight += weight(function.getBody());
+        } else if (node instanceof ModuleDeclarationNode module) {
+            for (ASTNode statement : module.getStatements()) {
+                weight += weight(statement);
+            }
+        } else if (node instanceof StructureDeclarationNode structure) {
+            for (ASTNode member : structure.getMembers()) {
+                weight += weight(member);
+            }
+        } else if (node instanceof ImplementationNode implementation) {
+            for (ASTNode method : implementation.getMethods()) {
+                weight += weight(method);
+            }
+        } else if (node instanceof IfStatementNode ifStatement) {
+            weight += weight(ifStatement.getThenBlock()) + weight(ifStatement.getElseBlock());
+        } else if (node instanceof LoopStatementNode loop) {
+            weight += weight(loop.getBody());
+        } else if (node instanceof TryStatementNode tryStatement) {
+            weight += weight(tryStatement.getTryBlock());
+            for (TryStatementNode.CatchClause catchClause : tryStatement.getCatchClauses()) {
+                weight += weight(catchClause.getCatchBlock());
+            }
+        } else if (node instanceof MatchStatementNode match) {
+            for (MatchStatementNode.MatchCase matchCase : match.getCases()) {
+                weight += weight(matchCase.getBlock());
+            }
+        } else if (node instanceof TraitDeclarationNode trait) {
+            weight += trait.getFunctionSignatures().size();
+        } else if (node instanceof EnumDeclarationNode enumeration) {
+            weight += enumeration.getVariants().size();
+        }
+        return weight;
+    }
+
+    /**
+     * Splits a range of statements by weight until it is small enough for one translator
+     */
+    private static final class TranslateRange extends RecursiveAction {
+        private final List<ASTNode> statements;
+        private final int[] weights;
+        private final String[] results;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final Supplier<ASTVisitor<String>> forks;
+
+        TranslateRange(List<ASTNode> statements, int[] weights, String[] results, int from, int to,
+                       int grain, Supplier<ASTVisitor<String>> forks) {
+            this.statements = statements;
+            this.weights = weights;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.forks = forks;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1 || weights[to] - weights[from] <= grain) {
+                ASTVisitor<String> translator = forks.get();
+                for (int i = from; i < to; i++) {
+                    results[i] = statements.get(i).accept(translator);
+                }
+                return;
+            }
+
+            // Split where half of the range's weight lies on each side
+            int half = (weights[from] + weights[to]) / 2;
+            int split = from + 1;
+            while (split < to - 1 && weights[split] < half) {
+                split++;
+            }
+
+            invokeAll(new TranslateRange(statements, weights, results, from, split, grain, forks),
+                      new TranslateRange(statements, weights, results, split, to, grain, forks));
+        }
+    }
+}
\ No newline at end of file
@@ -1,9 +1,18 @@
 package com.ylang.backend.translator;
 
+import com.ylang.backend.analysis.MatchDispatch;
+import com.ylang.backend.analysis.OwnershipAnalyzer;
+import com.ylang.backend.analysis.OwnershipInfo;
 import com.ylang.backend.ast.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Translator that converts Y language AST to Rust code
@@ -14,6 +23,18 @@ public class RustTranslator implements ASTVisitor<String> {
     private int indentLevel = 0;
     private static final String INDENT = "    ";
     private final List<String> imports = new ArrayList<>();
+    private OwnershipInfo ownership = OwnershipInfo.empty();
+    private final Map<String, TypeNode> functionReturnTypes = new HashMap<>();
+    private TypeNode currentReturnType = null;
+    private static final String BOXED_ERROR = "Box<dyn std::error::Error>";
+    
+    private int tryDepth = 0;
+    private int tryCounter = 0;
+    private boolean tryReturns = false;
+    private Set<String> tryErrorTypes = Set.of(); // Error types ? converts into for the innermost try
+    
+    @Value("${ylang.translator.parallel-threshold:" + ParallelTranslation.DEFAULT_THRESHOLD + "}")
+    private int parallelThreshold = ParallelTranslation.DEFAULT_THRESHOLD;
     
     /**
      * Translate Y language AST to Rust code
@@ -21,8 +42,17 @@ public class RustTranslator implements ASTVisitor<String> {
      * @return Generated Rust code
      */
     public String translate(ProgramNode ast) {
-        indentLevel = 0;
-        imports.clear();
+        // The bean is shared between concurrent compilations, so each one gets its own emitter state
+        RustTranslator session = new RustTranslator();
+        session.parallelThreshold = parallelThreshold;
+        return session.translateProgram(ast);
+    }
+    
+    private String translateProgram(ProgramNode ast) {
+        collectFunctionReturnTypes(ast.getStatements());
+        
+        // Decide where values can be borrowed instead of cloned or allocated
+        ownership = new OwnershipAnalyzer().analyze(ast);
         
         StringBuilder result = new StringBuilder();
         
@@ -56,15 +86,18 @@ public class RustTranslator implements ASTVisitor<String> {
     
     @Override
     public String visitProgram(ProgramNode node) {
-        StringBuilder result = new StringBuilder();
-        
-        // Visit all statements
-        for (ASTNode statement : node.getStatements()) {
-            result.append(statement.accept(this));
-            result.append("\n");
-        }
-        
-        return result.toString();
+        // Visit all statements, large programs in parallel
+        return ParallelTranslation.translate(node.getStatements(), this, this::fork, parallelThreshold);
+    }
+    
+    /**
+     * A translator with fresh emitter state that shares this translation's program-wide analysis
+     */
+    private RustTranslator fork() {
+        RustTranslator fork = new RustTranslator();
+        fork.ownership = ownership;
+        fork.functionReturnTypes.putAll(functionReturnTypes);
+        return fork;
     }
     
     @Override
@@ -82,9 +115,16 @@ public class RustTranslator implements ASTVisitor<String> {
         for (int i = 0; i < parameters.size(); i++) {
             if (i > 0) result.append(", ");
             ParameterNode param = parameters.get(i);
+            if (ownership.isMutableParameter(param)) {
+                result.append("mut ");
+            }
             result.append(convertToSnakeCase(param.getName()));
             result.append(": ");
-            result.append(translateType(param.getType()));
+            if (ownership.isBorrowedParameter(param)) {
+                result.append(translateBorrowedType(param.getType()));
+            } else {
+                result.append(translateType(param.getType()));
+            }
             
             // Handle optional parameters based on Yummy comments
             if (param.getYummyComment() != null && param.getYummyComment().contains("optional")) {
@@ -100,9 +140,12 @@ public class RustTranslator implements ASTVisitor<String> {
         result.append(" {\n");
         
         // Add function body
+        TypeNode enclosingReturnType = currentReturnType;
+        currentReturnType = node.getReturnType();
         increaseIndent();
         result.append(node.getBody().accept(this));
         decreaseIndent();
+        currentReturnType = enclosingReturnType;
         
         result.append(indent()).append("}");
         
@@ -115,11 +158,28 @@ public class RustTranslator implements ASTVisitor<String> {
         
         result.append(indent());
         result.append("let ");
+        if (ownership.isMutableLocal(node)) {
+            result.append("mut ");
+        }
         result.append(convertToSnakeCase(node.getName()));
         result.append(": ");
-        result.append(translateType(node.getType()));
+        
+        if (ownership.isBorrowedLocal(node)) {
+            // Literal that is only read: &'static str or a borrowed array
+            result.append(translateBorrowedType(node.getType()));
+        } else if (ownership.isStackBox(node)) {
+            // Box that never escapes the function: keep the value on the stack
+            result.append(translateType(node.getType().getElementType()));
+        } else {
+            result.append(translateType(node.getType()));
+        }
+        
         result.append(" = ");
-        result.append(node.getInitializer().accept(this));
+        String initializer = node.getInitializer().accept(this);
+        if (ownership.needsBoxing(node)) {
+            initializer = "Box::new(" + initializer + ")";
+        }
+        result.append(initializer);
         result.append(";");
         
         return result.toString();
@@ -132,7 +192,11 @@ public class RustTranslator implements ASTVisitor<String> {
         result.append(indent());
         result.append(convertToSnakeCase(node.getVariableName()));
         result.append(" = ");
-        result.append(node.getValue().accept(this));
+        String value = node.getValue().accept(this);
+        if (ownership.needsBoxing(node)) {
+            value = "Box::new(" + value + ")";
+        }
+        result.append(value);
         result.append(";");
         
         return result.toString();
@@ -169,11 +233,49 @@ public class RustTranslator implements ASTVisitor<String> {
         StringBuilder result = new StringBuilder();
         
         if (node.getLoopType() == LoopStatementNode.LoopType.FOR_EACH) {
+            result.append(indent());
+            result.append("for ");
+            if (ownership.hasMutableElements(node)) {
+                result.append("mut ");
+            } else if (ownership.copiesElements(node)) {
+                result.append("&");
+            }
+            result.append(convertToSnakeCase(node.getVariableName()));
+            result.append(" in ");
+            
+            // Walk owned collections through iterators so the loop does not consume them
+            String iterable = node.getIterable().accept(this);
+            switch (ownership.getIteration(node)) {
+                case BORROW:
+                case SLICE:
+                    result.append(iterable).append(".iter()");
+                    break;
+                case KEYS:
+                    result.append(iterable).append(".keys()");
+                    break;
+                default:
+                    result.append(iterable);
+                    break;
+            }
+            if (ownership.hasMutableElements(node) && ownership.getIteration(node) != OwnershipInfo.Iteration.VALUE) {
+                result.append(".cloned()");
+            }
+            result.append(" {\n");
+            
+            increaseIndent();
+            result.append(node.getBody().accept(this));
+            decreaseIndent();
+            
+            result.append(indent()).append("}");
+        } else if (countedLoopBound(node) != null) {
+            // Counted loop: a range lets rustc drop bounds checks and vectorize the body
             result.append(indent());
             result.append("for ");
             result.append(convertToSnakeCase(node.getVariableName()));
             result.append(" in ");
-            result.append(node.getIterable().accept(this));
+            result.append(node.getInitializer().accept(this));
+            result.append("..");
+            result.append(countedLoopBound(node).accept(this));
             result.append(" {\n");
             
             increaseIndent();
@@ -183,6 +285,10 @@ public class RustTranslator implements ASTVisitor<String> {
             result.append(indent()).append("}");
         } else {
             // While loop
+            if (node.hasInitializer()) {
+                result.append(indent()).append("let mut ").append(convertToSnakeCase(node.getVariableName()))
+                      .append(" = ").append(node.getInitializer().accept(this)).append(";\n");
+            }
             result.append(indent());
             result.append("while ");
             result.append(node.getCondition().accept(this));
@@ -210,9 +316,14 @@ public class RustTranslator implements ASTVisitor<String> {
         result.append(indent());
         result.append("return");
         
-        if (node.hasValue()) {
+        // Inside a try closure the function's return value travels out as Ok(Some(value))
+        if (tryReturns) {
+            result.append(" Ok(Some(");
+            result.append(node.hasValue() ? translateReturnValue(node.getValue()) : "()");
+            result.append("))");
+        } else if (node.hasValue()) {
             result.append(" ");
-            result.append(node.getValue().accept(this));
+            result.append(translateReturnValue(node.getValue()));
         }
         
         result.append(";");
@@ -236,6 +347,9 @@ public class RustTranslator implements ASTVisitor<String> {
     public String visitLiteral(LiteralNode node) {
         switch (node.getLiteralType()) {
             case STRING:
+                if (ownership.isBorrowedLiteral(node)) {
+                    return "\"" + escapeString((String) node.getValue()) + "\"";
+                }
                 return "String::from(\"" + escapeString((String) node.getValue()) + "\")";
             case NUMBER:
                 if (node.getValue() instanceof Double) {
@@ -256,7 +370,20 @@ public class RustTranslator implements ASTVisitor<String> {
     
     @Override
     public String visitIdentifier(IdentifierNode node) {
-        return convertToSnakeCase(node.getName());
+        String name = convertToSnakeCase(node.getName());
+        
+        switch (ownership.getAccess(node)) {
+            case BORROW:
+                return "&" + name;
+            case CLONE:
+                return name + ".clone()";
+            case TO_OWNED:
+                if (hasType(node, TypeNode.TypeKind.STRING)) return name + ".to_string()";
+                if (hasType(node, TypeNode.TypeKind.LIST)) return name + ".to_vec()";
+                return name + ".clone()";
+            default:
+                return name;
+        }
     }
     
     @Override
@@ -274,6 +401,11 @@ public class RustTranslator implements ASTVisitor<String> {
         
         result.append(")");
         
+        // Calls returning either-types propagate their error to the enclosing try when it catches it
+        if (tryDepth > 0 && isFallible(node) && tryErrorTypes.contains(errorTypeOf(node))) {
+            result.append("?");
+        }
+        
         return result.toString();
     }
     
@@ -281,6 +413,16 @@ public class RustTranslator implements ASTVisitor<String> {
     public String visitBinaryExpression(BinaryExpressionNode node) {
         StringBuilder result = new StringBuilder();
         
+        // String concatenation: String + String does not compile in Rust, format! borrows both sides
+        if (node.getOperator() == BinaryExpressionNode.Operator.PLUS && hasType(node, TypeNode.TypeKind.STRING)) {
+            result.append("format!(\"{}{}\", ");
+            result.append(node.getLeft().accept(this));
+            result.append(", ");
+            result.append(node.getRight().accept(this));
+            result.append(")");
+            return result.toString();
+        }
+        
         result.append("(");
         result.append(node.getLeft().accept(this));
         result.append(" ");
@@ -373,6 +515,24 @@ public class RustTranslator implements ASTVisitor<String> {
         }
     }
     
+    /**
+     * Borrowed form of a type for read-only parameters and literal-bound locals
+     */
+    private String translateBorrowedType(TypeNode type) {
+        if (type == null) return "()";
+        
+        switch (type.getKind()) {
+            case STRING:
+                return "&str";
+            case LIST:
+                return "&[" + translateType(type.getElementType()) + "]";
+            case BOX:
+                return "&" + translateType(type.getElementType());
+            default:
+                return "&" + translateType(type);
+        }
+    }
+    
     private String translateOperator(BinaryExpressionNode.Operator op) {
         switch (op) {
             case PLUS: return "+";
@@ -397,6 +557,166 @@ public class RustTranslator implements ASTVisitor<String> {
         }
     }
     
+    private boolean hasType(ExpressionNode expression, TypeNode.TypeKind kind) {
+        return expression != null && expression.hasResolvedType() && expression.getResolvedType().getKind() == kind;
+    }
+    
+    /**
+     * Upper bound of a loop of the form "variable i equals a while i is less than b increment i",
+     * or null when the loop does not have that shape. The body must not assign the counter or
+     * anything the bound reads, since a range evaluates its bound only once.
+     */
+    private ExpressionNode countedLoopBound(LoopStatementNode node) {
+        if (!node.hasInitializer() || !node.getVariableName().equals(node.getIncrementVar())
+                || !(node.getCondition() instanceof BinaryExpressionNode)) {
+            return null;
+        }
+        
+        BinaryExpressionNode condition = (BinaryExpressionNode) node.getCondition();
+        ExpressionNode bound;
+        if (condition.getOperator() == BinaryExpressionNode.Operator.LESS_THAN && isVariable(condition.getLeft(), node.getVariableName())) {
+            bound = condition.getRight();
+        } else if (condition.getOperator() == BinaryExpressionNode.Operator.GREATER_THAN && isVariable(condition.getRight(), node.getVariableName())) {
+            bound = condition.getLeft();
+        } else {
+            return null;
+        }
+        
+        Set<String> assigned = new HashSet<>();
+        collectAssignedNames(node.getBody(), assigned);
+        if (assigned.contains(node.getVariableName()) || !isLoopInvariant(bound, assigned)) {
+            return null;
+        }
+        return bound;
+    }
+    
+    private boolean isVariable(ExpressionNode expression, String name) {
+        return expression instanceof IdentifierNode && ((IdentifierNode) expression).getName().equals(name);
+    }
+    
+    private boolean isLoopInvariant(ExpressionNode expression, Set<String> assigned) {
+        if (expression instanceof LiteralNode) {
+            return ((LiteralNode) expression).getLiteralType() == LiteralNode.LiteralType.NUMBER;
+        } else if (expression instanceof IdentifierNode) {
+            return !assigned.contains(((IdentifierNode) expression).getName()) && !hasType(expression, TypeNode.TypeKind.STRING);
+        } else if (expression instanceof BinaryExpressionNode) {
+            BinaryExpressionNode binary = (BinaryExpressionNode) expression;
+            return isLoopInvariant(binary.getLeft(), assigned) && isLoopInvariant(binary.getRight(), assigned);
+        } else if (expression instanceof ParenthesizedExpressionNode) {
+            return isLoopInvariant(((ParenthesizedExpressionNode) expression).getExpression(), assigned);
+        }
+        // Calls and member access may change between iterations
+        return false;
+    }
+    
+    private void collectAssignedNames(ASTNode node, Set<String> names) {
+        if (node instanceof AssignmentNode) {
+            names.add(((AssignmentNode) node).getVariableName());
+        } else if (node instanceof BlockNode) {
+            for (ASTNode statement : ((BlockNode) node).getStatements()) {
+                collectAssignedNames(statement, names);
+            }
+        } else if (node instanceof IfStatementNode) {
+            collectAssignedNames(((IfStatementNode) node).getThenBlock(), names);
+            collectAssignedNames(((IfStatementNode) node).getElseBlock(), names);
+        } else if (node instanceof LoopStatementNode) {
+            LoopStatementNode loop = (LoopStatementNode) node;
+            if (loop.getIncrementVar() != null) {
+                names.add(loop.getIncrementVar());
+            }
+            collectAssignedNames(loop.getBody(), names);
+        } else if (node instanceof TryStatementNode) {
+            TryStatementNode tryStatement = (TryStatementNode) node;
+            collectAssignedNames(tryStatement.getTryBlock(), names);
+            for (TryStatementNode.CatchClause catchClause : tryStatement.getCatchClauses()) {
+                collectAssignedNames(catchClause.getCatchBlock(), names);
+            }
+        } else if (node instanceof MatchStatementNode) {
+            for (MatchStatementNode.MatchCase matchCase : ((MatchStatementNode) node).getCases()) {
+                collectAssignedNames(matchCase.getBlock(), names);
+            }
+        }
+    }
+    
+    private void collectFunctionReturnTypes(List<ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof FunctionDeclarationNode) {
+                FunctionDeclarationNode function = (FunctionDeclarationNode) statement;
+                functionReturnTypes.putIfAbsent(function.getName(), function.getReturnType());
+            } else if (statement instanceof ModuleDeclarationNode) {
+                collectFunctionReturnTypes(((ModuleDeclarationNode) statement).getStatements());
+            } else if (statement instanceof ImplementationNode) {
+                collectFunctionReturnTypes(((ImplementationNode) statement).getMethods());
+            }
+        }
+    }
+    
+    /**
+     * A call can fail when it returns an either type, which the Rust target maps to Result
+     */
+    private boolean isFallible(FunctionCallNode call) {
+        TypeNode returnType = functionReturnTypes.get(call.getFunctionName());
+        if (returnType != null) {
+            return returnType.getKind() == TypeNode.TypeKind.EITHER;
+        }
+        return hasType(call, TypeNode.TypeKind.EITHER);
+    }
+    
+    /**
+     * Rust type of the error a fallible call returns, or null when it is not known
+     */
+    private String errorTypeOf(FunctionCallNode call) {
+        TypeNode returnType = functionReturnTypes.get(call.getFunctionName());
+        if (returnType == null) {
+            returnType = call.getResolvedType();
+        }
+        if (returnType == null || returnType.getKind() != TypeNode.TypeKind.EITHER) {
+            return null;
+        }
+        return translateType(returnType.getRightType());
+    }
+    
+    /**
+     * Returning a Result-typed call from a function that itself returns a Result passes it
+     * through as-is instead of unwrapping it with ?
+     */
+    private String translateReturnValue(ExpressionNode value) {
+        if (tryDepth > 0 && value instanceof FunctionCallNode && isFallible((FunctionCallNode) value)
+                && currentReturnType != null && currentReturnType.getKind() == TypeNode.TypeKind.EITHER) {
+            int enclosingTryDepth = tryDepth;
+            tryDepth = 0;
+            String result = value.accept(this);
+            tryDepth = enclosingTryDepth;
+            return result;
+        }
+        return value.accept(this);
+    }
+    
+    private boolean containsReturn(ASTNode node) {
+        if (node instanceof ReturnStatementNode) {
+            return true;
+        } else if (node instanceof BlockNode) {
+            for (ASTNode statement : ((BlockNode) node).getStatements()) {
+                if (containsReturn(statement)) return true;
+            }
+        } else if (node instanceof IfStatementNode) {
+            return containsReturn(((IfStatementNode) node).getThenBlock()) || containsReturn(((IfStatementNode) node).getElseBlock());
+        } else if (node instanceof LoopStatementNode) {
+            return containsReturn(((LoopStatementNode) node).getBody());
+        } else if (node instanceof TryStatementNode) {
+            TryStatementNode tryStatement = (TryStatementNode) node;
+            if (containsReturn(tryStatement.getTryBlock())) return true;
+            for (TryStatementNode.CatchClause catchClause : tryStatement.getCatchClauses()) {
+                if (containsReturn(catchClause.getCatchBlock())) return true;
+            }
+        } else if (node instanceof MatchStatementNode) {
+            for (MatchStatementNode.MatchCase matchCase : ((MatchStatementNode) node).getCases()) {
+                if (containsReturn(matchCase.getBlock())) return true;
+            }
+        }
+        return false;
+    }
+    
     private String escapeString(String str) {
         return str.replace("\\", "\\\\")
                   .replace("\"", "\\\"")
@@ -410,26 +730,91 @@ public class RustTranslator implements ASTVisitor<String> {
     @Override
     public String visitTryStatement(TryStatementNode node) {
         StringBuilder result = new StringBuilder();
-        result.append(indent()).append("match std::panic::catch_unwind(|| {\n");
         
-        // Increase indent for try block
+        // The try block runs in a Result-returning closure: fallible calls use ? and the
+        // catch clauses become match arms, so the happy path costs nothing
+        List<TryStatementNode.CatchClause> catchClauses = node.getCatchClauses();
+        Map<String, TryStatementNode.CatchClause> clausesByType = new LinkedHashMap<>();
+        for (TryStatementNode.CatchClause catchClause : catchClauses) {
+            clausesByType.putIfAbsent(translateType(catchClause.getExceptionType()), catchClause);
+        }
+        
+        String errorType;
+        String enumName = null;
+        if (clausesByType.isEmpty()) {
+            errorType = BOXED_ERROR;
+        } else if (clausesByType.size() == 1) {
+            errorType = clausesByType.keySet().iterator().next();
+        } else {
+            // Several error types: wrap them in an enum with From impls so ? can convert
+            enumName = "TryError" + (++tryCounter);
+            errorType = enumName;
+            result.append(indent()).append("enum ").append(enumName).append(" {\n");
+            int variant = 0;
+            for (String type : clausesByType.keySet()) {
+                result.append(indent()).append(INDENT).append("E").append(variant++).append("(").append(type).append("),\n");
+            }
+            result.append(indent()).append("}\n");
+            variant = 0;
+            for (String type : clausesByType.keySet()) {
+                result.append(indent()).append("impl From<").append(type).append("> for ").append(enumName)
+                      .append(" { fn from(e: ").append(type).append(") -> Self { ").append(enumName)
+                      .append("::E").append(variant++).append("(e) } }\n");
+            }
+        }
+        
+        // Returns inside the try block must leave the enclosing function, not the closure
+        boolean returns = containsReturn(node.getTryBlock());
+        String okType = returns ? "Option<" + translateType(currentReturnType) + ">" : "()";
+        
+        result.append(indent()).append("match (|| -> Result<").append(okType).append(", ").append(errorType).append("> {\n");
+        
+        // ? only compiles for errors the closure's error type has a From impl for: the caught
+        // types themselves, or what Box<dyn Error> is built from when nothing is caught
+        boolean enclosingTryReturns = tryReturns;
+        Set<String> enclosingTryErrorTypes = tryErrorTypes;
+        tryDepth++;
+        tryReturns = returns;
+        tryErrorTypes = clausesByType.isEmpty() ? Set.of(BOXED_ERROR, "String") : clausesByType.keySet();
         increaseIndent();
         result.append(node.getTryBlock().accept(this));
+        result.append(indent()).append(returns ? "Ok(None)" : "Ok(())").append("\n");
         decreaseIndent();
+        tryReturns = enclosingTryReturns;
+        tryErrorTypes = enclosingTryErrorTypes;
+        tryDepth--;
         
-        result.append(indent()).append("}) {\n");
-        result.append(indent()).append("    Ok(result) => result,\n");
-        result.append(indent()).append("    Err(_) => {\n");
+        result.append(indent()).append("})() {\n");
+        increaseIndent();
+        if (returns) {
+            result.append(indent()).append("Ok(Some(value)) => return ")
+                  .append(tryReturns ? "Ok(Some(value))" : "value").append(",\n");
+            result.append(indent()).append("Ok(None) => {}\n");
+        } else {
+            result.append(indent()).append("Ok(()) => {}\n");
+        }
         
-        // Handle catch blocks
-        for (TryStatementNode.CatchClause catchClause : node.getCatchClauses()) {
+        if (clausesByType.isEmpty()) {
+            result.append(indent()).append("Err(_) => {}\n");
+        }
+        int variant = 0;
+        for (TryStatementNode.CatchClause catchClause : clausesByType.values()) {
+            String binding = convertToSnakeCase(catchClause.getVariableName());
+            result.append(indent()).append("Err(");
+            if (enumName != null) {
+                result.append(enumName).append("::E").append(variant++).append("(").append(binding).append(")");
+            } else {
+                result.append(binding);
+            }
+            result.append(") => {\n");
+            
             increaseIndent();
-            result.append(indent()).append("// Error handling: ").append(catchClause.getVariableName()).append("\n");
             result.append(catchClause.getCatchBlock().accept(this));
             decreaseIndent();
+            result.append(indent()).append("}\n");
         }
+        decreaseIndent();
         
-        result.append(indent()).append("    }\n");
         result.append(indent()).append("}\n");
         
         return result.toString();
@@ -440,37 +825,91 @@ public class RustTranslator implements ASTVisitor<String> {
         StringBuilder result = new StringBuilder();
         result.append(indent()).append("match ").append(node.getExpression().accept(this)).append(" {\n");
         
-        for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
-            increaseIndent();
-            
-            // Handle different pattern types
-            String pattern = matchCase.getPattern();
-            if (matchCase.getType() != null) {
-                if (matchCase.getVariableName() != null) {
-                    // Pattern with variable binding
-                    result.append(indent()).append(pattern).append(" { ").append(matchCase.getVariableName()).append(" } => {\n");
-                } else {
-                    // Simple type pattern
-                    result.append(indent()).append(pattern).append(" => {\n");
+        List<MatchStatementNode.MatchCase> cases = node.getCases();
+        MatchDispatch dispatch = MatchDispatch.plan(node);
+        
+        increaseIndent();
+        
+        // Constant cases become sorted, disjoint literal and range patterns, which rustc
+        // lowers to a jump table or a binary search on its own
+        List<Map.Entry<Integer, List<MatchDispatch.Interval>>> arms = new ArrayList<>(dispatch.getIntervalsByCase().entrySet());
+        arms.sort((a, b) -> Long.compare(a.getValue().get(0).getStart(), b.getValue().get(0).getStart()));
+        for (Map.Entry<Integer, List<MatchDispatch.Interval>> arm : arms) {
+            result.append(indent());
+            List<MatchDispatch.Interval> intervals = arm.getValue();
+            for (int i = 0; i < intervals.size(); i++) {
+                if (i > 0) result.append(" | ");
+                MatchDispatch.Interval interval = intervals.get(i);
+                result.append(interval.getStart());
+                if (interval.getEnd() != interval.getStart()) {
+                    result.append("..=").append(interval.getEnd());
                 }
-            } else {
-                // Simple identifier pattern
-                result.append(indent()).append(pattern).append(" => {\n");
             }
+            result.append(" => {\n");
+            result.append(translateCaseBlock(cases.get(arm.getKey())));
+        }
+        
+        // Everything after the first non-constant case keeps its source order
+        boolean hasCatchAll = false;
+        boolean needsCatchAll = dispatch.getFallbackStart() > 0;
+        for (int i = dispatch.getFallbackStart(); i < cases.size(); i++) {
+            MatchStatementNode.MatchCase matchCase = cases.get(i);
+            String pattern = matchCase.getPattern();
             
-            // Add case block
-            increaseIndent();
-            result.append(matchCase.getBlock().accept(this));
-            decreaseIndent();
-            result.append(indent()).append("},\n");
-            decreaseIndent();
+            switch (matchCase.getKind()) {
+                case LITERAL:
+                    result.append(indent()).append("value if value == ").append(matchCase.getValue().accept(this)).append(" => {\n");
+                    needsCatchAll = true;
+                    break;
+                case RANGE:
+                    result.append(indent()).append("value if value >= ").append(matchCase.getRangeStart().accept(this))
+                          .append(" && value <= ").append(matchCase.getRangeEnd().accept(this)).append(" => {\n");
+                    needsCatchAll = true;
+                    break;
+                case GUARD:
+                    result.append(indent()).append(convertToSnakeCase(matchCase.getVariableName()))
+                          .append(" if ").append(matchCase.getGuard().accept(this)).append(" => {\n");
+                    needsCatchAll = true;
+                    break;
+                default:
+                    if (matchCase.getType() != null && matchCase.getVariableName() != null) {
+                        // Pattern with variable binding
+                        result.append(indent()).append(pattern).append(" { ").append(matchCase.getVariableName()).append(" } => {\n");
+                    } else {
+                        // Simple type or identifier pattern
+                        result.append(indent()).append(pattern).append(" => {\n");
+                        hasCatchAll = matchCase.getType() == null && isBindingPattern(pattern);
+                    }
+                    break;
+            }
+            
+            result.append(translateCaseBlock(matchCase));
+        }
+        
+        if (needsCatchAll && !hasCatchAll) {
+            result.append(indent()).append("_ => {}\n");
         }
         
+        decreaseIndent();
         result.append(indent()).append("}\n");
         return result.toString();
     }
     
+    private String translateCaseBlock(MatchStatementNode.MatchCase matchCase) {
+        StringBuilder result = new StringBuilder();
+        increaseIndent();
+        result.append(matchCase.getBlock().accept(this));
+        decreaseIndent();
+        result.append(indent()).append("},\n");
+        return result.toString();
+    }
     
+    /**
+     * Lowercase identifier patterns bind the matched value and match anything
+     */
+    private boolean isBindingPattern(String pattern) {
+        return pattern != null && !pattern.isEmpty() && (pattern.equals("_") || Character.isLowerCase(pattern.charAt(0)));
+    }
     
     @Override
     public String visitModuleDeclaration(ModuleDeclarationNode node) {
@@ -588,7 +1027,7 @@ public class RustTranslator implements ASTVisitor<String> {
     @Override
     public String visitListExpression(ListExpressionNode node) {
         StringBuilder result = new StringBuilder();
-        result.append("vec![");
+        result.append(ownership.isBorrowedLiteral(node) ? "&[" : "vec![");
         
         List<ExpressionNode> elements = node.getElements();
         for (int i = 0; i < elements.size(); i++) {
@@ -604,7 +1043,7 @@ public class RustTranslator implements ASTVisitor<String> {
     public String visitMapExpression(MapExpressionNode node) {
         StringBuilder result = new StringBuilder();
         result.append("{\n");
-        result.append(indent()).append(INDENT).append("let mut m = HashMap::new();\n");
+        result.append(indent()).append(INDENT).append("let mut m = HashMap::with_capacity(").append(node.getPairs().size()).append(");\n");
         
         List<MapExpressionNode.KeyValuePair> entries = node.getPairs();
         for (int i = 0; i < entries.size(); i++) {
@@ -625,12 +1064,18 @@ public class RustTranslator implements ASTVisitor<String> {
     public String visitTypeCast(TypeCastNode node) {
         String expression = node.getExpression().accept(this);
         
+        // Skip conversions the type checker has shown to be no-ops
         switch (node.getCastType()) {
             case TO_STRING:
+                if (hasType(node.getExpression(), TypeNode.TypeKind.STRING)) return expression;
                 return expression + ".to_string()";
             case TO_NUMBER:
+                if (hasType(node.getExpression(), TypeNode.TypeKind.NUMBER)) return expression;
+                if (hasType(node.getExpression(), TypeNode.TypeKind.BOOLEAN)) return "(" + expression + " as i64)";
                 return expression + ".parse::<f64>().unwrap()";
             case TO_BOOLEAN:
+                if (hasType(node.getExpression(), TypeNode.TypeKind.BOOLEAN)) return expression;
+                if (hasType(node.getExpression(), TypeNode.TypeKind.NUMBER)) return "(" + expression + " != 0)";
                 return "!" + expression + ".is_empty()";
             default:
                 return expression;
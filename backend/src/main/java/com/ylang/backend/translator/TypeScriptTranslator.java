@@ -1,9 +1,16 @@
 package com.ylang.backend.translator;
 
+import com.ylang.backend.analysis.MatchDispatch;
 import com.ylang.backend.ast.*;
+import com.ylang.backend.model.CompileOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Translator that converts Y language AST to TypeScript code
@@ -13,6 +20,16 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     
     private int indentLevel = 0;
     private static final String INDENT = "    ";
+    private boolean shapeStable = false;
+    private final Set<String> structureNames = new HashSet<>();
+    // Declared types of the slots a value can be stored into, for the shape-stable forms
+    private final Map<String, List<ParameterNode>> functionParameters = new HashMap<>();
+    private final Map<String, TypeNode> variableTypes = new HashMap<>();
+    private TypeNode returnType;
+    private int matchCounter = 0;
+    
+    @Value("${ylang.translator.parallel-threshold:" + ParallelTranslation.DEFAULT_THRESHOLD + "}")
+    private int parallelThreshold = ParallelTranslation.DEFAULT_THRESHOLD;
     
     /**
      * Translate Y language AST to TypeScript code
@@ -20,7 +37,27 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
      * @return Generated TypeScript code
      */
     public String translate(ProgramNode ast) {
-        indentLevel = 0;
+        return translate(ast, CompileOptions.defaults());
+    }
+    
+    /**
+     * Translate Y language AST to TypeScript code
+     * @param ast The Y language AST
+     * @param options Code generation options; shapeStable selects V8-friendly object layouts
+     * @return Generated TypeScript code
+     */
+    public String translate(ProgramNode ast, CompileOptions options) {
+        // The bean is shared between concurrent compilations, so each one gets its own emitter state
+        TypeScriptTranslator session = new TypeScriptTranslator();
+        session.parallelThreshold = parallelThreshold;
+        return session.translateProgram(ast, options);
+    }
+    
+    private String translateProgram(ProgramNode ast, CompileOptions options) {
+        shapeStable = options.isShapeStable();
+        if (shapeStable) {
+            collectDeclarations(ast.getStatements());
+        }
         return ast.accept(this);
     }
     
@@ -46,15 +83,24 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         result.append("// Generated TypeScript code from Y language\n");
         result.append("// Y Language Translator - TypeScript Target\n\n");
         
-        // Visit all statements
-        for (ASTNode statement : node.getStatements()) {
-            result.append(statement.accept(this));
-            result.append("\n");
-        }
+        // Visit all statements, large programs in parallel
+        result.append(ParallelTranslation.translate(node.getStatements(), this, this::fork, parallelThreshold));
         
         return result.toString();
     }
     
+    /**
+     * A translator with fresh emitter state that shares this translation's options and declarations
+     */
+    private TypeScriptTranslator fork() {
+        TypeScriptTranslator fork = new TypeScriptTranslator();
+        fork.shapeStable = shapeStable;
+        fork.structureNames.addAll(structureNames);
+        fork.functionParameters.putAll(functionParameters);
+        fork.variableTypes.putAll(variableTypes);
+        return fork;
+    }
+    
     @Override
     public String visitFunctionDeclaration(FunctionDeclarationNode node) {
         StringBuilder result = new StringBuilder();
@@ -90,11 +136,22 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         result.append(translateType(node.getReturnType()));
         result.append(" {\n");
         
-        // Add function body
+        // Add function body, which only sees its parameters and the globals
+        Map<String, TypeNode> outerTypes = new HashMap<>(variableTypes);
+        TypeNode outerReturnType = returnType;
+        for (ParameterNode param : parameters) {
+            variableTypes.put(param.getName(), param.getType());
+        }
+        returnType = node.getReturnType();
+        
         increaseIndent();
         result.append(node.getBody().accept(this));
         decreaseIndent();
         
+        variableTypes.clear();
+        variableTypes.putAll(outerTypes);
+        returnType = outerReturnType;
+        
         result.append(indent()).append("}");
         
         return result.toString();
@@ -110,8 +167,9 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         result.append(": ");
         result.append(translateType(node.getType()));
         result.append(" = ");
-        result.append(node.getInitializer().accept(this));
+        result.append(translateValue(node.getInitializer(), node.getType()));
         result.append(";");
+        variableTypes.put(node.getName(), node.getType());
         
         return result.toString();
     }
@@ -123,7 +181,7 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         result.append(indent());
         result.append(convertToCamelCase(node.getVariableName()));
         result.append(" = ");
-        result.append(node.getValue().accept(this));
+        result.append(translateValue(node.getValue(), variableTypes.get(node.getVariableName())));
         result.append(";");
         
         return result.toString();
@@ -165,15 +223,38 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
             result.append(convertToCamelCase(node.getVariableName()));
             result.append(" of ");
             result.append(node.getIterable().accept(this));
+            if (shapeStable && isMapTyped(node.getIterable())) {
+                // Y iterates the keys of a map, a Map iterates [key, value] entries
+                result.append(".keys()");
+            }
             result.append(") {\n");
             
             increaseIndent();
             result.append(node.getBody().accept(this));
             decreaseIndent();
             
+            result.append(indent()).append("}");
+        } else if (node.hasInitializer() && node.getVariableName().equals(node.getIncrementVar())) {
+            // Counted loop maps directly onto a C-style for loop
+            String counter = convertToCamelCase(node.getVariableName());
+            result.append(indent());
+            result.append("for (let ").append(counter).append(" = ");
+            result.append(node.getInitializer().accept(this));
+            result.append("; ");
+            result.append(node.getCondition().accept(this));
+            result.append("; ").append(counter).append("++) {\n");
+            
+            increaseIndent();
+            result.append(node.getBody().accept(this));
+            decreaseIndent();
+            
             result.append(indent()).append("}");
         } else {
             // While loop - need to handle the increment logic
+            if (node.hasInitializer()) {
+                result.append(indent()).append("let ").append(convertToCamelCase(node.getVariableName()))
+                      .append(" = ").append(node.getInitializer().accept(this)).append(";\n");
+            }
             result.append(indent());
             result.append("while (");
             result.append(node.getCondition().accept(this));
@@ -203,7 +284,7 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         
         if (node.hasValue()) {
             result.append(" ");
-            result.append(node.getValue().accept(this));
+            result.append(translateValue(node.getValue(), returnType));
         }
         
         result.append(";");
@@ -235,7 +316,7 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
             case EMPTY_LIST:
                 return "[]";
             case EMPTY_MAP:
-                return "{}";
+                return shapeStable ? "new Map()" : "{}";
             default:
                 return "null";
         }
@@ -250,13 +331,20 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     public String visitFunctionCall(FunctionCallNode node) {
         StringBuilder result = new StringBuilder();
         
-        result.append(convertToCamelCase(node.getFunctionName()));
+        if (structureNames.contains(node.getFunctionName())) {
+            // Structure construction goes through the generated class constructor
+            result.append("new ").append(node.getFunctionName());
+        } else {
+            result.append(convertToCamelCase(node.getFunctionName()));
+        }
         result.append("(");
         
         List<ExpressionNode> arguments = node.getArguments();
+        List<ParameterNode> parameters = functionParameters.getOrDefault(node.getFunctionName(), List.of());
         for (int i = 0; i < arguments.size(); i++) {
             if (i > 0) result.append(", ");
-            result.append(arguments.get(i).accept(this));
+            TypeNode parameterType = i < parameters.size() ? parameters.get(i).getType() : null;
+            result.append(translateValue(arguments.get(i), parameterType));
         }
         
         result.append(")");
@@ -351,8 +439,10 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
             case ANY:
                 return "any";
             case LIST:
+                if (shapeStable && isNumberList(type)) return "Float64Array";
                 return translateType(type.getElementType()) + "[]";
             case MAP:
+                if (shapeStable) return "Map<" + translateType(type.getKeyType()) + ", " + translateType(type.getValueType()) + ">";
                 return "Record<" + translateType(type.getKeyType()) + ", " + translateType(type.getValueType()) + ">";
             case EITHER:
                 return translateType(type.getLeftType()) + " | " + translateType(type.getRightType());
@@ -369,6 +459,47 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         }
     }
     
+    private boolean isMapTyped(ExpressionNode expression) {
+        return hasType(expression, TypeNode.TypeKind.MAP);
+    }
+    
+    private boolean isNumberList(TypeNode type) {
+        return type != null && type.getKind() == TypeNode.TypeKind.LIST
+                && type.getElementType() != null && type.getElementType().getKind() == TypeNode.TypeKind.NUMBER;
+    }
+    
+    /**
+     * Translate a value stored into a slot of a known type; empty literals carry no element
+     * type of their own, so they take the typed-array or Map form from the slot
+     */
+    private String translateValue(ExpressionNode value, TypeNode type) {
+        if (shapeStable && value instanceof LiteralNode
+                && ((LiteralNode) value).getLiteralType() == LiteralNode.LiteralType.EMPTY_LIST && isNumberList(type)) {
+            return "new Float64Array(0)";
+        }
+        return value.accept(this);
+    }
+    
+    /**
+     * Register structures, function signatures and global variable types ahead of translation,
+     * so parallel forks and forward references see them
+     */
+    private void collectDeclarations(List<ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof StructureDeclarationNode) {
+                structureNames.add(((StructureDeclarationNode) statement).getName());
+            } else if (statement instanceof FunctionDeclarationNode) {
+                FunctionDeclarationNode function = (FunctionDeclarationNode) statement;
+                functionParameters.putIfAbsent(function.getName(), function.getParameters());
+            } else if (statement instanceof VariableDeclarationNode) {
+                VariableDeclarationNode variable = (VariableDeclarationNode) statement;
+                variableTypes.put(variable.getName(), variable.getType());
+            } else if (statement instanceof ModuleDeclarationNode) {
+                collectDeclarations(((ModuleDeclarationNode) statement).getStatements());
+            }
+        }
+    }
+    
     private String translateOperator(BinaryExpressionNode.Operator op) {
         switch (op) {
             case PLUS: return "+";
@@ -393,6 +524,10 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         }
     }
     
+    private boolean hasType(ExpressionNode expression, TypeNode.TypeKind kind) {
+        return expression != null && expression.hasResolvedType() && expression.getResolvedType().getKind() == kind;
+    }
+    
     private String escapeString(String str) {
         return str.replace("\\", "\\\\")
                   .replace("\"", "\\\"")
@@ -432,6 +567,12 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     
     @Override
     public String visitMatchStatement(MatchStatementNode node) {
+        for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
+            if (matchCase.getKind() != MatchStatementNode.MatchCase.PatternKind.IDENTIFIER) {
+                return translateValueMatch(node);
+            }
+        }
+        
         StringBuilder result = new StringBuilder();
         result.append(indent()).append("switch (").append(node.getExpression().accept(this)).append(") {\n");
         
@@ -472,6 +613,174 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     
     
     
+    /**
+     * Matches with literal, range or guard cases: for whole-number values the leading constant cases
+     * dispatch through a dense switch (a jump table in V8) or a binary search; other values, and the
+     * cases after those, are checked in order.
+     * The cases live in a labeled block so each one can leave it with break.
+     */
+    private String translateValueMatch(MatchStatementNode node) {
+        StringBuilder result = new StringBuilder();
+        List<MatchStatementNode.MatchCase> cases = node.getCases();
+        MatchDispatch dispatch = MatchDispatch.plan(node);
+        
+        String label = "match" + (++matchCounter);
+        String value = label + "Value";
+        
+        result.append(indent()).append(label).append(": {\n");
+        increaseIndent();
+        result.append(indent()).append("const ").append(value).append(" = ").append(node.getExpression().accept(this)).append(";\n");
+        
+        if (dispatch.isWorthDispatching()) {
+            // Intervals hold whole numbers only; other numbers try the same cases in written order
+            result.append(indent()).append("if (Number.isInteger(").append(value).append(")) {\n");
+            increaseIndent();
+            if (dispatch.isDense()) {
+                result.append(indent()).append("switch (").append(value).append(") {\n");
+                increaseIndent();
+                for (Map.Entry<Integer, List<MatchDispatch.Interval>> arm : dispatch.getIntervalsByCase().entrySet()) {
+                    for (MatchDispatch.Interval interval : arm.getValue()) {
+                        for (long v = interval.getStart(); v <= interval.getEnd(); v++) {
+                            result.append(indent()).append("case ").append(v).append(":\n");
+                        }
+                    }
+                    result.append(translateCaseBody(cases.get(arm.getKey()), label));
+                }
+                decreaseIndent();
+                result.append(indent()).append("}\n");
+            } else {
+                String arm = label + "Arm";
+                result.append(indent()).append("let ").append(arm).append(" = -1;\n");
+                result.append(translateBinarySearch(dispatch.getIntervals(), 0, dispatch.getIntervals().size() - 1, value, arm));
+                result.append(indent()).append("switch (").append(arm).append(") {\n");
+                increaseIndent();
+                for (Integer caseIndex : dispatch.getIntervalsByCase().keySet()) {
+                    result.append(indent()).append("case ").append(caseIndex).append(":\n");
+                    result.append(translateCaseBody(cases.get(caseIndex), label));
+                }
+                decreaseIndent();
+                result.append(indent()).append("}\n");
+            }
+            decreaseIndent();
+            result.append(indent()).append("} else {\n");
+            increaseIndent();
+            result.append(translateOrderedCases(cases, 0, dispatch.getFallbackStart(), value, label));
+            decreaseIndent();
+            result.append(indent()).append("}\n");
+            
+            // Sequential checks for the cases that cannot be reordered
+            result.append(translateOrderedCases(cases, dispatch.getFallbackStart(), cases.size(), value, label));
+        } else {
+            result.append(translateOrderedCases(cases, 0, cases.size(), value, label));
+        }
+        
+        decreaseIndent();
+        result.append(indent()).append("}\n");
+        return result.toString();
+    }
+    
+    /**
+     * Checks for cases from..to-1, each in turn, in the order they are written
+     */
+    private String translateOrderedCases(List<MatchStatementNode.MatchCase> cases, int from, int to, String value, String label) {
+        StringBuilder result = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            MatchStatementNode.MatchCase matchCase = cases.get(i);
+            switch (matchCase.getKind()) {
+                case LITERAL:
+                    result.append(indent()).append("if (").append(value).append(" === ").append(matchCase.getValue().accept(this)).append(") {\n");
+                    break;
+                case RANGE:
+                    result.append(indent()).append("if (").append(value).append(" >= ").append(matchCase.getRangeStart().accept(this))
+                          .append(" && ").append(value).append(" <= ").append(matchCase.getRangeEnd().accept(this)).append(") {\n");
+                    break;
+                case GUARD:
+                    result.append(indent()).append("{\n");
+                    increaseIndent();
+                    result.append(indent()).append("const ").append(convertToCamelCase(matchCase.getVariableName()))
+                          .append(" = ").append(value).append(";\n");
+                    result.append(indent()).append("if (").append(matchCase.getGuard().accept(this)).append(") {\n");
+                    increaseIndent();
+                    result.append(translateCaseStatements(matchCase, label));
+                    decreaseIndent();
+                    result.append(indent()).append("}\n");
+                    decreaseIndent();
+                    result.append(indent()).append("}\n");
+                    continue;
+                default:
+                    String pattern = matchCase.getPattern();
+                    if (matchCase.getType() == null && Character.isLowerCase(pattern.charAt(0))) {
+                        // Catch-all binding
+                        result.append(indent()).append("{\n");
+                        increaseIndent();
+                        result.append(indent()).append("const ").append(convertToCamelCase(pattern)).append(" = ").append(value).append(";\n");
+                        result.append(translateCaseStatements(matchCase, label));
+                        decreaseIndent();
+                        result.append(indent()).append("}\n");
+                        continue;
+                    }
+                    result.append(indent()).append("if (").append(value).append(" === ").append(pattern).append(") {\n");
+                    break;
+            }
+            increaseIndent();
+            result.append(translateCaseStatements(matchCase, label));
+            decreaseIndent();
+            result.append(indent()).append("}\n");
+        }
+        return result.toString();
+    }
+    
+    private String translateCaseBody(MatchStatementNode.MatchCase matchCase, String label) {
+        // Braces give each case its own scope for declarations
+        StringBuilder result = new StringBuilder();
+        increaseIndent();
+        result.append(indent()).append("{\n");
+        increaseIndent();
+        result.append(translateCaseStatements(matchCase, label));
+        decreaseIndent();
+        result.append(indent()).append("}\n");
+        decreaseIndent();
+        return result.toString();
+    }
+    
+    private String translateCaseStatements(MatchStatementNode.MatchCase matchCase, String label) {
+        return matchCase.getBlock().accept(this) + indent() + "break " + label + ";\n";
+    }
+    
+    /**
+     * Nested comparisons that store the index of the case whose interval holds the value
+     */
+    private String translateBinarySearch(List<MatchDispatch.Interval> intervals, int low, int high, String value, String arm) {
+        StringBuilder result = new StringBuilder();
+        if (high - low < 2) {
+            for (int i = low; i <= high; i++) {
+                MatchDispatch.Interval interval = intervals.get(i);
+                result.append(indent()).append(i > low ? "else if (" : "if (").append(intervalTest(interval, value)).append(") ")
+                      .append(arm).append(" = ").append(interval.getCaseIndex()).append(";\n");
+            }
+            return result.toString();
+        }
+        
+        int mid = (low + high + 1) >>> 1;
+        result.append(indent()).append("if (").append(value).append(" < ").append(intervals.get(mid).getStart()).append(") {\n");
+        increaseIndent();
+        result.append(translateBinarySearch(intervals, low, mid - 1, value, arm));
+        decreaseIndent();
+        result.append(indent()).append("} else {\n");
+        increaseIndent();
+        result.append(translateBinarySearch(intervals, mid, high, value, arm));
+        decreaseIndent();
+        result.append(indent()).append("}\n");
+        return result.toString();
+    }
+    
+    private String intervalTest(MatchDispatch.Interval interval, String value) {
+        if (interval.getStart() == interval.getEnd()) {
+            return value + " === " + interval.getStart();
+        }
+        return value + " >= " + interval.getStart() + " && " + value + " <= " + interval.getEnd();
+    }
+    
     @Override
     public String visitModuleDeclaration(ModuleDeclarationNode node) {
         StringBuilder result = new StringBuilder();
@@ -550,6 +859,13 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         // Increase indent for class contents
         increaseIndent();
         
+        if (shapeStable) {
+            result.append(translateShapeStableMembers(node));
+            decreaseIndent();
+            result.append(indent()).append("}\n");
+            return result.toString();
+        }
+        
         // Add structure members
         for (ASTNode member : node.getMembers()) {
             result.append(member.accept(this));
@@ -562,6 +878,54 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         return result.toString();
     }
     
+    /**
+     * Fields are declared and assigned in the constructor in declaration order, so every
+     * instance is created with the same hidden class
+     */
+    private String translateShapeStableMembers(StructureDeclarationNode node) {
+        StringBuilder result = new StringBuilder();
+        List<VariableDeclarationNode> fields = new ArrayList<>();
+        
+        for (ASTNode member : node.getMembers()) {
+            if (member instanceof VariableDeclarationNode) {
+                VariableDeclarationNode field = (VariableDeclarationNode) member;
+                fields.add(field);
+                result.append(indent()).append(convertToCamelCase(field.getName()))
+                      .append(": ").append(translateType(field.getType())).append(";\n");
+            }
+        }
+        
+        result.append("\n").append(indent()).append("constructor(");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) result.append(", ");
+            VariableDeclarationNode field = fields.get(i);
+            result.append(convertToCamelCase(field.getName())).append(": ").append(translateType(field.getType()));
+            if (field.getInitializer() != null) {
+                result.append(" = ").append(translateValue(field.getInitializer(), field.getType()));
+            }
+        }
+        result.append(") {\n");
+        
+        increaseIndent();
+        for (VariableDeclarationNode field : fields) {
+            String name = convertToCamelCase(field.getName());
+            result.append(indent()).append("this.").append(name).append(" = ").append(name).append(";\n");
+        }
+        decreaseIndent();
+        result.append(indent()).append("}\n");
+        
+        // Remaining members become methods
+        for (ASTNode member : node.getMembers()) {
+            if (member instanceof FunctionDeclarationNode) {
+                result.append("\n");
+                result.append(member.accept(this).replaceFirst("^(\\s*)(async )?function ", "$1$2"));
+                result.append("\n");
+            }
+        }
+        
+        return result.toString();
+    }
+    
     @Override
     public String visitImportStatement(ImportStatementNode node) {
         return "import { " + node.getModuleName() + " } from './" + node.getModuleName() + "';\n";
@@ -579,6 +943,9 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
         String member = node.getMember().accept(this);
         
         if (node.isArrayAccess()) {
+            if (shapeStable && isMapTyped(node.getObject())) {
+                return object + ".get(" + member + ")";
+            }
             return object + "[" + member + "]";
         } else {
             return object + "." + member;
@@ -588,6 +955,16 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     @Override
     public String visitListExpression(ListExpressionNode node) {
         StringBuilder result = new StringBuilder();
+        if (shapeStable && node.hasResolvedType() && isNumberList(node.getResolvedType())) {
+            result.append("Float64Array.of(");
+            List<ExpressionNode> elements = node.getElements();
+            for (int i = 0; i < elements.size(); i++) {
+                if (i > 0) result.append(", ");
+                result.append(elements.get(i).accept(this));
+            }
+            result.append(")");
+            return result.toString();
+        }
         result.append("[");
         
         List<ExpressionNode> elements = node.getElements();
@@ -603,6 +980,20 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     @Override
     public String visitMapExpression(MapExpressionNode node) {
         StringBuilder result = new StringBuilder();
+        
+        if (shapeStable) {
+            // Keys computed at runtime would push a plain object into dictionary mode
+            result.append("new Map([");
+            List<MapExpressionNode.KeyValuePair> pairs = node.getPairs();
+            for (int i = 0; i < pairs.size(); i++) {
+                if (i > 0) result.append(", ");
+                result.append("[").append(pairs.get(i).getKey().accept(this))
+                      .append(", ").append(pairs.get(i).getValue().accept(this)).append("]");
+            }
+            result.append("])");
+            return result.toString();
+        }
+        
         result.append("{\n");
         
         List<MapExpressionNode.KeyValuePair> entries = node.getPairs();
@@ -628,12 +1019,16 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     public String visitTypeCast(TypeCastNode node) {
         String expression = node.getExpression().accept(this);
         
+        // Skip conversions the type checker has shown to be no-ops
         switch (node.getCastType()) {
             case TO_STRING:
+                if (hasType(node.getExpression(), TypeNode.TypeKind.STRING)) return expression;
                 return expression + ".toString()";
             case TO_NUMBER:
+                if (hasType(node.getExpression(), TypeNode.TypeKind.NUMBER)) return expression;
                 return "Number(" + expression + ")";
             case TO_BOOLEAN:
+                if (hasType(node.getExpression(), TypeNode.TypeKind.BOOLEAN)) return expression;
                 return "Boolean(" + expression + ")";
             default:
                 return expression;
@@ -649,7 +1044,8 @@ public class TypeScriptTranslator implements ASTVisitor<String> {
     public String visitEnumDeclaration(EnumDeclarationNode node) {
         StringBuilder result = new StringBuilder();
         
-        result.append(indent()).append("enum ").append(node.getName()).append(" {\n");
+        // const enums are inlined as literals and leave no runtime object behind
+        result.append(indent()).append(shapeStable ? "const enum " : "enum ").append(node.getName()).append(" {\n");
         
         // Increase indent for enum variants
         increaseIndent();
@@ -0,0 +1,587 @@
+package com.ylang.backend.translator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A WebAssembly module built by {@link WasmTranslator}: imported and defined functions, globals,
+ * one linear memory and its data. It encodes to the binary format, and to WAT text with the same
+ * instructions in the same order for reading and debugging.
+ */
+public class WasmModule {
+
+    public enum ValueType {
+        I32(0x7F), F64(0x7C);
+
+        final int code;
+
+        ValueType(int code) {
+            this.code = code;
+        }
+
+        String text() {
+            return name().toLowerCase();
+        }
+    }
+
+    public record FunctionType(List<ValueType> params, List<ValueType> results) {
+    }
+
+    /** What follows an opcode */
+    enum Immediate {
+        NONE, BLOCK, LABEL, FUNCTION, LOCAL, GLOBAL, I32, F64, MEMORY, MEMORY_INDEX
+    }
+
+    /** The instructions the translator uses */
+    public enum Op {
+        UNREACHABLE(0x00, "unreachable", Immediate.NONE),
+        BLOCK(0x02, "block", Immediate.BLOCK),
+        LOOP(0x03, "loop", Immediate.BLOCK),
+        IF(0x04, "if", Immediate.BLOCK),
+        ELSE(0x05, "else", Immediate.NONE),
+        END(0x0B, "end", Immediate.NONE),
+        BR(0x0C, "br", Immediate.LABEL),
+        BR_IF(0x0D, "br_if", Immediate.LABEL),
+        RETURN(0x0F, "return", Immediate.NONE),
+        CALL(0x10, "call", Immediate.FUNCTION),
+        DROP(0x1A, "drop", Immediate.NONE),
+        SELECT(0x1B, "select", Immediate.NONE),
+        LOCAL_GET(0x20, "local.get", Immediate.LOCAL),
+        LOCAL_SET(0x21, "local.set", Immediate.LOCAL),
+        LOCAL_TEE(0x22, "local.tee", Immediate.LOCAL),
+        GLOBAL_GET(0x23, "global.get", Immediate.GLOBAL),
+        GLOBAL_SET(0x24, "global.set", Immediate.GLOBAL),
+        I32_LOAD(0x28, "i32.load", Immediate.MEMORY),
+        F64_LOAD(0x2B, "f64.load", Immediate.MEMORY),
+        I32_STORE(0x36, "i32.store", Immediate.MEMORY),
+        F64_STORE(0x39, "f64.store", Immediate.MEMORY),
+        MEMORY_SIZE(0x3F, "memory.size", Immediate.MEMORY_INDEX),
+        MEMORY_GROW(0x40, "memory.grow", Immediate.MEMORY_INDEX),
+        I32_CONST(0x41, "i32.const", Immediate.I32),
+        F64_CONST(0x44, "f64.const", Immediate.F64),
+        I32_EQZ(0x45, "i32.eqz", Immediate.NONE),
+        I32_EQ(0x46, "i32.eq", Immediate.NONE),
+        I32_GT_U(0x4B, "i32.gt_u", Immediate.NONE),
+        I32_LE_U(0x4D, "i32.le_u", Immediate.NONE),
+        I32_GE_U(0x4F, "i32.ge_u", Immediate.NONE),
+        I32_LT_U(0x49, "i32.lt_u", Immediate.NONE),
+        F64_EQ(0x61, "f64.eq", Immediate.NONE),
+        F64_NE(0x62, "f64.ne", Immediate.NONE),
+        F64_LT(0x63, "f64.lt", Immediate.NONE),
+        F64_GT(0x64, "f64.gt", Immediate.NONE),
+        F64_LE(0x65, "f64.le", Immediate.NONE),
+        F64_GE(0x66, "f64.ge", Immediate.NONE),
+        I32_ADD(0x6A, "i32.add", Immediate.NONE),
+        I32_AND(0x71, "i32.and", Immediate.NONE),
+        I32_OR(0x72, "i32.or", Immediate.NONE),
+        I32_SHL(0x74, "i32.shl", Immediate.NONE),
+        F64_ABS(0x99, "f64.abs", Immediate.NONE),
+        F64_NEG(0x9A, "f64.neg", Immediate.NONE),
+        F64_CEIL(0x9B, "f64.ceil", Immediate.NONE),
+        F64_FLOOR(0x9C, "f64.floor", Immediate.NONE),
+        F64_TRUNC(0x9D, "f64.trunc", Immediate.NONE),
+        F64_SQRT(0x9F, "f64.sqrt", Immediate.NONE),
+        F64_ADD(0xA0, "f64.add", Immediate.NONE),
+        F64_SUB(0xA1, "f64.sub", Immediate.NONE),
+        F64_MUL(0xA2, "f64.mul", Immediate.NONE),
+        F64_DIV(0xA3, "f64.div", Immediate.NONE),
+        F64_MIN(0xA4, "f64.min", Immediate.NONE),
+        I32_TRUNC_F64_S(0xAA, "i32.trunc_f64_s", Immediate.NONE),
+        I32_TRUNC_F64_U(0xAB, "i32.trunc_f64_u", Immediate.NONE),
+        F64_CONVERT_I32_U(0xB8, "f64.convert_i32_u", Immediate.NONE);
+
+        final int opcode;
+        final String text;
+        final Immediate immediate;
+
+        Op(int opcode, String text, Immediate immediate) {
+            this.opcode = opcode;
+            this.text = text;
+            this.immediate = immediate;
+        }
+    }
+
+    /**
+     * One instruction: value is the index, label depth, i32 constant or memory offset; blockType
+     * is the result of a block, loop or if, null for none
+     */
+    record Instruction(Op op, long value, double number, ValueType blockType) {
+    }
+
+    /** An imported function */
+    record Import(String module, String name, FunctionType type) {
+    }
+
+    /** A function defined in the module; its first locals are its parameters */
+    static final class Function {
+        String name;
+        final FunctionType type;
+        final List<String> localNames = new ArrayList<>();
+        final List<ValueType> localTypes = new ArrayList<>();
+        final List<Instruction> code = new ArrayList<>();
+        String exportName;
+
+        Function(String name, FunctionType type, List<String> parameterNames) {
+            this.name = name;
+            this.type = type;
+            for (int i = 0; i < parameterNames.size(); i++) {
+                addLocal(parameterNames.get(i), type.params().get(i));
+            }
+        }
+
+        /**
+         * Add a local, named uniquely within the function for the WAT text
+         * @return Its index
+         */
+        int addLocal(String name, ValueType type) {
+            String unique = name;
+            for (int n = 1; localNames.contains(unique); n++) {
+                unique = name + "." + n;
+            }
+            localNames.add(unique);
+            localTypes.add(type);
+            return localNames.size() - 1;
+        }
+
+        void emit(Op op) {
+            code.add(new Instruction(op, 0, 0, null));
+        }
+
+        void emit(Op op, long value) {
+            code.add(new Instruction(op, value, 0, null));
+        }
+
+        void emitBlock(Op op, ValueType result) {
+            code.add(new Instruction(op, 0, 0, result));
+        }
+
+        void emitF64(double value) {
+            code.add(new Instruction(Op.F64_CONST, 0, value, null));
+        }
+    }
+
+    /** A global, initialized to zero unless given an i32 value */
+    static final class Global {
+        final String name;
+        final ValueType type;
+        final boolean mutable;
+        int initialValue;
+
+        Global(String name, ValueType type, boolean mutable) {
+            this.name = name;
+            this.type = type;
+            this.mutable = mutable;
+        }
+    }
+
+    // Address zero stays unused, so no list or string is ever at it
+    static final int DATA_START = 8;
+    static final int PAGE_SIZE = 65536;
+
+    final List<Import> imports = new ArrayList<>();
+    final List<Function> functions = new ArrayList<>();
+    final List<Global> globals = new ArrayList<>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final Map<String, int[]> strings = new LinkedHashMap<>();
+    int maxMemoryPages;
+
+    int addImport(String module, String name, FunctionType type) {
+        imports.add(new Import(module, name, type));
+        return imports.size() - 1;
+    }
+
+    int addFunction(Function function) {
+        String name = function.name;
+        for (int n = 1; functionIndex(function.name) >= 0; n++) {
+            function.name = name + "." + n;
+        }
+        functions.add(function);
+        return imports.size() + functions.size() - 1;
+    }
+
+    int addGlobal(String name, ValueType type, boolean mutable) {
+        String unique = name;
+        for (int n = 1; globalIndex(unique) >= 0; n++) {
+            unique = name + "." + n;
+        }
+        globals.add(new Global(unique, type, mutable));
+        return globals.size() - 1;
+    }
+
+    private int functionIndex(String name) {
+        for (int i = 0; i < functions.size(); i++) {
+            if (functions.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int globalIndex(String name) {
+        for (int i = 0; i < globals.size(); i++) {
+            if (globals.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Place a string's UTF-8 bytes in the data segment, once per distinct string
+     * @return Its address and length in bytes
+     */
+    int[] string(String text) {
+        return strings.computeIfAbsent(text, key -> {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            int[] location = {DATA_START + data.size(), bytes.length};
+            data.writeBytes(bytes);
+            return location;
+        });
+    }
+
+    /**
+     * First address after the data, aligned for f64 values
+     */
+    int heapBase() {
+        return (DATA_START + data.size() + 7) & ~7;
+    }
+
+    int minMemoryPages() {
+        return Math.max(1, (heapBase() + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    private String functionName(long index) {
+        if (index < imports.size()) {
+            Import imported = imports.get((int) index);
+            return imported.module() + "." + imported.name();
+        }
+        return functions.get((int) index - imports.size()).name;
+    }
+
+    // Binary format
+
+    /**
+     * Encode the module in the WebAssembly binary format
+     */
+    public byte[] toBinary() {
+        List<FunctionType> types = new ArrayList<>();
+        for (Import imported : imports) {
+            typeIndex(types, imported.type());
+        }
+        for (Function function : functions) {
+            typeIndex(types, function.type);
+        }
+
+        Buffer out = new Buffer();
+        out.bytes(0x00, 0x61, 0x73, 0x6D, 0x01, 0x00, 0x00, 0x00);
+
+        Buffer section = new Buffer();
+        section.u32(types.size());
+        for (FunctionType type : types) {
+            section.bytes(0x60);
+            section.u32(type.params().size());
+            type.params().forEach(param -> section.bytes(param.code));
+            section.u32(type.results().size());
+            type.results().forEach(result -> section.bytes(result.code));
+        }
+        out.section(1, section);
+
+        Buffer importSection = new Buffer();
+        importSection.u32(imports.size());
+        for (Import imported : imports) {
+            importSection.name(imported.module());
+            importSection.name(imported.name());
+            importSection.bytes(0x00);
+            importSection.u32(typeIndex(types, imported.type()));
+        }
+        out.section(2, importSection);
+
+        Buffer functionSection = new Buffer();
+        functionSection.u32(functions.size());
+        for (Function function : functions) {
+            functionSection.u32(typeIndex(types, function.type));
+        }
+        out.section(3, functionSection);
+
+        Buffer memorySection = new Buffer();
+        memorySection.u32(1);
+        memorySection.bytes(0x01);
+        memorySection.u32(minMemoryPages());
+        memorySection.u32(Math.max(minMemoryPages(), maxMemoryPages));
+        out.section(5, memorySection);
+
+        Buffer globalSection = new Buffer();
+        globalSection.u32(globals.size());
+        for (Global global : globals) {
+            globalSection.bytes(global.type.code, global.mutable ? 0x01 : 0x00);
+            if (global.type == ValueType.I32) {
+                globalSection.bytes(Op.I32_CONST.opcode);
+                globalSection.s32(global.initialValue);
+            } else {
+                globalSection.bytes(Op.F64_CONST.opcode);
+                globalSection.f64(0);
+            }
+            globalSection.bytes(Op.END.opcode);
+        }
+        out.section(6, globalSection);
+
+        Buffer exportSection = new Buffer();
+        List<Function> exported = functions.stream().filter(function -> function.exportName != null).toList();
+        exportSection.u32(exported.size() + 1);
+        exportSection.name("memory");
+        exportSection.bytes(0x02);
+        exportSection.u32(0);
+        for (Function function : exported) {
+            exportSection.name(function.exportName);
+            exportSection.bytes(0x00);
+            exportSection.u32(imports.size() + functions.indexOf(function));
+        }
+        out.section(7, exportSection);
+
+        Buffer codeSection = new Buffer();
+        codeSection.u32(functions.size());
+        for (Function function : functions) {
+            Buffer body = new Buffer();
+            // Locals after the parameters, grouped in runs of one type
+            List<ValueType> locals = function.localTypes.subList(function.type.params().size(), function.localTypes.size());
+            List<int[]> runs = new ArrayList<>();
+            for (ValueType type : locals) {
+                if (!runs.isEmpty() && runs.get(runs.size() - 1)[1] == type.code) {
+                    runs.get(runs.size() - 1)[0]++;
+                } else {
+                    runs.add(new int[] {1, type.code});
+                }
+            }
+            body.u32(runs.size());
+            for (int[] run : runs) {
+                body.u32(run[0]);
+                body.bytes(run[1]);
+            }
+            for (Instruction instruction : function.code) {
+                encode(body, instruction);
+            }
+            body.bytes(Op.END.opcode);
+            codeSection.u32(body.size());
+            codeSection.append(body);
+        }
+        out.section(10, codeSection);
+
+        if (data.size() > 0) {
+            Buffer dataSection = new Buffer();
+            dataSection.u32(1);
+            dataSection.u32(0);
+            dataSection.bytes(Op.I32_CONST.opcode);
+            dataSection.s32(DATA_START);
+            dataSection.bytes(Op.END.opcode);
+            dataSection.u32(data.size());
+            dataSection.writeBytes(data.toByteArray());
+            out.section(11, dataSection);
+        }
+        return out.toByteArray();
+    }
+
+    private static int typeIndex(List<FunctionType> types, FunctionType type) {
+        int index = types.indexOf(type);
+        if (index < 0) {
+            types.add(type);
+            index = types.size() - 1;
+        }
+        return index;
+    }
+
+    private static void encode(Buffer out, Instruction instruction) {
+        Op op = instruction.op();
+        out.bytes(op.opcode);
+        switch (op.immediate) {
+            case BLOCK:
+                out.bytes(instruction.blockType() == null ? 0x40 : instruction.blockType().code);
+                break;
+            case LABEL:
+            case FUNCTION:
+            case LOCAL:
+            case GLOBAL:
+                out.u32(instruction.value());
+                break;
+            case I32:
+                out.s32((int) instruction.value());
+                break;
+            case F64:
+                out.f64(instruction.number());
+                break;
+            case MEMORY:
+                // Natural alignment, then the offset
+                out.u32(op == Op.I32_LOAD || op == Op.I32_STORE ? 2 : 3);
+                out.u32(instruction.value());
+                break;
+            case MEMORY_INDEX:
+                out.bytes(0x00);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Bytes with the LEB128 and IEEE 754 encodings the binary format uses */
+    private static final class Buffer extends ByteArrayOutputStream {
+        void bytes(int... values) {
+            for (int value : values) {
+                write(value);
+            }
+        }
+
+        void u32(long value) {
+            do {
+                int b = (int) (value & 0x7F);
+                value >>>= 7;
+                write(value != 0 ? b | 0x80 : b);
+            } while (value != 0);
+        }
+
+        void s32(int value) {
+            boolean more = true;
+            while (more) {
+                int b = value & 0x7F;
+                value >>= 7;
+                more = !(value == 0 && (b & 0x40) == 0 || value == -1 && (b & 0x40) != 0);
+                write(more ? b | 0x80 : b);
+            }
+        }
+
+        void f64(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void name(String name) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            u32(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void append(Buffer other) {
+            write(other.buf, 0, other.count);
+        }
+
+        void section(int id, Buffer content) {
+            write(id);
+            u32(content.size());
+            append(content);
+        }
+    }
+
+    // Text format
+
+    /**
+     * Write the module as WAT text
+     */
+    public String toWat() {
+        StringBuilder out = new StringBuilder("(module\n");
+        for (Import imported : imports) {
+            out.append("  (import \"").append(imported.module()).append("\" \"").append(imported.name())
+               .append("\" (func $").append(imported.module()).append('.').append(imported.name()).append(signature(imported.type(), null)).append("))\n");
+        }
+        out.append("  (memory (export \"memory\") ").append(minMemoryPages()).append(' ')
+           .append(Math.max(minMemoryPages(), maxMemoryPages)).append(")\n");
+        for (Global global : globals) {
+            out.append("  (global $").append(global.name).append(' ')
+               .append(global.mutable ? "(mut " + global.type.text() + ")" : global.type.text())
+               .append(" (").append(global.type.text()).append(".const ")
+               .append(global.type == ValueType.I32 ? global.initialValue : 0).append("))\n");
+        }
+        for (Function function : functions) {
+            out.append("  (func $").append(function.name);
+            if (function.exportName != null) {
+                out.append(" (export \"").append(function.exportName).append("\")");
+            }
+            out.append(signature(function.type, function.localNames)).append('\n');
+            for (int i = function.type.params().size(); i < function.localNames.size(); i++) {
+                out.append("    (local $").append(function.localNames.get(i)).append(' ')
+                   .append(function.localTypes.get(i).text()).append(")\n");
+            }
+            int depth = 2;
+            for (Instruction instruction : function.code) {
+                if (instruction.op() == Op.END || instruction.op() == Op.ELSE) {
+                    depth--;
+                }
+                out.append("  ".repeat(depth)).append(text(function, instruction)).append('\n');
+                if (instruction.op().immediate == Immediate.BLOCK || instruction.op() == Op.ELSE) {
+                    depth++;
+                }
+            }
+            out.append("  )\n");
+        }
+        if (data.size() > 0) {
+            out.append("  (data (i32.const ").append(DATA_START).append(") \"");
+            for (byte b : data.toByteArray()) {
+                int c = b & 0xFF;
+                if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\') {
+                    out.append((char) c);
+                } else {
+                    out.append(String.format("\\%02x", c));
+                }
+            }
+            out.append("\")\n");
+        }
+        return out.append(")\n").toString();
+    }
+
+    private static String signature(FunctionType type, List<String> parameterNames) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < type.params().size(); i++) {
+            out.append(" (param ");
+            if (parameterNames != null) {
+                out.append('$').append(parameterNames.get(i)).append(' ');
+            }
+            out.append(type.params().get(i).text()).append(')');
+        }
+        for (ValueType result : type.results()) {
+            out.append(" (result ").append(result.text()).append(')');
+        }
+        return out.toString();
+    }
+
+    private String text(Function function, Instruction instruction) {
+        Op op = instruction.op();
+        switch (op.immediate) {
+            case BLOCK:
+                return instruction.blockType() == null ? op.text
+                                                       : op.text + " (result " + instruction.blockType().text() + ")";
+            case LABEL:
+                return op.text + " " + instruction.value();
+            case FUNCTION:
+                return op.text + " $" + functionName(instruction.value());
+            case LOCAL:
+                return op.text + " $" + function.localNames.get((int) instruction.value());
+            case GLOBAL:
+                return op.text + " $" + globals.get((int) instruction.value()).name;
+            case I32:
+                return op.text + " " + (int) instruction.value();
+            case F64:
+                return op.text + " " + f64Text(instruction.number());
+            case MEMORY:
+                return instruction.value() == 0 ? op.text : op.text + " offset=" + instruction.value();
+            default:
+                return op.text;
+        }
+    }
+
+    private static String f64Text(double value) {
+        if (Double.isNaN(value)) {
+            return "nan";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        // Hexadecimal keeps every bit; whole numbers read better in decimal
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return (1 / value < 0 ? "-" : "") + Long.toString(Math.abs((long) value));
+        }
+        return Double.toHexString(value);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,1283 @@
+package com.ylang.backend.translator;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.exception.YLanguageUnsupportedException;
+import com.ylang.backend.translator.WasmModule.FunctionType;
+import com.ylang.backend.translator.WasmModule.Op;
+import com.ylang.backend.translator.WasmModule.ValueType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translator that converts Y language AST to a WebAssembly module, for running programs in the
+ * browser faster than their TypeScript translation. It covers the numeric and control-flow subset
+ * of Y: functions, variables, if, loops and match over numbers and booleans, arithmetic and
+ * comparisons, and lists of numbers. Anything else is rejected with an
+ * {@link YLanguageUnsupportedException} naming the line.
+ *
+ * Numbers are f64 and booleans i32. A list is an i32 address in linear memory of a header holding
+ * its length, its capacity and the address of its elements, which move to a block twice the size
+ * when an append fills them. Memory is handed out by a bump allocator and never freed, and grows
+ * up to the configured number of 64 KiB pages. Functions need declared parameter types, since the
+ * module has no other way to know them; top-level variables are globals, and the top-level code is
+ * the exported function "main".
+ *
+ * The host provides the imports of module "env": print_number(f64), print_boolean(i32) and
+ * print_text(address, length) append to the current line, print_newline() ends it, and
+ * fail(address, length) receives the message of a runtime error such as division by zero, after
+ * which the module traps. Texts are UTF-8 in the exported memory. Unlike the interpreter, the
+ * module counts no steps: a host bounds its running time itself.
+ */
+@Component
+public class WasmTranslator implements ASTVisitor<WasmTranslator.Kind> {
+
+    /** A value's representation; NOTHING is the result of functions returning no value */
+    enum Kind {
+        NUMBER(ValueType.F64, "a number"),
+        BOOLEAN(ValueType.I32, "a boolean"),
+        LIST(ValueType.I32, "a list of numbers"),
+        NOTHING(null, "nothing");
+
+        final ValueType type;
+        final String description;
+
+        Kind(ValueType type, String description) {
+            this.type = type;
+            this.description = description;
+        }
+    }
+
+    // Offsets of the fields of a list header
+    private static final int LENGTH = 0;
+    private static final int CAPACITY = 4;
+    private static final int ELEMENTS = 8;
+    private static final int HEADER_SIZE = 12;
+    // Above this many elements a list would not fit in 32-bit memory
+    private static final int MAX_ELEMENTS = 0x0FFFFFFF;
+
+    public static final int DEFAULT_MAX_MEMORY_PAGES = 256;
+
+    @Value("${ylang.translator.wasm-max-memory-pages:" + DEFAULT_MAX_MEMORY_PAGES + "}")
+    private int maxMemoryPages = DEFAULT_MAX_MEMORY_PAGES;
+
+    /** A declared function with its index in the module */
+    private record Signature(FunctionDeclarationNode node, WasmModule.Function function, int index,
+                             List<Kind> parameters, Kind result) {
+    }
+
+    /** A local of the current function, or a global */
+    private record Variable(Kind kind, int index, boolean global) {
+    }
+
+    private WasmModule module;
+    private final Map<String, Signature> functions = new LinkedHashMap<>();
+    private final Map<String, Variable> globals = new HashMap<>();
+    private final Deque<Map<String, Variable>> scopes = new ArrayDeque<>();
+    private WasmModule.Function code;
+    private Signature current;
+
+    private int printNumber;
+    private int printBoolean;
+    private int printText;
+    private int printNewline;
+    private int fail;
+    private int heap;
+    private int alloc;
+    private int listNew;
+    private int listPush;
+    private int listGet;
+    private int listContains;
+    private int range;
+    private int divide;
+    private int remainder;
+    private int printList;
+
+    /**
+     * Translate Y language AST to WebAssembly text
+     * @param ast The Y language AST
+     * @return The module as WAT
+     */
+    public String translate(ProgramNode ast) {
+        return compile(ast).toWat();
+    }
+
+    /**
+     * Translate Y language AST to a WebAssembly binary
+     * @param ast The Y language AST
+     * @return The module in the binary format
+     */
+    public byte[] assemble(ProgramNode ast) {
+        return compile(ast).toBinary();
+    }
+
+    /**
+     * Translate Y language AST to a WebAssembly module
+     * @param ast The Y language AST
+     * @return The module, to encode as binary or text
+     */
+    public WasmModule compile(ProgramNode ast) {
+        // The bean is shared between concurrent compilations, so each one gets its own emitter state
+        WasmTranslator session = new WasmTranslator();
+        session.maxMemoryPages = maxMemoryPages;
+        return session.generate(ast);
+    }
+
+    private WasmModule generate(ProgramNode ast) {
+        module = new WasmModule();
+        module.maxMemoryPages = maxMemoryPages;
+        printNumber = module.addImport("env", "print_number", type(List.of(ValueType.F64), null));
+        printBoolean = module.addImport("env", "print_boolean", type(List.of(ValueType.I32), null));
+        printText = module.addImport("env", "print_text", type(List.of(ValueType.I32, ValueType.I32), null));
+        printNewline = module.addImport("env", "print_newline", type(List.of(), null));
+        fail = module.addImport("env", "fail", type(List.of(ValueType.I32, ValueType.I32), null));
+        heap = module.addGlobal("heap", ValueType.I32, true);
+        generateRuntime();
+
+        WasmModule.Function main = new WasmModule.Function("main", type(List.of(), null), List.of());
+        main.exportName = "main";
+        module.addFunction(main);
+
+        declare(ast.getStatements());
+        for (Signature signature : new ArrayList<>(functions.values())) {
+            List<ValueType> params = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < signature.parameters().size(); i++) {
+                params.add(signature.parameters().get(i).type);
+                names.add(signature.node().getParameters().get(i).getName());
+            }
+            WasmModule.Function function = new WasmModule.Function(signature.node().getName(),
+                type(params, signature.result().type), names);
+            functions.put(signature.node().getName(), new Signature(signature.node(), function,
+                module.addFunction(function), signature.parameters(), signature.result()));
+        }
+
+        code = main;
+        ast.accept(this);
+
+        for (Signature signature : functions.values()) {
+            code = signature.function();
+            current = signature;
+            Map<String, Variable> parameters = new HashMap<>();
+            for (int i = 0; i < signature.parameters().size(); i++) {
+                parameters.put(signature.node().getParameters().get(i).getName(),
+                               new Variable(signature.parameters().get(i), i, false));
+            }
+            scopes.push(parameters);
+            signature.node().getBody().accept(this);
+            scopes.pop();
+            if (signature.result() != Kind.NOTHING) {
+                fail("Function '" + signature.node().getName() + "' ended without returning a value");
+            }
+        }
+
+        module.globals.get(heap).initialValue = module.heapBase();
+        return module;
+    }
+
+    private static FunctionType type(List<ValueType> params, ValueType result) {
+        return new FunctionType(params, result == null ? List.of() : List.of(result));
+    }
+
+    /**
+     * Register every function the program declares, so calls can come before declarations
+     */
+    private void declare(List<? extends ASTNode> statements) {
+        for (ASTNode statement : statements) {
+            if (statement instanceof FunctionDeclarationNode declaration) {
+                List<Kind> parameters = new ArrayList<>();
+                for (ParameterNode parameter : declaration.getParameters()) {
+                    if (parameter.getType() == null) {
+                        throw unsupported(declaration, "Parameter '" + parameter.getName() + "' of function '"
+                                          + declaration.getName() + "' needs a type for the WebAssembly target");
+                    }
+                    parameters.add(kindOf(parameter.getType(), declaration));
+                }
+                Kind result = declaration.getReturnType() == null ? Kind.NOTHING
+                                                                  : kindOf(declaration.getReturnType(), declaration);
+                functions.put(declaration.getName(), new Signature(declaration, null, -1, parameters, result));
+                declare(declaration.getBody().getStatements());
+            } else if (statement instanceof ModuleDeclarationNode moduleDeclaration) {
+                declare(moduleDeclaration.getStatements());
+            } else if (statement instanceof DecoratorNode decorator && decorator.getTarget() != null) {
+                declare(List.of(decorator.getTarget()));
+            } else if (statement instanceof BlockNode block) {
+                declare(block.getStatements());
+            } else if (statement instanceof IfStatementNode ifStatement) {
+                declare(List.of(ifStatement.getThenBlock()));
+                if (ifStatement.hasElseBlock()) {
+                    declare(List.of(ifStatement.getElseBlock()));
+                }
+            } else if (statement instanceof LoopStatementNode loop) {
+                declare(loop.getBody().getStatements());
+            }
+        }
+    }
+
+    private Kind kindOf(TypeNode type, ASTNode node) {
+        switch (type.getKind()) {
+            case NUMBER:
+                return Kind.NUMBER;
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case NOTHING:
+                return Kind.NOTHING;
+            case LIST:
+                if (type.getElementType() == null || type.getElementType().getKind() == TypeNode.TypeKind.NUMBER) {
+                    return Kind.LIST;
+                }
+                break;
+            default:
+                break;
+        }
+        throw unsupported(node, "The WebAssembly target supports numbers, booleans and lists of numbers, not " + type);
+    }
+
+    private static YLanguageUnsupportedException unsupported(ASTNode node, String message) {
+        return new YLanguageUnsupportedException(message, node != null ? node.getLine() : -1);
+    }
+
+    // Runtime support, written as functions of the module
+
+    private WasmModule.Function runtime(String name, List<ValueType> params, ValueType result, String... parameterNames) {
+        return new WasmModule.Function("rt." + name, type(params, result), List.of(parameterNames));
+    }
+
+    private void generateRuntime() {
+        WasmModule.Function allocFunction = runtime("alloc", List.of(ValueType.I32), ValueType.I32, "size");
+        WasmModule.Function listNewFunction = runtime("list_new", List.of(ValueType.I32), ValueType.I32, "capacity");
+        WasmModule.Function listPushFunction = runtime("list_push", List.of(ValueType.I32, ValueType.F64), ValueType.I32,
+                                                       "list", "value");
+        WasmModule.Function listGetFunction = runtime("list_get", List.of(ValueType.I32, ValueType.F64), ValueType.F64,
+                                                      "list", "index");
+        WasmModule.Function listContainsFunction = runtime("list_contains", List.of(ValueType.I32, ValueType.F64),
+                                                           ValueType.I32, "list", "value");
+        WasmModule.Function rangeFunction = runtime("range", List.of(ValueType.F64, ValueType.F64), ValueType.I32,
+                                                    "from", "to");
+        WasmModule.Function divideFunction = runtime("divide", List.of(ValueType.F64, ValueType.F64), ValueType.F64,
+                                                     "a", "b");
+        WasmModule.Function remainderFunction = runtime("remainder", List.of(ValueType.F64, ValueType.F64), ValueType.F64,
+                                                        "a", "b");
+        WasmModule.Function printListFunction = runtime("print_list", List.of(ValueType.I32), null, "list");
+        alloc = module.addFunction(allocFunction);
+        listNew = module.addFunction(listNewFunction);
+        listPush = module.addFunction(listPushFunction);
+        listGet = module.addFunction(listGetFunction);
+        listContains = module.addFunction(listContainsFunction);
+        range = module.addFunction(rangeFunction);
+        divide = module.addFunction(divideFunction);
+        remainder = module.addFunction(remainderFunction);
+        printList = module.addFunction(printListFunction);
+
+        // alloc(size): the current heap pointer, moving it past size bytes rounded up to 8
+        code = allocFunction;
+        int address = code.addLocal("address", ValueType.I32);
+        emit(Op.GLOBAL_GET, heap);
+        emit(Op.LOCAL_SET, address);
+        emit(Op.GLOBAL_GET, heap);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_ADD);
+        i32(7);
+        emit(Op.I32_ADD);
+        i32(-8);
+        emit(Op.I32_AND);
+        emit(Op.GLOBAL_SET, heap);
+        emit(Op.GLOBAL_GET, heap);
+        emit(Op.LOCAL_GET, address);
+        emit(Op.I32_LT_U);
+        ifThen(() -> fail("Out of memory"));
+        loop(() -> {
+            // Until the memory reaches the heap pointer, grow it by a page
+            emit(Op.GLOBAL_GET, heap);
+            emit(Op.MEMORY_SIZE);
+            i32(16);
+            emit(Op.I32_SHL);
+            emit(Op.I32_LE_U);
+            emit(Op.BR_IF, 1);
+            i32(1);
+            emit(Op.MEMORY_GROW);
+            i32(-1);
+            emit(Op.I32_EQ);
+            ifThen(() -> fail("Out of memory"));
+            emit(Op.BR, 0);
+        });
+        emit(Op.LOCAL_GET, address);
+
+        // list_new(capacity): an empty list with room for at least capacity elements
+        code = listNewFunction;
+        int list = code.addLocal("list", ValueType.I32);
+        emit(Op.LOCAL_GET, 0);
+        i32(4);
+        emit(Op.LOCAL_GET, 0);
+        i32(4);
+        emit(Op.I32_GT_U);
+        emit(Op.SELECT);
+        emit(Op.LOCAL_SET, 0);
+        emit(Op.LOCAL_GET, 0);
+        i32(MAX_ELEMENTS);
+        emit(Op.I32_GT_U);
+        ifThen(() -> fail("Out of memory"));
+        i32(HEADER_SIZE);
+        emit(Op.CALL, alloc);
+        emit(Op.LOCAL_SET, list);
+        emit(Op.LOCAL_GET, list);
+        i32(0);
+        emit(Op.I32_STORE, LENGTH);
+        emit(Op.LOCAL_GET, list);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_STORE, CAPACITY);
+        emit(Op.LOCAL_GET, list);
+        emit(Op.LOCAL_GET, 0);
+        i32(3);
+        emit(Op.I32_SHL);
+        emit(Op.CALL, alloc);
+        emit(Op.I32_STORE, ELEMENTS);
+        emit(Op.LOCAL_GET, list);
+
+        // list_push(list, value): the list with value appended, moving full elements to twice the room
+        code = listPushFunction;
+        int length = code.addLocal("length", ValueType.I32);
+        int elements = code.addLocal("elements", ValueType.I32);
+        int capacity = code.addLocal("capacity", ValueType.I32);
+        int moved = code.addLocal("moved", ValueType.I32);
+        int i = code.addLocal("i", ValueType.I32);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_LOAD, LENGTH);
+        emit(Op.LOCAL_SET, length);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_LOAD, ELEMENTS);
+        emit(Op.LOCAL_SET, elements);
+        emit(Op.LOCAL_GET, length);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_LOAD, CAPACITY);
+        emit(Op.I32_EQ);
+        ifThen(() -> {
+            emit(Op.LOCAL_GET, length);
+            i32(1);
+            emit(Op.I32_SHL);
+            emit(Op.LOCAL_SET, capacity);
+            emit(Op.LOCAL_GET, capacity);
+            i32(MAX_ELEMENTS);
+            emit(Op.I32_GT_U);
+            ifThen(() -> fail("Out of memory"));
+            emit(Op.LOCAL_GET, capacity);
+            i32(3);
+            emit(Op.I32_SHL);
+            emit(Op.CALL, alloc);
+            emit(Op.LOCAL_SET, moved);
+            i32(0);
+            emit(Op.LOCAL_SET, i);
+            loop(() -> {
+                emit(Op.LOCAL_GET, i);
+                emit(Op.LOCAL_GET, length);
+                emit(Op.I32_GE_U);
+                emit(Op.BR_IF, 1);
+                elementAddress(moved, i);
+                elementAddress(elements, i);
+                emit(Op.F64_LOAD, 0);
+                emit(Op.F64_STORE, 0);
+                increment(i);
+                emit(Op.BR, 0);
+            });
+            emit(Op.LOCAL_GET, 0);
+            emit(Op.LOCAL_GET, capacity);
+            emit(Op.I32_STORE, CAPACITY);
+            emit(Op.LOCAL_GET, 0);
+            emit(Op.LOCAL_GET, moved);
+            emit(Op.I32_STORE, ELEMENTS);
+            emit(Op.LOCAL_GET, moved);
+            emit(Op.LOCAL_SET, elements);
+        });
+        elementAddress(elements, length);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.F64_STORE, 0);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.LOCAL_GET, length);
+        i32(1);
+        emit(Op.I32_ADD);
+        emit(Op.I32_STORE, LENGTH);
+        emit(Op.LOCAL_GET, 0);
+
+        // list_get(list, index): the element, failing unless index is a whole number within the list
+        code = listGetFunction;
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.F64_FLOOR);
+        emit(Op.F64_NE);
+        emit(Op.LOCAL_GET, 1);
+        number(0);
+        emit(Op.F64_LT);
+        emit(Op.I32_OR);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_LOAD, LENGTH);
+        emit(Op.F64_CONVERT_I32_U);
+        emit(Op.F64_GE);
+        emit(Op.I32_OR);
+        ifThen(() -> fail("Index out of bounds"));
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_LOAD, ELEMENTS);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.I32_TRUNC_F64_U);
+        i32(3);
+        emit(Op.I32_SHL);
+        emit(Op.I32_ADD);
+        emit(Op.F64_LOAD, 0);
+
+        // list_contains(list, value): whether an element equals value
+        code = listContainsFunction;
+        int index = code.addLocal("i", ValueType.I32);
+        int element = code.addLocal("elements", ValueType.I32);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.I32_LOAD, ELEMENTS);
+        emit(Op.LOCAL_SET, element);
+        loop(() -> {
+            emit(Op.LOCAL_GET, index);
+            emit(Op.LOCAL_GET, 0);
+            emit(Op.I32_LOAD, LENGTH);
+            emit(Op.I32_GE_U);
+            emit(Op.BR_IF, 1);
+            elementAddress(element, index);
+            emit(Op.F64_LOAD, 0);
+            emit(Op.LOCAL_GET, 1);
+            emit(Op.F64_EQ);
+            ifThen(() -> {
+                i32(1);
+                emit(Op.RETURN);
+            });
+            increment(index);
+            emit(Op.BR, 0);
+        });
+        i32(0);
+
+        // range(from, to): the whole numbers from ceil(from) up to ceil(to), exclusive
+        code = rangeFunction;
+        int result = code.addLocal("list", ValueType.I32);
+        int next = code.addLocal("next", ValueType.F64);
+        int end = code.addLocal("end", ValueType.F64);
+        int size = code.addLocal("size", ValueType.F64);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.F64_CEIL);
+        emit(Op.LOCAL_SET, next);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.F64_CEIL);
+        emit(Op.LOCAL_SET, end);
+        emit(Op.LOCAL_GET, end);
+        emit(Op.LOCAL_GET, next);
+        emit(Op.F64_SUB);
+        emit(Op.LOCAL_SET, size);
+        // Sizes that are not positive, NaN included, make an empty list; huge ones fail in list_new
+        emit(Op.LOCAL_GET, size);
+        number(0);
+        emit(Op.LOCAL_GET, size);
+        number(0);
+        emit(Op.F64_GT);
+        emit(Op.SELECT);
+        number(MAX_ELEMENTS + 1.0);
+        emit(Op.F64_MIN);
+        emit(Op.I32_TRUNC_F64_U);
+        emit(Op.CALL, listNew);
+        emit(Op.LOCAL_SET, result);
+        loop(() -> {
+            emit(Op.LOCAL_GET, next);
+            emit(Op.LOCAL_GET, end);
+            emit(Op.F64_LT);
+            emit(Op.I32_EQZ);
+            emit(Op.BR_IF, 1);
+            emit(Op.LOCAL_GET, result);
+            emit(Op.LOCAL_GET, next);
+            emit(Op.CALL, listPush);
+            emit(Op.DROP);
+            emit(Op.LOCAL_GET, next);
+            number(1);
+            emit(Op.F64_ADD);
+            emit(Op.LOCAL_SET, next);
+            emit(Op.BR, 0);
+        });
+        emit(Op.LOCAL_GET, result);
+
+        // divide(a, b) and remainder(a, b), failing on a zero divisor; the remainder has the sign of a
+        code = divideFunction;
+        failOnZero();
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.F64_DIV);
+
+        code = remainderFunction;
+        failOnZero();
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.LOCAL_GET, 0);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.F64_DIV);
+        emit(Op.F64_TRUNC);
+        emit(Op.LOCAL_GET, 1);
+        emit(Op.F64_MUL);
+        emit(Op.F64_SUB);
+
+        // print_list(list): [1, 2, 3]
+        code = printListFunction;
+        int position = code.addLocal("i", ValueType.I32);
+        text("[");
+        loop(() -> {
+            emit(Op.LOCAL_GET, position);
+            emit(Op.LOCAL_GET, 0);
+            emit(Op.I32_LOAD, LENGTH);
+            emit(Op.I32_GE_U);
+            emit(Op.BR_IF, 1);
+            emit(Op.LOCAL_GET, position);
+            ifThen(() -> text(", "));
+            emit(Op.LOCAL_GET, 0);
+            emit(Op.I32_LOAD, ELEMENTS);
+            emit(Op.LOCAL_GET, position);
+            i32(3);
+            emit(Op.I32_SHL);
+            emit(Op.I32_ADD);
+            emit(Op.F64_LOAD, 0);
+            emit(Op.CALL, printNumber);
+            increment(position);
+            emit(Op.BR, 0);
+        });
+        text("]");
+    }
+
+    private void failOnZero() {
+        emit(Op.LOCAL_GET, 1);
+        number(0);
+        emit(Op.F64_EQ);
+        ifThen(() -> fail("Division by zero"));
+    }
+
+    /** Push the address of element i of the elements block in local elements */
+    private void elementAddress(int elements, int i) {
+        emit(Op.LOCAL_GET, elements);
+        emit(Op.LOCAL_GET, i);
+        i32(3);
+        emit(Op.I32_SHL);
+        emit(Op.I32_ADD);
+    }
+
+    private void increment(int local) {
+        emit(Op.LOCAL_GET, local);
+        i32(1);
+        emit(Op.I32_ADD);
+        emit(Op.LOCAL_SET, local);
+    }
+
+    // Emitting
+
+    private void emit(Op op) {
+        code.emit(op);
+    }
+
+    private void emit(Op op, long value) {
+        code.emit(op, value);
+    }
+
+    private void i32(int value) {
+        code.emit(Op.I32_CONST, value);
+    }
+
+    private void number(double value) {
+        code.emitF64(value);
+    }
+
+    /** Run body when the i32 on the stack is not zero */
+    private void ifThen(Runnable body) {
+        code.emitBlock(Op.IF, null);
+        body.run();
+        emit(Op.END);
+    }
+
+    /**
+     * A loop inside a block: in the body, br 0 repeats and br 1 exits, as long as the body's own
+     * blocks are closed where it branches
+     */
+    private void loop(Runnable body) {
+        code.emitBlock(Op.BLOCK, null);
+        code.emitBlock(Op.LOOP, null);
+        body.run();
+        emit(Op.END);
+        emit(Op.END);
+    }
+
+    private void fail(String message) {
+        int[] location = module.string(message);
+        i32(location[0]);
+        i32(location[1]);
+        emit(Op.CALL, fail);
+        emit(Op.UNREACHABLE);
+    }
+
+    private void text(String text) {
+        int[] location = module.string(text);
+        i32(location[0]);
+        i32(location[1]);
+        emit(Op.CALL, printText);
+    }
+
+    /**
+     * Evaluate an expression that must have the given kind
+     */
+    private void evaluate(ExpressionNode expression, Kind kind, String what) {
+        Kind actual = expression.accept(this);
+        if (actual != kind) {
+            throw unsupported(expression, what + " must be " + kind.description + ", not " + actual.description);
+        }
+    }
+
+    /**
+     * The kind of an expression, found by compiling it and taking the code back out
+     */
+    private Kind kindOf(ExpressionNode expression) {
+        int instructions = code.code.size();
+        int locals = code.localNames.size();
+        Kind kind = expression.accept(this);
+        code.code.subList(instructions, code.code.size()).clear();
+        code.localNames.subList(locals, code.localNames.size()).clear();
+        code.localTypes.subList(locals, code.localTypes.size()).clear();
+        return kind;
+    }
+
+    // Variables
+
+    private Variable lookup(String name) {
+        for (Map<String, Variable> scope : scopes) {
+            Variable variable = scope.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+        return globals.get(name);
+    }
+
+    /**
+     * Define a variable: a global at the top level, otherwise a local of the current function
+     */
+    private Variable define(String name, Kind kind) {
+        if (scopes.isEmpty() && current == null) {
+            Variable existing = globals.get(name);
+            if (existing != null && existing.kind() == kind) {
+                return existing;
+            }
+            Variable variable = new Variable(kind, module.addGlobal(name, kind.type, true), true);
+            globals.put(name, variable);
+            return variable;
+        }
+        Variable variable = new Variable(kind, code.addLocal(name, kind.type), false);
+        scopes.peek().put(name, variable);
+        return variable;
+    }
+
+    private void load(Variable variable) {
+        emit(variable.global() ? Op.GLOBAL_GET : Op.LOCAL_GET, variable.index());
+    }
+
+    private void store(Variable variable) {
+        emit(variable.global() ? Op.GLOBAL_SET : Op.LOCAL_SET, variable.index());
+    }
+
+    private void pushScope() {
+        scopes.push(new HashMap<>());
+    }
+
+    private void popScope() {
+        scopes.pop();
+    }
+
+    // Statements
+
+    @Override
+    public Kind visitProgram(ProgramNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Kind visitFunctionDeclaration(FunctionDeclarationNode node) {
+        // Declared before translating and translated as functions of their own
+        return null;
+    }
+
+    @Override
+    public Kind visitVariableDeclaration(VariableDeclarationNode node) {
+        if (node.getInitializer() == null) {
+            throw unsupported(node, "Variable '" + node.getName() + "' needs an initial value for the WebAssembly target");
+        }
+        Kind kind = node.getInitializer().accept(this);
+        if (node.getType() != null && kindOf(node.getType(), node) != kind) {
+            throw unsupported(node, "Variable '" + node.getName() + "' is declared as " + node.getType()
+                              + " but initialized with " + kind.description);
+        }
+        if (kind == Kind.NOTHING) {
+            throw unsupported(node, "Variable '" + node.getName() + "' is initialized with nothing");
+        }
+        store(define(node.getName(), kind));
+        return null;
+    }
+
+    @Override
+    public Kind visitAssignment(AssignmentNode node) {
+        Variable variable = lookup(node.getVariableName());
+        if (variable == null) {
+            throw unsupported(node, "Undefined variable '" + node.getVariableName() + "'");
+        }
+        evaluate(node.getValue(), variable.kind(), "The value assigned to '" + node.getVariableName() + "'");
+        store(variable);
+        return null;
+    }
+
+    @Override
+    public Kind visitIfStatement(IfStatementNode node) {
+        evaluate(node.getCondition(), Kind.BOOLEAN, "The condition");
+        code.emitBlock(Op.IF, null);
+        node.getThenBlock().accept(this);
+        if (node.hasElseBlock()) {
+            emit(Op.ELSE);
+            node.getElseBlock().accept(this);
+        }
+        emit(Op.END);
+        return null;
+    }
+
+    @Override
+    public Kind visitLoopStatement(LoopStatementNode node) {
+        pushScope();
+        if (node.getLoopType() == LoopStatementNode.LoopType.FOR_EACH) {
+            // The elements present when the loop starts, as the interpreter iterates a copy
+            evaluate(node.getIterable(), Kind.LIST, "The iterated value");
+            int list = code.addLocal("list", ValueType.I32);
+            int length = code.addLocal("length", ValueType.I32);
+            int i = code.addLocal("i", ValueType.I32);
+            emit(Op.LOCAL_TEE, list);
+            emit(Op.I32_LOAD, LENGTH);
+            emit(Op.LOCAL_SET, length);
+            i32(0);
+            emit(Op.LOCAL_SET, i);
+            Variable element = define(node.getVariableName(), Kind.NUMBER);
+            loop(() -> {
+                emit(Op.LOCAL_GET, i);
+                emit(Op.LOCAL_GET, length);
+                emit(Op.I32_GE_U);
+                emit(Op.BR_IF, 1);
+                // Appends in the body can move the elements, so their address is read each time
+                emit(Op.LOCAL_GET, list);
+                emit(Op.I32_LOAD, ELEMENTS);
+                emit(Op.LOCAL_GET, i);
+                i32(3);
+                emit(Op.I32_SHL);
+                emit(Op.I32_ADD);
+                emit(Op.F64_LOAD, 0);
+                store(element);
+                node.getBody().accept(this);
+                increment(i);
+                emit(Op.BR, 0);
+            });
+        } else {
+            if (node.hasInitializer()) {
+                Kind kind = node.getInitializer().accept(this);
+                store(define(node.getVariableName(), kind));
+            }
+            loop(() -> {
+                evaluate(node.getCondition(), Kind.BOOLEAN, "The loop condition");
+                emit(Op.I32_EQZ);
+                emit(Op.BR_IF, 1);
+                node.getBody().accept(this);
+                if (node.getIncrementVar() != null) {
+                    Variable variable = lookup(node.getIncrementVar());
+                    if (variable == null || variable.kind() != Kind.NUMBER) {
+                        throw unsupported(node, "The loop variable '" + node.getIncrementVar() + "' must be a number");
+                    }
+                    load(variable);
+                    number(1);
+                    emit(Op.F64_ADD);
+                    store(variable);
+                }
+                emit(Op.BR, 0);
+            });
+        }
+        popScope();
+        return null;
+    }
+
+    @Override
+    public Kind visitReturnStatement(ReturnStatementNode node) {
+        Kind expected = current != null ? current.result() : Kind.NOTHING;
+        if (node.hasValue()) {
+            if (expected == Kind.NOTHING) {
+                throw unsupported(node, current != null
+                    ? "Function '" + current.node().getName() + "' returns a value but declares no return type"
+                    : "The top level cannot return a value");
+            }
+            evaluate(node.getValue(), expected, "The returned value");
+        } else if (expected != Kind.NOTHING) {
+            throw unsupported(node, "Function '" + current.node().getName() + "' must return " + expected.description);
+        }
+        emit(Op.RETURN);
+        return null;
+    }
+
+    @Override
+    public Kind visitBlock(BlockNode node) {
+        pushScope();
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        popScope();
+        return null;
+    }
+
+    @Override
+    public Kind visitTryStatement(TryStatementNode node) {
+        throw unsupported(node, "The WebAssembly target does not support try statements");
+    }
+
+    @Override
+    public Kind visitMatchStatement(MatchStatementNode node) {
+        Kind kind = node.getExpression().accept(this);
+        if (kind != Kind.NUMBER && kind != Kind.BOOLEAN) {
+            throw unsupported(node, "The WebAssembly target matches numbers and booleans, not " + kind.description);
+        }
+        int value = code.addLocal("matched", kind.type);
+        emit(Op.LOCAL_SET, value);
+        // Each case is a block to leave for the next case; a case that matches leaves the outer block
+        code.emitBlock(Op.BLOCK, null);
+        for (MatchStatementNode.MatchCase matchCase : node.getCases()) {
+            code.emitBlock(Op.BLOCK, null);
+            pushScope();
+            match(matchCase, kind, value);
+            matchCase.getBlock().accept(this);
+            popScope();
+            emit(Op.BR, 1);
+            emit(Op.END);
+        }
+        emit(Op.END);
+        return null;
+    }
+
+    /**
+     * Test one case against the matched value in the given local, binding its variables in the
+     * current scope; branches out of the case's block when the case does not match
+     */
+    private void match(MatchStatementNode.MatchCase matchCase, Kind kind, int value) {
+        switch (matchCase.getKind()) {
+            case LITERAL:
+                emit(Op.LOCAL_GET, value);
+                evaluate(matchCase.getValue(), kind, "The case value");
+                emit(kind == Kind.NUMBER ? Op.F64_EQ : Op.I32_EQ);
+                emit(Op.I32_EQZ);
+                emit(Op.BR_IF, 0);
+                return;
+            case RANGE:
+                if (kind != Kind.NUMBER) {
+                    throw unsupported(matchCase.getBlock(), "A range matches only numbers");
+                }
+                // NaN fails both bounds
+                emit(Op.LOCAL_GET, value);
+                evaluate(matchCase.getRangeStart(), Kind.NUMBER, "The range start");
+                emit(Op.F64_GE);
+                emit(Op.LOCAL_GET, value);
+                evaluate(matchCase.getRangeEnd(), Kind.NUMBER, "The range end");
+                emit(Op.F64_LE);
+                emit(Op.I32_AND);
+                emit(Op.I32_EQZ);
+                emit(Op.BR_IF, 0);
+                return;
+            case GUARD:
+                emit(Op.LOCAL_GET, value);
+                store(define(matchCase.getVariableName(), kind));
+                evaluate(matchCase.getGuard(), Kind.BOOLEAN, "The guard");
+                emit(Op.I32_EQZ);
+                emit(Op.BR_IF, 0);
+                return;
+            default:
+                break;
+        }
+
+        String pattern = matchCase.getPattern();
+        if (matchCase.getType() != null) {
+            // "n as number": binds n when the value has the type, and never matches otherwise
+            if (kindOf(matchCase.getType(), matchCase.getBlock()) != kind) {
+                emit(Op.BR, 0);
+            }
+            emit(Op.LOCAL_GET, value);
+            store(define(pattern, kind));
+        } else if (Character.isLowerCase(pattern.charAt(0))) {
+            // Catch-all binding
+            emit(Op.LOCAL_GET, value);
+            store(define(pattern, kind));
+        } else {
+            throw unsupported(matchCase.getBlock(), "The WebAssembly target does not support the pattern '" + pattern + "'");
+        }
+    }
+
+    @Override
+    public Kind visitModuleDeclaration(ModuleDeclarationNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Kind visitTraitDeclaration(TraitDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitStructureDeclaration(StructureDeclarationNode node) {
+        throw unsupported(node, "The WebAssembly target does not support structures");
+    }
+
+    @Override
+    public Kind visitImportStatement(ImportStatementNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitExpressionStatement(ExpressionStatementNode node) {
+        if (node.getExpression().accept(this) != Kind.NOTHING) {
+            emit(Op.DROP);
+        }
+        return null;
+    }
+
+    @Override
+    public Kind visitEnumDeclaration(EnumDeclarationNode node) {
+        throw unsupported(node, "The WebAssembly target does not support enums");
+    }
+
+    @Override
+    public Kind visitImplementation(ImplementationNode node) {
+        throw unsupported(node, "The WebAssembly target does not support implementations");
+    }
+
+    @Override
+    public Kind visitLifetime(LifetimeNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitInterfaceDeclaration(InterfaceDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitTypeAliasDeclaration(TypeAliasDeclarationNode node) {
+        return null;
+    }
+
+    @Override
+    public Kind visitDecorator(DecoratorNode node) {
+        return node.getTarget() != null ? node.getTarget().accept(this) : null;
+    }
+
+    // Expressions
+
+    @Override
+    public Kind visitLiteral(LiteralNode node) {
+        switch (node.getLiteralType()) {
+            case NUMBER:
+                number(((Number) node.getValue()).doubleValue());
+                return Kind.NUMBER;
+            case BOOLEAN:
+                i32(Boolean.TRUE.equals(node.getValue()) ? 1 : 0);
+                return Kind.BOOLEAN;
+            case EMPTY_LIST:
+                i32(0);
+                emit(Op.CALL, listNew);
+                return Kind.LIST;
+            case STRING:
+                throw unsupported(node, "The WebAssembly target supports text only as an argument of print");
+            default:
+                throw unsupported(node, "The WebAssembly target does not support maps");
+        }
+    }
+
+    @Override
+    public Kind visitIdentifier(IdentifierNode node) {
+        Variable variable = lookup(node.getName());
+        if (variable == null) {
+            throw unsupported(node, "Undefined variable '" + node.getName() + "'");
+        }
+        load(variable);
+        return variable.kind();
+    }
+
+    @Override
+    public Kind visitFunctionCall(FunctionCallNode node) {
+        String name = node.getFunctionName();
+        List<ExpressionNode> arguments = node.getArguments();
+        Signature signature = functions.get(name);
+        if (signature != null) {
+            expectArguments(node, signature.parameters().size());
+            for (int i = 0; i < arguments.size(); i++) {
+                evaluate(arguments.get(i), signature.parameters().get(i),
+                         "Argument " + (i + 1) + " of '" + name + "'");
+            }
+            emit(Op.CALL, signature.index());
+            return signature.result();
+        }
+
+        switch (name) {
+            case "print":
+            case "display":
+                for (int i = 0; i < arguments.size(); i++) {
+                    if (i > 0) {
+                        text(" ");
+                    }
+                    print(arguments.get(i));
+                }
+                emit(Op.CALL, printNewline);
+                return Kind.NOTHING;
+            case "length":
+                expectArguments(node, 1);
+                evaluate(arguments.get(0), Kind.LIST, "The argument of length");
+                emit(Op.I32_LOAD, LENGTH);
+                emit(Op.F64_CONVERT_I32_U);
+                return Kind.NUMBER;
+            case "append":
+                expectArguments(node, 2);
+                evaluate(arguments.get(0), Kind.LIST, "The first argument of append");
+                evaluate(arguments.get(1), Kind.NUMBER, "The appended value");
+                emit(Op.CALL, listPush);
+                return Kind.LIST;
+            case "contains":
+                expectArguments(node, 2);
+                evaluate(arguments.get(0), Kind.LIST, "The first argument of contains");
+                evaluate(arguments.get(1), Kind.NUMBER, "The value to look for");
+                emit(Op.CALL, listContains);
+                return Kind.BOOLEAN;
+            case "range":
+                expectArguments(node, 2);
+                evaluate(arguments.get(0), Kind.NUMBER, "The start of the range");
+                evaluate(arguments.get(1), Kind.NUMBER, "The end of the range");
+                emit(Op.CALL, range);
+                return Kind.LIST;
+            case "abs":
+                return math(node, Op.F64_ABS);
+            case "floor":
+                return math(node, Op.F64_FLOOR);
+            case "sqrt":
+                return math(node, Op.F64_SQRT);
+            case "round":
+                // As Math.round: halves round up
+                expectArguments(node, 1);
+                evaluate(arguments.get(0), Kind.NUMBER, "The argument of round");
+                number(0.5);
+                emit(Op.F64_ADD);
+                emit(Op.F64_FLOOR);
+                return Kind.NUMBER;
+            case "fail":
+                expectArguments(node, 1);
+                if (!(arguments.get(0) instanceof LiteralNode message)
+                        || message.getLiteralType() != LiteralNode.LiteralType.STRING) {
+                    throw unsupported(node, "The WebAssembly target fails only with a text literal");
+                }
+                fail(String.valueOf(message.getValue()));
+                return Kind.NOTHING;
+            default:
+                throw unsupported(node, "Undefined function '" + name + "'");
+        }
+    }
+
+    private void expectArguments(FunctionCallNode node, int count) {
+        if (node.getArguments().size() != count) {
+            throw unsupported(node, "Function '" + node.getFunctionName() + "' expects " + count
+                              + " argument(s), got " + node.getArguments().size());
+        }
+    }
+
+    private Kind math(FunctionCallNode node, Op op) {
+        expectArguments(node, 1);
+        evaluate(node.getArguments().get(0), Kind.NUMBER, "The argument of " + node.getFunctionName());
+        emit(op);
+        return Kind.NUMBER;
+    }
+
+    private void print(ExpressionNode argument) {
+        if (argument instanceof LiteralNode literal && literal.getLiteralType() == LiteralNode.LiteralType.STRING) {
+            text(String.valueOf(literal.getValue()));
+            return;
+        }
+        Kind kind = argument.accept(this);
+        switch (kind) {
+            case NUMBER:
+                emit(Op.CALL, printNumber);
+                break;
+            case BOOLEAN:
+                emit(Op.CALL, printBoolean);
+                break;
+            case LIST:
+                emit(Op.CALL, printList);
+                break;
+            default:
+                throw unsupported(argument, "Cannot print nothing");
+        }
+    }
+
+    @Override
+    public Kind visitBinaryExpression(BinaryExpressionNode node) {
+        switch (node.getOperator()) {
+            case AND:
+                evaluate(node.getLeft(), Kind.BOOLEAN, "The left side of and");
+                code.emitBlock(Op.IF, ValueType.I32);
+                evaluate(node.getRight(), Kind.BOOLEAN, "The right side of and");
+                emit(Op.ELSE);
+                i32(0);
+                emit(Op.END);
+                return Kind.BOOLEAN;
+            case OR:
+                evaluate(node.getLeft(), Kind.BOOLEAN, "The left side of or");
+                code.emitBlock(Op.IF, ValueType.I32);
+                i32(1);
+                emit(Op.ELSE);
+                evaluate(node.getRight(), Kind.BOOLEAN, "The right side of or");
+                emit(Op.END);
+                return Kind.BOOLEAN;
+            case EQUALS: {
+                Kind left = node.getLeft().accept(this);
+                if (left != Kind.NUMBER && left != Kind.BOOLEAN) {
+                    throw unsupported(node, "The WebAssembly target compares numbers and booleans, not "
+                                      + left.description);
+                }
+                evaluate(node.getRight(), left, "The right side of the comparison");
+                emit(left == Kind.NUMBER ? Op.F64_EQ : Op.I32_EQ);
+                return Kind.BOOLEAN;
+            }
+            default:
+                break;
+        }
+
+        evaluate(node.getLeft(), Kind.NUMBER, "The left side of " + node.getOperator());
+        evaluate(node.getRight(), Kind.NUMBER, "The right side of " + node.getOperator());
+        switch (node.getOperator()) {
+            case PLUS:
+                emit(Op.F64_ADD);
+                return Kind.NUMBER;
+            case MINUS:
+                emit(Op.F64_SUB);
+                return Kind.NUMBER;
+            case TIMES:
+                emit(Op.F64_MUL);
+                return Kind.NUMBER;
+            case DIVIDED_BY:
+                emit(Op.CALL, divide);
+                return Kind.NUMBER;
+            case MODULO:
+                emit(Op.CALL, remainder);
+                return Kind.NUMBER;
+            case GREATER_THAN:
+                emit(Op.F64_GT);
+                return Kind.BOOLEAN;
+            case LESS_THAN:
+                emit(Op.F64_LT);
+                return Kind.BOOLEAN;
+            default:
+                throw unsupported(node, "Unknown operator " + node.getOperator());
+        }
+    }
+
+    @Override
+    public Kind visitUnaryExpression(UnaryExpressionNode node) {
+        if (node.getOperator() == UnaryExpressionNode.Operator.NOT) {
+            evaluate(node.getOperand(), Kind.BOOLEAN, "The operand of not");
+            emit(Op.I32_EQZ);
+            return Kind.BOOLEAN;
+        }
+        evaluate(node.getOperand(), Kind.NUMBER, "The operand of minus");
+        emit(Op.F64_NEG);
+        return Kind.NUMBER;
+    }
+
+    @Override
+    public Kind visitConditionalExpression(ConditionalExpressionNode node) {
+        evaluate(node.getCondition(), Kind.BOOLEAN, "The condition");
+        Kind kind = kindOf(node.getThenExpression());
+        if (kind == Kind.NOTHING) {
+            throw unsupported(node, "Both branches of a conditional expression need a value");
+        }
+        code.emitBlock(Op.IF, kind.type);
+        node.getThenExpression().accept(this);
+        emit(Op.ELSE);
+        evaluate(node.getElseExpression(), kind, "The else branch");
+        emit(Op.END);
+        return kind;
+    }
+
+    @Override
+    public Kind visitMemberAccess(MemberAccessNode node) {
+        evaluate(node.getObject(), Kind.LIST, "The accessed value");
+        if (node.getAccessType() == MemberAccessNode.AccessType.AT) {
+            evaluate(node.getMember(), Kind.NUMBER, "The index");
+            emit(Op.CALL, listGet);
+            return Kind.NUMBER;
+        }
+        if (node.getMember() instanceof IdentifierNode member
+                && (member.getName().equals("length") || member.getName().equals("size"))) {
+            emit(Op.I32_LOAD, LENGTH);
+            emit(Op.F64_CONVERT_I32_U);
+            return Kind.NUMBER;
+        }
+        throw unsupported(node, "The WebAssembly target does not support the member " + node.getMember());
+    }
+
+    @Override
+    public Kind visitListExpression(ListExpressionNode node) {
+        i32(node.getElements().size());
+        emit(Op.CALL, listNew);
+        for (ExpressionNode element : node.getElements()) {
+            evaluate(element, Kind.NUMBER, "A list element");
+            emit(Op.CALL, listPush);
+        }
+        return Kind.LIST;
+    }
+
+    @Override
+    public Kind visitMapExpression(MapExpressionNode node) {
+        throw unsupported(node, "The WebAssembly target does not support maps");
+    }
+
+    @Override
+    public Kind visitTypeCast(TypeCastNode node) {
+        Kind kind = node.getExpression().accept(this);
+        switch (node.getCastType()) {
+            case TO_NUMBER:
+                if (kind == Kind.BOOLEAN) {
+                    emit(Op.F64_CONVERT_I32_U);
+                    return Kind.NUMBER;
+                }
+                if (kind == Kind.NUMBER) {
+                    return kind;
+                }
+                break;
+            case TO_BOOLEAN:
+                if (kind == Kind.NUMBER) {
+                    number(0);
+                    emit(Op.F64_NE);
+                    return Kind.BOOLEAN;
+                }
+                if (kind == Kind.BOOLEAN) {
+                    return kind;
+                }
+                break;
+            default:
+                break;
+        }
+        throw unsupported(node, "The WebAssembly target cannot convert " + kind.description + " with "
+                          + node.getCastType());
+    }
+
+    @Override
+    public Kind visitParenthesizedExpression(ParenthesizedExpressionNode node) {
+        return node.getExpression().accept(this);
+    }
+}
\ No newline at end of file
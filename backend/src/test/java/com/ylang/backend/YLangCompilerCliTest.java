@@ -0,0 +1,47 @@
+package com.ylang.backend;
+
+import com.ylang.backend.model.CompileOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YLangCompilerCliTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testInvalidUsageExitsWithUsage() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream errStream = new PrintStream(err);
+        PrintStream out = new PrintStream(new ByteArrayOutputStream());
+
+        assertEquals(2, YLangCompilerCli.run(new String[] {}, out, errStream));
+        assertEquals(2, YLangCompilerCli.run(new String[] {"-t", "python", "src"}, out, errStream));
+        assertEquals(2, YLangCompilerCli.run(new String[] {"src", "--out"}, out, errStream));
+        assertTrue(err.toString().contains("Usage: ylangc"));
+    }
+
+    @Test
+    void testOutputsMirrorTheSourceTree() throws Exception {
+        Path source = directory.resolve("src/shapes/circle.y");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "create variable r as number equals 2");
+        assertEquals("create variable r as number equals 2", YLangCompilerCli.read(source));
+
+        YLangCompilerCli.Source entry = new YLangCompilerCli.Source(source, directory.resolve("src"));
+        YLangCompilerCli nextToSource = new YLangCompilerCli(null, "rust", CompileOptions.defaults(), null, 1,
+                                                             System.out, System.err);
+        YLangCompilerCli intoOut = new YLangCompilerCli(null, "typescript", CompileOptions.defaults(),
+                                                        directory.resolve("out"), 1, System.out, System.err);
+
+        assertEquals(directory.resolve("src/shapes/circle.rs"), nextToSource.outputPath(entry));
+        assertEquals(directory.resolve("out/shapes/circle.ts"), intoOut.outputPath(entry));
+    }
+}
\ No newline at end of file
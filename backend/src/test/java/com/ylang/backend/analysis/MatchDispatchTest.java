@@ -0,0 +1,64 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchDispatchTest {
+
+    private static final BlockNode BODY = new BlockNode(new ArrayList<>());
+
+    private static LiteralNode number(long value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    @Test
+    void sortsAndClipsOverlappingCasesInSourceOrder() {
+        MatchDispatch dispatch = MatchDispatch.plan(Arrays.asList(
+                MatchStatementNode.MatchCase.range(number(10), number(20), BODY),
+                MatchStatementNode.MatchCase.literal(number(15), BODY),
+                MatchStatementNode.MatchCase.range(number(5), number(25), BODY),
+                MatchStatementNode.MatchCase.guard("n", new IdentifierNode("flag"), BODY),
+                MatchStatementNode.MatchCase.literal(number(100), BODY)
+        ));
+
+        List<MatchDispatch.Interval> intervals = dispatch.getIntervals();
+
+        // Case 1 is shadowed entirely by case 0; case 2 keeps only what is left on either side
+        assertEquals(3, intervals.size());
+        assertEquals(5, intervals.get(0).getStart());
+        assertEquals(9, intervals.get(0).getEnd());
+        assertEquals(2, intervals.get(0).getCaseIndex());
+        assertEquals(0, intervals.get(1).getCaseIndex());
+        assertEquals(21, intervals.get(2).getStart());
+        assertEquals(3, dispatch.getFallbackStart());
+
+        assertEquals(0, dispatch.lookup(15));
+        assertEquals(2, dispatch.lookup(25));
+        assertEquals(-1, dispatch.lookup(100)); // After the guard, left to sequential checks
+    }
+
+    @Test
+    void choosesJumpTableOnlyForDenseCases() {
+        List<MatchStatementNode.MatchCase> dense = new ArrayList<>();
+        List<MatchStatementNode.MatchCase> sparse = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            dense.add(MatchStatementNode.MatchCase.literal(number(i), BODY));
+            sparse.add(MatchStatementNode.MatchCase.literal(number(i * 1000L), BODY));
+        }
+
+        MatchDispatch denseDispatch = MatchDispatch.plan(dense);
+        MatchDispatch sparseDispatch = MatchDispatch.plan(sparse);
+
+        assertTrue(denseDispatch.isDense());
+        assertFalse(sparseDispatch.isDense());
+        assertTrue(sparseDispatch.isWorthDispatching());
+        assertEquals(137, sparseDispatch.lookup(137000));
+        assertEquals(-1, sparseDispatch.lookup(137001));
+    }
+}
\ No newline at end of file
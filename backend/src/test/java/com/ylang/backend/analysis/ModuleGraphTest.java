@@ -0,0 +1,75 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModuleGraphTest {
+
+    private static ProgramNode program(ASTNode... statements) {
+        return new ProgramNode(new ArrayList<>(Arrays.asList(statements)));
+    }
+
+    @Test
+    void testLevelsFollowImports() {
+        // geometry provides module shapes; app imports shapes and util; util imports nothing
+        Map<String, ProgramNode> modules = new LinkedHashMap<>();
+        modules.put("app", program(new ImportStatementNode("shapes"), new ImportStatementNode("util"),
+                                   new ImportStatementNode("console")));
+        modules.put("geometry", program(new ModuleDeclarationNode("shapes", List.of(new ImportStatementNode("util")))));
+        modules.put("util", program());
+        modules.put("report", program(new ImportStatementNode("util")));
+
+        ModuleGraph graph = ModuleGraph.build(modules);
+
+        assertFalse(graph.hasCycles());
+        assertEquals(Set.of("geometry", "util"), graph.getDependencies("app"));
+        assertEquals(Set.of("console"), graph.getExternalImports("app"));
+        assertEquals(List.of(List.of("util"), List.of("geometry", "report"), List.of("app")), graph.getLevels());
+        assertTrue(graph.getBlocked().isEmpty());
+    }
+
+    @Test
+    void testCyclesBlockTheirDependents() {
+        Map<String, ProgramNode> modules = new LinkedHashMap<>();
+        modules.put("a", program(new ImportStatementNode("b")));
+        modules.put("b", program(new ImportStatementNode("c")));
+        modules.put("c", program(new ImportStatementNode("a")));
+        modules.put("d", program(new ImportStatementNode("a")));
+        modules.put("e", program(new ImportStatementNode("e")));
+        modules.put("f", program());
+
+        ModuleGraph graph = ModuleGraph.build(modules);
+
+        assertEquals(List.of(List.of("f")), graph.getLevels());
+        assertEquals(Set.of("a", "b", "c", "d", "e"), graph.getBlocked());
+        assertEquals(2, graph.getCycles().size());
+        assertTrue(graph.getCycles().contains(List.of("e")));
+        assertTrue(graph.getCycles().stream().anyMatch(cycle -> cycle.size() == 3 && cycle.containsAll(List.of("a", "b", "c"))));
+    }
+
+    @Test
+    void testLongImportChainsDoNotOverflowTheStack() {
+        // m0 imports m1, which imports m2, and so on; the last module closes the cycle back to m0
+        int count = 200_000;
+        Map<String, ProgramNode> modules = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            modules.put("m" + i, program(new ImportStatementNode("m" + ((i + 1) % count))));
+        }
+        modules.put("app", program(new ImportStatementNode("m0")));
+
+        ModuleGraph graph = ModuleGraph.build(modules);
+
+        assertEquals(1, graph.getCycles().size());
+        assertEquals(count, graph.getCycles().get(0).size());
+        assertEquals(count + 1, graph.getBlocked().size());
+    }
+}
\ No newline at end of file
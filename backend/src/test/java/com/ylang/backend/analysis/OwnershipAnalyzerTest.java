@@ -0,0 +1,82 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.translator.RustTranslator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OwnershipAnalyzerTest {
+
+    private static LiteralNode string(String value) {
+        return new LiteralNode(LiteralNode.LiteralType.STRING, value);
+    }
+
+    private static LiteralNode number(long value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    private static FunctionDeclarationNode greetFunction() {
+        // create function greet with parameter name as string that returns number
+        return new FunctionDeclarationNode("greet",
+                List.of(new ParameterNode("name", TypeNode.stringType(), null)),
+                TypeNode.numberType(),
+                new BlockNode(List.of(new ReturnStatementNode(number(1)))),
+                false, null);
+    }
+
+    private static String translate(ProgramNode program) {
+        new TypeChecker().check(program);
+        return new RustTranslator().translate(program);
+    }
+
+    @Test
+    void borrowsReadOnlyParametersAndLiterals() {
+        ProgramNode program = new ProgramNode(Arrays.asList(
+                greetFunction(),
+                new VariableDeclarationNode("title", TypeNode.stringType(), string("Y")),
+                new ExpressionStatementNode(new FunctionCallNode("greet", List.of(new IdentifierNode("title")))),
+                new ExpressionStatementNode(new FunctionCallNode("greet", List.of(string("World"))))
+        ));
+
+        String rust = translate(program);
+
+        assertTrue(rust.contains("pub fn greet(name: &str) -> i64"), rust);
+        assertTrue(rust.contains("let title: &str = \"Y\";"), rust);
+        assertTrue(rust.contains("greet(title);"), rust);
+        assertTrue(rust.contains("greet(\"World\");"), rust);
+        assertFalse(rust.contains("String::from"), rust);
+    }
+
+    @Test
+    void clonesOnlyWhenValueIsUsedAfterMove() {
+        // create function keep with parameter items as list of number that returns list of number
+        FunctionDeclarationNode keep = new FunctionDeclarationNode("keep",
+                List.of(new ParameterNode("items", TypeNode.listType(TypeNode.numberType()), null)),
+                TypeNode.listType(TypeNode.numberType()),
+                new BlockNode(List.of(new ReturnStatementNode(new IdentifierNode("items")))),
+                false, null);
+        ListExpressionNode values = new ListExpressionNode(Arrays.asList(number(1), number(2)));
+
+        ProgramNode program = new ProgramNode(Arrays.asList(
+                keep,
+                new VariableDeclarationNode("values", TypeNode.listType(TypeNode.numberType()), values),
+                new VariableDeclarationNode("first", TypeNode.listType(TypeNode.numberType()),
+                        new FunctionCallNode("keep", List.of(new IdentifierNode("values")))),
+                new VariableDeclarationNode("second", TypeNode.listType(TypeNode.numberType()),
+                        new FunctionCallNode("keep", List.of(new IdentifierNode("values")))),
+                new LoopStatementNode("value", new IdentifierNode("first"), new BlockNode(List.of()))
+        ));
+
+        String rust = translate(program);
+
+        assertTrue(rust.contains("pub fn keep(items: Vec<i64>)"), rust);
+        assertTrue(rust.contains("let values: Vec<i64> = vec![1i64, 2i64];"), rust);
+        assertTrue(rust.contains("keep(values.clone())"), rust);
+        assertTrue(rust.contains("let second: Vec<i64> = keep(values);"), rust);
+        assertTrue(rust.contains("for &value in first.iter() {"), rust);
+    }
+}
\ No newline at end of file
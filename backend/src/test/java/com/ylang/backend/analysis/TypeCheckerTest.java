@@ -0,0 +1,195 @@
+package com.ylang.backend.analysis;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.model.TypeCheckResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeCheckerTest {
+
+    private static LiteralNode number(long value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    private static LiteralNode string(String value) {
+        return new LiteralNode(LiteralNode.LiteralType.STRING, value);
+    }
+
+    private static FunctionDeclarationNode addFunction() {
+        // create function add with parameters a as number and b as number that returns number
+        return new FunctionDeclarationNode("add",
+                Arrays.asList(new ParameterNode("a", TypeNode.numberType(), null),
+                              new ParameterNode("b", TypeNode.numberType(), null)),
+                TypeNode.numberType(),
+                new BlockNode(Arrays.asList(new ReturnStatementNode(
+                        new BinaryExpressionNode(new IdentifierNode("a"), BinaryExpressionNode.Operator.PLUS, new IdentifierNode("b"))))),
+                false, null);
+    }
+
+    @Test
+    void attachesResolvedTypesToExpressions() {
+        BinaryExpressionNode greeting = new BinaryExpressionNode(string("Hello "), BinaryExpressionNode.Operator.PLUS, new IdentifierNode("name"));
+        FunctionCallNode call = new FunctionCallNode("add", Arrays.asList(number(1), number(2)));
+        ListExpressionNode list = new ListExpressionNode(Arrays.asList(number(1), number(2)));
+
+        ProgramNode program = new ProgramNode(Arrays.asList(
+                addFunction(),
+                new VariableDeclarationNode("name", TypeNode.stringType(), string("Y")),
+                new VariableDeclarationNode("message", TypeNode.stringType(), greeting),
+                new VariableDeclarationNode("sum", TypeNode.numberType(), call),
+                new VariableDeclarationNode("items", TypeNode.listType(TypeNode.numberType()), list)
+        ));
+
+        TypeCheckResult result = new TypeChecker().check(program);
+
+        assertTrue(result.isSuccess(), () -> "Unexpected errors: " + result.getErrors());
+        assertEquals(TypeNode.TypeKind.STRING, greeting.getResolvedType().getKind());
+        assertEquals(TypeNode.TypeKind.STRING, ((IdentifierNode) greeting.getRight()).getResolvedType().getKind());
+        assertEquals(TypeNode.TypeKind.NUMBER, call.getResolvedType().getKind());
+        assertEquals(TypeNode.TypeKind.LIST, list.getResolvedType().getKind());
+        assertEquals(TypeNode.TypeKind.NUMBER, list.getResolvedType().getElementType().getKind());
+    }
+
+    @Test
+    void reportsMismatchedInitializerAndArguments() {
+        VariableDeclarationNode badInit = new VariableDeclarationNode("count", TypeNode.numberType(), string("ten"));
+        badInit.setLocation(3, 0);
+
+        ProgramNode program = new ProgramNode(Arrays.asList(
+                addFunction(),
+                badInit,
+                new ExpressionStatementNode(new FunctionCallNode("add", Arrays.asList(number(1), string("2")))),
+                new ExpressionStatementNode(new FunctionCallNode("add", Arrays.asList(number(1))))
+        ));
+
+        List<String> errors = new TypeChecker().check(program).getErrors();
+
+        assertEquals(3, errors.size(), () -> "Errors: " + errors);
+        assertTrue(errors.get(0).contains("variable 'count'"));
+        assertTrue(errors.get(0).endsWith("(Line 3:0)"));
+        assertTrue(errors.get(1).contains("expects number but was given string"));
+        assertTrue(errors.get(2).contains("expects 2 argument(s)"));
+    }
+
+    @Test
+    void reportsReturnTypeAndConditionErrors() {
+        FunctionDeclarationNode fn = new FunctionDeclarationNode("check",
+                Arrays.asList(new ParameterNode("flag", TypeNode.numberType(), null)),
+                TypeNode.booleanType(),
+                new BlockNode(Arrays.asList(
+                        new IfStatementNode(new IdentifierNode("flag"),
+                                new BlockNode(Arrays.asList(new ReturnStatementNode(string("yes")))), null),
+                        new ReturnStatementNode(new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true))
+                )),
+                false, null);
+
+        List<String> errors = new TypeChecker().check(new ProgramNode(Arrays.asList(fn))).getErrors();
+
+        assertEquals(2, errors.size(), () -> "Errors: " + errors);
+        assertTrue(errors.get(0).contains("If condition must be a boolean"));
+        assertTrue(errors.get(1).contains("Cannot return a value of type string"));
+    }
+
+    @Test
+    void forgetsDeclarationsOfEarlierPrograms() {
+        TypeChecker checker = new TypeChecker();
+        ExpressionStatementNode call = new ExpressionStatementNode(
+                new FunctionCallNode("add", Arrays.asList(number(1), string("2"))));
+
+        TypeCheckResult first = checker.check(new ProgramNode(new ArrayList<>(Arrays.asList(addFunction(), call))));
+        TypeCheckResult second = checker.check(new ProgramNode(new ArrayList<>(Arrays.asList(call))));
+
+        assertEquals(1, first.getErrors().size(), () -> "Errors: " + first.getErrors());
+        // add is not declared in the second program, so the call is not checked against it
+        assertTrue(second.isSuccess(), () -> "Errors: " + second.getErrors());
+    }
+
+    @Test
+    void resolvesCallsToTheFunctionOfTheirOwnModule() {
+        // Each module declares init, with a different parameter type
+        ModuleDeclarationNode numbers = new ModuleDeclarationNode("numbers", Arrays.asList(
+                new FunctionDeclarationNode("init", Arrays.asList(new ParameterNode("n", TypeNode.numberType(), null)),
+                        null, new BlockNode(new ArrayList<>()), false, null),
+                new ExpressionStatementNode(new FunctionCallNode("init", Arrays.asList(number(1))))));
+        ModuleDeclarationNode names = new ModuleDeclarationNode("names", Arrays.asList(
+                new FunctionDeclarationNode("init", Arrays.asList(new ParameterNode("s", TypeNode.stringType(), null)),
+                        null, new BlockNode(new ArrayList<>()), false, null),
+                new ExpressionStatementNode(new FunctionCallNode("init", Arrays.asList(string("ada")))),
+                new ExpressionStatementNode(new FunctionCallNode("init", Arrays.asList(number(2))))));
+        // Outside both modules the name is ambiguous and the call is not checked
+        ExpressionStatementNode outside = new ExpressionStatementNode(new FunctionCallNode("init", Arrays.asList(number(3))));
+
+        List<String> errors = new TypeChecker().check(new ProgramNode(Arrays.asList(numbers, names, outside))).getErrors();
+
+        assertEquals(1, errors.size(), () -> "Errors: " + errors);
+        assertTrue(errors.get(0).contains("Argument 's' of function 'init' expects string"), errors.get(0));
+    }
+
+    private static FunctionDeclarationNode totalFunction(int line) {
+        // create function total with parameter n as number that returns string, returning n plus add(n, "1")
+        LiteralNode one = string("1");
+        one.setLocation(line + 1, 18);
+        FunctionCallNode call = new FunctionCallNode("add", Arrays.asList(new IdentifierNode("n"), one));
+        return new FunctionDeclarationNode("total",
+                Arrays.asList(new ParameterNode("n", TypeNode.numberType(), null)),
+                TypeNode.stringType(),
+                new BlockNode(Arrays.asList(new ReturnStatementNode(
+                        new BinaryExpressionNode(new IdentifierNode("n"), BinaryExpressionNode.Operator.PLUS, call)))),
+                false, null);
+    }
+
+    private static ReturnStatementNode returnOf(FunctionDeclarationNode fn) {
+        return (ReturnStatementNode) fn.getBody().getStatements().get(0);
+    }
+
+    @Test
+    void replaysUnchangedFunctionsFromTheCache() {
+        FunctionTypeCache cache = new FunctionTypeCache(16);
+        FunctionDeclarationNode first = totalFunction(1);
+        FunctionDeclarationNode moved = totalFunction(7);
+
+        TypeCheckResult checked = new TypeChecker(cache).check(new ProgramNode(Arrays.asList(addFunction(), first)));
+        // Parsed again, the same functions are further down in the file
+        TypeCheckResult replayed = new TypeChecker(cache).check(new ProgramNode(Arrays.asList(addFunction(), moved)));
+
+        assertEquals(0, checked.getCachedFunctions());
+        assertEquals(2, replayed.getCachedFunctions());
+        assertEquals(checked.getTypedExpressions(), replayed.getTypedExpressions());
+        assertEquals(2, checked.getErrors().size(), () -> "Errors: " + checked.getErrors());
+        assertTrue(checked.getErrors().get(0).endsWith("(Line 2:18)"), checked.getErrors().get(0));
+        // Errors are reported at the nodes of the function they are replayed onto
+        assertEquals(List.of(checked.getErrors().get(0).replace("(Line 2:18)", "(Line 8:18)"), checked.getErrors().get(1)),
+                     replayed.getErrors());
+
+        BinaryExpressionNode sum = (BinaryExpressionNode) returnOf(moved).getValue();
+        assertEquals(TypeNode.TypeKind.NUMBER, sum.getResolvedType().getKind());
+        assertEquals(TypeNode.TypeKind.NUMBER, sum.getLeft().getResolvedType().getKind());
+        assertEquals(TypeNode.TypeKind.NUMBER, sum.getRight().getResolvedType().getKind());
+    }
+
+    @Test
+    void checksFunctionsAgainWhenACalleeSignatureChanges() {
+        FunctionTypeCache cache = new FunctionTypeCache(16);
+        FunctionDeclarationNode concat = new FunctionDeclarationNode("add",
+                Arrays.asList(new ParameterNode("a", TypeNode.numberType(), null),
+                              new ParameterNode("b", TypeNode.stringType(), null)),
+                TypeNode.stringType(),
+                new BlockNode(Arrays.asList(new ReturnStatementNode(
+                        new BinaryExpressionNode(new IdentifierNode("a"), BinaryExpressionNode.Operator.PLUS, new IdentifierNode("b"))))),
+                false, null);
+
+        new TypeChecker(cache).check(new ProgramNode(Arrays.asList(addFunction(), totalFunction(1))));
+        FunctionDeclarationNode total = totalFunction(1);
+        TypeCheckResult result = new TypeChecker(cache).check(new ProgramNode(Arrays.asList(concat, total)));
+
+        // add changed and total is checked against its new signature
+        assertEquals(0, result.getCachedFunctions());
+        assertTrue(result.isSuccess(), () -> "Errors: " + result.getErrors());
+        assertEquals(TypeNode.TypeKind.STRING, ((ExpressionNode) returnOf(total).getValue()).getResolvedType().getKind());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.ylang.backend.benchmark;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.interpreter.Interpreter;
+import com.ylang.backend.jvm.CompiledProgram;
+import com.ylang.backend.jvm.JvmCompiler;
+import com.ylang.backend.model.RunResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run time of compute-heavy programs in the tree-walking interpreter against the same programs
+ * compiled to JVM classes by {@link JvmCompiler}, plus the cost of compiling and loading them.
+ * The programs cover recursion, nested loops over numbers, structures and lists.
+ *
+ * Run with: mvn -Pbenchmark test-compile exec:java -Dexec.args="JvmBackendBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JvmBackendBenchmark {
+
+    private static final Interpreter.Limits LIMITS =
+        new Interpreter.Limits(Long.MAX_VALUE, Long.MAX_VALUE, 60_000, 10_000, 1 << 20);
+
+    @Param({"fib", "loops", "structures", "lists"})
+    public String program;
+
+    private ProgramNode ast;
+    private Interpreter interpreter;
+    private JvmCompiler compiler;
+    private CompiledProgram compiled;
+
+    @Setup
+    public void setUp() {
+        ast = new ProgramNode(statements(program));
+        interpreter = new Interpreter();
+        compiler = new JvmCompiler();
+        compiled = compiler.compile(ast);
+
+        RunResult expected = interpreter.run(ast, LIMITS);
+        RunResult actual = compiled.run(LIMITS);
+        if (!expected.isSuccess() || !expected.getOutput().equals(actual.getOutput())) {
+            throw new IllegalStateException(program + ": interpreter printed " + expected.getOutput()
+                                            + expected.getError() + ", compiled " + actual.getOutput());
+        }
+    }
+
+    @Benchmark
+    public RunResult interpreted() {
+        return interpreter.run(ast, LIMITS);
+    }
+
+    @Benchmark
+    public RunResult compiled() {
+        return compiled.run(LIMITS);
+    }
+
+    @Benchmark
+    public CompiledProgram compile() {
+        return compiler.compile(ast);
+    }
+
+    private static List<ASTNode> statements(String program) {
+        switch (program) {
+            case "fib":
+                // create function fib with parameters n as number that returns number ... display fib(22)
+                return List.of(
+                    function("fib", List.of(parameter("n", TypeNode.numberType())), TypeNode.numberType(),
+                        new IfStatementNode(binary(id("n"), BinaryExpressionNode.Operator.LESS_THAN, number(2)),
+                            block(new ReturnStatementNode(id("n"))), null),
+                        new ReturnStatementNode(binary(
+                            call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(1))),
+                            BinaryExpressionNode.Operator.PLUS,
+                            call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(2)))))),
+                    print(call("fib", number(22))));
+            case "loops":
+                // Sum of (i * j) % 7 over a 300 by 300 grid
+                return List.of(
+                    new VariableDeclarationNode("sum", TypeNode.numberType(), number(0)),
+                    countTo("i", 300, block(
+                        countTo("j", 300, block(
+                            new AssignmentNode("sum", binary(id("sum"), BinaryExpressionNode.Operator.PLUS,
+                                binary(binary(id("i"), BinaryExpressionNode.Operator.TIMES, id("j")),
+                                       BinaryExpressionNode.Operator.MODULO, number(7)))))))),
+                    print(id("sum")));
+            case "structures":
+                // Points created in a loop and passed to a function reading their fields
+                return List.of(
+                    new StructureDeclarationNode("Point", null, null, List.of(
+                        new VariableDeclarationNode("x", TypeNode.numberType(), null),
+                        new VariableDeclarationNode("y", TypeNode.numberType(), null))),
+                    function("dot", List.of(parameter("a", new TypeNode("Point")), parameter("b", new TypeNode("Point"))),
+                        TypeNode.numberType(),
+                        new ReturnStatementNode(binary(
+                            binary(field("a", "x"), BinaryExpressionNode.Operator.TIMES, field("b", "x")),
+                            BinaryExpressionNode.Operator.PLUS,
+                            binary(field("a", "y"), BinaryExpressionNode.Operator.TIMES, field("b", "y"))))),
+                    new VariableDeclarationNode("total", TypeNode.numberType(), number(0)),
+                    new VariableDeclarationNode("origin", new TypeNode("Point"), call("Point", number(1), number(2))),
+                    countTo("i", 20_000, block(
+                        new VariableDeclarationNode("p", new TypeNode("Point"),
+                            call("Point", id("i"), binary(id("i"), BinaryExpressionNode.Operator.MODULO, number(10)))),
+                        new AssignmentNode("total", binary(id("total"), BinaryExpressionNode.Operator.PLUS,
+                            call("dot", id("p"), id("origin")))))),
+                    print(id("total")));
+            case "lists":
+                // Append to a list, then walk it summing the even elements
+                return List.of(
+                    new VariableDeclarationNode("numbers", TypeNode.listType(TypeNode.numberType()),
+                        new LiteralNode(LiteralNode.LiteralType.EMPTY_LIST, null)),
+                    countTo("i", 20_000, block(new ExpressionStatementNode(call("append", id("numbers"), id("i"))))),
+                    new VariableDeclarationNode("even", TypeNode.numberType(), number(0)),
+                    new LoopStatementNode("n", id("numbers"), block(
+                        new IfStatementNode(binary(binary(id("n"), BinaryExpressionNode.Operator.MODULO, number(2)),
+                                                   BinaryExpressionNode.Operator.EQUALS, number(0)),
+                            block(new AssignmentNode("even", binary(id("even"), BinaryExpressionNode.Operator.PLUS, id("n")))),
+                            null))),
+                    print(id("even"), call("length", id("numbers"))));
+            default:
+                throw new IllegalArgumentException("Unknown program " + program);
+        }
+    }
+
+    private static LoopStatementNode countTo(String variable, int count, BlockNode body) {
+        return new LoopStatementNode(variable, number(0),
+            binary(id(variable), BinaryExpressionNode.Operator.LESS_THAN, number(count)), variable, body);
+    }
+
+    private static FunctionDeclarationNode function(String name, List<ParameterNode> parameters, TypeNode returnType,
+                                                    ASTNode... body) {
+        return new FunctionDeclarationNode(name, parameters, returnType, block(body), false, null);
+    }
+
+    private static ParameterNode parameter(String name, TypeNode type) {
+        return new ParameterNode(name, type, null);
+    }
+
+    private static MemberAccessNode field(String variable, String name) {
+        return new MemberAccessNode(id(variable), MemberAccessNode.AccessType.DOT, id(name));
+    }
+
+    private static LiteralNode number(double value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    private static IdentifierNode id(String name) {
+        return new IdentifierNode(name);
+    }
+
+    private static BinaryExpressionNode binary(ExpressionNode left, BinaryExpressionNode.Operator operator, ExpressionNode right) {
+        return new BinaryExpressionNode(left, operator, right);
+    }
+
+    private static FunctionCallNode call(String name, ExpressionNode... arguments) {
+        return new FunctionCallNode(name, Arrays.asList(arguments));
+    }
+
+    private static ExpressionStatementNode print(ExpressionNode... arguments) {
+        return new ExpressionStatementNode(call("print", arguments));
+    }
+
+    private static BlockNode block(ASTNode... statements) {
+        return new BlockNode(Arrays.asList(statements));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JvmBackendBenchmark.class.getSimpleName()).build()).run();
+    }
+}
\ No newline at end of file
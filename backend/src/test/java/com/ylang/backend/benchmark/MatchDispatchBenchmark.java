@@ -0,0 +1,127 @@
+package com.ylang.backend.benchmark;
+
+import com.ylang.backend.analysis.MatchDispatch;
+import com.ylang.backend.ast.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch cost of a match statement with hundreds of literal and range cases: the linear
+ * chain of comparisons the translators used to emit, against the binary search and dense
+ * jump table strategies chosen by {@link MatchDispatch}.
+ *
+ * Run with: mvn -Pbenchmark test-compile exec:java -Dexec.args="MatchDispatchBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchDispatchBenchmark {
+
+    private static final int VALUES = 1024;
+
+    @Param({"100", "300", "900"})
+    public int cases;
+
+    private long[][] bounds;
+    private MatchDispatch dispatch;
+    private int[] table;
+    private long tableBase;
+    private long[] values;
+
+    @Setup
+    public void setUp() {
+        // Alternate single literals and short ranges, written in shuffled order
+        List<MatchStatementNode.MatchCase> matchCases = new ArrayList<>();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < cases; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(42));
+
+        bounds = new long[cases][];
+        BlockNode body = new BlockNode(new ArrayList<>());
+        for (int i = 0; i < cases; i++) {
+            long start = order.get(i) * 4L;
+            long end = order.get(i) % 2 == 0 ? start : start + 2;
+            bounds[i] = new long[] {start, end};
+            matchCases.add(start == end
+                    ? MatchStatementNode.MatchCase.literal(number(start), body)
+                    : MatchStatementNode.MatchCase.range(number(start), number(end), body));
+        }
+        dispatch = MatchDispatch.plan(matchCases);
+
+        List<MatchDispatch.Interval> intervals = dispatch.getIntervals();
+        tableBase = intervals.get(0).getStart();
+        table = new int[(int) (intervals.get(intervals.size() - 1).getEnd() - tableBase + 1)];
+        Arrays.fill(table, -1);
+        for (MatchDispatch.Interval interval : intervals) {
+            for (long v = interval.getStart(); v <= interval.getEnd(); v++) {
+                table[(int) (v - tableBase)] = interval.getCaseIndex();
+            }
+        }
+
+        Random random = new Random(7);
+        values = new long[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = random.nextInt(cases * 4);
+        }
+    }
+
+    private static LiteralNode number(long value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public long sequentialChain() {
+        long sum = 0;
+        for (long value : values) {
+            int selected = -1;
+            for (int i = 0; i < bounds.length; i++) {
+                if (value >= bounds[i][0] && value <= bounds[i][1]) {
+                    selected = i;
+                    break;
+                }
+            }
+            sum += selected;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public long binarySearch() {
+        long sum = 0;
+        for (long value : values) {
+            sum += dispatch.lookup(value);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public long jumpTable() {
+        long sum = 0;
+        for (long value : values) {
+            long slot = value - tableBase;
+            sum += slot >= 0 && slot < table.length ? table[(int) slot] : -1;
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MatchDispatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
\ No newline at end of file
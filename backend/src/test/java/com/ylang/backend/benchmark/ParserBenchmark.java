@@ -0,0 +1,51 @@
+package com.ylang.backend.benchmark;
+
+import com.ylang.backend.generator.ProgramGenerator;
+import com.ylang.backend.model.ParseResult;
+import com.ylang.backend.service.YLanguageParserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of generated programs by size and nesting depth, to see how the parser scales to
+ * files much larger than the examples.
+ *
+ * Run with: mvn -Pbenchmark test-compile exec:java -Dexec.args="ParserBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"2", "8"})
+    public int depth;
+
+    private YLanguageParserService parser;
+    private String source;
+
+    @Setup
+    public void setUp() {
+        parser = new YLanguageParserService();
+        source = new ProgramGenerator(new ProgramGenerator.Options().functions(0).maxDepth(depth).targetSize(size))
+            .generate(1);
+    }
+
+    @Benchmark
+    public ParseResult parse() {
+        return parser.parse(source);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
\ No newline at end of file
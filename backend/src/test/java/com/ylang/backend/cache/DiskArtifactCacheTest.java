@@ -0,0 +1,128 @@
+package com.ylang.backend.cache;
+
+import com.ylang.backend.model.CompileOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskArtifactCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] key(String text) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testValuesSurviveReopenAndAreSharedBetweenInstances() throws Exception {
+        try (DiskArtifactCache first = new DiskArtifactCache(directory, 1 << 20, 1 << 24);
+             DiskArtifactCache second = new DiskArtifactCache(directory, 1 << 20, 1 << 24)) {
+            first.put(key("a"), bytes("fn a() {}"));
+            assertNull(first.get(key("b")));
+
+            // Written by another instance after this one scanned the segments
+            assertArrayEquals(bytes("fn a() {}"), second.get(key("a")));
+            second.put(key("b"), bytes("fn b() {}"));
+            assertArrayEquals(bytes("fn b() {}"), first.get(key("b")));
+            second.put(key("a"), bytes("fn a2() {}"));
+        }
+
+        try (DiskArtifactCache reopened = new DiskArtifactCache(directory, 1 << 20, 1 << 24)) {
+            assertEquals(2, reopened.size());
+            assertArrayEquals(bytes("fn a2() {}"), reopened.get(key("a")));
+        }
+    }
+
+    @Test
+    void testMissSeesSegmentsStartedAndCompactedByAnotherInstance() throws Exception {
+        try (DiskArtifactCache first = new DiskArtifactCache(directory, 256, 1 << 20);
+             DiskArtifactCache second = new DiskArtifactCache(directory, 256, 1 << 20)) {
+            assertNull(first.get(key("missing")));
+            byte[] value = new byte[150];
+            for (int i = 0; i < 4; i++) {
+                // Each record fills a segment, so every put starts the next one
+                second.put(key("k" + i), value);
+                assertArrayEquals(value, first.get(key("k" + i)));
+            }
+
+            second.compact();
+            second.put(key("after"), bytes("fn after() {}"));
+            assertArrayEquals(bytes("fn after() {}"), first.get(key("after")));
+            assertEquals(5, first.size());
+        }
+    }
+
+    @Test
+    void testTornRecordIsCutOffByNextWriter() throws Exception {
+        try (DiskArtifactCache cache = new DiskArtifactCache(directory, 1 << 20, 1 << 24)) {
+            cache.put(key("a"), bytes("first"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".ylc")).findFirst().orElseThrow();
+        }
+        // A writer crashed halfway through its record
+        Files.write(segment, new byte[] {0x59, 0x52, 0x45, 0x43, 0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (DiskArtifactCache cache = new DiskArtifactCache(directory, 1 << 20, 1 << 24)) {
+            assertArrayEquals(bytes("first"), cache.get(key("a")));
+            cache.put(key("b"), bytes("second"));
+        }
+        try (DiskArtifactCache cache = new DiskArtifactCache(directory, 1 << 20, 1 << 24)) {
+            assertArrayEquals(bytes("first"), cache.get(key("a")));
+            assertArrayEquals(bytes("second"), cache.get(key("b")));
+        }
+    }
+
+    @Test
+    void testCompactionKeepsNewestRecordsWithinLimit() throws Exception {
+        byte[] value = new byte[1000];
+        try (DiskArtifactCache cache = new DiskArtifactCache(directory, 4096, 20_000)) {
+            for (int i = 0; i < 100; i++) {
+                cache.put(key("k" + i), value);
+            }
+            assertNotNull(cache.get(key("k99")));
+            assertNull(cache.get(key("k0")));
+            assertTrue(cache.size() < 20);
+        }
+        long total;
+        try (Stream<Path> files = Files.list(directory)) {
+            total = files.filter(path -> path.toString().endsWith(".ylc")).mapToLong(path -> path.toFile().length()).sum();
+        }
+        assertTrue(total <= 20_000, "segments stay within the size limit, were " + total);
+    }
+
+    @Test
+    void testArtifactKeysCoverTargetAndOptions() throws Exception {
+        String code = "create variable x as number equals 42";
+        byte[] rust = CompileArtifacts.key(code, "rust", CompileOptions.defaults());
+        assertArrayEquals(rust, CompileArtifacts.key(code, "RUST", new CompileOptions(false)));
+        assertFalse(Arrays.equals(rust, CompileArtifacts.key(code, "typescript", CompileOptions.defaults())));
+        assertFalse(Arrays.equals(rust, CompileArtifacts.key(code, "rust", new CompileOptions(true))));
+        // Persistent keys also cover the classes of this build, in-process keys do not
+        assertEquals(32, CompileArtifacts.translatorVersion().length);
+        assertFalse(Arrays.equals(rust, CompileArtifacts.contentKey(code, "rust", CompileOptions.defaults())));
+
+        try (DiskArtifactCache cache = new DiskArtifactCache(directory, 1 << 20, 1 << 24)) {
+            cache.put(rust, CompileArtifacts.encode(new CompileArtifacts.Artifact("let x = 42;", List.of("Unused variable 'x'"))));
+            CompileArtifacts.Artifact artifact = CompileArtifacts.decode(cache.get(rust));
+            assertEquals("let x = 42;", artifact.compiledCode());
+            assertEquals(List.of("Unused variable 'x'"), artifact.warnings());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.ylang.backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallsShareOneComputation() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> flight.run("example", () -> {
+                    computations.incrementAndGet();
+                    await(release);
+                    return "compiled";
+                })));
+            }
+            // Let every caller arrive before the computation finishes
+            while (flight.getSharedCalls() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("compiled", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(0, flight.inFlight());
+
+            // Finished computations are not remembered
+            assertEquals("again", flight.run("example", () -> "again"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureReachesEveryWaiter() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> leader = pool.submit(() -> flight.run("broken", () -> {
+                await(release);
+                throw new IllegalStateException("translator failed");
+            }));
+            while (flight.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+            // Fail the computation only once this thread waits for it
+            Thread releaser = new Thread(() -> {
+                while (flight.getSharedCalls() == 0) {
+                    Thread.onSpinWait();
+                }
+                release.countDown();
+            });
+            releaser.start();
+
+            IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> flight.run("broken", () -> "not computed"));
+            assertEquals("translator failed", error.getMessage());
+            assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -1,18 +1,33 @@
 package com.ylang.backend.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.ylang.backend.config.BinaryEncodingConfig;
 import com.ylang.backend.dto.CompileRequest;
 import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.dto.RunResponse;
+import com.ylang.backend.dto.TokenResponse;
 import com.ylang.backend.dto.ValidateRequest;
 import com.ylang.backend.dto.ValidateResponse;
+import com.ylang.backend.model.RunResult;
+import com.ylang.backend.model.ValidationLevel;
+import com.ylang.backend.service.AdmissionControl;
 import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.ProjectCompilationService;
+import com.ylang.backend.service.TokenService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
@@ -23,6 +38,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = CompilationController.class)
+@Import({AdmissionControl.class, BinaryEncodingConfig.class})
 class CompilationControllerTest {
 
     @Autowired
@@ -31,10 +47,16 @@ class CompilationControllerTest {
     @MockBean
     private CompilationService compilationService;
 
+    @MockBean
+    private ProjectCompilationService projectCompilationService;
+
+    @MockBean
+    private TokenService tokenService;
+
     @Test
     @DisplayName("POST /v1/compile returns 200 on success")
     void compile_success_returns_200() throws Exception {
-        when(compilationService.compile(eq("code"), eq("typescript"), eq(null)))
+        when(compilationService.compile(eq("code"), eq("typescript"), eq(null), eq(null)))
                 .thenReturn(CompileResponse.success("generated", null));
 
         String body = "{\n" +
@@ -50,10 +72,39 @@ class CompilationControllerTest {
                 .andExpect(jsonPath("$.compiledCode").value("generated"));
     }
 
+    @Test
+    @DisplayName("POST /v1/compile answers in Smile or CBOR with the code as raw UTF-8 bytes")
+    void compile_negotiates_binary_encodings() throws Exception {
+        String generated = "const greeting = \"h\u00e9llo\";\n";
+        when(compilationService.compile(eq("code"), eq("typescript"), eq(null), eq(null)))
+                .thenReturn(CompileResponse.success(generated, null));
+        String body = "{\"code\": \"code\", \"targetLanguage\": \"typescript\"}";
+
+        byte[] smile = mockMvc.perform(post("/v1/compile")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept("application/x-jackson-smile")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        SmileMapper smileMapper = new SmileMapper();
+        assertTrue(smileMapper.readTree(smile).get("compiledCode").isBinary());
+        assertEquals(generated, smileMapper.readValue(smile, CompileResponse.class).getCompiledCode());
+
+        byte[] cbor = mockMvc.perform(post("/v1/compile")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept("application/cbor")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode code = new CBORMapper().readTree(cbor).get("compiledCode");
+        assertArrayEquals(generated.getBytes(java.nio.charset.StandardCharsets.UTF_8), code.binaryValue());
+    }
+
     @Test
     @DisplayName("POST /v1/compile returns 400 on failure")
     void compile_failure_returns_400() throws Exception {
-        when(compilationService.compile(eq("bad"), eq("rust"), eq(null)))
+        when(compilationService.compile(eq("bad"), eq("rust"), eq(null), eq(null)))
                 .thenReturn(CompileResponse.failure(java.util.List.of("error")));
 
         String body = "{\n" +
@@ -72,7 +123,7 @@ class CompilationControllerTest {
     @Test
     @DisplayName("POST /v1/validate returns 200 on valid code")
     void validate_success_returns_200() throws Exception {
-        when(compilationService.validate(eq("ok")))
+        when(compilationService.validate(eq("ok"), eq(false), eq(ValidationLevel.FULL)))
                 .thenReturn(ValidateResponse.success(java.util.List.of()));
 
         String body = "{\n" +
@@ -89,7 +140,7 @@ class CompilationControllerTest {
     @Test
     @DisplayName("POST /v1/validate returns 400 on invalid code")
     void validate_failure_returns_400() throws Exception {
-        when(compilationService.validate(eq("oops")))
+        when(compilationService.validate(eq("oops"), eq(false), eq(ValidationLevel.FULL)))
                 .thenReturn(ValidateResponse.failure(java.util.List.of("invalid")));
 
         String body = "{\n" +
@@ -104,6 +155,72 @@ class CompilationControllerTest {
                 .andExpect(jsonPath("$.errors[0]").value("invalid"));
     }
 
+    @Test
+    @DisplayName("POST /v1/validate passes the requested level")
+    void validate_level_is_forwarded() throws Exception {
+        when(compilationService.validate(eq("ok"), eq(true), eq(ValidationLevel.SYNTAX)))
+                .thenReturn(ValidateResponse.success(java.util.List.of()));
+
+        String body = "{\n" +
+                "  \"code\": \"ok\",\n" +
+                "  \"failFast\": true,\n" +
+                "  \"level\": \"syntax\"\n" +
+                "}";
+
+        mockMvc.perform(post("/v1/validate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valid").value(true));
+    }
+
+    @Test
+    @DisplayName("POST /v1/run returns 200 once the program ran and 400 when it could not")
+    void run_returns_output_or_400() throws Exception {
+        when(compilationService.run(eq("ok")))
+                .thenReturn(RunResponse.of(RunResult.stopped("hello\n", "steps", "Step limit of 10 exceeded", 11, 0)));
+        when(compilationService.run(eq("oops")))
+                .thenReturn(RunResponse.failure(java.util.List.of("invalid")));
+
+        mockMvc.perform(post("/v1/run")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"code\": \"ok\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.executed").value(true))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.output").value("hello\n"))
+                .andExpect(jsonPath("$.limitExceeded").value("steps"));
+
+        mockMvc.perform(post("/v1/run")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"code\": \"oops\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.executed").value(false))
+                .andExpect(jsonPath("$.errors[0]").value("invalid"));
+    }
+
+    @Test
+    @DisplayName("POST /v1/tokens/edit returns 409 when the document must be resent")
+    void token_edit_on_stale_document_returns_409() throws Exception {
+        TokenResponse stale = TokenResponse.failure("doc", "Unknown document 'doc'");
+        stale.setResyncRequired(true);
+        when(tokenService.applyEdit(eq("doc"), eq(3L), eq(0), eq(0), eq("x"))).thenReturn(stale);
+
+        String body = "{\n" +
+                "  \"documentId\": \"doc\",\n" +
+                "  \"version\": 3,\n" +
+                "  \"offset\": 0,\n" +
+                "  \"deleteLength\": 0,\n" +
+                "  \"text\": \"x\"\n" +
+                "}";
+
+        mockMvc.perform(post("/v1/tokens/edit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.resyncRequired").value(true));
+    }
+
     @Test
     @DisplayName("GET /v1/health returns 200")
     void health_returns_200() throws Exception {
@@ -0,0 +1,160 @@
+package com.ylang.backend.fuzz;
+
+import com.ylang.backend.model.ParseResult;
+import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.CompileArtifactCache;
+import com.ylang.backend.service.YLanguageLexer;
+import com.ylang.backend.service.YLanguageParser;
+import com.ylang.backend.service.YLanguageParserService;
+import com.ylang.backend.translator.RustTranslator;
+import com.ylang.backend.translator.TypeScriptTranslator;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures what one input costs the compiler front end.
+ *
+ * The input goes through {@link YLanguageParserService#parse(String)} and, when it parses, both
+ * translators, with the CPU time and the bytes allocated by the calling thread. A second parse
+ * with ANTLR's profiler on gives the counts that do not depend on the machine: how deep the
+ * parse tree gets, how often prediction falls back to full LL, and how much lookahead each
+ * decision examines. Those counts also guide the fuzzer toward new parser behaviour.
+ */
+public class CostProbe {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Cost of one input
+     * @param parseNanos CPU time of parsing and building the AST
+     * @param translateNanos CPU time of both translators, 0 when the input does not parse
+     * @param allocatedBytes Bytes allocated by parsing and translating
+     * @param treeDepth Deepest nesting of parser rules
+     * @param llFallbacks Predictions that needed full-context LL
+     * @param lookahead Tokens examined by prediction
+     * @param features Per-decision counts, the coverage the fuzzer steers by
+     */
+    public record Cost(long parseNanos, long translateNanos, long allocatedBytes, int treeDepth,
+                       long llFallbacks, long lookahead, boolean parsed, Map<String, Long> features) {
+    }
+
+    private final YLanguageParserService parserService = new YLanguageParserService();
+    private final CompilationService compilationService = new CompilationService(parserService,
+        new TypeScriptTranslator(), new RustTranslator(), new CompileArtifactCache(null));
+
+    public Cost measure(String source) {
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = THREADS.getCurrentThreadCpuTime();
+        ParseResult result = parserService.parse(source);
+        long parsed = THREADS.getCurrentThreadCpuTime();
+        if (result.isSuccess()) {
+            compilationService.compile(result.getAst(), "rust", null);
+            compilationService.compile(result.getAst(), "typescript", null);
+        }
+        long translated = THREADS.getCurrentThreadCpuTime();
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        Map<String, Long> features = new HashMap<>();
+        int[] depth = profile(source, features);
+        long llFallbacks = 0;
+        long lookahead = 0;
+        for (Map.Entry<String, Long> feature : features.entrySet()) {
+            if (feature.getKey().endsWith(".ll")) {
+                llFallbacks += feature.getValue();
+            } else if (feature.getKey().endsWith(".look")) {
+                lookahead += feature.getValue();
+            }
+        }
+        features.put("depth", (long) depth[0]);
+        return new Cost(parsed - start, result.isSuccess() ? translated - parsed : 0, allocated, depth[0],
+                        llFallbacks, lookahead, result.isSuccess(), features);
+    }
+
+    /**
+     * Parse again with the profiler, as the parser service does after its fast pass fails
+     * @return The deepest rule nesting, in a one-element array
+     */
+    private static int[] profile(String source, Map<String, Long> features) {
+        YLanguageLexer lexer = new YLanguageLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        YLanguageParser parser = new YLanguageParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        ErrorLimit errors = new ErrorLimit(YLanguageParserService.DEFAULT_MAX_ERRORS);
+        lexer.addErrorListener(errors);
+        parser.addErrorListener(errors);
+        parser.setProfile(true);
+        int[] depth = new int[2];
+        parser.addParseListener(new ParseTreeListener() {
+            @Override
+            public void enterEveryRule(ParserRuleContext ctx) {
+                depth[1]++;
+                depth[0] = Math.max(depth[0], depth[1]);
+            }
+
+            @Override
+            public void exitEveryRule(ParserRuleContext ctx) {
+                depth[1]--;
+            }
+
+            @Override
+            public void visitTerminal(TerminalNode node) {
+            }
+
+            @Override
+            public void visitErrorNode(ErrorNode node) {
+            }
+        });
+        try {
+            parser.program();
+        } catch (ParseCancellationException e) {
+            // Stopped at the error limit, like the parser service
+        }
+
+        DecisionInfo[] decisions = parser.getParseInfo().getDecisionInfo();
+        for (DecisionInfo decision : decisions) {
+            if (decision.invocations == 0) {
+                continue;
+            }
+            features.put("d" + decision.decision + ".look", decision.SLL_TotalLook + decision.LL_TotalLook);
+            if (decision.LL_Fallback > 0) {
+                features.put("d" + decision.decision + ".ll", decision.LL_Fallback);
+            }
+            if (!decision.errors.isEmpty()) {
+                features.put("d" + decision.decision + ".errors", (long) decision.errors.size());
+            }
+        }
+        features.put("errors", (long) errors.count);
+        return depth;
+    }
+
+    private static class ErrorLimit extends BaseErrorListener {
+        private final int limit;
+        private int count;
+
+        ErrorLimit(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            if (++count >= limit) {
+                throw new ParseCancellationException(msg);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.ylang.backend.fuzz;
+
+import com.ylang.backend.service.YLanguageLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Token-level mutations of Y programs. Working on tokens rather than characters keeps most
+ * mutants lexically valid, so the fuzzer spends its time in the parser instead of the lexer's
+ * error recovery.
+ */
+public class Mutator {
+
+    /**
+     * Tokens worth inserting: every keyword and symbol of the grammar plus one literal of each kind
+     */
+    static final List<String> DICTIONARY = dictionary();
+
+    private static final int MAX_REPEAT = 64;
+
+    private final Random random;
+    private final int maxSize;
+
+    public Mutator(Random random, int maxSize) {
+        this.random = random;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Split a program into the texts of its tokens, dropping whitespace and comments
+     */
+    public static List<String> tokenize(String source) {
+        YLanguageLexer lexer = new YLanguageLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        List<String> tokens = new ArrayList<>();
+        for (Token token : lexer.getAllTokens()) {
+            if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+                tokens.add(token.getText());
+            }
+        }
+        return tokens;
+    }
+
+    public static String join(List<String> tokens) {
+        StringBuilder source = new StringBuilder();
+        for (String token : tokens) {
+            if (!source.isEmpty()) {
+                source.append(token.equals(";") ? "\n" : " ");
+            }
+            source.append(token);
+        }
+        return source.toString();
+    }
+
+    /**
+     * Apply one to four random mutations
+     * @param other Another input to splice from
+     */
+    public List<String> mutate(List<String> input, List<String> other) {
+        List<String> tokens = new ArrayList<>(input);
+        int rounds = 1 + random.nextInt(4);
+        for (int round = 0; round < rounds; round++) {
+            switch (random.nextInt(7)) {
+                case 0 -> delete(tokens);
+                case 1 -> duplicate(tokens);
+                case 2 -> tokens.add(position(tokens), pick());
+                case 3 -> replace(tokens);
+                case 4 -> nest(tokens);
+                case 5 -> splice(tokens, other);
+                default -> repeatToken(tokens);
+            }
+        }
+        while (join(tokens).length() > maxSize && !tokens.isEmpty()) {
+            tokens.subList(tokens.size() / 2, tokens.size()).clear();
+        }
+        return tokens;
+    }
+
+    private void delete(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        int from = random.nextInt(tokens.size());
+        tokens.subList(from, Math.min(tokens.size(), from + 1 + random.nextInt(8))).clear();
+    }
+
+    /**
+     * Repeat a span back to back, which multiplies whatever work the parser does on it
+     */
+    private void duplicate(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        int from = random.nextInt(tokens.size());
+        List<String> span = new ArrayList<>(tokens.subList(from, Math.min(tokens.size(), from + 1 + random.nextInt(16))));
+        int times = 1 + random.nextInt(MAX_REPEAT);
+        for (int i = 0; i < times; i++) {
+            tokens.addAll(from, span);
+        }
+    }
+
+    private void replace(List<String> tokens) {
+        if (!tokens.isEmpty()) {
+            tokens.set(random.nextInt(tokens.size()), pick());
+        }
+    }
+
+    /**
+     * Wrap a span in nested parentheses, driving the recursion depth of the parser and of
+     * everything that walks its tree
+     */
+    private void nest(List<String> tokens) {
+        int from = position(tokens);
+        int to = from + random.nextInt(tokens.size() - from + 1);
+        int depth = 1 + random.nextInt(MAX_REPEAT);
+        tokens.addAll(to, Collections.nCopies(depth, ")"));
+        tokens.addAll(from, Collections.nCopies(depth, "("));
+    }
+
+    private void splice(List<String> tokens, List<String> other) {
+        if (other.isEmpty()) {
+            return;
+        }
+        int from = random.nextInt(other.size());
+        tokens.addAll(position(tokens), other.subList(from, Math.min(other.size(), from + 1 + random.nextInt(32))));
+    }
+
+    private void repeatToken(List<String> tokens) {
+        tokens.addAll(position(tokens), Collections.nCopies(1 + random.nextInt(MAX_REPEAT), pick()));
+    }
+
+    private int position(List<String> tokens) {
+        return random.nextInt(tokens.size() + 1);
+    }
+
+    private String pick() {
+        return DICTIONARY.get(random.nextInt(DICTIONARY.size()));
+    }
+
+    private static List<String> dictionary() {
+        Vocabulary vocabulary = YLanguageLexer.VOCABULARY;
+        List<String> words = new ArrayList<>();
+        for (int type = 1; type <= vocabulary.getMaxTokenType(); type++) {
+            String literal = vocabulary.getLiteralName(type);
+            if (literal != null) {
+                words.add(literal.substring(1, literal.length() - 1));
+            }
+        }
+        words.addAll(List.of("x", "y", "42", "3.5", "\"text\"", "true"));
+        return List.copyOf(words);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,305 @@
+package com.ylang.backend.fuzz;
+
+import com.ylang.backend.generator.ProgramGenerator;
+import com.ylang.backend.loadtest.Corpus;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches for Y programs that are expensive to compile, in the manner of PerfFuzz: a mutant
+ * joins the queue when it reaches a parser decision no earlier input reached, or makes any
+ * decision, the tree depth or the error count larger than the previous maximum. The inputs
+ * costing the most parse time, allocation, recursion depth and prediction lookahead are written
+ * as .y files headed by the cost budget {@link PerfRegressionTest} holds them to. Inputs that
+ * overflow the stack are written to a crashes directory beside them.
+ *
+ * Run with: mvn -Pfuzz test-compile exec:java -Dexec.args="--time 300"
+ */
+public final class PerfFuzzer {
+
+    private static final String USAGE = String.join("\n",
+        "Usage: PerfFuzzer [options]",
+        "      --time <seconds>        How long to fuzz (default: 60)",
+        "      --max-size <chars>      Largest input (default: 4000)",
+        "      --corpus <path>         Seed .y file or directory, repeatable (default: ../examples)",
+        "      --generated <n>         Also seed with n generated programs (default: 20)",
+        "      --keep <n>              Inputs saved for each kind of cost (default: 2)",
+        "      --out <dir>             Where to save them (default: src/test/resources/perf-regressions)",
+        "      --seed <n>              Seed for the mutations (default: 1)",
+        "  -h, --help                  Show this help");
+
+    /**
+     * Measured cost is multiplied by this to give the budget, leaving room for differences
+     * between JVMs while still catching a change in complexity
+     */
+    static final double HEADROOM = 1.5;
+
+    enum Objective {
+        PARSE_TIME("time", cost -> cost.parseNanos() + cost.translateNanos()),
+        ALLOCATION("alloc", CostProbe.Cost::allocatedBytes),
+        DEPTH("depth", CostProbe.Cost::treeDepth),
+        LOOKAHEAD("lookahead", CostProbe.Cost::lookahead);
+
+        final String label;
+        final ToLongFunction<CostProbe.Cost> measure;
+
+        Objective(String label, ToLongFunction<CostProbe.Cost> measure) {
+            this.label = label;
+            this.measure = measure;
+        }
+    }
+
+    /**
+     * Costs an input may not exceed, written in the first lines of a saved input
+     */
+    record Budget(long treeDepth, long llFallbacks, long lookahead, long allocatedBytes) {
+
+        private static final Pattern LINE = Pattern.compile("^// budget (.*)$", Pattern.MULTILINE);
+
+        static Budget of(CostProbe.Cost cost) {
+            return new Budget(withHeadroom(cost.treeDepth()), withHeadroom(cost.llFallbacks()),
+                              withHeadroom(cost.lookahead()), withHeadroom(cost.allocatedBytes()));
+        }
+
+        static Budget parse(String source) {
+            Matcher matcher = LINE.matcher(source);
+            if (!matcher.find()) {
+                throw new IllegalArgumentException("No '// budget' line");
+            }
+            Map<String, Long> values = new HashMap<>();
+            for (String pair : matcher.group(1).trim().split("\\s+")) {
+                String[] parts = pair.split("=", 2);
+                values.put(parts[0], Long.parseLong(parts[1]));
+            }
+            return new Budget(values.get("treeDepth"), values.get("llFallbacks"), values.get("lookahead"),
+                              values.get("allocatedBytes"));
+        }
+
+        String line() {
+            return "// budget treeDepth=" + treeDepth + " llFallbacks=" + llFallbacks + " lookahead=" + lookahead
+                + " allocatedBytes=" + allocatedBytes;
+        }
+
+        private static long withHeadroom(long value) {
+            return (long) Math.ceil(value * HEADROOM);
+        }
+    }
+
+    private record Entry(List<String> tokens, String source, CostProbe.Cost cost) {
+    }
+
+    private final CostProbe probe = new CostProbe();
+    private final Random random;
+    private final Mutator mutator;
+    private final List<Entry> queue = new ArrayList<>();
+    private final Map<String, Long> maxima = new HashMap<>();
+    private final Map<Objective, List<Entry>> worst = new LinkedHashMap<>();
+    private final Set<String> crashes = new LinkedHashSet<>();
+    private final int candidates;
+    private long executions;
+
+    PerfFuzzer(long seed, int maxSize, int keep) {
+        random = new Random(seed);
+        mutator = new Mutator(random, maxSize);
+        // Parse time is noisy, so more candidates are kept and measured again at the end
+        candidates = keep * 4;
+        for (Objective objective : Objective.values()) {
+            worst.put(objective, new ArrayList<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+        int seconds = 60;
+        int maxSize = 4_000;
+        int generated = 20;
+        int keep = 2;
+        long seed = 1;
+        Path outDir = Path.of("src/test/resources/perf-regressions");
+        List<Path> corpusPaths = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--time" -> seconds = Integer.parseInt(args[++i]);
+                    case "--max-size" -> maxSize = Integer.parseInt(args[++i]);
+                    case "--corpus" -> corpusPaths.add(Path.of(args[++i]));
+                    case "--generated" -> generated = Integer.parseInt(args[++i]);
+                    case "--keep" -> keep = Integer.parseInt(args[++i]);
+                    case "--out" -> outDir = Path.of(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "-h", "--help" -> {
+                        out.println(USAGE);
+                        return 0;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing value for " + args[args.length - 1] : e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        // Every mutant with a syntax error would be logged, and the logging timed with it
+        ((Logger) LoggerFactory.getLogger("com.ylang")).setLevel(Level.OFF);
+
+        Corpus corpus = new Corpus();
+        if (corpusPaths.isEmpty() && Files.isDirectory(Path.of("../examples"))) {
+            corpusPaths.add(Path.of("../examples"));
+        }
+        for (Path path : corpusPaths) {
+            corpus.addFiles(path);
+        }
+        ProgramGenerator generator = new ProgramGenerator(new ProgramGenerator.Options()
+            .functions(2).structures(1).topLevelStatements(3).maxDepth(4));
+        for (int i = 0; i < generated; i++) {
+            corpus.add("generated-" + i, generator.generate(seed + i));
+        }
+        if (corpus.isEmpty()) {
+            corpus.add("empty", "");
+        }
+
+        PerfFuzzer fuzzer = new PerfFuzzer(seed, maxSize, keep);
+        for (Corpus.Program program : corpus.programs()) {
+            fuzzer.consider(Mutator.tokenize(program.source()), true);
+        }
+        out.printf("Seeded with %d programs, fuzzing for %d s%n", corpus.programs().size(), seconds);
+        fuzzer.fuzz(seconds * 1000L, out);
+        fuzzer.save(outDir, keep, seed, out);
+        return 0;
+    }
+
+    private void fuzz(long millis, PrintStream out) {
+        long deadline = System.currentTimeMillis() + millis;
+        long nextReport = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Entry parent = queue.get(random.nextInt(queue.size()));
+            Entry other = queue.get(random.nextInt(queue.size()));
+            consider(mutator.mutate(parent.tokens(), other.tokens()), false);
+            if (System.currentTimeMillis() >= nextReport) {
+                out.printf("%d executions, %d queued, %d features%n", executions, queue.size(), maxima.size());
+                nextReport += 10_000;
+            }
+        }
+        out.printf("%d executions, %d queued, %d features, %d crashes%n", executions, queue.size(), maxima.size(),
+                   crashes.size());
+    }
+
+    private void consider(List<String> tokens, boolean seed) {
+        String source = Mutator.join(tokens);
+        CostProbe.Cost cost;
+        executions++;
+        try {
+            cost = probe.measure(source);
+        } catch (StackOverflowError e) {
+            crashes.add(source);
+            return;
+        }
+        boolean interesting = seed;
+        for (Map.Entry<String, Long> feature : cost.features().entrySet()) {
+            Long max = maxima.get(feature.getKey());
+            if (max == null || feature.getValue() > max) {
+                maxima.put(feature.getKey(), feature.getValue());
+                interesting = true;
+            }
+        }
+        Entry entry = new Entry(tokens, source, cost);
+        if (interesting) {
+            queue.add(entry);
+        }
+        for (Objective objective : Objective.values()) {
+            List<Entry> entries = worst.get(objective);
+            long value = objective.measure.applyAsLong(cost);
+            if (entries.size() < candidates || value > objective.measure.applyAsLong(entries.get(entries.size() - 1).cost())) {
+                if (entries.stream().noneMatch(e -> e.source().equals(source))) {
+                    entries.add(entry);
+                    entries.sort(Comparator.comparingLong((Entry e) -> objective.measure.applyAsLong(e.cost())).reversed());
+                    if (entries.size() > candidates) {
+                        entries.remove(entries.size() - 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Measure the worst inputs again, keeping the lowest of three runs, and write the costliest
+     */
+    private void save(Path outDir, int keep, long seed, PrintStream out) throws IOException {
+        Files.createDirectories(outDir);
+        if (!crashes.isEmpty()) {
+            // Kept apart from the regression inputs: they have no cost to budget until fixed
+            Path crashDir = Files.createDirectories(outDir.resolve("crashes"));
+            for (String source : crashes) {
+                Path file = crashDir.resolve(String.format("stack-overflow-%08x.y", source.hashCode()));
+                Files.writeString(file, "// Found by PerfFuzzer --seed " + seed + ": StackOverflowError\n" + source + "\n");
+                out.printf("%-12s %s%n", "crash", file);
+            }
+        }
+        Map<String, CostProbe.Cost> remeasured = new HashMap<>();
+        Set<String> saved = new LinkedHashSet<>();
+        for (Map.Entry<Objective, List<Entry>> ranked : worst.entrySet()) {
+            Objective objective = ranked.getKey();
+            List<Entry> entries = new ArrayList<>();
+            for (Entry entry : ranked.getValue()) {
+                CostProbe.Cost cost = remeasured.computeIfAbsent(entry.source(), this::remeasure);
+                entries.add(new Entry(entry.tokens(), entry.source(), cost));
+            }
+            entries.sort(Comparator.comparingLong((Entry e) -> objective.measure.applyAsLong(e.cost())).reversed());
+            int written = 0;
+            for (Entry entry : entries) {
+                if (written == keep) {
+                    break;
+                }
+                if (!saved.add(entry.source())) {
+                    continue;
+                }
+                written++;
+                CostProbe.Cost cost = entry.cost();
+                Path file = outDir.resolve(String.format("%s-%08x.y", objective.label, entry.source().hashCode()));
+                Files.writeString(file, String.join("\n",
+                    "// Found by PerfFuzzer --seed " + seed + " for " + objective.label
+                        + String.format(": %d chars, parse %.1f ms, translate %.1f ms", entry.source().length(),
+                                        cost.parseNanos() / 1e6, cost.translateNanos() / 1e6),
+                    Budget.of(cost).line(),
+                    entry.source(),
+                    ""));
+                out.printf("%-12s depth %5d  LL fallbacks %6d  lookahead %8d  allocated %10d  %s%n", objective.label,
+                           cost.treeDepth(), cost.llFallbacks(), cost.lookahead(), cost.allocatedBytes(), file);
+            }
+        }
+    }
+
+    private CostProbe.Cost remeasure(String source) {
+        CostProbe.Cost best = null;
+        for (int i = 0; i < 3; i++) {
+            CostProbe.Cost cost = probe.measure(source);
+            if (best == null || cost.parseNanos() + cost.translateNanos() < best.parseNanos() + best.translateNanos()) {
+                best = cost;
+            }
+        }
+        return best;
+    }
+}
\ No newline at end of file
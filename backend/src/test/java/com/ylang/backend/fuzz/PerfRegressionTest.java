@@ -0,0 +1,66 @@
+package com.ylang.backend.fuzz;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays the inputs {@link PerfFuzzer} saved and checks none costs more than its recorded budget.
+ * Only costs that do not depend on the machine are checked; parse time and allocated bytes, which
+ * vary with the JIT and escape analysis, are in the file header for reference.
+ */
+class PerfRegressionTest {
+
+    @Test
+    void testSavedInputsStayWithinBudget() throws Exception {
+        URL resource = getClass().getResource("/perf-regressions");
+        assertNotNull(resource, "No perf-regressions directory on the test classpath");
+        List<Path> inputs;
+        try (Stream<Path> files = Files.list(Path.of(resource.toURI()))) {
+            inputs = files.filter(file -> file.toString().endsWith(".y")).sorted().toList();
+        }
+        assertFalse(inputs.isEmpty());
+
+        Throwable[] failure = new Throwable[1];
+        // Interpreted frames are larger than the compiled ones the fuzzer measured with, so a
+        // cold JVM could overflow the default stack on inputs within their depth budget
+        Thread thread = new Thread(null, () -> {
+            try {
+                check(inputs);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "perf-regressions", 256L << 20);
+        thread.start();
+        thread.join();
+        if (failure[0] instanceof AssertionError assertion) {
+            throw assertion;
+        } else if (failure[0] != null) {
+            fail(failure[0]);
+        }
+    }
+
+    private static void check(List<Path> inputs) throws Exception {
+        CostProbe probe = new CostProbe();
+        for (Path input : inputs) {
+            String source = Files.readString(input);
+            PerfFuzzer.Budget budget = PerfFuzzer.Budget.parse(source);
+            // The first run fills the parser's prediction cache, which the budget was measured with
+            probe.measure(source);
+            CostProbe.Cost cost = probe.measure(source);
+            String name = input.getFileName().toString();
+            assertTrue(cost.treeDepth() <= budget.treeDepth(),
+                name + ": tree depth " + cost.treeDepth() + " over budget " + budget.treeDepth());
+            assertTrue(cost.llFallbacks() <= budget.llFallbacks(),
+                name + ": " + cost.llFallbacks() + " LL fallbacks over budget " + budget.llFallbacks());
+            assertTrue(cost.lookahead() <= budget.lookahead(),
+                name + ": lookahead " + cost.lookahead() + " over budget " + budget.lookahead());
+        }
+    }
+}
\ No newline at end of file
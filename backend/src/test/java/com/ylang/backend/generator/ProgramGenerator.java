@@ -0,0 +1,556 @@
+package com.ylang.backend.generator;
+
+import com.ylang.backend.service.YLanguageLexer;
+import org.antlr.v4.runtime.Vocabulary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates valid Y programs of controllable size and shape for scale tests, benchmarks and
+ * load tests. The same options and seed always give the same program.
+ *
+ * Each kind of statement and expression is produced following its rule in YLanguage.g4, and
+ * variables are declared before use with the type their uses expect, so the programs also pass
+ * type checking. Constructs the grammar cannot tell apart from others (function calls inside
+ * expressions, member access, casts, lists of several elements) are not generated.
+ */
+public class ProgramGenerator {
+
+    /**
+     * Keywords of the grammar, which identifiers must avoid
+     */
+    static final Set<String> KEYWORDS = keywords();
+
+    /**
+     * Size and shape of the generated programs
+     */
+    public static final class Options {
+        private int functions = 10;
+        private int structures = 2;
+        private int topLevelStatements = 5;
+        private int statementsPerBlock = 6;
+        private int maxDepth = 3;
+        private int expressionLength = 4;
+        private int parameters = 3;
+        private int fields = 4;
+        private int identifierPool = 200;
+        private double identifierSkew = 1.0;
+        private int identifierLength = 6;
+        private int targetSize;
+
+        /** Function declarations, at least */
+        public Options functions(int functions) {
+            this.functions = functions;
+            return this;
+        }
+
+        /** Structure declarations */
+        public Options structures(int structures) {
+            this.structures = structures;
+            return this;
+        }
+
+        /** Statements outside any function */
+        public Options topLevelStatements(int topLevelStatements) {
+            this.topLevelStatements = topLevelStatements;
+            return this;
+        }
+
+        /** Largest number of statements in a block; each block gets between one and this many */
+        public Options statementsPerBlock(int statementsPerBlock) {
+            this.statementsPerBlock = statementsPerBlock;
+            return this;
+        }
+
+        /** Deepest nesting of blocks inside a function body */
+        public Options maxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /** Largest number of operands in an expression */
+        public Options expressionLength(int expressionLength) {
+            this.expressionLength = expressionLength;
+            return this;
+        }
+
+        /** Largest number of parameters of a function */
+        public Options parameters(int parameters) {
+            this.parameters = parameters;
+            return this;
+        }
+
+        /** Largest number of fields of a structure */
+        public Options fields(int fields) {
+            this.fields = fields;
+            return this;
+        }
+
+        /** Number of distinct base names identifiers are drawn from */
+        public Options identifierPool(int identifierPool) {
+            this.identifierPool = identifierPool;
+            return this;
+        }
+
+        /** Zipf exponent of the draw from the pool: 0 is uniform, larger values reuse a few names more */
+        public Options identifierSkew(double identifierSkew) {
+            this.identifierSkew = identifierSkew;
+            return this;
+        }
+
+        /** Average length of a base name */
+        public Options identifierLength(int identifierLength) {
+            this.identifierLength = identifierLength;
+            return this;
+        }
+
+        /** Keep adding functions until the program has at least this many characters; 0 for no target */
+        public Options targetSize(int targetSize) {
+            this.targetSize = targetSize;
+            return this;
+        }
+    }
+
+    private enum ValueType {
+        NUMBER("number"), STRING("string"), BOOLEAN("boolean"), NUMBER_LIST("list of number");
+
+        final String text;
+
+        ValueType(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final ValueType[] SCALARS = {ValueType.NUMBER, ValueType.STRING, ValueType.BOOLEAN};
+    private static final String[] NUMBER_OPERATORS = {"plus", "minus", "times", "divided by", "modulo"};
+    private static final String[] COMPARISONS = {"is greater than", "is less than", "equals", "not equals"};
+
+    private final Options options;
+
+    public ProgramGenerator() {
+        this(new Options());
+    }
+
+    public ProgramGenerator(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Generate the program for a seed
+     */
+    public String generate(long seed) {
+        return new Generation(new Random(seed)).program();
+    }
+
+    /**
+     * State of generating one program
+     */
+    private final class Generation {
+        private final Random random;
+        private final StringBuilder out = new StringBuilder();
+        private final Deque<Map<String, ValueType>> scopes = new ArrayDeque<>();
+        private final Set<String> declared = new HashSet<>();
+        private final String[] pool;
+        private final double[] cumulativeWeights;
+        private int indent;
+
+        Generation(Random random) {
+            this.random = random;
+            this.pool = namePool();
+            this.cumulativeWeights = new double[pool.length];
+            double total = 0;
+            for (int i = 0; i < pool.length; i++) {
+                total += 1 / Math.pow(i + 1, options.identifierSkew);
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        String program() {
+            scopes.push(new HashMap<>());
+            for (int i = 0; i < options.structures; i++) {
+                structure();
+            }
+            for (int i = 0; i < options.topLevelStatements; i++) {
+                statement(0, options.maxDepth);
+            }
+            for (int i = 0; i < options.functions || out.length() < options.targetSize; i++) {
+                function();
+            }
+            if (out.length() == 0) {
+                // A program has at least one statement
+                variableDeclaration(0);
+            }
+            return out.toString();
+        }
+
+        // structureDeclaration : 'create' 'structure' identifier 'begin' structureMember+ 'end'
+        private void structure() {
+            String name = capitalize(newName());
+            line("create structure " + name);
+            line("begin");
+            indent++;
+            Set<String> fieldNames = new HashSet<>();
+            int count = 1 + random.nextInt(Math.max(1, options.fields));
+            for (int i = 0; i < count; i++) {
+                String field = pick();
+                while (!fieldNames.add(field)) {
+                    field = pick() + fieldNames.size();
+                }
+                // structureMember : 'create' 'field' identifier 'as' type ';'
+                line("create field " + field + " as " + anyType().text + " ;");
+            }
+            indent--;
+            line("end");
+        }
+
+        // functionDeclaration : 'create' 'function' identifier 'with' 'parameters' parameterList 'that' 'returns' type block
+        private void function() {
+            String name = newName();
+            declare(name, null);
+            ValueType returnType = anyType();
+            scopes.push(new HashMap<>());
+            List<String> parameters = new ArrayList<>();
+            int count = random.nextInt(options.parameters + 1);
+            for (int i = 0; i < count; i++) {
+                ValueType type = anyType();
+                String parameter = newName();
+                declare(parameter, type);
+                parameters.add(parameter + " as " + type.text);
+            }
+            line("create function " + name + " with parameters "
+                 + (parameters.isEmpty() ? "nothing" : String.join(" and ", parameters))
+                 + " that returns " + returnType.text);
+            line("begin");
+            indent++;
+            int statements = random.nextInt(Math.max(1, options.statementsPerBlock));
+            for (int i = 0; i < statements; i++) {
+                statement(1, options.maxDepth);
+            }
+            // returnStatement : 'return' expression
+            line("return " + expression(returnType));
+            indent--;
+            line("end");
+            popScope();
+        }
+
+        private void statement(int depth, int maxDepth) {
+            boolean nest = depth < maxDepth;
+            int choice = random.nextInt(nest ? 100 : 60);
+            if (choice < 30) {
+                variableDeclaration(depth);
+            } else if (choice < 55) {
+                if (!assignment()) {
+                    variableDeclaration(depth);
+                }
+            } else if (choice < 60) {
+                expressionStatement();
+            } else if (choice < 75) {
+                ifStatement(depth, maxDepth);
+            } else if (choice < 83) {
+                eachLoop(depth, maxDepth);
+            } else if (choice < 90) {
+                whileLoop(depth, maxDepth);
+            } else if (choice < 96) {
+                match(depth, maxDepth);
+            } else {
+                tryStatement(depth, maxDepth);
+            }
+        }
+
+        // variableDeclaration : 'create' 'variable' identifier 'as' type 'equals' expression
+        private void variableDeclaration(int depth) {
+            ValueType type = random.nextInt(6) == 0 ? ValueType.NUMBER_LIST : anyType();
+            String value = type == ValueType.NUMBER && random.nextInt(5) == 0
+                ? conditional()
+                : expression(type);
+            String name = newName();
+            line("create variable " + name + " as " + type.text + " equals " + value);
+            declare(name, type);
+        }
+
+        // assignment : 'set' identifier 'equals' expression
+        private boolean assignment() {
+            ValueType type = SCALARS[random.nextInt(SCALARS.length)];
+            String target = variable(type);
+            if (target == null) {
+                return false;
+            }
+            line("set " + target + " equals " + expression(type));
+            return true;
+        }
+
+        // expressionStatement : expression ';', a plain operand since a leading 'minus' or 'not'
+        // would continue the expression ending the previous statement
+        private void expressionStatement() {
+            ValueType type = anyType();
+            String variable = variable(type);
+            line((variable != null ? variable : expression(type, 1).replaceFirst("^(minus|not) ", "")) + ";");
+        }
+
+        // controlFlow : 'if' expression block ('otherwise' block)?
+        private void ifStatement(int depth, int maxDepth) {
+            line("if " + expression(ValueType.BOOLEAN));
+            block(depth, maxDepth, null, null);
+            if (random.nextBoolean()) {
+                line("otherwise");
+                block(depth, maxDepth, null, null);
+            }
+        }
+
+        // loopStatement : 'loop' 'through' 'each' identifier 'in' expression block
+        private void eachLoop(int depth, int maxDepth) {
+            String list = variable(ValueType.NUMBER_LIST);
+            String element = newName();
+            line("loop through each " + element + " in " + (list != null ? list : "empty list"));
+            block(depth, maxDepth, element, ValueType.NUMBER);
+        }
+
+        // loopStatement : 'loop' 'with' 'variable' identifier 'equals' expression 'while' expression 'increment' identifier block
+        private void whileLoop(int depth, int maxDepth) {
+            String counter = newName();
+            String start = expression(ValueType.NUMBER);
+            scopes.push(new HashMap<>());
+            declare(counter, ValueType.NUMBER);
+            line("loop with variable " + counter + " equals " + start + " while " + counter + " is less than "
+                 + (1 + random.nextInt(100)) + " increment " + counter);
+            block(depth, maxDepth, null, null);
+            popScope();
+        }
+
+        // matchStatement : 'match' expression 'begin' matchCase+ 'end'
+        private void match(int depth, int maxDepth) {
+            line("match " + expression(ValueType.NUMBER));
+            line("begin");
+            indent++;
+            int low = random.nextInt(10);
+            line("case " + low);
+            block(depth, maxDepth, null, null);
+            if (random.nextBoolean()) {
+                line("case range " + (low + 1) + " to " + (low + 2 + random.nextInt(20)));
+                block(depth, maxDepth, null, null);
+            }
+            String other = newName();
+            line("case " + other);
+            block(depth, maxDepth, other, ValueType.NUMBER);
+            indent--;
+            line("end");
+        }
+
+        // tryStatement : 'try' block ('catch' identifier 'as' type block)*
+        private void tryStatement(int depth, int maxDepth) {
+            line("try");
+            block(depth, maxDepth, null, null);
+            String error = newName();
+            line("catch " + error + " as string");
+            block(depth, maxDepth, error, ValueType.STRING);
+        }
+
+        // block : 'begin' statement+ 'end', with an optional variable bound for the block
+        private void block(int depth, int maxDepth, String bound, ValueType boundType) {
+            line("begin");
+            indent++;
+            scopes.push(new HashMap<>());
+            if (bound != null) {
+                declare(bound, boundType);
+            }
+            int statements = 1 + random.nextInt(Math.max(1, options.statementsPerBlock));
+            for (int i = 0; i < statements; i++) {
+                statement(depth + 1, maxDepth);
+            }
+            popScope();
+            indent--;
+            line("end");
+        }
+
+        private String expression(ValueType type) {
+            return expression(type, 1 + random.nextInt(Math.max(1, options.expressionLength)));
+        }
+
+        private String expression(ValueType type, int operands) {
+            return switch (type) {
+                case NUMBER -> numberExpression(operands);
+                case STRING -> stringExpression(operands);
+                case BOOLEAN -> booleanExpression(operands);
+                case NUMBER_LIST -> random.nextBoolean() ? "empty list" : "list of " + numberExpression(operands);
+            };
+        }
+
+        // additiveExpression and multiplicativeExpression, with parenthesizedExpression for nesting
+        private String numberExpression(int operands) {
+            StringBuilder expression = new StringBuilder();
+            int remaining = operands;
+            while (remaining > 0) {
+                if (expression.length() > 0) {
+                    expression.append(' ').append(NUMBER_OPERATORS[random.nextInt(NUMBER_OPERATORS.length)]).append(' ');
+                }
+                if (remaining >= 3 && random.nextInt(4) == 0) {
+                    int inner = 2 + random.nextInt(remaining - 1);
+                    expression.append('(').append(numberExpression(inner)).append(')');
+                    remaining -= inner;
+                } else {
+                    expression.append(numberOperand());
+                    remaining--;
+                }
+            }
+            return expression.toString();
+        }
+
+        private String numberOperand() {
+            String variable = random.nextInt(3) > 0 ? variable(ValueType.NUMBER) : null;
+            if (variable != null) {
+                return random.nextInt(10) == 0 ? "minus " + variable : variable;
+            }
+            return random.nextInt(4) == 0
+                ? random.nextInt(1000) + "." + random.nextInt(100)
+                : String.valueOf(random.nextInt(1000));
+        }
+
+        private String stringExpression(int operands) {
+            StringBuilder expression = new StringBuilder();
+            for (int i = 0; i < operands; i++) {
+                if (i > 0) {
+                    expression.append(" plus ");
+                }
+                String variable = random.nextBoolean() ? variable(ValueType.STRING) : null;
+                expression.append(variable != null ? variable : '"' + pick() + '"');
+            }
+            return expression.toString();
+        }
+
+        // logicalOrExpression, logicalAndExpression and the comparisons below them
+        private String booleanExpression(int operands) {
+            if (operands <= 1) {
+                String variable = random.nextBoolean() ? variable(ValueType.BOOLEAN) : null;
+                if (variable != null) {
+                    return random.nextInt(4) == 0 ? "not " + variable : variable;
+                }
+                return random.nextBoolean() ? "true" : "false";
+            }
+            StringBuilder expression = new StringBuilder();
+            int remaining = operands;
+            while (remaining > 0) {
+                if (expression.length() > 0) {
+                    expression.append(random.nextBoolean() ? " and " : " or ");
+                }
+                if (remaining >= 2 && random.nextInt(3) > 0) {
+                    int sides = Math.min(remaining, 2 + random.nextInt(2));
+                    int left = sides / 2;
+                    expression.append(numberExpression(left)).append(' ')
+                        .append(COMPARISONS[random.nextInt(COMPARISONS.length)]).append(' ')
+                        .append(numberExpression(sides - left));
+                    remaining -= sides;
+                } else {
+                    expression.append(booleanExpression(1));
+                    remaining--;
+                }
+            }
+            return expression.toString();
+        }
+
+        // conditionalExpression : logicalOrExpression 'if' logicalOrExpression 'otherwise' conditionalExpression
+        private String conditional() {
+            return numberExpression(1 + random.nextInt(2)) + " if " + booleanExpression(2)
+                   + " otherwise " + numberExpression(1 + random.nextInt(2));
+        }
+
+        private ValueType anyType() {
+            return SCALARS[random.nextInt(SCALARS.length)];
+        }
+
+        /**
+         * A variable in scope with the type, or null when there is none
+         */
+        private String variable(ValueType type) {
+            List<String> candidates = new ArrayList<>();
+            for (Map<String, ValueType> scope : scopes) {
+                scope.forEach((name, variableType) -> {
+                    if (variableType == type) {
+                        candidates.add(name);
+                    }
+                });
+            }
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            candidates.sort(null);
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+
+        private void declare(String name, ValueType type) {
+            declared.add(name);
+            if (type != null) {
+                scopes.peek().put(name, type);
+            }
+        }
+
+        private void popScope() {
+            scopes.pop();
+        }
+
+        /**
+         * A name drawn from the pool, made unique within the program
+         */
+        private String newName() {
+            String base = pick();
+            String name = base;
+            for (int suffix = 2; declared.contains(name); suffix++) {
+                name = base + suffix;
+            }
+            declared.add(name);
+            return name;
+        }
+
+        private String pick() {
+            double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int index = Arrays.binarySearch(cumulativeWeights, target);
+            return pool[index >= 0 ? index : Math.min(-index - 1, pool.length - 1)];
+        }
+
+        private String[] namePool() {
+            Set<String> names = new HashSet<>();
+            String[] pool = new String[Math.max(1, options.identifierPool)];
+            for (int i = 0; i < pool.length; i++) {
+                String name;
+                do {
+                    int length = 1 + random.nextInt(Math.max(1, 2 * options.identifierLength - 1));
+                    StringBuilder builder = new StringBuilder();
+                    for (int c = 0; c < length; c++) {
+                        builder.append((char) ('a' + random.nextInt(26)));
+                    }
+                    name = builder.toString();
+                } while (KEYWORDS.contains(name) || !names.add(name));
+                pool[i] = name;
+            }
+            return pool;
+        }
+
+        private void line(String text) {
+            out.append("    ".repeat(indent)).append(text).append('\n');
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static Set<String> keywords() {
+        Set<String> keywords = new HashSet<>(Set.of("true", "false"));
+        Vocabulary vocabulary = YLanguageLexer.VOCABULARY;
+        for (int type = 1; type <= vocabulary.getMaxTokenType(); type++) {
+            String literal = vocabulary.getLiteralName(type);
+            if (literal != null) {
+                keywords.add(literal.substring(1, literal.length() - 1));
+            }
+        }
+        return keywords;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.ylang.backend.generator;
+
+import com.ylang.backend.service.YLanguageLexer;
+import com.ylang.backend.service.YLanguageParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgramGeneratorTest {
+
+    private static final Pattern TOKEN = Pattern.compile(
+        "(?<string>\"[^\"\\r\\n]*\")|(?<number>[0-9]+(\\.[0-9]+)?)|(?<word>[A-Za-z_][A-Za-z0-9_]*)|(?<symbol>[;()])|(?<space>\\s+)");
+
+    @Test
+    void testSameSeedGivesSameProgram() {
+        ProgramGenerator generator = new ProgramGenerator();
+        assertEquals(generator.generate(42), generator.generate(42));
+        assertNotEquals(generator.generate(42), generator.generate(43));
+    }
+
+    @Test
+    void testProgramsFollowTheGrammar() {
+        List<ProgramGenerator.Options> shapes = List.of(
+            new ProgramGenerator.Options(),
+            new ProgramGenerator.Options().functions(3).maxDepth(6).statementsPerBlock(3).expressionLength(12),
+            new ProgramGenerator.Options().functions(0).structures(0).topLevelStatements(20).identifierSkew(3),
+            new ProgramGenerator.Options().functions(0).structures(0).topLevelStatements(0));
+        for (ProgramGenerator.Options shape : shapes) {
+            ProgramGenerator generator = new ProgramGenerator(shape);
+            for (long seed = 0; seed < 30; seed++) {
+                String program = generator.generate(seed);
+                try {
+                    parse(program);
+                } catch (ParseCancellationException e) {
+                    fail("Seed " + seed + " generated a program the grammar rejects:\n" + program);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSizeAndDepthAreControlled() {
+        String large = new ProgramGenerator(new ProgramGenerator.Options().targetSize(200_000)).generate(1);
+        assertTrue(large.length() >= 200_000);
+
+        String flat = new ProgramGenerator(new ProgramGenerator.Options().functions(50).topLevelStatements(0)
+            .structures(0).maxDepth(1)).generate(1);
+        int depth = 0;
+        int deepest = 0;
+        for (String word : flat.split("\\s+")) {
+            if (word.equals("begin")) {
+                deepest = Math.max(deepest, ++depth);
+            } else if (word.equals("end")) {
+                depth--;
+            }
+        }
+        assertEquals(1, deepest);
+        assertEquals(50, flat.lines().filter(line -> line.startsWith("create function")).count());
+    }
+
+    /**
+     * Parse with every keyword typed as the grammar's keyword token, checking the program against
+     * the parser rules alone
+     */
+    private static void parse(String program) {
+        Vocabulary vocabulary = YLanguageLexer.VOCABULARY;
+        Map<String, Integer> literals = new HashMap<>();
+        for (int type = 1; type <= vocabulary.getMaxTokenType(); type++) {
+            String literal = vocabulary.getLiteralName(type);
+            if (literal != null) {
+                literals.put(literal.substring(1, literal.length() - 1), type);
+            }
+        }
+
+        List<Token> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(program);
+        int position = 0;
+        while (position < program.length()) {
+            assertTrue(matcher.find(position) && matcher.start() == position,
+                "Unexpected character at " + position + " in:\n" + program);
+            String text = matcher.group();
+            int type;
+            if (matcher.group("space") != null) {
+                type = -1;
+            } else if (matcher.group("string") != null) {
+                type = YLanguageLexer.STRING;
+            } else if (matcher.group("number") != null) {
+                type = YLanguageLexer.NUMBER;
+            } else if (text.equals("true") || text.equals("false")) {
+                type = YLanguageLexer.BOOLEAN;
+            } else {
+                type = literals.getOrDefault(text, YLanguageLexer.IDENTIFIER);
+            }
+            if (type != -1) {
+                CommonToken token = new CommonToken(type, text);
+                token.setStartIndex(position);
+                token.setStopIndex(matcher.end() - 1);
+                tokens.add(token);
+            }
+            position = matcher.end();
+        }
+
+        YLanguageParser parser = new YLanguageParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.program();
+    }
+}
\ No newline at end of file
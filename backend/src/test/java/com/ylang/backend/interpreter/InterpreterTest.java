@@ -0,0 +1,159 @@
+package com.ylang.backend.interpreter;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.model.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterpreterTest {
+
+    private static final Interpreter.Limits LIMITS = new Interpreter.Limits(100_000, 1 << 20, 5_000, 64, 10_000);
+
+    private static LiteralNode number(double value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    private static LiteralNode string(String value) {
+        return new LiteralNode(LiteralNode.LiteralType.STRING, value);
+    }
+
+    private static IdentifierNode id(String name) {
+        return new IdentifierNode(name);
+    }
+
+    private static BinaryExpressionNode binary(ExpressionNode left, BinaryExpressionNode.Operator operator, ExpressionNode right) {
+        return new BinaryExpressionNode(left, operator, right);
+    }
+
+    private static FunctionCallNode call(String name, ExpressionNode... arguments) {
+        return new FunctionCallNode(name, Arrays.asList(arguments));
+    }
+
+    private static ExpressionStatementNode print(ExpressionNode... arguments) {
+        return new ExpressionStatementNode(call("print", arguments));
+    }
+
+    private static BlockNode block(ASTNode... statements) {
+        return new BlockNode(Arrays.asList(statements));
+    }
+
+    private static RunResult run(ASTNode... statements) {
+        return new Interpreter().run(new ProgramNode(Arrays.asList(statements)), LIMITS);
+    }
+
+    @Test
+    void runsFunctionsLoopsAndCollections() {
+        // create function fib with parameters n as number that returns number
+        FunctionDeclarationNode fib = new FunctionDeclarationNode("fib",
+            List.of(new ParameterNode("n", TypeNode.numberType(), null)), TypeNode.numberType(),
+            block(
+                new IfStatementNode(binary(id("n"), BinaryExpressionNode.Operator.LESS_THAN, number(2)),
+                    block(new ReturnStatementNode(id("n"))), null),
+                new ReturnStatementNode(binary(
+                    call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(1))),
+                    BinaryExpressionNode.Operator.PLUS,
+                    call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(2)))))),
+            false, null);
+
+        RunResult result = run(
+            print(call("fib", number(15))),
+            new VariableDeclarationNode("total", TypeNode.numberType(), number(0)),
+            new LoopStatementNode("i", number(0), binary(id("i"), BinaryExpressionNode.Operator.LESS_THAN, number(5)), "i",
+                block(new AssignmentNode("total", binary(id("total"), BinaryExpressionNode.Operator.PLUS, id("i"))))),
+            print(string("total"), id("total")),
+            new VariableDeclarationNode("names", TypeNode.listType(TypeNode.stringType()),
+                new ListExpressionNode(List.of(string("ada"), string("grace")))),
+            new VariableDeclarationNode("lengths", TypeNode.mapType(TypeNode.stringType(), TypeNode.numberType()),
+                new LiteralNode(LiteralNode.LiteralType.EMPTY_MAP, null)),
+            new LoopStatementNode("name", id("names"), block(
+                new ExpressionStatementNode(call("put", id("lengths"), id("name"), call("length", id("name")))))),
+            print(id("lengths"), new MemberAccessNode(id("names"), MemberAccessNode.AccessType.AT, number(1))),
+            print(binary(number(7), BinaryExpressionNode.Operator.DIVIDED_BY, number(2)),
+                  new TypeCastNode(string("42"), TypeCastNode.CastType.TO_NUMBER)),
+            fib);
+
+        assertTrue(result.isSuccess(), result::getError);
+        assertEquals("610\ntotal 10\n{ada: 3, grace: 5} grace\n3.5 42\n", result.getOutput());
+    }
+
+    @Test
+    void runsStructuresMatchAndTry() {
+        StructureDeclarationNode point = new StructureDeclarationNode("Point", null, null, List.of(
+            new VariableDeclarationNode("x", TypeNode.numberType(), null),
+            new VariableDeclarationNode("y", TypeNode.numberType(), number(0))));
+        EnumDeclarationNode option = new EnumDeclarationNode("Option", null, List.of(
+            new EnumDeclarationNode.EnumVariant("Some", List.of(TypeNode.numberType())),
+            new EnumDeclarationNode.EnumVariant("None", List.of())));
+
+        List<ASTNode> statements = new ArrayList<>(List.of(point, option,
+            new VariableDeclarationNode("p", new TypeNode("Point"), call("Point", number(3))),
+            print(id("p"), new MemberAccessNode(id("p"), MemberAccessNode.AccessType.DOT, id("y")))));
+        for (ExpressionNode value : List.<ExpressionNode>of(number(7), number(15), number(-4), number(100))) {
+            statements.add(new MatchStatementNode(value, List.of(
+                MatchStatementNode.MatchCase.literal(number(7), block(print(string("seven")))),
+                MatchStatementNode.MatchCase.range(number(10), number(20), block(print(string("teens")))),
+                MatchStatementNode.MatchCase.guard("n", binary(id("n"), BinaryExpressionNode.Operator.LESS_THAN, number(0)),
+                    block(print(string("negative")))),
+                new MatchStatementNode.MatchCase("other", null, null, block(print(string("other"), id("other")))))));
+        }
+        statements.add(new MatchStatementNode(call("Some", number(5)), List.of(
+            new MatchStatementNode.MatchCase("None", null, null, block(print(string("none")))),
+            new MatchStatementNode.MatchCase("Some", "v", TypeNode.numberType(), block(print(string("some"), id("v")))))));
+        statements.add(new TryStatementNode(
+            block(print(binary(number(1), BinaryExpressionNode.Operator.DIVIDED_BY, number(0)))),
+            List.of(new TryStatementNode.CatchClause("e", TypeNode.stringType(), block(print(string("caught"), id("e")))))));
+        statements.add(new TryStatementNode(
+            block(new ExpressionStatementNode(call("fail", string("custom")))),
+            List.of(new TryStatementNode.CatchClause("e", TypeNode.stringType(), block(print(id("e")))))));
+        statements.add(print(new MemberAccessNode(id("p"), MemberAccessNode.AccessType.DOT, id("z"))));
+
+        RunResult result = new Interpreter().run(new ProgramNode(statements), LIMITS);
+
+        assertEquals("Point { x: 3, y: 0 } 0\nseven\nteens\nnegative\nother 100\nsome 5\ncaught Division by zero\ncustom\n",
+                     result.getOutput());
+        assertFalse(result.isSuccess());
+        assertNull(result.getLimitExceeded());
+        assertEquals("Point has no field 'z'", result.getError());
+    }
+
+    @Test
+    void stopsProgramsAtTheSandboxLimits() {
+        // loop with variable i equals 0 while true increment i
+        LoopStatementNode forever = new LoopStatementNode("i", number(0),
+            new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true), "i", block(new ExpressionStatementNode(id("i"))));
+        RunResult steps = run(forever);
+        assertEquals("steps", steps.getLimitExceeded());
+        assertEquals(LIMITS.maxSteps(), steps.getSteps() - 1);
+
+        FunctionDeclarationNode recurse = new FunctionDeclarationNode("recurse", List.of(), TypeNode.numberType(),
+            block(new ReturnStatementNode(call("recurse"))), false, null);
+        assertEquals("call-depth", run(recurse, new ExpressionStatementNode(call("recurse"))).getLimitExceeded());
+
+        RunResult memory = run(
+            new VariableDeclarationNode("text", TypeNode.stringType(), string("x")),
+            new LoopStatementNode("i", number(0), new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true), "i",
+                block(new AssignmentNode("text", binary(id("text"), BinaryExpressionNode.Operator.PLUS, id("text"))))));
+        assertEquals("memory", memory.getLimitExceeded());
+        assertTrue(memory.getMemoryBytes() > LIMITS.maxMemoryBytes());
+
+        RunResult output = run(new LoopStatementNode("i", number(0), new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true), "i",
+            block(print(string("line")))));
+        assertEquals("output", output.getLimitExceeded());
+        assertEquals(LIMITS.maxOutput(), output.getOutput().length());
+
+        RunResult time = new Interpreter().run(new ProgramNode(List.of(forever)),
+                                               new Interpreter.Limits(Long.MAX_VALUE, 1 << 20, 50, 64, 10_000));
+        assertEquals("time", time.getLimitExceeded());
+
+        // Limits are not runtime errors, so try does not catch them
+        RunResult uncaught = run(new TryStatementNode(block(forever),
+            List.of(new TryStatementNode.CatchClause("e", TypeNode.stringType(), block(print(id("e")))))));
+        assertEquals("steps", uncaught.getLimitExceeded());
+        assertEquals("", uncaught.getOutput());
+    }
+}
\ No newline at end of file
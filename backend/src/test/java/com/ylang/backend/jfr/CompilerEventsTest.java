@@ -0,0 +1,75 @@
+package com.ylang.backend.jfr;
+
+import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.CompileArtifactCache;
+import com.ylang.backend.service.YLanguageParserService;
+import com.ylang.backend.translator.RustTranslator;
+import com.ylang.backend.translator.TypeScriptTranslator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilerEventsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEveryPhaseIsRecordedForTheRequest() throws Exception {
+        CompilationService service = new CompilationService(new YLanguageParserService(),
+            new TypeScriptTranslator(), new RustTranslator(), new CompileArtifactCache(null));
+
+        Path file = directory.resolve("compile.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("ylang.Compile", "ylang.Lex", "ylang.Parse", "ylang.AstBuild",
+                                       "ylang.TypeCheck", "ylang.WarningPass", "ylang.Translate")) {
+                recording.enable(name).withoutThreshold();
+            }
+            recording.start();
+            CompileResponse response = service.compile("total;", "rust", "project-a");
+            assertTrue(response.isSuccess(), () -> String.valueOf(response.getErrors()));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Set<String> phases = events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toSet());
+        assertEquals(Set.of("ylang.Compile", "ylang.Lex", "ylang.Parse", "ylang.AstBuild",
+                            "ylang.TypeCheck", "ylang.WarningPass", "ylang.Translate"), phases);
+
+        // Every phase belongs to the one request
+        assertEquals(1, events.stream().map(event -> event.getLong("requestId")).distinct().count());
+        assertTrue(events.stream().allMatch(event -> "project-a".equals(event.getString("projectId"))));
+
+        RecordedEvent lex = events.stream().filter(event -> event.getEventType().getName().equals("ylang.Lex"))
+            .findFirst().orElseThrow();
+        assertEquals(6, lex.getLong("sourceSize"));
+        assertTrue(lex.getInt("tokenCount") >= 2);
+        assertEquals(3, events.stream().filter(event -> event.getEventType().getName().equals("ylang.WarningPass"))
+            .count());
+        RecordedEvent translate = events.stream()
+            .filter(event -> event.getEventType().getName().equals("ylang.Translate")).findFirst().orElseThrow();
+        assertEquals("rust", translate.getString("targetLanguage"));
+    }
+
+    @Test
+    void testRequestScopeRestoresThePreviousRequest() {
+        CompilerEvents.Request outer = CompilerEvents.newRequest("outer");
+        CompilerEvents.Scope scope = CompilerEvents.enter(outer);
+        String inner = CompilerEvents.call(CompilerEvents.newRequest("inner"), () -> CompilerEvents.current().projectId());
+        assertEquals("inner", inner);
+        assertSame(outer, CompilerEvents.current());
+        scope.close();
+        assertNull(CompilerEvents.current());
+    }
+}
\ No newline at end of file
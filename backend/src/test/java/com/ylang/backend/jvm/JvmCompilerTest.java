@@ -0,0 +1,192 @@
+package com.ylang.backend.jvm;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.interpreter.Interpreter;
+import com.ylang.backend.model.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JvmCompilerTest {
+
+    private static final Interpreter.Limits LIMITS = new Interpreter.Limits(100_000, 1 << 20, 5_000, 64, 10_000);
+
+    private static LiteralNode number(double value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    private static LiteralNode string(String value) {
+        return new LiteralNode(LiteralNode.LiteralType.STRING, value);
+    }
+
+    private static IdentifierNode id(String name) {
+        return new IdentifierNode(name);
+    }
+
+    private static BinaryExpressionNode binary(ExpressionNode left, BinaryExpressionNode.Operator operator, ExpressionNode right) {
+        return new BinaryExpressionNode(left, operator, right);
+    }
+
+    private static FunctionCallNode call(String name, ExpressionNode... arguments) {
+        return new FunctionCallNode(name, Arrays.asList(arguments));
+    }
+
+    private static ExpressionStatementNode print(ExpressionNode... arguments) {
+        return new ExpressionStatementNode(call("print", arguments));
+    }
+
+    private static BlockNode block(ASTNode... statements) {
+        return new BlockNode(Arrays.asList(statements));
+    }
+
+    /**
+     * Run a program compiled and interpreted, checking both print the same and end the same way
+     */
+    private static RunResult runBoth(List<ASTNode> statements) {
+        ProgramNode program = new ProgramNode(statements);
+        RunResult interpreted = new Interpreter().run(program, LIMITS);
+        RunResult compiled = new JvmCompiler().compile(program).run(LIMITS);
+        assertEquals(interpreted.getOutput(), compiled.getOutput());
+        assertEquals(interpreted.getError(), compiled.getError());
+        assertEquals(interpreted.getLimitExceeded(), compiled.getLimitExceeded());
+        return compiled;
+    }
+
+    private static FunctionDeclarationNode fib() {
+        // create function fib with parameters n as number that returns number
+        return new FunctionDeclarationNode("fib",
+            List.of(new ParameterNode("n", TypeNode.numberType(), null)), TypeNode.numberType(),
+            block(
+                new IfStatementNode(binary(id("n"), BinaryExpressionNode.Operator.LESS_THAN, number(2)),
+                    block(new ReturnStatementNode(id("n"))), null),
+                new ReturnStatementNode(binary(
+                    call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(1))),
+                    BinaryExpressionNode.Operator.PLUS,
+                    call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(2)))))),
+            false, null);
+    }
+
+    @Test
+    void runsFunctionsLoopsAndCollectionsLikeTheInterpreter() throws Exception {
+        FunctionDeclarationNode describe = new FunctionDeclarationNode("describe",
+            List.of(new ParameterNode("value", null, null)), null,
+            block(new ReturnStatementNode(binary(string("value: "), BinaryExpressionNode.Operator.PLUS, id("value")))),
+            false, null);
+
+        RunResult result = runBoth(List.of(
+            print(call("fib", number(15))),
+            new VariableDeclarationNode("total", TypeNode.numberType(), number(0)),
+            new LoopStatementNode("i", number(0), binary(id("i"), BinaryExpressionNode.Operator.LESS_THAN, number(5)), "i",
+                block(new AssignmentNode("total", binary(id("total"), BinaryExpressionNode.Operator.PLUS, id("i"))))),
+            print(string("total"), id("total"), call("describe", id("total"))),
+            new VariableDeclarationNode("names", TypeNode.listType(TypeNode.stringType()),
+                new ListExpressionNode(List.of(string("ada"), string("grace")))),
+            new VariableDeclarationNode("lengths", TypeNode.mapType(TypeNode.stringType(), TypeNode.numberType()),
+                new LiteralNode(LiteralNode.LiteralType.EMPTY_MAP, null)),
+            new LoopStatementNode("name", id("names"), block(
+                new ExpressionStatementNode(call("put", id("lengths"), id("name"), call("length", id("name")))))),
+            print(id("lengths"), new MemberAccessNode(id("names"), MemberAccessNode.AccessType.AT, number(1))),
+            print(binary(number(7), BinaryExpressionNode.Operator.DIVIDED_BY, number(2)),
+                  new TypeCastNode(string("42"), TypeCastNode.CastType.TO_NUMBER),
+                  call("sqrt", number(16)), call("round", number(2.5)),
+                  new ConditionalExpressionNode(binary(id("total"), BinaryExpressionNode.Operator.GREATER_THAN, number(5)),
+                                                string("big"), number(0))),
+            fib(), describe));
+
+        assertTrue(result.isSuccess(), result::getError);
+        assertEquals("610\ntotal 10 value: 10\n{ada: 3, grace: 5} grace\n3.5 42 4 3 big\n", result.getOutput());
+
+        // Declared numbers are primitive doubles
+        Class<?> program = new JvmCompiler().compile(new ProgramNode(List.of(fib()))).getProgramClass();
+        assertEquals(double.class, program.getMethod("fib", double.class).getReturnType());
+    }
+
+    @Test
+    void runsStructuresMatchAndTryLikeTheInterpreter() {
+        StructureDeclarationNode point = new StructureDeclarationNode("Point", null, null, List.of(
+            new VariableDeclarationNode("x", TypeNode.numberType(), null),
+            new VariableDeclarationNode("y", TypeNode.numberType(), number(0))));
+        EnumDeclarationNode option = new EnumDeclarationNode("Option", null, List.of(
+            new EnumDeclarationNode.EnumVariant("Some", List.of(TypeNode.numberType())),
+            new EnumDeclarationNode.EnumVariant("None", List.of())));
+        FunctionDeclarationNode norm = new FunctionDeclarationNode("norm",
+            List.of(new ParameterNode("p", new TypeNode("Point"), null)), TypeNode.numberType(),
+            block(new ReturnStatementNode(binary(
+                new MemberAccessNode(id("p"), MemberAccessNode.AccessType.DOT, id("x")),
+                BinaryExpressionNode.Operator.TIMES,
+                new MemberAccessNode(id("p"), MemberAccessNode.AccessType.DOT, id("x"))))),
+            false, null);
+
+        List<ASTNode> statements = new ArrayList<>(List.of(point, option, norm,
+            new VariableDeclarationNode("p", new TypeNode("Point"), call("Point", number(3))),
+            print(id("p"), new MemberAccessNode(id("p"), MemberAccessNode.AccessType.DOT, id("y")), call("norm", id("p"))),
+            print(binary(call("Point", number(3)), BinaryExpressionNode.Operator.EQUALS, id("p")))));
+        for (ExpressionNode value : List.<ExpressionNode>of(number(7), number(15), number(-4), number(100))) {
+            statements.add(new MatchStatementNode(value, List.of(
+                MatchStatementNode.MatchCase.literal(number(7), block(print(string("seven")))),
+                MatchStatementNode.MatchCase.range(number(10), number(20), block(print(string("teens")))),
+                MatchStatementNode.MatchCase.guard("n", binary(id("n"), BinaryExpressionNode.Operator.LESS_THAN, number(0)),
+                    block(print(string("negative")))),
+                new MatchStatementNode.MatchCase("other", null, null, block(print(string("other"), id("other")))))));
+        }
+        statements.add(new MatchStatementNode(call("Some", number(5)), List.of(
+            new MatchStatementNode.MatchCase("None", null, null, block(print(string("none")))),
+            new MatchStatementNode.MatchCase("Some", "v", TypeNode.numberType(), block(print(string("some"), id("v")))))));
+        statements.add(new TryStatementNode(
+            block(print(binary(number(1), BinaryExpressionNode.Operator.DIVIDED_BY, number(0)))),
+            List.of(new TryStatementNode.CatchClause("e", TypeNode.stringType(), block(print(string("caught"), id("e")))))));
+        statements.add(new TryStatementNode(
+            block(new ExpressionStatementNode(call("fail", string("custom")))),
+            List.of(new TryStatementNode.CatchClause("e", TypeNode.stringType(), block(print(id("e")))))));
+        statements.add(print(new MemberAccessNode(id("p"), MemberAccessNode.AccessType.DOT, id("z"))));
+
+        RunResult result = runBoth(statements);
+
+        assertEquals("Point { x: 3, y: 0 } 0 9\ntrue\nseven\nteens\nnegative\nother 100\nsome 5\n"
+                     + "caught Division by zero\ncustom\n", result.getOutput());
+        assertEquals("Point has no field 'z'", result.getError());
+    }
+
+    @Test
+    void stopsCompiledProgramsAtTheSandboxLimits() {
+        LoopStatementNode forever = new LoopStatementNode("i", number(0),
+            new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true), "i", block(new ExpressionStatementNode(id("i"))));
+        assertEquals("steps", runBoth(List.of(forever)).getLimitExceeded());
+
+        FunctionDeclarationNode recurse = new FunctionDeclarationNode("recurse", List.of(), TypeNode.numberType(),
+            block(new ReturnStatementNode(call("recurse"))), false, null);
+        assertEquals("call-depth", runBoth(List.of(recurse, new ExpressionStatementNode(call("recurse")))).getLimitExceeded());
+
+        assertEquals("memory", runBoth(List.of(
+            new VariableDeclarationNode("text", TypeNode.stringType(), string("x")),
+            new LoopStatementNode("i", number(0), new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true), "i",
+                block(new AssignmentNode("text", binary(id("text"), BinaryExpressionNode.Operator.PLUS, id("text"))))))
+        ).getLimitExceeded());
+
+        RunResult time = new JvmCompiler().compile(new ProgramNode(List.of(forever)))
+            .run(new Interpreter.Limits(Long.MAX_VALUE, 1 << 20, 50, 64, 10_000));
+        assertEquals("time", time.getLimitExceeded());
+
+        // An error caught after unwinding calls leaves the call depth where the try started
+        FunctionDeclarationNode failing = new FunctionDeclarationNode("failing", List.of(), null,
+            block(new ExpressionStatementNode(call("fail", string("deep")))), false, null);
+        RunResult caught = runBoth(List.of(failing,
+            new LoopStatementNode("i", number(0), binary(id("i"), BinaryExpressionNode.Operator.LESS_THAN, number(100)), "i",
+                block(new TryStatementNode(block(new ExpressionStatementNode(call("failing"))), List.of()))),
+            print(string("done"))));
+        assertEquals("done\n", caught.getOutput());
+    }
+
+    @Test
+    void loadsProgramsInIsolation() {
+        CompiledProgram program = new JvmCompiler().compile(new ProgramNode(List.of(fib())));
+        ClassLoader loader = program.getProgramClass().getClassLoader();
+        assertThrows(ClassNotFoundException.class, () -> loader.loadClass(JvmCompiler.class.getName()));
+        assertSame(YRuntime.class, assertDoesNotThrow(() -> loader.loadClass(YRuntime.class.getName())));
+        assertNotSame(loader, new JvmCompiler().compile(new ProgramNode(List.of(fib()))).getProgramClass().getClassLoader());
+    }
+}
\ No newline at end of file
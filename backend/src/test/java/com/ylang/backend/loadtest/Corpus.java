@@ -0,0 +1,57 @@
+package com.ylang.backend.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Y programs a load test sends, picked at random with equal weight
+ */
+public class Corpus {
+
+    /**
+     * A program and the name it is reported under
+     */
+    public record Program(String name, String source) {
+    }
+
+    private final List<Program> programs = new ArrayList<>();
+
+    /**
+     * Add a .y file, or every .y file under a directory
+     */
+    public Corpus addFiles(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path file : files.filter(file -> file.toString().endsWith(".y")).sorted().toList()) {
+                    add(file.getFileName().toString(), Files.readString(file));
+                }
+            }
+        } else {
+            add(path.getFileName().toString(), Files.readString(path));
+        }
+        return this;
+    }
+
+    public Corpus add(String name, String source) {
+        programs.add(new Program(name, source));
+        return this;
+    }
+
+    public Program next(Random random) {
+        return programs.get(random.nextInt(programs.size()));
+    }
+
+    public List<Program> programs() {
+        return Collections.unmodifiableList(programs);
+    }
+
+    public boolean isEmpty() {
+        return programs.isEmpty();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.ylang.backend.loadtest;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets: every power of two is split
+ * into 128 buckets, so a reported percentile is within 1% of the recorded value. Memory stays
+ * constant however many values are recorded, which lets a load test keep every sample.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Values up to about two hours; longer ones are counted in the last bucket
+    private static final int MAX_SHIFT = 35;
+    private static final long MAX_VALUE = (2L * SUB_BUCKETS << MAX_SHIFT) - 1;
+
+    private final long[] counts = new long[(MAX_SHIFT + 2) * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private double sum;
+
+    public synchronized void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts[index(value)]++;
+        count++;
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    /**
+     * Add the values recorded by another histogram
+     */
+    public synchronized void add(LatencyHistogram other) {
+        synchronized (other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+            sum += other.sum;
+        }
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long max() {
+        return max;
+    }
+
+    public synchronized double mean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Value at a percentile, as the upper end of its bucket
+     * @param percentile Between 0 and 100
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (int) (shift * SUB_BUCKETS + (value >>> shift));
+    }
+
+    private static long highestEquivalent(int index) {
+        int shift = Math.max(0, index / SUB_BUCKETS - 1);
+        long lowest = (long) (index - shift * SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,375 @@
+package com.ylang.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ylang.backend.YLanguageBackendApplication;
+import com.ylang.backend.generator.ProgramGenerator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator for the backend: replays a corpus of Y programs against the compile,
+ * validate and translate endpoints and reports throughput and latency percentiles. The corpus
+ * is the example programs, or the given files, plus any number of generated programs.
+ *
+ * With a target rate, every request has an intended send time on a fixed schedule and its
+ * latency is measured from that time rather than from when it was actually sent. A stalled
+ * server then shows up in the percentiles as the queue it causes, instead of silently slowing
+ * the generator down (coordinated omission). Without a rate, a fixed number of clients send
+ * back to back and the latencies are service times only.
+ *
+ * Without --url the backend is started in this JVM on a free port.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dexec.args="--rate 500 --duration 60"
+ */
+public final class LoadTest {
+
+    private static final String USAGE = String.join("\n",
+        "Usage: LoadTest [options]",
+        "      --url <base url>        Backend to load, e.g. http://localhost:8080/api (default: start one in this JVM)",
+        "      --rate <n>              Requests per second, latencies counted from the intended send time",
+        "      --concurrency <n>       Clients sending back to back; with --rate they share the rate (default: 8)",
+        "      --duration <seconds>    Measured time (default: 30)",
+        "      --warmup <seconds>      Load sent before measuring (default: 10)",
+        "      --mix <endpoint=weight,...>",
+        "                              Endpoints among compile, validate, translate-rust, translate-typescript",
+        "                              (default: compile=4,validate=4,translate-rust=1,translate-typescript=1)",
+        "      --corpus <path>         .y file or directory, repeatable (default: ../examples)",
+        "      --generated <n>         Also send n generated programs (default: 0)",
+        "      --generated-size <chars>",
+        "                              Size of each generated program (default: 20000)",
+        "      --max-in-flight <n>     Outstanding requests at a target rate before sending waits (default: 1000)",
+        "      --seed <n>              Seed for picking programs and endpoints (default: 1)",
+        "  -h, --help                  Show this help");
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    enum Endpoint {
+        COMPILE("compile", "/v1/compile"),
+        VALIDATE("validate", "/v1/validate"),
+        TRANSLATE_RUST("translate-rust", "/v1/translate/rust"),
+        TRANSLATE_TYPESCRIPT("translate-typescript", "/v1/translate/typescript");
+
+        final String label;
+        final String path;
+
+        Endpoint(String label, String path) {
+            this.label = label;
+            this.path = path;
+        }
+
+        static Endpoint of(String label) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.label.equals(label)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint '" + label + "'");
+        }
+    }
+
+    /**
+     * A ready-to-send request
+     */
+    private record Call(Endpoint endpoint, HttpRequest request) {
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final Map<Endpoint, LatencyHistogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final List<Call> calls = new ArrayList<>();
+    private final Endpoint[] weightedEndpoints;
+    private final int programCount;
+
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    LoadTest(String baseUrl, Corpus corpus, Map<Endpoint, Integer> mix) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        // Bodies are encoded up front so the generator spends its time sending
+        programCount = corpus.programs().size();
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new LatencyHistogram());
+            for (int i = 0; i < programCount; i++) {
+                Map<String, String> body = new LinkedHashMap<>();
+                body.put("code", corpus.programs().get(i).source());
+                if (endpoint == Endpoint.COMPILE) {
+                    body.put("targetLanguage", i % 2 == 0 ? "rust" : "typescript");
+                }
+                calls.add(new Call(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                    .build()));
+            }
+        }
+        List<Endpoint> weighted = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(endpoint);
+            }
+        });
+        weightedEndpoints = weighted.toArray(new Endpoint[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) throws Exception {
+        String url = null;
+        double rate = 0;
+        int concurrency = 0;
+        int durationSeconds = 30;
+        int warmupSeconds = 10;
+        int maxInFlight = 1000;
+        long seed = 1;
+        String mixSpec = "compile=4,validate=4,translate-rust=1,translate-typescript=1";
+        List<Path> corpusPaths = new ArrayList<>();
+        int generated = 0;
+        int generatedSize = 20_000;
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--url" -> url = args[++i].replaceAll("/+$", "");
+                    case "--rate" -> rate = Double.parseDouble(args[++i]);
+                    case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                    case "--duration" -> durationSeconds = Integer.parseInt(args[++i]);
+                    case "--warmup" -> warmupSeconds = Integer.parseInt(args[++i]);
+                    case "--mix" -> mixSpec = args[++i];
+                    case "--corpus" -> corpusPaths.add(Path.of(args[++i]));
+                    case "--generated" -> generated = Integer.parseInt(args[++i]);
+                    case "--generated-size" -> generatedSize = Integer.parseInt(args[++i]);
+                    case "--max-in-flight" -> maxInFlight = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "-h", "--help" -> {
+                        out.println(USAGE);
+                        return 0;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            for (String entry : mixSpec.split(",")) {
+                String[] parts = entry.trim().split("=");
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+                if (weight > 0) {
+                    mix.put(Endpoint.of(parts[0].trim()), weight);
+                }
+            }
+            if (mix.isEmpty()) {
+                throw new IllegalArgumentException("--mix selects no endpoint");
+            }
+            if (durationSeconds < 1 || warmupSeconds < 0 || rate < 0 || concurrency < 0 || maxInFlight < 1) {
+                throw new IllegalArgumentException("Durations, rate, concurrency and in-flight limits must be positive");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            err.println("LoadTest: " + (e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage()));
+            err.println(USAGE);
+            return 2;
+        }
+
+        Corpus corpus = new Corpus();
+        for (Path path : corpusPaths.isEmpty() ? List.of(Path.of("..", "examples")) : corpusPaths) {
+            corpus.addFiles(path);
+        }
+        ProgramGenerator generator = new ProgramGenerator(new ProgramGenerator.Options().targetSize(generatedSize));
+        for (int i = 0; i < generated; i++) {
+            corpus.add("generated-" + i + ".y", generator.generate(seed + i));
+        }
+        if (corpus.isEmpty()) {
+            err.println("LoadTest: The corpus has no programs");
+            return 2;
+        }
+
+        ConfigurableApplicationContext backend = null;
+        try {
+            if (url == null) {
+                backend = startBackend();
+                url = "http://localhost:" + backend.getEnvironment().getProperty("local.server.port")
+                    + backend.getEnvironment().getProperty("server.servlet.context-path", "");
+            }
+            LoadTest test = new LoadTest(url, corpus, mix);
+            out.printf(Locale.ROOT, "Loading %s with %d programs, %s for %ds after %ds of warmup%n", url,
+                       corpus.programs().size(),
+                       rate > 0 ? rate + " requests/s" : (concurrency > 0 ? concurrency : 8) + " clients",
+                       durationSeconds, warmupSeconds);
+            if (rate > 0 && concurrency == 0) {
+                test.runAtRate(rate, warmupSeconds, durationSeconds, maxInFlight, seed);
+            } else {
+                test.runClients(concurrency > 0 ? concurrency : 8, rate, warmupSeconds, durationSeconds, seed);
+            }
+            test.report(out, durationSeconds, rate > 0);
+            return 0;
+        } finally {
+            if (backend != null) {
+                backend.close();
+            }
+        }
+    }
+
+    /**
+     * Start the backend on a free port, logging only warnings so the console stays readable
+     */
+    private static ConfigurableApplicationContext startBackend() {
+        return SpringApplication.run(YLanguageBackendApplication.class,
+            "--server.port=0", "--logging.level.com.ylang=WARN", "--spring.main.banner-mode=off");
+    }
+
+    /**
+     * Open model: send on a fixed schedule whatever the responses do
+     */
+    void runAtRate(double rate, int warmupSeconds, int durationSeconds, int maxInFlight, long seed)
+            throws InterruptedException {
+        Random random = new Random(seed);
+        Semaphore slots = new Semaphore(maxInFlight);
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * periodNanos);
+            if (intended >= measureUntil) {
+                break;
+            }
+            sleepUntil(intended);
+            // Waiting here delays sending, but the wait still counts: latency runs from the intended time
+            slots.acquire();
+            Call call = next(random);
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    slots.release();
+                    record(call.endpoint(), intended, response, error);
+                });
+        }
+        slots.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Closed model: each client sends its next request once the previous one is answered,
+     * on its share of the schedule when a rate is given
+     */
+    void runClients(int clients, double rate, int warmupSeconds, int durationSeconds, long seed)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double periodNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * clients / rate : 0;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(seed + c);
+            long offset = (long) (periodNanos * c / clients);
+            Thread thread = new Thread(() -> {
+                for (long i = 0; ; i++) {
+                    long intended = periodNanos > 0 ? start + offset + (long) (i * periodNanos) : System.nanoTime();
+                    if (intended >= measureUntil) {
+                        return;
+                    }
+                    sleepUntil(intended);
+                    Call call = next(random);
+                    try {
+                        HttpResponse<Void> response = client.send(call.request(), HttpResponse.BodyHandlers.discarding());
+                        record(call.endpoint(), intended, response, null);
+                    } catch (IOException e) {
+                        record(call.endpoint(), intended, null, e);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "load-client-" + c);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private Call next(Random random) {
+        Endpoint endpoint = weightedEndpoints[random.nextInt(weightedEndpoints.length)];
+        return calls.get(endpoint.ordinal() * programCount + random.nextInt(programCount));
+    }
+
+    private void record(Endpoint endpoint, long intended, HttpResponse<?> response, Throwable error) {
+        long latency = System.nanoTime() - intended;
+        if (intended < measureFrom || intended >= measureUntil) {
+            return;
+        }
+        String outcome = error != null ? error.getClass().getSimpleName() : String.valueOf(response.statusCode());
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        if (error == null && response.statusCode() < 400) {
+            latencies.get(endpoint).record(latency);
+        }
+    }
+
+    /**
+     * Latencies of every successful measured request
+     */
+    LatencyHistogram total() {
+        LatencyHistogram total = new LatencyHistogram();
+        latencies.values().forEach(total::add);
+        return total;
+    }
+
+    void report(PrintStream out, int durationSeconds, boolean corrected) {
+        out.printf(Locale.ROOT, "%n%-22s %9s %10s %9s %9s %9s %9s %9s%n", "endpoint", "ok", "ok/s",
+                   "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Endpoint, LatencyHistogram> entry : latencies.entrySet()) {
+            if (entry.getValue().count() > 0) {
+                printRow(out, entry.getKey().label, entry.getValue(), durationSeconds);
+            }
+        }
+        printRow(out, "total", total(), durationSeconds);
+
+        Map<String, Long> responses = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> responses.put(outcome, count.sum()));
+        out.println("\nResponses: " + responses);
+        if (!corrected) {
+            out.println("No target rate: latencies are service times, not corrected for coordinated omission");
+        }
+    }
+
+    private static void printRow(PrintStream out, String label, LatencyHistogram histogram, int durationSeconds) {
+        StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%-22s %9d %10.1f", label,
+            histogram.count(), (double) histogram.count() / durationSeconds));
+        for (double percentile : PERCENTILES) {
+            row.append(String.format(Locale.ROOT, " %9.2f", histogram.percentile(percentile) / 1e6));
+        }
+        row.append(String.format(Locale.ROOT, " %9.2f", histogram.max() / 1e6));
+        out.println(row);
+    }
+
+    private static void sleepUntil(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
\ No newline at end of file
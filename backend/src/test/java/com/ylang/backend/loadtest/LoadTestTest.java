@@ -0,0 +1,68 @@
+package com.ylang.backend.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestTest {
+
+    @Test
+    void testHistogramPercentilesAreWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(1);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + (long) (random.nextDouble() * random.nextDouble() * 1e9);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            assertEquals(exact, histogram.percentile(percentile), exact * 0.01, "p" + percentile);
+        }
+        assertEquals(values[values.length - 1], histogram.max());
+        assertEquals(values.length, histogram.count());
+    }
+
+    @Test
+    void testServerStallIsCountedForEveryRequestItDelays() throws Exception {
+        // One request in the middle of the run stalls the single-threaded server for a second
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (requests.incrementAndGet() == 100) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+        try {
+            LoadTest test = new LoadTest("http://localhost:" + server.getAddress().getPort(),
+                new Corpus().add("total.y", "total;"), Map.of(LoadTest.Endpoint.VALIDATE, 1));
+            test.runAtRate(100, 0, 3, 1000, 1);
+
+            LatencyHistogram latencies = test.total();
+            assertTrue(latencies.count() >= 250, "Count " + latencies.count());
+            // About 100 requests were due during the stall, so it shows well below the 99th percentile
+            assertTrue(latencies.percentile(90) > 200_000_000L, "p90 " + latencies.percentile(90));
+            assertTrue(latencies.percentile(50) < 200_000_000L, "p50 " + latencies.percentile(50));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
\ No newline at end of file
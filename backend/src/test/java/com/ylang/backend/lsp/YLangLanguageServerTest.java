@@ -0,0 +1,98 @@
+package com.ylang.backend.lsp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.YLanguageParserService;
+import org.junit.jupiter.api.Test;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YLangLanguageServerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testDiagnosticsFollowIncrementalEdits() throws Exception {
+        PipedOutputStream toServer = new PipedOutputStream();
+        PipedInputStream serverIn = new PipedInputStream(toServer, 1 << 16);
+        PipedOutputStream serverOut = new PipedOutputStream();
+        PipedInputStream fromServer = new PipedInputStream(serverOut, 1 << 16);
+
+        YLanguageParserService parserService = new YLanguageParserService();
+        YLangLanguageServer server = new YLangLanguageServer(parserService,
+            new CompilationService(parserService, null, null, null), serverIn, serverOut, 0);
+        CompletableFuture<Integer> exitCode = CompletableFuture.supplyAsync(server::run);
+        LspConnection client = new LspConnection(mapper, fromServer, toServer);
+
+        client.write(request(1, "initialize", mapper.createObjectNode()));
+        JsonNode initialized = client.read();
+        assertEquals(2, initialized.path("result").path("capabilities").path("textDocumentSync").path("change").asInt());
+
+        ObjectNode open = mapper.createObjectNode();
+        ObjectNode item = open.putObject("textDocument");
+        item.put("uri", "file:///main.y");
+        item.put("version", 1);
+        item.put("text", "total;\ncount limit;");
+        client.write(notification("textDocument/didOpen", open));
+
+        JsonNode published = client.read();
+        assertEquals("textDocument/publishDiagnostics", published.path("method").asText());
+        JsonNode diagnostic = published.path("params").path("diagnostics").get(0);
+        assertEquals(1, diagnostic.path("range").path("start").path("line").asInt());
+        assertEquals(6, diagnostic.path("range").path("start").path("character").asInt());
+
+        // Delete " limit" so the second line reads "count;"
+        ObjectNode change = mapper.createObjectNode();
+        change.putObject("textDocument").put("uri", "file:///main.y").put("version", 2);
+        ObjectNode edit = change.putArray("contentChanges").addObject();
+        ObjectNode range = edit.putObject("range");
+        range.putObject("start").put("line", 1).put("character", 5);
+        range.putObject("end").put("line", 1).put("character", 11);
+        edit.put("text", "");
+        client.write(notification("textDocument/didChange", change));
+
+        published = client.read();
+        assertEquals(2, published.path("params").path("version").asInt());
+        assertEquals(0, published.path("params").path("diagnostics").size());
+
+        client.write(request(2, "shutdown", null));
+        assertTrue(client.read().has("result"));
+        client.write(notification("exit", null));
+        assertEquals(0, exitCode.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testIncrementalReplaceKeepsLineIndex() {
+        TextDocument document = new TextDocument("file:///a.y", "a\nbb\nccc\n", 1);
+
+        document.replace(1, 1, 2, 1, "X\nY\nZ", 2);
+
+        assertEquals("a\nbX\nY\nZcc\n", document.getText());
+        assertEquals(5, document.getLineCount());
+        assertEquals(7, document.offset(3, 0));
+        assertEquals(3, document.line(8));
+        assertEquals(2, document.getVersion());
+    }
+
+    private ObjectNode request(int id, String method, ObjectNode params) {
+        ObjectNode message = notification(method, params);
+        message.put("id", id);
+        return message;
+    }
+
+    private ObjectNode notification(String method, ObjectNode params) {
+        ObjectNode message = mapper.createObjectNode();
+        message.put("method", method);
+        if (params != null) {
+            message.set("params", params);
+        }
+        return message;
+    }
+}
\ No newline at end of file
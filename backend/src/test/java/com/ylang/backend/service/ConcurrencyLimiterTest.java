@@ -0,0 +1,56 @@
+package com.ylang.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void testClientShareAndRejection() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("compile", 2, 1, 10, 0.5, 10);
+
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire("project:noisy");
+        assertNotNull(first);
+        // The noisy project already holds its half of the limit
+        assertNull(limiter.tryAcquire("project:noisy"));
+
+        ConcurrencyLimiter.Permit other = limiter.tryAcquire("project:quiet");
+        assertNotNull(other);
+        assertNull(limiter.tryAcquire("project:third"));
+        assertEquals(2, limiter.getRejected());
+        assertTrue(limiter.retryAfterSeconds() >= 1);
+
+        first.release();
+        first.release();
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire("project:third"));
+    }
+
+    @Test
+    void testLimitFollowsLatency() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("compile", 20, 1, 100, 1.0, 0);
+        long fast = TimeUnit.MILLISECONDS.toNanos(5);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.record(fast, 20);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        // Latency well above the long-term average means requests are queuing
+        for (int i = 0; i < 20; i++) {
+            limiter.record(fast * 10, grown);
+        }
+        assertTrue(limiter.getLimit() < grown, "limit " + limiter.getLimit());
+
+        // An idle service does not grow the limit
+        int settled = limiter.getLimit();
+        for (int i = 0; i < 50; i++) {
+            limiter.record(fast, 0);
+        }
+        assertTrue(limiter.getLimit() <= settled);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.ylang.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalLexerTest {
+
+    private static final String[] FRAGMENTS = {
+        "create", "variable", " ", "\n", "x", "1", "-2.5", "\"", "\"text\"", "/*", "*/", "//", "(", ")",
+        "(Yummy:", ";", ",", "equals", "_"
+    };
+
+    @Test
+    void testRandomEditsMatchFullLex() {
+        Random random = new Random(38);
+        String text = "create variable total as number equals 0;\n/* note */ set total to total plus 1; // done\n";
+        IncrementalLexer.Tokens tokens = IncrementalLexer.lex(text);
+
+        for (int i = 0; i < 5000; i++) {
+            int offset = random.nextInt(text.length() + 1);
+            int deleteLength = random.nextInt(Math.min(4, text.length() - offset) + 1);
+            String insert = random.nextInt(3) == 0 ? "" : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            String edited = text.substring(0, offset) + insert + text.substring(offset + deleteLength);
+
+            IncrementalLexer.Relex relex = IncrementalLexer.relex(tokens, edited, offset, deleteLength, insert.length());
+            IncrementalLexer.Tokens expected = IncrementalLexer.lex(edited);
+
+            assertArrayEquals(expected.slice(0, expected.count), relex.tokens.slice(0, relex.tokens.count),
+                "after edit " + i + " at " + offset + " of \"" + edited + "\"");
+            assertArrayEquals(Arrays.copyOf(expected.lookahead, expected.count),
+                Arrays.copyOf(relex.tokens.lookahead, relex.tokens.count));
+            assertEquals(tokens.count - relex.removedTokens + relex.insertedTokens, relex.tokens.count);
+
+            text = edited.length() > 400 ? edited.substring(0, 200) : edited;
+            tokens = IncrementalLexer.lex(text);
+        }
+    }
+
+    @Test
+    void testEditRelexesOnlyNearbyTokens() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append("set total to total plus ").append(i).append(";\n");
+        }
+        String text = source.toString();
+        IncrementalLexer.Tokens tokens = IncrementalLexer.lex(text);
+
+        int offset = text.indexOf("plus 500;") + "plus 5".length();
+        String edited = text.substring(0, offset) + "7" + text.substring(offset);
+        IncrementalLexer.Relex relex = IncrementalLexer.relex(tokens, edited, offset, 0, 1);
+
+        assertTrue(relex.insertedTokens <= 2, "re-lexed " + relex.insertedTokens + " tokens");
+        assertEquals(relex.insertedTokens, relex.removedTokens);
+        assertEquals(tokens.count, relex.tokens.count);
+    }
+
+    @Test
+    void testOpeningCommentRelexesToEnd() {
+        String text = "a b c d e";
+        IncrementalLexer.Tokens tokens = IncrementalLexer.lex(text);
+
+        String edited = "a /*b c d e";
+        IncrementalLexer.Relex relex = IncrementalLexer.relex(tokens, edited, 2, 0, 2);
+
+        assertEquals(1, relex.firstToken);
+        assertEquals(4, relex.removedTokens);
+        assertArrayEquals(IncrementalLexer.lex(edited).slice(0, relex.tokens.count),
+            relex.tokens.slice(0, relex.tokens.count));
+    }
+}
\ No newline at end of file
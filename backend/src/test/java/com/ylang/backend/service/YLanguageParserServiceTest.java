@@ -0,0 +1,81 @@
+package com.ylang.backend.service;
+
+import com.ylang.backend.model.Diagnostic;
+import com.ylang.backend.model.ParseResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YLanguageParserServiceTest {
+
+    private final YLanguageParserService parserService = new YLanguageParserService();
+
+    @Test
+    void testErrorCollectionStopsAtLimit() {
+        StringBuilder garbage = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            garbage.append("\u0001 ) begin # ");
+        }
+
+        ParseResult result = parserService.parse(garbage.toString(), 10);
+
+        assertFalse(result.isSuccess());
+        List<Diagnostic> diagnostics = result.getDiagnostics();
+        assertEquals(11, diagnostics.size());
+        assertEquals(Diagnostic.TOO_MANY_ERRORS, diagnostics.get(10).getCode());
+        assertEquals(diagnostics.size(), result.getErrors().size());
+    }
+
+    @Test
+    void testFailFastReportsFirstErrorWithSpan() {
+        String code = "total;\ncount limit;";
+
+        ParseResult result = parserService.parse(code, 1);
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getDiagnostics().size());
+        Diagnostic diagnostic = result.getDiagnostics().get(0);
+        assertEquals(Diagnostic.SYNTAX_ERROR, diagnostic.getCode());
+        assertEquals(2, diagnostic.getLine());
+        assertEquals("limit", code.substring(diagnostic.getStartOffset(), diagnostic.getEndOffset()));
+        assertTrue(result.getErrors().get(0).startsWith("Line 2:6 - "));
+
+        assertTrue(parserService.parse("total;\ncount;", 1).isSuccess());
+    }
+
+    @Test
+    void testCheaperLevelsStopEarly() {
+        // Lexically fine but not a valid program
+        String code = "total count limit;";
+
+        assertTrue(parserService.lex(code, 10).isSuccess());
+        assertFalse(parserService.checkSyntax(code, 10).isSuccess());
+        assertNull(parserService.checkSyntax("total;", 10).getAst());
+
+        ParseResult lexical = parserService.lex("total # count;", 10);
+        assertFalse(lexical.isSuccess());
+        assertEquals(Diagnostic.LEXICAL_ERROR, lexical.getDiagnostics().get(0).getCode());
+        assertEquals(6, lexical.getDiagnostics().get(0).getStartOffset());
+    }
+
+    @Test
+    void testSupersededRequestStopsParsing() {
+        ProjectRequestTracker tracker = new ProjectRequestTracker();
+        ProjectRequestTracker.Ticket first = tracker.begin("playground");
+        ProjectRequestTracker.Ticket second = tracker.begin("playground");
+
+        assertTrue(first.isSuperseded());
+        assertThrows(CancellationException.class, first::checkpoint);
+        assertThrows(CancellationException.class,
+            () -> parserService.parse("total;\n".repeat(5000), 10, first::isSuperseded));
+        assertTrue(parserService.parse("total;", 10, second::isSuperseded).isSuccess());
+
+        tracker.end(first);
+        assertEquals(1, tracker.inFlightCount());
+        tracker.end(second);
+        assertEquals(0, tracker.inFlightCount());
+    }
+}
\ No newline at end of file
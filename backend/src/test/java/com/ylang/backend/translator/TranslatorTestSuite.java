@@ -1,8 +1,10 @@
 package com.ylang.backend.translator;
 
 import com.ylang.backend.ast.*;
+import com.ylang.backend.model.CompileOptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.test.util.ReflectionTestUtils;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.Arrays;
 import java.util.ArrayList;
@@ -42,7 +44,9 @@ public class TranslatorTestSuite {
         
         assertTrue(tsResult.contains("try {"));
         assertTrue(tsResult.contains("catch (error: string)"));
-        assertTrue(rustResult.contains("match std::panic::catch_unwind"));
+        assertTrue(rustResult.contains("match (|| -> Result<(), String> {"));
+        assertTrue(rustResult.contains("Err(error) => {"));
+        assertFalse(rustResult.contains("catch_unwind"));
     }
     
     @Test
@@ -157,4 +161,247 @@ public class TranslatorTestSuite {
         assertTrue(tsResult.contains("{\"key1\": \"value1\""));
         assertTrue(rustResult.contains("\"key1\": \"value1\""));
     }
+    
+    @Test
+    void testCountedLoopTranslation() {
+        // loop with variable i equals 0 while i is less than 10 increment i
+        LoopStatementNode counted = new LoopStatementNode("i",
+            new LiteralNode(LiteralNode.LiteralType.NUMBER, 0L),
+            new BinaryExpressionNode(new IdentifierNode("i"), BinaryExpressionNode.Operator.LESS_THAN,
+                new LiteralNode(LiteralNode.LiteralType.NUMBER, 10L)),
+            "i", new BlockNode(new ArrayList<>()));
+        
+        // The bound changes inside the body, so the loop must stay a while loop
+        LoopStatementNode uncounted = new LoopStatementNode("i",
+            new LiteralNode(LiteralNode.LiteralType.NUMBER, 0L),
+            new BinaryExpressionNode(new IdentifierNode("i"), BinaryExpressionNode.Operator.LESS_THAN, new IdentifierNode("limit")),
+            "i", new BlockNode(Arrays.asList(new AssignmentNode("limit", new IdentifierNode("i")))));
+        
+        String tsResult = typescriptTranslator.visitLoopStatement(counted);
+        String rustResult = rustTranslator.visitLoopStatement(counted);
+        String rustWhile = rustTranslator.visitLoopStatement(uncounted);
+        
+        assertTrue(tsResult.contains("for (let i = 0; (i < 10); i++) {"));
+        assertTrue(rustResult.contains("for i in 0i64..10i64 {"));
+        assertTrue(rustWhile.contains("let mut i = 0i64;"));
+        assertTrue(rustWhile.contains("while (i < limit) {"));
+        assertTrue(rustWhile.contains("i += 1;"));
+    }
+    
+    @Test
+    void testShapeStableTypeScriptTranslation() {
+        StructureDeclarationNode point = new StructureDeclarationNode("Point", null, null, Arrays.asList(
+            new VariableDeclarationNode("x", TypeNode.numberType(), new LiteralNode(LiteralNode.LiteralType.NUMBER, 0L)),
+            new VariableDeclarationNode("y", TypeNode.numberType(), new LiteralNode(LiteralNode.LiteralType.NUMBER, 0L))
+        ));
+        EnumDeclarationNode color = new EnumDeclarationNode("Color", null, Arrays.asList(
+            new EnumDeclarationNode.EnumVariant("Red", new ArrayList<>()),
+            new EnumDeclarationNode.EnumVariant("Green", new ArrayList<>())
+        ));
+        ListExpressionNode values = new ListExpressionNode(Arrays.asList(
+            new LiteralNode(LiteralNode.LiteralType.NUMBER, 1L),
+            new LiteralNode(LiteralNode.LiteralType.NUMBER, 2L)
+        ));
+        values.setResolvedType(TypeNode.listType(TypeNode.numberType()));
+        MapExpressionNode scores = new MapExpressionNode(Arrays.asList(
+            new MapExpressionNode.KeyValuePair(new IdentifierNode("name"), new LiteralNode(LiteralNode.LiteralType.NUMBER, 1L))
+        ));
+        
+        ProgramNode program = new ProgramNode(Arrays.asList(
+            point, color,
+            new VariableDeclarationNode("origin", new TypeNode("Point"), new FunctionCallNode("Point", new ArrayList<>())),
+            new VariableDeclarationNode("values", TypeNode.listType(TypeNode.numberType()), values),
+            new VariableDeclarationNode("scores", TypeNode.mapType(TypeNode.stringType(), TypeNode.numberType()), scores)
+        ));
+        
+        String tsResult = typescriptTranslator.translate(program, new CompileOptions(true));
+        
+        assertTrue(tsResult.contains("constructor(x: number = 0, y: number = 0) {"));
+        assertTrue(tsResult.contains("this.x = x;"));
+        assertTrue(tsResult.contains("const enum Color {"));
+        assertTrue(tsResult.contains("const origin: Point = new Point();"));
+        assertTrue(tsResult.contains("const values: Float64Array = Float64Array.of(1, 2);"));
+        assertTrue(tsResult.contains("const scores: Map<string, number> = new Map([[name, 1]]);"));
+    }
+
+    @Test
+    void testShapeStableSlotsKeepTheirForm() {
+        TypeNode numbers = TypeNode.listType(TypeNode.numberType());
+        // create function reset with parameters values as list of number that returns list of number
+        FunctionDeclarationNode reset = new FunctionDeclarationNode("reset",
+            Arrays.asList(new ParameterNode("values", numbers, null)), numbers,
+            new BlockNode(Arrays.asList(
+                new AssignmentNode("values", new LiteralNode(LiteralNode.LiteralType.EMPTY_LIST, null)),
+                new ReturnStatementNode(new LiteralNode(LiteralNode.LiteralType.EMPTY_LIST, null))
+            )), false, null);
+        IdentifierNode scores = new IdentifierNode("scores");
+        scores.setResolvedType(TypeNode.mapType(TypeNode.stringType(), TypeNode.numberType()));
+
+        ProgramNode program = new ProgramNode(Arrays.asList(
+            reset,
+            new VariableDeclarationNode("scores", TypeNode.mapType(TypeNode.stringType(), TypeNode.numberType()),
+                new LiteralNode(LiteralNode.LiteralType.EMPTY_MAP, null)),
+            new ExpressionStatementNode(new FunctionCallNode("reset",
+                Arrays.asList(new LiteralNode(LiteralNode.LiteralType.EMPTY_LIST, null)))),
+            new LoopStatementNode("name", scores, new BlockNode(Arrays.asList(
+                new ExpressionStatementNode(new FunctionCallNode("print", Arrays.asList(new IdentifierNode("name"))))
+            )))
+        ));
+
+        String tsResult = typescriptTranslator.translate(program, new CompileOptions(true));
+
+        assertTrue(tsResult.contains("values = new Float64Array(0);"));
+        assertTrue(tsResult.contains("return new Float64Array(0);"));
+        assertTrue(tsResult.contains("reset(new Float64Array(0));"));
+        assertTrue(tsResult.contains("for (const name of scores.keys()) {"));
+    }
+
+    @Test
+    void testTryPropagatesResultErrors() {
+        // create function parse with parameter text as string that returns either number or string
+        FunctionDeclarationNode parse = new FunctionDeclarationNode("parse",
+            Arrays.asList(new ParameterNode("text", TypeNode.stringType(), null)),
+            TypeNode.eitherType(TypeNode.numberType(), TypeNode.stringType()),
+            new BlockNode(new ArrayList<>()), false, null);
+        
+        TryStatementNode tryNode = new TryStatementNode(
+            new BlockNode(Arrays.asList(
+                new VariableDeclarationNode("value", TypeNode.numberType(),
+                    new FunctionCallNode("parse", Arrays.asList(new IdentifierNode("input")))),
+                new ReturnStatementNode(new IdentifierNode("value"))
+            )),
+            Arrays.asList(
+                new TryStatementNode.CatchClause("message", TypeNode.stringType(), new BlockNode(new ArrayList<>())),
+                new TryStatementNode.CatchClause("code", TypeNode.numberType(), new BlockNode(new ArrayList<>()))
+            ));
+        FunctionDeclarationNode run = new FunctionDeclarationNode("run",
+            Arrays.asList(new ParameterNode("input", TypeNode.stringType(), null)),
+            TypeNode.numberType(), new BlockNode(Arrays.asList(tryNode)), false, null);
+        
+        String rustResult = rustTranslator.translate(new ProgramNode(Arrays.asList(parse, run)));
+        
+        assertTrue(rustResult.contains("enum TryError1 {"));
+        assertTrue(rustResult.contains("impl From<String> for TryError1"));
+        assertTrue(rustResult.contains("match (|| -> Result<Option<i64>, TryError1> {"));
+        assertTrue(rustResult.contains("parse(input)?"));
+        assertTrue(rustResult.contains("return Ok(Some(value));"));
+        assertTrue(rustResult.contains("Ok(Some(value)) => return value,"));
+        assertTrue(rustResult.contains("Err(TryError1::E1(code)) => {"));
+    }
+    
+    @Test
+    void testTryOnlyPropagatesCaughtErrorTypes() {
+        // create function parse with parameter text as string that returns either number or string
+        FunctionDeclarationNode parse = new FunctionDeclarationNode("parse",
+            Arrays.asList(new ParameterNode("text", TypeNode.stringType(), null)),
+            TypeNode.eitherType(TypeNode.numberType(), TypeNode.stringType()),
+            new BlockNode(new ArrayList<>()), false, null);
+        // create function lookup with parameter key as string that returns either string or number
+        FunctionDeclarationNode lookup = new FunctionDeclarationNode("lookup",
+            Arrays.asList(new ParameterNode("key", TypeNode.stringType(), null)),
+            TypeNode.eitherType(TypeNode.stringType(), TypeNode.numberType()),
+            new BlockNode(new ArrayList<>()), false, null);
+        
+        // Catches numbers only: the string error of parse has no From impl into the closure's error
+        TryStatementNode catchesCodes = new TryStatementNode(
+            new BlockNode(Arrays.asList(
+                new ExpressionStatementNode(new FunctionCallNode("parse", Arrays.asList(new IdentifierNode("input")))),
+                new ExpressionStatementNode(new FunctionCallNode("lookup", Arrays.asList(new IdentifierNode("input"))))
+            )),
+            Arrays.asList(new TryStatementNode.CatchClause("code", TypeNode.numberType(), new BlockNode(new ArrayList<>()))));
+        // Catches nothing: Box<dyn Error> converts from String but not from i64
+        TryStatementNode catchesNothing = new TryStatementNode(
+            new BlockNode(Arrays.asList(
+                new ExpressionStatementNode(new FunctionCallNode("parse", Arrays.asList(new IdentifierNode("other")))),
+                new ExpressionStatementNode(new FunctionCallNode("lookup", Arrays.asList(new IdentifierNode("other"))))
+            )),
+            new ArrayList<>());
+        FunctionDeclarationNode run = new FunctionDeclarationNode("run",
+            Arrays.asList(new ParameterNode("input", TypeNode.stringType(), null),
+                          new ParameterNode("other", TypeNode.stringType(), null)),
+            null, new BlockNode(Arrays.asList(catchesCodes, catchesNothing)), false, null);
+        
+        String rustResult = rustTranslator.translate(new ProgramNode(Arrays.asList(parse, lookup, run)));
+        
+        assertTrue(rustResult.contains("match (|| -> Result<(), i64> {"));
+        assertTrue(rustResult.contains("parse(input);"));
+        assertTrue(rustResult.contains("lookup(input)?;"));
+        assertTrue(rustResult.contains("match (|| -> Result<(), Box<dyn std::error::Error>> {"));
+        assertTrue(rustResult.contains("parse(other)?;"));
+        assertTrue(rustResult.contains("lookup(other);"));
+    }
+    
+    @Test
+    void testRangeMatchLowering() {
+        java.util.List<MatchStatementNode.MatchCase> cases = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            cases.add(MatchStatementNode.MatchCase.range(
+                new LiteralNode(LiteralNode.LiteralType.NUMBER, i * 100L),
+                new LiteralNode(LiteralNode.LiteralType.NUMBER, i * 100L + 9), new BlockNode(new ArrayList<>())));
+        }
+        cases.add(MatchStatementNode.MatchCase.guard("n",
+            new BinaryExpressionNode(new IdentifierNode("n"), BinaryExpressionNode.Operator.GREATER_THAN,
+                new LiteralNode(LiteralNode.LiteralType.NUMBER, 1000L)), new BlockNode(new ArrayList<>())));
+        MatchStatementNode matchNode = new MatchStatementNode(new IdentifierNode("score"), cases);
+        
+        String tsResult = typescriptTranslator.visitMatchStatement(matchNode);
+        String rustResult = rustTranslator.visitMatchStatement(matchNode);
+        
+        // Sparse ranges: binary search into a switch on the case index, guard checked afterwards
+        assertTrue(tsResult.contains("const match1Value = score;"));
+        assertTrue(tsResult.contains("if (match1Value < 400) {"));
+        assertTrue(tsResult.contains("match1Arm = 7;"));
+        assertTrue(tsResult.contains("switch (match1Arm) {"));
+        assertTrue(tsResult.contains("if ((n > 1000)) {"));
+        assertTrue(rustResult.contains("700..=709 => {"));
+        assertTrue(rustResult.contains("n if (n > 1000i64) => {"));
+        assertTrue(rustResult.contains("_ => {}"));
+    }
+    
+    @Test
+    void testRangeMatchLoweringKeepsFractionalValues() {
+        // Overlapping ranges: the dispatch intervals cut the second one to 11..20, which 10.5 misses
+        java.util.List<MatchStatementNode.MatchCase> cases = new ArrayList<>();
+        long[][] bounds = {{1, 10}, {5, 20}, {30, 39}, {50, 59}, {70, 79}};
+        for (long[] range : bounds) {
+            cases.add(MatchStatementNode.MatchCase.range(
+                new LiteralNode(LiteralNode.LiteralType.NUMBER, range[0]),
+                new LiteralNode(LiteralNode.LiteralType.NUMBER, range[1]), new BlockNode(new ArrayList<>())));
+        }
+        MatchStatementNode matchNode = new MatchStatementNode(new LiteralNode(LiteralNode.LiteralType.NUMBER, 10.5), cases);
+        
+        String tsResult = typescriptTranslator.visitMatchStatement(matchNode);
+        
+        // Only whole numbers take the intervals; 10.5 is checked against the ranges as written
+        assertTrue(tsResult.contains("if (Number.isInteger(match1Value)) {"));
+        String ordered = tsResult.substring(tsResult.indexOf("} else {"));
+        assertTrue(ordered.contains("if (match1Value >= 1 && match1Value <= 10) {"));
+        assertTrue(ordered.contains("if (match1Value >= 5 && match1Value <= 20) {"));
+    }
+    
+    @Test
+    void testParallelTranslationKeepsSourceOrder() {
+        java.util.List<ASTNode> statements = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            // create function fN with parameter x as number that returns number
+            statements.add(new FunctionDeclarationNode("f" + i,
+                Arrays.asList(new ParameterNode("x", TypeNode.numberType(), null)), TypeNode.numberType(),
+                new BlockNode(Arrays.asList(
+                    new VariableDeclarationNode("y", TypeNode.numberType(),
+                        new BinaryExpressionNode(new IdentifierNode("x"), BinaryExpressionNode.Operator.PLUS,
+                            new LiteralNode(LiteralNode.LiteralType.NUMBER, (long) i))),
+                    new ReturnStatementNode(new IdentifierNode("y"))
+                )), false, null));
+        }
+        ProgramNode program = new ProgramNode(statements);
+        
+        RustTranslator sequentialRust = new RustTranslator();
+        TypeScriptTranslator sequentialTs = new TypeScriptTranslator();
+        ReflectionTestUtils.setField(sequentialRust, "parallelThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(sequentialTs, "parallelThreshold", Integer.MAX_VALUE);
+        
+        assertTrue(ParallelTranslation.weight(program.getStatements().get(0)) * 800 >= ParallelTranslation.DEFAULT_THRESHOLD);
+        assertEquals(sequentialRust.translate(program), rustTranslator.translate(program));
+        assertEquals(sequentialTs.translate(program), typescriptTranslator.translate(program));
+    }
 }
\ No newline at end of file
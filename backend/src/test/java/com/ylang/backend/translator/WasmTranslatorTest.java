@@ -0,0 +1,176 @@
+package com.ylang.backend.translator;
+
+import com.ylang.backend.ast.*;
+import com.ylang.backend.dto.CompileResponse;
+import com.ylang.backend.exception.YLanguageUnsupportedException;
+import com.ylang.backend.service.CompilationService;
+import com.ylang.backend.service.CompileArtifactCache;
+import com.ylang.backend.service.YLanguageParserService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WasmTranslatorTest {
+
+    private final WasmTranslator translator = new WasmTranslator();
+
+    private static LiteralNode number(double value) {
+        return new LiteralNode(LiteralNode.LiteralType.NUMBER, value);
+    }
+
+    private static LiteralNode string(String value) {
+        return new LiteralNode(LiteralNode.LiteralType.STRING, value);
+    }
+
+    private static IdentifierNode id(String name) {
+        return new IdentifierNode(name);
+    }
+
+    private static BinaryExpressionNode binary(ExpressionNode left, BinaryExpressionNode.Operator operator, ExpressionNode right) {
+        return new BinaryExpressionNode(left, operator, right);
+    }
+
+    private static FunctionCallNode call(String name, ExpressionNode... arguments) {
+        return new FunctionCallNode(name, Arrays.asList(arguments));
+    }
+
+    private static ExpressionStatementNode print(ExpressionNode... arguments) {
+        return new ExpressionStatementNode(call("print", arguments));
+    }
+
+    private static BlockNode block(ASTNode... statements) {
+        return new BlockNode(Arrays.asList(statements));
+    }
+
+    private static FunctionDeclarationNode fib() {
+        // create function fib with parameters n as number that returns number
+        return new FunctionDeclarationNode("fib",
+            List.of(new ParameterNode("n", TypeNode.numberType(), null)), TypeNode.numberType(),
+            block(
+                new IfStatementNode(binary(id("n"), BinaryExpressionNode.Operator.LESS_THAN, number(2)),
+                    block(new ReturnStatementNode(id("n"))), null),
+                new ReturnStatementNode(binary(
+                    call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(1))),
+                    BinaryExpressionNode.Operator.PLUS,
+                    call("fib", binary(id("n"), BinaryExpressionNode.Operator.MINUS, number(2)))))),
+            false, null);
+    }
+
+    private static List<ASTNode> program() {
+        FunctionDeclarationNode sum = new FunctionDeclarationNode("sum",
+            List.of(new ParameterNode("numbers", TypeNode.listType(TypeNode.numberType()), null)), TypeNode.numberType(),
+            block(
+                new VariableDeclarationNode("total", null, number(0)),
+                new LoopStatementNode("x", id("numbers"), block(
+                    new AssignmentNode("total", binary(id("total"), BinaryExpressionNode.Operator.PLUS, id("x"))))),
+                new ReturnStatementNode(id("total"))),
+            false, null);
+
+        List<ASTNode> statements = new ArrayList<>(List.of(fib(), sum,
+            print(string("fib"), call("fib", number(20))),
+            new VariableDeclarationNode("squares", TypeNode.listType(TypeNode.numberType()),
+                new LiteralNode(LiteralNode.LiteralType.EMPTY_LIST, null)),
+            new LoopStatementNode("i", number(0), binary(id("i"), BinaryExpressionNode.Operator.LESS_THAN, number(10)), "i",
+                block(new ExpressionStatementNode(call("append", id("squares"),
+                    binary(id("i"), BinaryExpressionNode.Operator.TIMES, id("i")))))),
+            print(id("squares"), call("sum", id("squares")),
+                  new MemberAccessNode(id("squares"), MemberAccessNode.AccessType.AT, number(3)),
+                  binary(number(7), BinaryExpressionNode.Operator.MODULO, number(3)),
+                  new ConditionalExpressionNode(call("contains", id("squares"), number(49)), number(1), number(0)))));
+        statements.add(new MatchStatementNode(call("length", id("squares")), List.of(
+            MatchStatementNode.MatchCase.literal(number(0), block(print(string("empty")))),
+            MatchStatementNode.MatchCase.range(number(1), number(9), block(print(string("few")))),
+            new MatchStatementNode.MatchCase("n", null, null, block(print(string("many"), id("n")))))));
+        return statements;
+    }
+
+    @Test
+    void translatesFunctionsLoopsAndListsToAValidModule() {
+        ProgramNode ast = new ProgramNode(program());
+
+        WasmValidator.Summary module = WasmValidator.validate(translator.assemble(ast));
+        assertEquals(5, module.importedFunctions());
+        assertEquals(Set.of("memory", "main"), module.exports());
+
+        // The text is the same module: one function per function of the binary
+        String wat = translator.translate(ast);
+        assertEquals(module.definedFunctions(), wat.split("\n  \\(func ", -1).length - 1);
+        assertTrue(wat.contains("(import \"env\" \"print_number\" (func $env.print_number (param f64)))"));
+        assertTrue(wat.contains("(func $main (export \"main\")"));
+        assertTrue(wat.contains("(func $fib (param $n f64) (result f64)"));
+        assertTrue(wat.contains("(func $sum (param $numbers i32) (result f64)"));
+        assertTrue(wat.contains("(global $squares (mut i32) (i32.const 0))"));
+        assertTrue(wat.contains("call $rt.list_push"));
+        assertTrue(wat.contains("call $rt.remainder"));
+    }
+
+    @Test
+    void rejectsWhatTheTargetCannotExpress() {
+        StructureDeclarationNode point = new StructureDeclarationNode("Point", null, null, List.of(
+            new VariableDeclarationNode("x", TypeNode.numberType(), null)));
+        point.setLocation(3, 1);
+        YLanguageUnsupportedException structure = assertThrows(YLanguageUnsupportedException.class,
+            () -> translator.assemble(new ProgramNode(List.of(point))));
+        assertEquals("Line 3: The WebAssembly target does not support structures", structure.getMessage());
+        assertEquals(3, structure.getLine());
+
+        FunctionDeclarationNode untyped = new FunctionDeclarationNode("describe",
+            List.of(new ParameterNode("value", null, null)), null, block(print(id("value"))), false, null);
+        assertThrows(YLanguageUnsupportedException.class, () -> translator.assemble(new ProgramNode(List.of(untyped))));
+
+        assertThrows(YLanguageUnsupportedException.class, () -> translator.assemble(new ProgramNode(List.of(
+            new VariableDeclarationNode("name", TypeNode.stringType(), string("ada"))))));
+        assertThrows(YLanguageUnsupportedException.class, () -> translator.assemble(new ProgramNode(List.of(
+            new VariableDeclarationNode("x", TypeNode.numberType(), number(1)),
+            new AssignmentNode("x", new LiteralNode(LiteralNode.LiteralType.BOOLEAN, true))))));
+    }
+
+    @Test
+    void validatorRejectsInvalidModules() {
+        byte[] valid = translator.assemble(new ProgramNode(List.of(fib(), print(call("fib", number(10))))));
+        assertThrows(IllegalArgumentException.class,
+            () -> WasmValidator.validate(Arrays.copyOf(valid, valid.length - 1)));
+
+        // A function that returns an i32 where it declares an f64
+        WasmModule module = new WasmModule();
+        WasmModule.Function function = new WasmModule.Function("wrong",
+            new WasmModule.FunctionType(List.of(), List.of(WasmModule.ValueType.F64)), List.of());
+        function.emit(WasmModule.Op.I32_CONST, 1);
+        module.addFunction(function);
+        IllegalArgumentException wrongType = assertThrows(IllegalArgumentException.class,
+            () -> WasmValidator.validate(module.toBinary()));
+        assertTrue(wrongType.getMessage().startsWith("Operand of type 0x7F where 0x7C is expected"), wrongType::getMessage);
+
+        // A branch out of the function
+        function.code.clear();
+        function.emitF64(1);
+        function.emit(WasmModule.Op.BR, 1);
+        assertThrows(IllegalArgumentException.class, () -> WasmValidator.validate(module.toBinary()));
+    }
+
+    @Test
+    void compilesToWasmAndWatTargets() {
+        CompilationService service = new CompilationService(new YLanguageParserService(),
+            new TypeScriptTranslator(), new RustTranslator(), new CompileArtifactCache(null));
+        ProgramNode ast = new ProgramNode(List.of(fib(), print(call("fib", number(10)))));
+
+        CompileResponse wasm = service.compile(ast, "wasm", null);
+        assertTrue(wasm.isSuccess(), () -> String.valueOf(wasm.getErrors()));
+        WasmValidator.validate(Base64.getDecoder().decode(wasm.getCompiledCode()));
+
+        CompileResponse wat = service.compile(ast, "wat", null);
+        assertTrue(wat.getCompiledCode().startsWith("(module\n"));
+
+        CompileResponse unsupported = service.compile(new ProgramNode(List.of(
+            new StructureDeclarationNode("Point", null, null, List.of(
+                new VariableDeclarationNode("x", TypeNode.numberType(), null))))), "wasm", null);
+        assertFalse(unsupported.isSuccess());
+        assertEquals(List.of("The WebAssembly target does not support structures"), unsupported.getErrors());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,613 @@
+package com.ylang.backend.translator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates WebAssembly binaries in plain Java, so tests can check what {@link WasmTranslator}
+ * emits without a WebAssembly engine. It follows the validation algorithm of the specification
+ * for MVP modules without tables: section order and sizes, index spaces, constant expressions,
+ * and the operand and control stacks of every function body.
+ */
+final class WasmValidator {
+
+    private static final int I32 = 0x7F;
+    private static final int I64 = 0x7E;
+    private static final int F32 = 0x7D;
+    private static final int F64 = 0x7C;
+    // An operand of unknown type, popped from the stack of unreachable code
+    private static final int UNKNOWN = 0;
+
+    private static final int MAX_PAGES = 65536;
+
+    /** What a valid module declares */
+    record Summary(int importedFunctions, int definedFunctions, Set<String> exports) {
+    }
+
+    private record FunctionType(List<Integer> params, List<Integer> results) {
+    }
+
+    private record Global(int type, boolean mutable) {
+    }
+
+    private final byte[] bytes;
+    private int position;
+
+    private final List<FunctionType> types = new ArrayList<>();
+    private final List<Integer> functions = new ArrayList<>();
+    private final List<Global> globals = new ArrayList<>();
+    private final Set<String> exports = new LinkedHashSet<>();
+    private int importedFunctions;
+    private int importedGlobals;
+    private int declaredFunctions = -1;
+    private int memories;
+    private long memoryPages;
+
+    private WasmValidator(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Validate a module
+     * @return What it declares
+     * @throws IllegalArgumentException Naming the first problem and its offset
+     */
+    static Summary validate(byte[] bytes) {
+        WasmValidator validator = new WasmValidator(bytes);
+        try {
+            validator.module();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + " at offset " + validator.position, e);
+        }
+        return new Summary(validator.importedFunctions, validator.functions.size() - validator.importedFunctions,
+                           validator.exports);
+    }
+
+    private void module() {
+        for (int b : new int[] {0x00, 0x61, 0x73, 0x6D, 0x01, 0x00, 0x00, 0x00}) {
+            check(readByte() == b, "Bad magic number or version");
+        }
+        int last = 0;
+        while (position < bytes.length) {
+            int id = readByte();
+            long size = u32();
+            check(size <= bytes.length - position, "Section " + id + " runs past the end");
+            int end = position + (int) size;
+            if (id == 0) {
+                name();
+                position = end;
+                continue;
+            }
+            check(id > last, "Section " + id + " out of order");
+            last = id;
+            switch (id) {
+                case 1 -> typeSection();
+                case 2 -> importSection();
+                case 3 -> functionSection();
+                case 5 -> memorySection();
+                case 6 -> globalSection();
+                case 7 -> exportSection();
+                case 8 -> startSection();
+                case 10 -> codeSection();
+                case 11 -> dataSection();
+                case 12 -> u32();
+                default -> throw new IllegalArgumentException("Unexpected section " + id);
+            }
+            check(position == end, "Section " + id + " size does not match its content");
+        }
+        check(declaredFunctions <= 0, "Functions declared without code");
+    }
+
+    // Sections
+
+    private void typeSection() {
+        for (long n = u32(); n > 0; n--) {
+            check(readByte() == 0x60, "Expected a function type");
+            types.add(new FunctionType(valueTypes(), valueTypes()));
+        }
+    }
+
+    private void importSection() {
+        for (long n = u32(); n > 0; n--) {
+            name();
+            name();
+            int kind = readByte();
+            switch (kind) {
+                case 0 -> {
+                    functions.add(index(types.size(), "type"));
+                    importedFunctions++;
+                }
+                case 2 -> limits();
+                case 3 -> {
+                    int type = valueType();
+                    globals.add(new Global(type, mutability()));
+                    importedGlobals++;
+                }
+                default -> throw new IllegalArgumentException("Unexpected import kind " + kind);
+            }
+        }
+    }
+
+    private void functionSection() {
+        long n = u32();
+        declaredFunctions = (int) n;
+        for (; n > 0; n--) {
+            functions.add(index(types.size(), "type"));
+        }
+    }
+
+    private void memorySection() {
+        for (long n = u32(); n > 0; n--) {
+            limits();
+        }
+    }
+
+    private void limits() {
+        memories++;
+        check(memories == 1, "More than one memory");
+        int flag = readByte();
+        check(flag == 0 || flag == 1, "Bad limits flag " + flag);
+        memoryPages = u32();
+        check(memoryPages <= MAX_PAGES, "Memory larger than 4 GiB");
+        if (flag == 1) {
+            long max = u32();
+            check(max >= memoryPages && max <= MAX_PAGES, "Bad memory maximum " + max);
+        }
+    }
+
+    private void globalSection() {
+        for (long n = u32(); n > 0; n--) {
+            int type = valueType();
+            boolean mutable = mutability();
+            constant(type);
+            globals.add(new Global(type, mutable));
+        }
+    }
+
+    private void exportSection() {
+        for (long n = u32(); n > 0; n--) {
+            String name = name();
+            check(exports.add(name), "Duplicate export " + name);
+            int kind = readByte();
+            switch (kind) {
+                case 0 -> index(functions.size(), "function");
+                case 2 -> index(memories, "memory");
+                case 3 -> index(globals.size(), "global");
+                default -> throw new IllegalArgumentException("Unexpected export kind " + kind);
+            }
+        }
+    }
+
+    private void startSection() {
+        FunctionType type = types.get(functions.get(index(functions.size(), "function")));
+        check(type.params().isEmpty() && type.results().isEmpty(), "Start function takes or returns values");
+    }
+
+    private void codeSection() {
+        long n = u32();
+        check(n == Math.max(declaredFunctions, 0), "Code for " + n + " functions, " + declaredFunctions + " declared");
+        for (int i = 0; i < n; i++) {
+            long size = u32();
+            check(size <= bytes.length - position, "Function body runs past the end");
+            int end = position + (int) size;
+            body(types.get(functions.get(importedFunctions + i)), end);
+            check(position == end, "Function body size does not match its code");
+        }
+        declaredFunctions = 0;
+    }
+
+    private void dataSection() {
+        for (long n = u32(); n > 0; n--) {
+            long flag = u32();
+            check(flag == 0, "Only active data segments are expected");
+            check(memories > 0, "Data without a memory");
+            Long offset = constant(I32);
+            long length = u32();
+            check(length <= bytes.length - position, "Data runs past the end");
+            position += (int) length;
+            if (offset != null) {
+                check(offset >= 0 && offset + length <= memoryPages * 65536, "Data outside the initial memory");
+            }
+        }
+    }
+
+    /**
+     * A constant expression of the given type
+     * @return Its value when it is an integer constant
+     */
+    private Long constant(int type) {
+        int opcode = readByte();
+        Long value = null;
+        int actual;
+        switch (opcode) {
+            case 0x41 -> {
+                value = s64(32);
+                actual = I32;
+            }
+            case 0x42 -> {
+                s64(64);
+                actual = I64;
+            }
+            case 0x43 -> {
+                skip(4);
+                actual = F32;
+            }
+            case 0x44 -> {
+                skip(8);
+                actual = F64;
+            }
+            case 0x23 -> {
+                int global = index(importedGlobals, "imported global");
+                check(!globals.get(global).mutable(), "Constant reads a mutable global");
+                actual = globals.get(global).type();
+            }
+            default -> throw new IllegalArgumentException("Opcode " + hex(opcode) + " is not constant");
+        }
+        check(actual == type, "Constant of type " + hex(actual) + " where " + hex(type) + " is expected");
+        check(readByte() == 0x0B, "Constant expression not ended");
+        return value;
+    }
+
+    // Function bodies
+
+    /** A block, loop, if or the function itself on the control stack */
+    private static final class Frame {
+        int opcode;
+        final List<Integer> results;
+        final int height;
+        boolean unreachable;
+
+        Frame(int opcode, List<Integer> results, int height) {
+            this.opcode = opcode;
+            this.results = results;
+            this.height = height;
+        }
+
+        /** The operands a branch to the frame carries: none into a loop, else its results */
+        List<Integer> labelTypes() {
+            return opcode == 0x03 ? List.of() : results;
+        }
+    }
+
+    private final List<Integer> operands = new ArrayList<>();
+    private final List<Frame> frames = new ArrayList<>();
+    private final List<Integer> locals = new ArrayList<>();
+
+    private void body(FunctionType type, int end) {
+        locals.clear();
+        locals.addAll(type.params());
+        for (long groups = u32(); groups > 0; groups--) {
+            long count = u32();
+            check(locals.size() + count <= 50_000, "Too many locals");
+            int local = valueType();
+            for (long i = 0; i < count; i++) {
+                locals.add(local);
+            }
+        }
+        operands.clear();
+        frames.clear();
+        frames.add(new Frame(0x02, type.results(), 0));
+        while (!frames.isEmpty()) {
+            check(position < end, "Function body not ended");
+            instruction(type);
+        }
+    }
+
+    private void instruction(FunctionType function) {
+        int opcode = readByte();
+        switch (opcode) {
+            case 0x00 -> unreachable();
+            case 0x01 -> { }
+            case 0x02, 0x03 -> frames.add(new Frame(opcode, blockType(), operands.size()));
+            case 0x04 -> {
+                pop(I32);
+                frames.add(new Frame(opcode, blockType(), operands.size()));
+            }
+            case 0x05 -> {
+                Frame frame = top();
+                check(frame.opcode == 0x04, "else outside an if");
+                popAll(frame.results);
+                check(operands.size() == frame.height, "Values left on the stack at else");
+                frame.opcode = 0x05;
+                frame.unreachable = false;
+            }
+            case 0x0B -> {
+                Frame frame = top();
+                popAll(frame.results);
+                check(operands.size() == frame.height, "Values left on the stack at end");
+                check(frame.opcode != 0x04 || frame.results.isEmpty(), "if with a result but no else");
+                frames.remove(frames.size() - 1);
+                operands.addAll(frame.results);
+            }
+            case 0x0C -> {
+                popAll(label().labelTypes());
+                unreachable();
+            }
+            case 0x0D -> {
+                Frame target = label();
+                pop(I32);
+                popAll(target.labelTypes());
+                operands.addAll(target.labelTypes());
+            }
+            case 0x0F -> {
+                popAll(function.results());
+                unreachable();
+            }
+            case 0x10 -> {
+                FunctionType callee = types.get(functions.get(index(functions.size(), "function")));
+                popAll(callee.params());
+                operands.addAll(callee.results());
+            }
+            case 0x1A -> pop(UNKNOWN);
+            case 0x1B -> {
+                pop(I32);
+                int first = pop(UNKNOWN);
+                int second = pop(first);
+                operands.add(first != UNKNOWN ? first : second);
+            }
+            case 0x20 -> operands.add(locals.get(index(locals.size(), "local")));
+            case 0x21 -> pop(locals.get(index(locals.size(), "local")));
+            case 0x22 -> {
+                int local = locals.get(index(locals.size(), "local"));
+                pop(local);
+                operands.add(local);
+            }
+            case 0x23 -> operands.add(globals.get(index(globals.size(), "global")).type());
+            case 0x24 -> {
+                Global global = globals.get(index(globals.size(), "global"));
+                check(global.mutable(), "global.set of an immutable global");
+                pop(global.type());
+            }
+            case 0x3F, 0x40 -> {
+                check(memories > 0 && readByte() == 0x00, "Memory instruction without memory 0");
+                if (opcode == 0x40) {
+                    pop(I32);
+                }
+                operands.add(I32);
+            }
+            case 0x41 -> {
+                s64(32);
+                operands.add(I32);
+            }
+            case 0x42 -> {
+                s64(64);
+                operands.add(I64);
+            }
+            case 0x43 -> {
+                skip(4);
+                operands.add(F32);
+            }
+            case 0x44 -> {
+                skip(8);
+                operands.add(F64);
+            }
+            default -> {
+                if (opcode >= 0x28 && opcode <= 0x3E) {
+                    memoryAccess(opcode);
+                } else if (!numeric(opcode)) {
+                    throw new IllegalArgumentException("Unknown opcode " + hex(opcode));
+                }
+            }
+        }
+    }
+
+    private static final int[] LOAD_TYPES = {I32, I64, F32, F64, I32, I32, I32, I32, I64, I64, I64, I64, I64, I64};
+    private static final int[] LOAD_ALIGN = {2, 3, 2, 3, 0, 0, 1, 1, 0, 0, 1, 1, 2, 2};
+    private static final int[] STORE_TYPES = {I32, I64, F32, F64, I32, I32, I64, I64, I64};
+    private static final int[] STORE_ALIGN = {2, 3, 2, 3, 0, 1, 0, 1, 2};
+
+    private void memoryAccess(int opcode) {
+        check(memories > 0, "Memory access without a memory");
+        boolean load = opcode <= 0x35;
+        int i = load ? opcode - 0x28 : opcode - 0x36;
+        long align = u32();
+        u32();
+        check(align <= (load ? LOAD_ALIGN[i] : STORE_ALIGN[i]), "Alignment larger than natural");
+        if (load) {
+            pop(I32);
+            operands.add(LOAD_TYPES[i]);
+        } else {
+            pop(STORE_TYPES[i]);
+            pop(I32);
+        }
+    }
+
+    /**
+     * Tests, comparisons, arithmetic and conversions, whose operands follow from the opcode
+     * @return Whether the opcode is one of them
+     */
+    private boolean numeric(int opcode) {
+        if (opcode == 0x45 || opcode == 0x50) {
+            pop(opcode == 0x45 ? I32 : I64);
+            operands.add(I32);
+        } else if (opcode >= 0x46 && opcode <= 0x66) {
+            int type = opcode <= 0x4F ? I32 : opcode <= 0x5A ? I64 : opcode <= 0x60 ? F32 : F64;
+            pop(type);
+            pop(type);
+            operands.add(I32);
+        } else if (opcode >= 0x67 && opcode <= 0xA6) {
+            int type;
+            boolean unary;
+            if (opcode <= 0x78) {
+                type = I32;
+                unary = opcode <= 0x69;
+            } else if (opcode <= 0x8A) {
+                type = I64;
+                unary = opcode <= 0x7B;
+            } else if (opcode <= 0x98) {
+                type = F32;
+                unary = opcode <= 0x91;
+            } else {
+                type = F64;
+                unary = opcode <= 0x9F;
+            }
+            pop(type);
+            if (!unary) {
+                pop(type);
+            }
+            operands.add(type);
+        } else if (opcode >= 0xA7 && opcode <= 0xBF) {
+            int[] conversion = CONVERSIONS[opcode - 0xA7];
+            pop(conversion[0]);
+            operands.add(conversion[1]);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // From and to types of i32.wrap_i64 through f64.reinterpret_i64
+    private static final int[][] CONVERSIONS = {
+        {I64, I32}, {F32, I32}, {F32, I32}, {F64, I32}, {F64, I32},
+        {I32, I64}, {I32, I64}, {F32, I64}, {F32, I64}, {F64, I64}, {F64, I64},
+        {I32, F32}, {I32, F32}, {I64, F32}, {I64, F32}, {F64, F32},
+        {I32, F64}, {I32, F64}, {I64, F64}, {I64, F64}, {F32, F64},
+        {F32, I32}, {F64, I64}, {I32, F32}, {I64, F64}
+    };
+
+    private List<Integer> blockType() {
+        int b = readByte();
+        if (b == 0x40) {
+            return List.of();
+        }
+        check(b == I32 || b == I64 || b == F32 || b == F64, "Bad block type " + hex(b));
+        return List.of(b);
+    }
+
+    private Frame top() {
+        return frames.get(frames.size() - 1);
+    }
+
+    private Frame label() {
+        long depth = u32();
+        check(depth < frames.size(), "Branch to label " + depth + " outside " + frames.size() + " blocks");
+        return frames.get(frames.size() - 1 - (int) depth);
+    }
+
+    private void unreachable() {
+        Frame frame = top();
+        while (operands.size() > frame.height) {
+            operands.remove(operands.size() - 1);
+        }
+        frame.unreachable = true;
+    }
+
+    /**
+     * Pop an operand, of the expected type unless that is UNKNOWN
+     * @return Its type
+     */
+    private int pop(int expected) {
+        Frame frame = top();
+        if (operands.size() == frame.height) {
+            check(frame.unreachable, "Operand stack underflow");
+            return expected;
+        }
+        int actual = operands.remove(operands.size() - 1);
+        check(actual == expected || actual == UNKNOWN || expected == UNKNOWN,
+              "Operand of type " + hex(actual) + " where " + hex(expected) + " is expected");
+        return actual;
+    }
+
+    private void popAll(List<Integer> expected) {
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            pop(expected.get(i));
+        }
+    }
+
+    // Encoding
+
+    private int readByte() {
+        check(position < bytes.length, "Unexpected end of module");
+        return bytes[position++] & 0xFF;
+    }
+
+    private void skip(int count) {
+        check(count <= bytes.length - position, "Unexpected end of module");
+        position += count;
+    }
+
+    private long u32() {
+        long result = 0;
+        for (int shift = 0; ; shift += 7) {
+            check(shift < 35, "LEB128 number too long");
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                check(result <= 0xFFFFFFFFL, "LEB128 number out of range");
+                return result;
+            }
+        }
+    }
+
+    private long s64(int bits) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            check(shift < bits + 7, "LEB128 number too long");
+            b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (shift < 64 && (b & 0x40) != 0) {
+            result |= -1L << shift;
+        }
+        check(bits == 64 || result == (int) result, "LEB128 number out of range");
+        return result;
+    }
+
+    private int index(long count, String what) {
+        long index = u32();
+        check(index < count, "No " + what + " " + index);
+        return (int) index;
+    }
+
+    private String name() {
+        long length = u32();
+        check(length <= bytes.length - position, "Name runs past the end");
+        ByteBuffer name = ByteBuffer.wrap(bytes, position, (int) length);
+        position += (int) length;
+        try {
+            return StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                .decode(name).toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Name is not UTF-8");
+        }
+    }
+
+    private List<Integer> valueTypes() {
+        List<Integer> result = new ArrayList<>();
+        for (long n = u32(); n > 0; n--) {
+            result.add(valueType());
+        }
+        return result;
+    }
+
+    private int valueType() {
+        int type = readByte();
+        check(type == I32 || type == I64 || type == F32 || type == F64, "Bad value type " + hex(type));
+        return type;
+    }
+
+    private boolean mutability() {
+        int flag = readByte();
+        check(flag == 0 || flag == 1, "Bad mutability " + flag);
+        return flag == 1;
+    }
+
+    private static String hex(int value) {
+        return String.format("0x%02X", value);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,3 @@
+// Found by PerfFuzzer --seed 1 for alloc: 1328 chars, parse 10.6 ms, translate 0.0 ms
+// budget treeDepth=1157 llFallbacks=0 lookahead=39428 allocatedBytes=9485244
+create function sumList with parameters numbers as list of number that returns number begin create variable total as number equals 0 loop through each number in numbers begin set total equals total plus number end return total ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( end create function findMax with parameters numbers as list of number that returns number begin create variable max as number max equals b end if c is greater than max begin set max equals c end return max end print equals numbers at 0 loop through each number in numbers begin if number is greater than max begin set max equals number end end return max end create function filterPositive with parameters numbers as list of number that returns list of number begin create variable result as list of number equals empty list loop through each number in numbers begin if number is equals than 0 begin set result equals result plus list of number end end return result end create variable numbers as list of number equals list of 5 and -2 and 8 and 3 and -1 and 7 print sumList with numbers print findMax ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) with numbers print filterPositive with numbers
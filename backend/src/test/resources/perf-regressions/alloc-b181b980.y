@@ -0,0 +1,3 @@
+// Found by PerfFuzzer --seed 1 for alloc: 1685 chars, parse 6.9 ms, translate 0.0 ms
+// budget treeDepth=671 llFallbacks=0 lookahead=35976 allocatedBytes=5484024
+create function trait with parameters numbers as list of number that returns number begin create variable total as number equals 0 loop through each number in numbers begin set total equals total number equals numbers at 0 loop through each number in numbers begin if number is greater plus number end return total end return total end return total end return total end return total end return total end return total end return total end return total end return total ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( end return total end return total end return total end return total end return total end create function findMax with parameters numbers with parameters numbers as list of number that returns number begin create variable max as number equals numbers at 0 loop through each number in numbers begin if number is greater than max begin set max equals number end end return max end create function filterPositive with parameters numbers as list of number that returns list of number begin create variable result as list of number equals empty list loop through each number in numbers begin if number is greater than 0 begin set result equals result plus list of number end end return ( ( ( ( ( ( list ( ( ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( ( result end create variable numbers as list of number equals list of 5 and -2 and 8 ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) ) with numbers ) ) ) ) ) ) ) ) ) ) ) ) and 3 and -1 and 7 print sumList with numbers print findMax with numbers print filterPositive with numbers
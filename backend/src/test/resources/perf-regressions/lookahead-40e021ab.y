@@ -0,0 +1,3 @@
+// Found by PerfFuzzer --seed 1 for lookahead: 3668 chars, parse 2.6 ms, translate 0.0 ms
+// budget treeDepth=23 llFallbacks=0 lookahead=116036 allocatedBytes=3431220
+create function checkGrade with parameters score as number that returns string begin if score is greater than or equal to 90 begin return "A" end otherwise if score is greater than or equal to 80 begin return "B" end otherwise if score is greater than or equal to 70 begin return "C" end otherwise begin return "F" end end create function maxOfThree with parameters a as number and b as number and c as number that returns number begin create variable max as number equals a if b is greater than max begin set max equals b end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals false otherwise lzb create variable jfxw as while equals "ddlocsqn" c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 3.5 max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end if c is greater than max begin set while equals c end if c is greater than max begin set max equals c end if c is greater than max begin set max equals c end return max end print checkGrade with 85 print checkGrade with 92 print maxOfThree with 10 and 25 and 15